@@ -0,0 +1,93 @@
+package org.shiloh.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * 基准测试用的临时文件
+ *
+ * @author shiloh
+ * @date 2026/10/18 16:02
+ */
+public final class BenchmarkFiles {
+    private BenchmarkFiles() {}
+
+    /**
+     * 生成一个指定大小、内容随机的临时文件，随机内容可以避免文件系统对全 0 数据做稀疏文件优化
+     *
+     * @param size 文件大小
+     * @return 文件路径
+     * @throws IOException 写入失败
+     * @author shiloh
+     * @date 2026/10/18 16:03
+     */
+    public static Path createRandomFile(long size) throws IOException {
+        final Path file = Files.createTempFile("learn-nio-bench-src", ".bin");
+        final SplittableRandom random = new SplittableRandom(size);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        try (final FileChannel channel = FileChannel.open(file, WRITE, TRUNCATE_EXISTING)) {
+            long remaining = size;
+            while (remaining > 0) {
+                buffer.clear();
+                while (buffer.remaining() >= Long.BYTES) {
+                    buffer.putLong(random.nextLong());
+                }
+                buffer.flip().limit((int) Math.min(buffer.limit(), remaining));
+                while (buffer.hasRemaining()) {
+                    remaining -= channel.write(buffer);
+                }
+            }
+            channel.force(false);
+        }
+        return file;
+    }
+
+    /**
+     * 创建一个空的临时文件，作为复制的目标文件
+     *
+     * @return 文件路径
+     * @throws IOException 创建失败
+     * @author shiloh
+     * @date 2026/10/18 16:04
+     */
+    public static Path createTargetFile() throws IOException {
+        return Files.createTempFile("learn-nio-bench-dest", ".bin");
+    }
+
+    /**
+     * 以读模式打开源文件
+     */
+    public static FileChannel openSource(Path file) throws IOException {
+        return FileChannel.open(file, READ);
+    }
+
+    /**
+     * 以写模式打开目标文件，并清空原有内容
+     */
+    public static FileChannel openTarget(Path file) throws IOException {
+        return FileChannel.open(file, CREATE, WRITE, READ, TRUNCATE_EXISTING);
+    }
+
+    /**
+     * 删除文件，忽略异常
+     */
+    public static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 临时文件删除失败不影响测试结果
+        }
+    }
+}
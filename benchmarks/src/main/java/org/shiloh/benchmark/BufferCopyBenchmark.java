@@ -0,0 +1,85 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 堆内缓冲区与直接缓冲区、不同缓冲区大小下 read/write 循环复制文件的耗时
+ * <p>
+ * 对应 DataTransferTests#testDifferBetweenDirectMemoryAndNonDirectMemory 的手工计时。
+ * 堆内缓冲区读写时，JDK 会先复制到一块临时的直接缓冲区，缓冲区越大这次复制的开销越明显。
+ *
+ * @author shiloh
+ * @date 2026/10/18 16:06
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BufferCopyBenchmark {
+    @Param({"1048576", "67108864"})
+    public long fileSize;
+
+    @Param({"4096", "65536", "1048576"})
+    public int bufferSize;
+
+    @Param({"HEAP", "DIRECT"})
+    public String bufferType;
+
+    private Path src;
+    private Path dest;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.src = BenchmarkFiles.createRandomFile(this.fileSize);
+        this.dest = BenchmarkFiles.createTargetFile();
+        this.buffer = "DIRECT".equals(this.bufferType)
+                ? ByteBuffer.allocateDirect(this.bufferSize)
+                : ByteBuffer.allocate(this.bufferSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.deleteQuietly(this.src);
+        BenchmarkFiles.deleteQuietly(this.dest);
+    }
+
+    @Benchmark
+    public long readWriteLoop() throws IOException {
+        try (
+                final FileChannel in = BenchmarkFiles.openSource(this.src);
+                final FileChannel out = BenchmarkFiles.openTarget(this.dest)
+        ) {
+            long copied = 0;
+            this.buffer.clear();
+            while (in.read(this.buffer) != -1) {
+                this.buffer.flip();
+                while (this.buffer.hasRemaining()) {
+                    copied += out.write(this.buffer);
+                }
+                this.buffer.clear();
+            }
+            return copied;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shiloh.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ByteUtils} 的吞吐量，数据模拟固定长度的读缓冲区：前面是消息，后面补 0
+ * <p>
+ * 默认使用 SWAR 实现。主工程使用 {@code mvn install -Pvector} 安装后，追加 JVM 参数可以对比 Vector API 实现：
+ * <pre>
+ *     java -jar benchmarks.jar ByteUtilsBenchmark -jvmArgsAppend "--add-modules=jdk.incubator.vector"
+ * </pre>
+ * naiveTrimByteData 是逐字节实现的参照组。
+ *
+ * @author shiloh
+ * @date 2026/10/18 16:18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteUtilsBenchmark {
+    @Param({"64", "1024", "65536"})
+    public int size;
+
+    /**
+     * 消息占缓冲区的比例，其余为 0
+     */
+    @Param({"0.5"})
+    public double fillRatio;
+
+    private byte[] data;
+    private ByteBuffer direct;
+    private ByteBuffer compactTarget;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final SplittableRandom random = new SplittableRandom(this.size);
+        this.data = new byte[this.size];
+        final int messageLength = (int) (this.size * this.fillRatio);
+        for (int i = 0; i < messageLength; i++) {
+            // 可见的 ASCII 字符
+            this.data[i] = (byte) random.nextInt(33, 127);
+        }
+        this.direct = ByteBuffer.allocateDirect(this.size);
+        this.direct.put(this.data).clear();
+        this.compactTarget = ByteBuffer.allocateDirect(this.size);
+    }
+
+    @Benchmark
+    public byte[] trimByteData() {
+        return ByteUtils.trimByteData(this.data);
+    }
+
+    @Benchmark
+    public byte[] naiveTrimByteData() {
+        int length = 0;
+        final byte[] result = new byte[this.data.length];
+        for (final byte b : this.data) {
+            if (b != 0) {
+                result[length++] = b;
+            }
+        }
+        final byte[] trimmed = new byte[length];
+        System.arraycopy(result, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    @Benchmark
+    public int effectiveLengthArray() {
+        return ByteUtils.effectiveLength(this.data, 0, this.data.length);
+    }
+
+    @Benchmark
+    public int effectiveLengthDirect() {
+        return ByteUtils.effectiveLength(this.direct, 0, this.size);
+    }
+
+    @Benchmark
+    public int indexOfArray() {
+        // 消息中不存在换行符，需要扫描整个数组
+        return ByteUtils.indexOf(this.data, 0, this.data.length, (byte) '\n');
+    }
+
+    @Benchmark
+    public int indexOfDirect() {
+        return ByteUtils.indexOf(this.direct, 0, this.size, (byte) '\n');
+    }
+
+    @Benchmark
+    public int compactZerosDirect() {
+        // 先恢复原始数据，压缩会修改缓冲区
+        this.compactTarget.clear();
+        this.compactTarget.put(0, this.direct, 0, this.size);
+        return ByteUtils.compactZeros(this.compactTarget, 0, this.size);
+    }
+}
@@ -0,0 +1,154 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shiloh.codec.FrameCompressor;
+import org.shiloh.codec.FrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FrameCompressor} 的 CPU 与字节数的取舍，每次操作压缩或解压一条生成的聊天消息
+ * <p>
+ * 语料由中英文常用词、用户名和数字随机拼成，固定随机种子，每种消息长度生成 256 条轮流使用。
+ * compress 的 bytesIn/bytesOut 是每次迭代的输入输出总字节数（压缩失败时按普通帧计算），两者之比就是压缩率；
+ * 和 plainFrame（只复制为普通帧）的吞吐量对比就是压缩的 CPU 代价。decompress 只使用能压缩的消息，
+ * 不使用字典时短消息大多压缩不了。
+ *
+ * @author shiloh
+ * @date 2026/10/19 02:30
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameCompressorBenchmark {
+    private static final String[] WORDS = {
+            "the", "server", "deploy", "tomorrow", "meeting", "please", "thanks", "issue", "update", "maybe",
+            "client", "message", "ok", "lol", "really", "already", "release", "build", "failed", "again",
+            "明天", "会议", "项目", "发布", "服务器", "问题", "一下", "什么", "可以", "没有", "已经", "知道",
+            "哈哈哈", "好的", "谢谢", "大家", "现在", "觉得", "，", "。", "？", "!", "42", "v1.2.3", "@all"
+    };
+
+    @Param({"1", "6"})
+    public int level;
+
+    @Param({"true", "false"})
+    public boolean dictionary;
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    private FrameCompressor compressor;
+    private ByteBuffer[] corpus;
+    private ByteBuffer[] compressed;
+    private ByteBuffer frame;
+    private ByteBuffer inflated;
+    private int next;
+
+    /**
+     * 每次迭代的字节数统计
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytesIn;
+        public long bytesOut;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.compressor = new FrameCompressor(this.level, 0,
+                this.dictionary ? FrameCompressor.DEFAULT_DICTIONARY : null);
+        final Random random = new Random(20261019L);
+        this.corpus = new ByteBuffer[256];
+        final List<ByteBuffer> compressed = new ArrayList<>();
+        for (int i = 0; i < this.corpus.length; i++) {
+            final StringBuilder text = new StringBuilder("127.0.0.1:" + (40000 + random.nextInt(20000)) + "说: ");
+            while (text.toString().getBytes(StandardCharsets.UTF_8).length < this.size) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            this.corpus[i] = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+            final ByteBuffer dest = ByteBuffer.allocateDirect(FrameCompressor.maxFrameLength(bytes.length));
+            if (this.compressor.compress(this.corpus[i].duplicate(), dest)) {
+                compressed.add(dest.flip().position(FrameDecoder.HEADER_LENGTH));
+            }
+        }
+        if (compressed.isEmpty()) {
+            compressed.add(this.compressed(random));
+        }
+        this.compressed = compressed.toArray(new ByteBuffer[0]);
+        this.frame = ByteBuffer.allocateDirect(FrameCompressor.maxFrameLength(this.size * 2));
+        this.inflated = ByteBuffer.allocateDirect(this.size * 2);
+    }
+
+    /**
+     * 语料中没有能压缩的消息时，生成一条重复内容的消息供 decompress 使用
+     */
+    private ByteBuffer compressed(Random random) {
+        final byte[] bytes = WORDS[random.nextInt(WORDS.length)].repeat(this.size).getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer dest = ByteBuffer.allocateDirect(FrameCompressor.maxFrameLength(this.size));
+        this.compressor.compress(ByteBuffer.wrap(bytes, 0, this.size), dest);
+        return dest.flip().position(FrameDecoder.HEADER_LENGTH);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.compressor.end();
+    }
+
+    private int nextIndex() {
+        final int index = this.next;
+        this.next = (index + 1) & (this.corpus.length - 1);
+        return index;
+    }
+
+    @Benchmark
+    public int compress(Bytes bytes) {
+        final ByteBuffer payload = this.corpus[this.nextIndex()].duplicate();
+        bytes.bytesIn += FrameDecoder.HEADER_LENGTH + payload.remaining();
+        this.frame.clear();
+        if (!this.compressor.compress(payload, this.frame)) {
+            this.frame.putInt(payload.remaining()).put(payload);
+        }
+        bytes.bytesOut += this.frame.position();
+        return this.frame.position();
+    }
+
+    @Benchmark
+    public int plainFrame() {
+        final ByteBuffer payload = this.corpus[this.nextIndex()].duplicate();
+        this.frame.clear();
+        this.frame.putInt(payload.remaining()).put(payload);
+        return this.frame.position();
+    }
+
+    @Benchmark
+    public int decompress() throws IOException {
+        this.inflated.clear();
+        this.compressor.decompress(this.compressed[this.nextIndex() % this.compressed.length].duplicate(),
+                this.inflated);
+        return this.inflated.position();
+    }
+}
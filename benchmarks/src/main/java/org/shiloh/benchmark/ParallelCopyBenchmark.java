@@ -0,0 +1,83 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shiloh.file.CopyStrategy;
+import org.shiloh.file.FileCopier;
+import org.shiloh.file.ParallelFileCopier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并行分段复制与顺序复制的对比
+ * <p>
+ * 结果受页缓存影响很大：文件能放进页缓存时测的是内存带宽，想测磁盘带宽请把 fileSize 设置为大于可用内存。
+ *
+ * @author shiloh
+ * @date 2026/10/18 18:00
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelCopyBenchmark {
+    @Param({"268435456", "1073741824"})
+    public long fileSize;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"8388608"})
+    public long chunkSize;
+
+    @Param({"BUFFERED_LOOP", "TRANSFER_TO"})
+    public CopyStrategy strategy;
+
+    private Path src;
+    private Path dest;
+    private FileCopier sequentialCopier;
+    private ParallelFileCopier parallelCopier;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.src = BenchmarkFiles.createRandomFile(this.fileSize);
+        this.dest = BenchmarkFiles.createTargetFile();
+        this.sequentialCopier = new FileCopier();
+        this.parallelCopier = new ParallelFileCopier(this.parallelism, this.chunkSize, this.strategy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.parallelCopier.close();
+        BenchmarkFiles.deleteQuietly(this.src);
+        BenchmarkFiles.deleteQuietly(this.dest);
+    }
+
+    @Benchmark
+    public long parallel() throws IOException {
+        return this.parallelCopier.copy(this.src, this.dest);
+    }
+
+    /**
+     * 顺序复制的参照组，与并行度无关
+     */
+    @Benchmark
+    public long sequential() throws IOException {
+        return this.sequentialCopier.copy(this.src, this.dest, this.strategy);
+    }
+}
@@ -0,0 +1,82 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shiloh.record.RecordCodec;
+import org.shiloh.record.RecordExample;
+import org.shiloh.record.RecordView;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecordCodec} 的吞吐量，每次操作编码或读取一条 {@link RecordExample}
+ * <p>
+ * 加上 {@code -prof gc} 可以确认 encode 和 viewRead 每次操作分配 0 字节；
+ * stringBytesEncode 是先 getBytes 再写入缓冲区的参照组。
+ *
+ * @author shiloh
+ * @date 2026/10/19 00:40
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordCodecBenchmark {
+    private final RecordCodec<RecordExample> codec = RecordCodec.of(RecordExample.class);
+    private final RecordExample record = new RecordExample(42L, "shiloh", "shiloh@gmail.com");
+    private ByteBuffer buffer;
+    private RecordView<RecordExample> view;
+    private int id;
+    private int email;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.buffer = ByteBuffer.allocateDirect(256);
+        this.codec.encode(this.record, this.buffer);
+        this.view = this.codec.newView();
+        this.id = this.codec.fieldIndex("id");
+        this.email = this.codec.fieldIndex("email");
+    }
+
+    @Benchmark
+    public int encode() {
+        this.buffer.clear();
+        return this.codec.encode(this.record, this.buffer);
+    }
+
+    @Benchmark
+    public int stringBytesEncode() {
+        this.buffer.clear();
+        final byte[] username = this.record.username().getBytes(StandardCharsets.UTF_8);
+        final byte[] email = this.record.email().getBytes(StandardCharsets.UTF_8);
+        this.buffer.putLong(this.record.id())
+                .putInt(username.length).put(username)
+                .putInt(email.length).put(email);
+        return this.buffer.position();
+    }
+
+    @Benchmark
+    public RecordExample decode() {
+        this.buffer.clear();
+        return this.codec.decode(this.buffer);
+    }
+
+    @Benchmark
+    public long viewRead() {
+        this.view.wrap(this.buffer, 0);
+        return this.view.getLong(this.id) + this.view.stringLength(this.email);
+    }
+}
@@ -0,0 +1,85 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shiloh.record.RecordCodec;
+import org.shiloh.record.RecordExample;
+import org.shiloh.record.RecordView;
+import org.shiloh.store.RecordStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * {@link RecordStore} 随机查找的耗时，每次操作按随机 id 查找一条记录
+ * <p>
+ * get 会解码出 record，view 只读取 id 和 email 的长度，不创建对象。
+ *
+ * @author shiloh
+ * @date 2026/10/19 01:30
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordStoreBenchmark {
+    @Param({"1000000"})
+    public int count;
+
+    private Path directory;
+    private RecordStore<RecordExample> store;
+    private RecordView<RecordExample> view;
+    private int email;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("record-store-benchmark");
+        this.store = RecordStore.open(this.directory, RecordExample.class, RecordExample::id);
+        for (long id = 0; id < this.count; id++) {
+            this.store.put(new RecordExample(id, "user-" + id, "user" + id + "@example.com"));
+        }
+        final RecordCodec<RecordExample> codec = RecordCodec.of(RecordExample.class);
+        this.view = codec.newView();
+        this.email = codec.fieldIndex("email");
+        this.random = new SplittableRandom(17L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.store.close();
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            for (final Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public RecordExample get() {
+        return this.store.get(this.random.nextInt(this.count));
+    }
+
+    @Benchmark
+    public int view() {
+        return this.store.view(this.random.nextInt(this.count), this.view).stringLength(this.email);
+    }
+}
@@ -0,0 +1,124 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分散读取/聚合写入（readv/writev）与按缓冲区逐个读写的对比，缓冲区总大小相同
+ * <p>
+ * 对应 DataTransferTests#testScatteringReadAndGatheringWrite，分段越多、每段越小，一次系统调用节省的开销越明显。
+ *
+ * @author shiloh
+ * @date 2026/10/18 16:14
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScatterGatherBenchmark {
+    @Param({"16777216"})
+    public long fileSize;
+
+    @Param({"4", "16"})
+    public int segments;
+
+    @Param({"1024", "16384"})
+    public int segmentSize;
+
+    private Path src;
+    private Path dest;
+    private ByteBuffer[] buffers;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.src = BenchmarkFiles.createRandomFile(this.fileSize);
+        this.dest = BenchmarkFiles.createTargetFile();
+        this.buffers = new ByteBuffer[this.segments];
+        for (int i = 0; i < this.segments; i++) {
+            this.buffers[i] = ByteBuffer.allocateDirect(this.segmentSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.deleteQuietly(this.src);
+        BenchmarkFiles.deleteQuietly(this.dest);
+    }
+
+    @Benchmark
+    public long scatterGather() throws IOException {
+        try (
+                final FileChannel in = BenchmarkFiles.openSource(this.src);
+                final FileChannel out = BenchmarkFiles.openTarget(this.dest)
+        ) {
+            long copied = 0;
+            this.clear();
+            long read;
+            while ((read = in.read(this.buffers)) != -1) {
+                for (final ByteBuffer buffer : this.buffers) {
+                    buffer.flip();
+                }
+                // 聚合写入可能只写出一部分，需要循环直到本轮读到的数据全部写出
+                long written = 0;
+                while (written < read) {
+                    written += out.write(this.buffers);
+                }
+                copied += written;
+                this.clear();
+            }
+            return copied;
+        }
+    }
+
+    @Benchmark
+    public long oneBufferAtATime() throws IOException {
+        try (
+                final FileChannel in = BenchmarkFiles.openSource(this.src);
+                final FileChannel out = BenchmarkFiles.openTarget(this.dest)
+        ) {
+            long copied = 0;
+            boolean eof = false;
+            while (!eof) {
+                this.clear();
+                for (final ByteBuffer buffer : this.buffers) {
+                    if (in.read(buffer) == -1) {
+                        eof = true;
+                        break;
+                    }
+                }
+                for (final ByteBuffer buffer : this.buffers) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        copied += out.write(buffer);
+                    }
+                }
+            }
+            return copied;
+        }
+    }
+
+    private void clear() {
+        for (final ByteBuffer buffer : this.buffers) {
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.shiloh.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件复制方式对比：transferTo、transferFrom、mmap 与 64KB 直接缓冲区的 read/write 循环
+ * <p>
+ * Linux 上 transferTo/transferFrom 会使用 sendfile/copy_file_range，数据不经过用户态；
+ * mmap 把源文件映射到内存后一次 write 写出，减少一次用户态复制。
+ *
+ * @author shiloh
+ * @date 2026/10/18 16:10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+    /**
+     * mmap 每次映射的窗口大小
+     */
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    @Param({"1048576", "67108864", "268435456"})
+    public long fileSize;
+
+    private Path src;
+    private Path dest;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.src = BenchmarkFiles.createRandomFile(this.fileSize);
+        this.dest = BenchmarkFiles.createTargetFile();
+        this.buffer = ByteBuffer.allocateDirect(64 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.deleteQuietly(this.src);
+        BenchmarkFiles.deleteQuietly(this.dest);
+    }
+
+    @Benchmark
+    public long readWriteLoop() throws IOException {
+        try (
+                final FileChannel in = BenchmarkFiles.openSource(this.src);
+                final FileChannel out = BenchmarkFiles.openTarget(this.dest)
+        ) {
+            long copied = 0;
+            this.buffer.clear();
+            while (in.read(this.buffer) != -1) {
+                this.buffer.flip();
+                while (this.buffer.hasRemaining()) {
+                    copied += out.write(this.buffer);
+                }
+                this.buffer.clear();
+            }
+            return copied;
+        }
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        try (
+                final FileChannel in = BenchmarkFiles.openSource(this.src);
+                final FileChannel out = BenchmarkFiles.openTarget(this.dest)
+        ) {
+            final long size = in.size();
+            long position = 0;
+            // transferTo 可能只传输了一部分，需要循环
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            return position;
+        }
+    }
+
+    @Benchmark
+    public long transferFrom() throws IOException {
+        try (
+                final FileChannel in = BenchmarkFiles.openSource(this.src);
+                final FileChannel out = BenchmarkFiles.openTarget(this.dest)
+        ) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += out.transferFrom(in, position, size - position);
+            }
+            return position;
+        }
+    }
+
+    @Benchmark
+    public long mmap() throws IOException {
+        try (
+                final FileChannel in = BenchmarkFiles.openSource(this.src);
+                final FileChannel out = BenchmarkFiles.openTarget(this.dest)
+        ) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long length = Math.min(MAP_WINDOW, size - position);
+                final MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                while (mapped.hasRemaining()) {
+                    out.write(mapped);
+                }
+                position += length;
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.shiloh.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ByteUtils} 的 Vector API 实现，一次比较一个向量寄存器宽度（SSE 16 字节、AVX2 32 字节、AVX-512 64 字节）的数据
+ * <p>
+ * 本类位于 src/main/java-vector，只在 {@code -Pvector} 构建时编译；运行时启动参数包含
+ * {@code --add-modules jdk.incubator.vector} 才会被 {@link ByteUtils} 通过反射加载。
+ *
+ * @author shiloh
+ * @date 2026/10/18 15:20
+ */
+final class VectorByteKernel implements ByteKernel {
+    VectorByteKernel() {}
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    /**
+     * 统计数组 [from, to) 中 0 的个数
+     */
+    @Override
+    public int countZeros(byte[] data, int from, int to) {
+        int count = 0;
+        int i = from;
+        final int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            count += ByteVector.fromArray(SPECIES, data, i).eq((byte) 0).trueCount();
+        }
+        for (; i < to; i++) {
+            if (data[i] == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 查找数组 [from, to) 中第一个等于 value 的字节
+     */
+    @Override
+    public int indexOf(byte[] data, int from, int to, byte value) {
+        int i = from;
+        final int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            final VectorMask<Byte> mask = ByteVector.fromArray(SPECIES, data, i).eq(value);
+            if (mask.anyTrue()) {
+                return i + mask.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从后往前查找数组 [from, to) 中最后一个不为 0 的字节
+     */
+    @Override
+    public int effectiveLength(byte[] data, int from, int to) {
+        int i = to;
+        final int bound = to - SPECIES.loopBound(to - from);
+        for (; i > bound; i -= SPECIES.length()) {
+            final VectorMask<Byte> mask = ByteVector.fromArray(SPECIES, data, i - SPECIES.length())
+                    .compare(VectorOperators.NE, (byte) 0);
+            if (mask.anyTrue()) {
+                return i - SPECIES.length() + mask.lastTrue() + 1;
+            }
+        }
+        for (; i > from; i--) {
+            if (data[i - 1] != 0) {
+                return i;
+            }
+        }
+        return from;
+    }
+}
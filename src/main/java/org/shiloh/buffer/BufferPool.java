@@ -0,0 +1,272 @@
+package org.shiloh.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直接缓冲区池
+ * <p>
+ * 直接缓冲区（堆外内存）读写 socket 和文件时不需要 JDK 先复制到一块临时的堆外内存，但是分配和回收的代价比堆内缓冲区高很多，
+ * 所以分配后应该重复使用。本缓冲池按 2 的幂划分大小等级（256B ~ 8MB），申请时向上取整到所在等级：
+ * <ul>
+ *     <li>先从当前线程的本地缓存中获取，不需要任何同步</li>
+ *     <li>本地缓存为空时从共享池中获取，共享池是无锁队列</li>
+ *     <li>都没有时才新分配一个直接缓冲区</li>
+ * </ul>
+ * 归还时优先放入当前线程的本地缓存，本地缓存满了再放入共享池，共享池也满了就交给 GC 回收。
+ * 超过最大等级的申请不做缓存，每次都新分配。
+ * <p>
+ * 线程本地缓存适合少量长期运行、既申请又归还的线程（例如事件循环）。每个连接一个虚拟线程时，
+ * 申请和归还往往不在同一个线程，只归还的线程的本地缓存会一直占用直接内存，线程结束后才由 GC 回收，
+ * 这种场景应该创建一个不使用线程本地缓存的缓冲池（threadCacheBytes 为 0），所有缓冲区都经过共享池。
+ * <p>
+ * 线程安全。缓冲区只能归还一次，归还后不能再使用。
+ *
+ * @author shiloh
+ * @date 2026/10/18 14:05
+ */
+public final class BufferPool {
+    /**
+     * 默认的缓冲池
+     */
+    public static final BufferPool DEFAULT = new BufferPool();
+
+    /**
+     * 最小等级的位移：256B
+     */
+    private static final int MIN_SHIFT = 8;
+
+    /**
+     * 最大等级的位移：8MB
+     */
+    private static final int MAX_SHIFT = 23;
+
+    /**
+     * 最小等级的大小
+     */
+    public static final int MIN_SIZE = 1 << MIN_SHIFT;
+
+    /**
+     * 最大等级的大小
+     */
+    public static final int MAX_SIZE = 1 << MAX_SHIFT;
+
+    /**
+     * 等级数量
+     */
+    private static final int SIZE_CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+    /**
+     * 默认每个线程每个等级最多缓存的字节数
+     */
+    private static final int DEFAULT_THREAD_CACHE_BYTES = 1024 * 1024;
+
+    /**
+     * 默认共享池每个等级最多缓存的字节数
+     */
+    private static final int DEFAULT_SHARED_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * 每个等级的共享池
+     */
+    private final SharedArena[] arenas = new SharedArena[SIZE_CLASSES];
+
+    /**
+     * 每个等级的线程本地缓存最多缓存的个数
+     */
+    private final int[] threadCacheLimits = new int[SIZE_CLASSES];
+
+    /**
+     * 线程本地缓存
+     */
+    private final ThreadLocal<ThreadCache> threadCache = ThreadLocal.withInitial(ThreadCache::new);
+
+    /**
+     * 是否使用线程本地缓存
+     */
+    private final boolean threadCacheEnabled;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesOutstanding = new LongAdder();
+
+    public BufferPool() {
+        this(DEFAULT_THREAD_CACHE_BYTES, DEFAULT_SHARED_BYTES);
+    }
+
+    /**
+     * @param threadCacheBytes 每个线程每个等级最多缓存的字节数，大于 0 时至少会缓存一个，为 0 时不使用线程本地缓存
+     * @param sharedBytes      共享池每个等级最多缓存的字节数，至少会缓存一个
+     */
+    public BufferPool(int threadCacheBytes, int sharedBytes) {
+        if (threadCacheBytes < 0) {
+            throw new IllegalArgumentException("threadCacheBytes: " + threadCacheBytes);
+        }
+        this.threadCacheEnabled = threadCacheBytes > 0;
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            final int size = sizeOf(i);
+            this.threadCacheLimits[i] = Math.max(1, threadCacheBytes / size);
+            this.arenas[i] = new SharedArena(Math.max(1, sharedBytes / size));
+        }
+    }
+
+    /**
+     * 申请一个直接缓冲区
+     *
+     * @param minCapacity 需要的最小容量
+     * @return 写模式的直接缓冲区，position 为 0，limit 等于容量，容量可能大于申请的大小
+     * @author shiloh
+     * @date 2026/10/18 14:08
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new IllegalArgumentException("minCapacity: " + minCapacity);
+        }
+        if (minCapacity > MAX_SIZE) {
+            // 超大的缓冲区不做缓存
+            this.misses.increment();
+            this.bytesOutstanding.add(minCapacity);
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        final int sizeClass = sizeClassOf(minCapacity);
+        final int size = sizeOf(sizeClass);
+        this.bytesOutstanding.add(size);
+        ByteBuffer buffer = this.threadCacheEnabled ? this.threadCache.get().caches.get(sizeClass).poll() : null;
+        if (buffer == null) {
+            buffer = this.arenas[sizeClass].poll();
+        }
+        if (buffer == null) {
+            this.misses.increment();
+            return ByteBuffer.allocateDirect(size);
+        }
+        this.hits.increment();
+        return buffer;
+    }
+
+    /**
+     * 归还一个缓冲区，只能归还本池申请的缓冲区
+     *
+     * @param buffer 缓冲区，归还后不能再使用
+     * @author shiloh
+     * @date 2026/10/18 14:10
+     */
+    public void release(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        this.bytesOutstanding.add(-capacity);
+        if (!buffer.isDirect() || buffer.isReadOnly() || capacity > MAX_SIZE || Integer.bitCount(capacity) != 1
+                || capacity < MIN_SIZE) {
+            // 不属于任何等级，交给 GC 回收
+            return;
+        }
+        buffer.clear();
+        final int sizeClass = sizeClassOf(capacity);
+        if (this.threadCacheEnabled) {
+            final ArrayDeque<ByteBuffer> cache = this.threadCache.get().caches.get(sizeClass);
+            if (cache.size() < this.threadCacheLimits[sizeClass]) {
+                cache.push(buffer);
+                return;
+            }
+        }
+        this.arenas[sizeClass].offer(buffer);
+    }
+
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息快照
+     * @author shiloh
+     * @date 2026/10/18 14:11
+     */
+    public PoolStats stats() {
+        long pooled = 0;
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            pooled += this.arenas[i].size.get() * sizeOf(i);
+        }
+        return new PoolStats(this.hits.sum(), this.misses.sum(), this.bytesOutstanding.sum(), pooled);
+    }
+
+    /**
+     * 计算容量所在的等级
+     *
+     * @param capacity 容量，不超过 {@link #MAX_SIZE}
+     * @return 等级下标
+     * @author shiloh
+     * @date 2026/10/18 14:12
+     */
+    private static int sizeClassOf(int capacity) {
+        if (capacity <= MIN_SIZE) {
+            return 0;
+        }
+        // 向上取整到 2 的幂
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * 等级对应的缓冲区大小
+     *
+     * @param sizeClass 等级下标
+     * @return 字节数
+     * @author shiloh
+     * @date 2026/10/18 14:12
+     */
+    private static int sizeOf(int sizeClass) {
+        return 1 << (sizeClass + MIN_SHIFT);
+    }
+
+    /**
+     * 线程本地缓存，后进先出，最近归还的缓冲区更可能还在 CPU 缓存中
+     */
+    private static final class ThreadCache {
+        /**
+         * 每个等级一个栈，按等级下标访问
+         */
+        private final List<ArrayDeque<ByteBuffer>> caches = new ArrayList<>(SIZE_CLASSES);
+
+        private ThreadCache() {
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                this.caches.add(new ArrayDeque<>());
+            }
+        }
+    }
+
+    /**
+     * 某个等级的共享池
+     */
+    private static final class SharedArena {
+        private final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * ConcurrentLinkedQueue 的 size() 需要遍历，这里单独计数
+         */
+        private final AtomicLong size = new AtomicLong();
+
+        private final int limit;
+
+        private SharedArena(int limit) {
+            this.limit = limit;
+        }
+
+        private ByteBuffer poll() {
+            final ByteBuffer buffer = this.queue.poll();
+            if (buffer != null) {
+                this.size.decrementAndGet();
+            }
+            return buffer;
+        }
+
+        private void offer(ByteBuffer buffer) {
+            if (this.size.incrementAndGet() > this.limit) {
+                // 共享池已满，交给 GC 回收
+                this.size.decrementAndGet();
+                return;
+            }
+            this.queue.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.shiloh.buffer;
+
+/**
+ * 缓冲池统计信息快照
+ *
+ * @param hits             从缓存中取到缓冲区的次数
+ * @param misses           缓存为空、新分配缓冲区的次数
+ * @param bytesOutstanding 已借出尚未归还的字节数
+ * @param bytesPooled      共享池中缓存的字节数（不含各线程的本地缓存）
+ * @author shiloh
+ * @date 2026/10/18 14:02
+ */
+public record PoolStats(long hits, long misses, long bytesOutstanding, long bytesPooled) {
+    /**
+     * 命中率
+     *
+     * @return 0 ~ 1 之间的小数，没有任何请求时返回 0
+     * @author shiloh
+     * @date 2026/10/18 14:03
+     */
+    public double hitRatio() {
+        final long total = this.hits + this.misses;
+        return total == 0 ? 0 : (double) this.hits / total;
+    }
+}
@@ -0,0 +1,142 @@
+package org.shiloh.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 带引用计数的缓冲区
+ * <p>
+ * 同一份数据需要发送给多个连接时（例如群聊广播），只编码一次，每个连接通过 {@link #view()} 拿到一个独立的只读视图，
+ * 视图有自己的 position 和 limit，但和原缓冲区共享底层内存。每个持有者用完后调用 {@link #release()}，
+ * 最后一个持有者释放时才会回收底层缓冲区。
+ * <p>
+ * 引用计数可以在任意线程中增减。
+ *
+ * @author shiloh
+ * @date 2026/10/18 13:02
+ */
+public final class RefCountedBuffer {
+    /**
+     * 不做任何事情的回收器，交给 GC 回收
+     */
+    private static final Consumer<ByteBuffer> NOOP_DEALLOCATOR = buffer -> {};
+
+    /**
+     * 数据，读模式
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * 引用计数为 0 时的回收器
+     */
+    private final Consumer<ByteBuffer> deallocator;
+
+    /**
+     * 引用计数，创建时为 1
+     */
+    private final AtomicInteger refCnt = new AtomicInteger(1);
+
+    private RefCountedBuffer(ByteBuffer buffer, Consumer<ByteBuffer> deallocator) {
+        this.buffer = buffer;
+        this.deallocator = deallocator;
+    }
+
+    /**
+     * 包装一个缓冲区，引用计数归零后交给 GC 回收
+     *
+     * @param buffer 数据，读模式
+     * @return 引用计数为 1 的缓冲区
+     * @author shiloh
+     * @date 2026/10/18 13:03
+     */
+    public static RefCountedBuffer wrap(ByteBuffer buffer) {
+        return new RefCountedBuffer(buffer, NOOP_DEALLOCATOR);
+    }
+
+    /**
+     * 包装一个缓冲区，引用计数归零后交给指定的回收器回收
+     *
+     * @param buffer      数据，读模式
+     * @param deallocator 回收器，例如放回缓冲池
+     * @return 引用计数为 1 的缓冲区
+     * @author shiloh
+     * @date 2026/10/18 13:04
+     */
+    public static RefCountedBuffer wrap(ByteBuffer buffer, Consumer<ByteBuffer> deallocator) {
+        return new RefCountedBuffer(buffer, deallocator);
+    }
+
+    /**
+     * 获取一个只读视图，视图的 position、limit 独立于原缓冲区，不会复制数据
+     * <p>
+     * 调用方需要先持有一个引用，视图在对应的引用释放后不能再使用。
+     *
+     * @return 只读视图
+     * @author shiloh
+     * @date 2026/10/18 13:05
+     */
+    public ByteBuffer view() {
+        return this.buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * 数据长度
+     *
+     * @return 字节数
+     * @author shiloh
+     * @date 2026/10/18 13:05
+     */
+    public int length() {
+        return this.buffer.remaining();
+    }
+
+    /**
+     * 当前引用计数
+     *
+     * @return 引用计数
+     * @author shiloh
+     * @date 2026/10/18 13:06
+     */
+    public int refCnt() {
+        return this.refCnt.get();
+    }
+
+    /**
+     * 增加一个引用
+     *
+     * @return this
+     * @author shiloh
+     * @date 2026/10/18 13:06
+     */
+    public RefCountedBuffer retain() {
+        for (; ; ) {
+            final int current = this.refCnt.get();
+            if (current <= 0) {
+                throw new IllegalStateException("buffer already released");
+            }
+            if (this.refCnt.compareAndSet(current, current + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * 释放一个引用，最后一个引用释放时回收底层缓冲区
+     *
+     * @return 是否已回收
+     * @author shiloh
+     * @date 2026/10/18 13:07
+     */
+    public boolean release() {
+        final int current = this.refCnt.decrementAndGet();
+        if (current == 0) {
+            this.deallocator.accept(this.buffer);
+            return true;
+        }
+        if (current < 0) {
+            throw new IllegalStateException("buffer already released");
+        }
+        return false;
+    }
+}
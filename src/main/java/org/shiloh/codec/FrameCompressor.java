@@ -0,0 +1,194 @@
+package org.shiloh.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.shiloh.codec.FrameDecoder.HEADER_LENGTH;
+
+/**
+ * 帧压缩器：用 {@link Deflater}/{@link Inflater} 压缩、解压单个帧的负载
+ * <p>
+ * 压缩帧的帧头最高位为 1（{@link #COMPRESSED_FLAG}），其余 31 位是压缩后负载的长度，负载为：
+ * 4 字节的原始长度 + raw deflate 数据。普通帧的长度不会超过 2GB，最高位始终为 0，两种帧可以混在同一个连接中。
+ * <p>
+ * 每个帧单独压缩，这样一个帧压缩一次就可以发给所有接收者，不依赖每个连接的压缩上下文；
+ * 聊天消息很短，单独压缩几乎没有效果，所以压缩前后都设置同一个预置字典（{@link #DEFAULT_DICTIONARY}），
+ * 消息中与字典相同的片段直接引用字典。输入输出都使用 ByteBuffer，直接缓冲区不会复制到堆内。
+ * <p>
+ * 非线程安全，每个线程使用一个实例，不再使用时调用 {@link #end()} 释放本地内存。
+ *
+ * @author shiloh
+ * @date 2026/10/19 02:00
+ */
+public final class FrameCompressor {
+    /**
+     * 帧头中表示压缩帧的标志位
+     */
+    public static final int COMPRESSED_FLAG = 0x80000000;
+
+    /**
+     * 压缩帧负载中原始长度字段的字节数
+     */
+    public static final int ORIGINAL_LENGTH_BYTES = Integer.BYTES;
+
+    /**
+     * 默认预置字典：聊天中常见的片段，越常见的越靠后（deflate 引用越近的数据编码越短）
+     */
+    public static final byte[] DEFAULT_DICTIONARY = ("""
+            because really already maybe actually probably tomorrow tonight morning weekend meeting project \
+            released deploy server client message channel update issue thanks please sorry what when where \
+            why how who can you will would could should have has had this that there they them then with \
+            from about just know think like good great nice cool sure okay yes no and the for are was is \
+            明天 今天 晚上 上午 下午 会议 项目 发布 服务器 客户端 消息 问题 一下 什么 怎么 为什么 可以 没有 \
+            已经 知道 觉得 现在 我们 你们 他们 大家 哈哈哈 好的 谢谢 是的 不是 你好 说: \
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] dictionary;
+    private final int threshold;
+
+    /**
+     * 使用最快的压缩级别和默认字典，负载不小于 128 字节时才压缩
+     */
+    public FrameCompressor() {
+        this(Deflater.BEST_SPEED, 128, DEFAULT_DICTIONARY);
+    }
+
+    /**
+     * @param level      压缩级别，{@link Deflater#BEST_SPEED} 到 {@link Deflater#BEST_COMPRESSION}
+     * @param threshold  负载小于该字节数时不压缩
+     * @param dictionary 预置字典，压缩端和解压端必须相同，null 表示不使用字典
+     */
+    public FrameCompressor(int level, int threshold, byte[] dictionary) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold: " + threshold);
+        }
+        this.deflater = new Deflater(level, true);
+        this.threshold = threshold;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * 负载小于该字节数时不压缩
+     */
+    public int threshold() {
+        return this.threshold;
+    }
+
+    /**
+     * 压缩帧的最大长度（包括帧头），用于申请目标缓冲区
+     *
+     * @param payloadLength 原始负载长度
+     * @return 字节数
+     */
+    public static int maxFrameLength(int payloadLength) {
+        return HEADER_LENGTH + ORIGINAL_LENGTH_BYTES + payloadLength;
+    }
+
+    /**
+     * 把负载压缩为一个压缩帧写入目标缓冲区
+     * <p>
+     * 负载小于阈值，或者压缩后不比原始负载短时放弃压缩，调用方应该发送普通帧。
+     *
+     * @param payload 原始负载，读模式，成功时消费全部剩余数据，失败时不变
+     * @param dest    目标缓冲区，写模式，剩余空间不小于 {@link #maxFrameLength(int)}
+     * @return 压缩成功返回 true，此时 dest 中写入了一个完整的压缩帧
+     * @author shiloh
+     * @date 2026/10/19 02:01
+     */
+    public boolean compress(ByteBuffer payload, ByteBuffer dest) {
+        final int length = payload.remaining();
+        if (length < this.threshold || length == 0) {
+            return false;
+        }
+        final int start = dest.position();
+        final int limit = dest.limit();
+        final int payloadPosition = payload.position();
+        // 输出空间限制为原始长度，写满还没压缩完就说明压缩没有收益
+        dest.position(start + HEADER_LENGTH + ORIGINAL_LENGTH_BYTES);
+        dest.limit(Math.min(limit, dest.position() + length - HEADER_LENGTH - ORIGINAL_LENGTH_BYTES));
+        this.deflater.reset();
+        if (this.dictionary != null) {
+            this.deflater.setDictionary(this.dictionary);
+        }
+        this.deflater.setInput(payload);
+        this.deflater.finish();
+        while (!this.deflater.finished() && dest.hasRemaining()) {
+            this.deflater.deflate(dest);
+        }
+        final boolean finished = this.deflater.finished();
+        final int end = dest.position();
+        dest.limit(limit);
+        if (!finished) {
+            dest.position(start);
+            payload.position(payloadPosition);
+            return false;
+        }
+        dest.putInt(start, COMPRESSED_FLAG | end - start - HEADER_LENGTH);
+        dest.putInt(start + HEADER_LENGTH, length);
+        dest.position(end);
+        return true;
+    }
+
+    /**
+     * 压缩帧负载中记录的原始长度
+     *
+     * @param compressed 压缩帧的负载（不包括帧头）
+     * @return 原始长度
+     */
+    public static int originalLength(ByteBuffer compressed) {
+        return compressed.getInt(compressed.position());
+    }
+
+    /**
+     * 解压一个压缩帧的负载
+     *
+     * @param compressed 压缩帧的负载（不包括帧头），消费全部剩余数据
+     * @param dest       目标缓冲区，写模式，剩余空间不小于 {@link #originalLength(ByteBuffer)}
+     * @throws IOException 数据格式错误或者与原始长度不符
+     * @author shiloh
+     * @date 2026/10/19 02:02
+     */
+    public void decompress(ByteBuffer compressed, ByteBuffer dest) throws IOException {
+        final int length = compressed.getInt();
+        if (length < 0 || length > dest.remaining()) {
+            throw new IOException("invalid original length: " + length);
+        }
+        final int start = dest.position();
+        final int limit = dest.limit();
+        dest.limit(start + length);
+        this.inflater.reset();
+        if (this.dictionary != null) {
+            // raw deflate 没有头部，不会通过 needsDictionary() 请求字典，只能预先设置
+            this.inflater.setDictionary(this.dictionary);
+        }
+        this.inflater.setInput(compressed);
+        try {
+            while (!this.inflater.finished() && dest.hasRemaining()) {
+                if (this.inflater.inflate(dest) == 0 && this.inflater.needsInput()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupted compressed frame", e);
+        } finally {
+            dest.limit(limit);
+        }
+        if (dest.position() - start != length) {
+            throw new IOException("truncated compressed frame");
+        }
+    }
+
+    /**
+     * 释放压缩器占用的本地内存
+     */
+    public void end() {
+        this.deflater.end();
+        this.inflater.end();
+    }
+}
@@ -0,0 +1,315 @@
+package org.shiloh.codec;
+
+import org.shiloh.buffer.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 长度前缀帧解码器
+ * <p>
+ * 帧格式：4 字节大端序的负载长度 + 负载数据。
+ * <p>
+ * TCP 是字节流，一次 read 可能只读到半个帧，也可能读到多个帧，所以每个连接都需要一个解码器保存累积的数据，
+ * 通常放在 {@link java.nio.channels.SelectionKey#attachment()} 中。完整的帧以读缓冲区切片的形式交给 {@link FrameHandler}，
+ * 不会复制数据；剩余的半个帧留在缓冲区中等待下一次读取，帧长度超过缓冲区容量时会自动扩容。
+ * <p>
+ * 累积缓冲区是从 {@link BufferPool} 申请的直接缓冲区，读取时不需要 JDK 再复制一次；所有数据都解码完后立即归还，
+ * 空闲的连接不占用缓冲区。连接关闭时需要调用 {@link #release()}。
+ * <p>
+ * 默认不接受压缩帧（帧头最高位为 1，长度为负数），调用 {@link #decompressWith(FrameCompressor)} 后
+ * 压缩帧会先解压到临时缓冲区再交给回调，回调看到的始终是原始负载。
+ * <p>
+ * 非线程安全，只能在连接所属的线程中使用。
+ *
+ * @author shiloh
+ * @date 2026/10/18 11:10
+ */
+public class FrameDecoder {
+    /**
+     * 帧头长度
+     */
+    public static final int HEADER_LENGTH = Integer.BYTES;
+
+    /**
+     * 默认最大帧长度：1MB
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+    /**
+     * 默认初始缓冲区大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /**
+     * 最大帧长度（负载长度），超过时认为数据有误
+     */
+    private final int maxFrameLength;
+
+    /**
+     * 初始缓冲区大小
+     */
+    private final int initialBufferSize;
+
+    /**
+     * 缓冲池
+     */
+    private final BufferPool bufferPool;
+
+    /**
+     * 累积缓冲区，始终处于写模式：[0, position) 为尚未解码的数据
+     */
+    private ByteBuffer cumulation;
+
+    /**
+     * 解压压缩帧使用的压缩器，null 表示不接受压缩帧
+     */
+    private FrameCompressor decompressor;
+
+    public FrameDecoder() {
+        this(DEFAULT_MAX_FRAME_LENGTH, DEFAULT_BUFFER_SIZE);
+    }
+
+    public FrameDecoder(int maxFrameLength, int initialBufferSize) {
+        this(maxFrameLength, initialBufferSize, BufferPool.DEFAULT);
+    }
+
+    public FrameDecoder(int maxFrameLength, int initialBufferSize, BufferPool bufferPool) {
+        if (maxFrameLength < 0 || initialBufferSize < HEADER_LENGTH) {
+            throw new IllegalArgumentException(
+                    "maxFrameLength: " + maxFrameLength + ", initialBufferSize: " + initialBufferSize
+            );
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.initialBufferSize = initialBufferSize;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * 开始接受压缩帧
+     *
+     * @param decompressor 解压使用的压缩器，字典必须与发送方相同，null 表示不再接受压缩帧
+     * @author shiloh
+     * @date 2026/10/19 02:05
+     */
+    public void decompressWith(FrameCompressor decompressor) {
+        this.decompressor = decompressor;
+    }
+
+    /**
+     * 从通道读取数据到累积缓冲区
+     *
+     * @param channel 通道
+     * @return 读取到的字节数，-1 表示连接已关闭
+     * @throws IOException 读取失败
+     * @author shiloh
+     * @date 2026/10/18 11:12
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        return channel.read(this.writableBuffer());
+    }
+
+    /**
+     * 把外部数据追加到累积缓冲区，会消费 src 的剩余数据
+     *
+     * @param src 数据，读模式
+     * @author shiloh
+     * @date 2026/10/18 11:13
+     */
+    public void append(ByteBuffer src) {
+        this.ensureWritable(src.remaining());
+        this.cumulation.put(src);
+    }
+
+    /**
+     * 解码累积缓冲区中所有完整的帧
+     *
+     * @param handler 帧回调
+     * @return 解码出的帧数量
+     * @throws IOException 帧长度非法或回调处理失败
+     * @author shiloh
+     * @date 2026/10/18 11:14
+     */
+    public int decode(FrameHandler handler) throws IOException {
+        if (this.cumulation == null || this.cumulation.position() == 0) {
+            return 0;
+        }
+        final ByteBuffer buffer = this.cumulation;
+        final int end = buffer.position();
+        int offset = 0;
+        int frames = 0;
+        while (end - offset >= HEADER_LENGTH) {
+            // 使用绝对位置读取，不改变缓冲区的 position
+            final int header = buffer.getInt(offset);
+            final int length = this.frameLength(header);
+            if (length < 0 || length > this.maxFrameLength) {
+                throw new IOException("invalid frame length: " + header + ", max: " + this.maxFrameLength);
+            }
+            if (end - offset - HEADER_LENGTH < length) {
+                // 半个帧，等待更多的数据
+                break;
+            }
+            // 切片只是共享底层内存的视图，不会复制数据
+            final ByteBuffer frame = buffer.slice(offset + HEADER_LENGTH, length);
+            if (header < 0) {
+                this.inflate(frame, handler);
+            } else {
+                handler.onFrame(frame);
+            }
+            offset += HEADER_LENGTH + length;
+            frames++;
+            if (this.cumulation != buffer) {
+                // 回调中调用了 release()，缓冲区已经归还，剩余的数据随连接一起丢弃
+                return frames;
+            }
+        }
+        this.discard(offset, end);
+        return frames;
+    }
+
+    /**
+     * 从帧头中取出负载长度，接受压缩帧时去掉压缩标志位
+     *
+     * @param header 帧头
+     * @return 负载长度，负数表示非法
+     * @author shiloh
+     * @date 2026/10/19 02:06
+     */
+    private int frameLength(int header) {
+        return this.decompressor == null ? header : header & ~FrameCompressor.COMPRESSED_FLAG;
+    }
+
+    /**
+     * 把压缩帧解压到从缓冲池申请的临时缓冲区，交给回调后立即归还
+     *
+     * @param frame   压缩帧的负载
+     * @param handler 帧回调
+     * @throws IOException 解压失败或者原始长度非法
+     * @author shiloh
+     * @date 2026/10/19 02:07
+     */
+    private void inflate(ByteBuffer frame, FrameHandler handler) throws IOException {
+        if (frame.remaining() < FrameCompressor.ORIGINAL_LENGTH_BYTES) {
+            throw new IOException("truncated compressed frame");
+        }
+        final int length = FrameCompressor.originalLength(frame);
+        if (length < 0 || length > this.maxFrameLength) {
+            throw new IOException("invalid original length: " + length + ", max: " + this.maxFrameLength);
+        }
+        final ByteBuffer inflated = this.bufferPool.acquire(Math.max(1, length));
+        try {
+            this.decompressor.decompress(frame, inflated);
+            handler.onFrame(inflated.flip());
+        } finally {
+            this.bufferPool.release(inflated);
+        }
+    }
+
+    /**
+     * 累积缓冲区中尚未解码的字节数
+     *
+     * @return 字节数
+     * @author shiloh
+     * @date 2026/10/18 11:15
+     */
+    public int pendingBytes() {
+        return this.cumulation == null ? 0 : this.cumulation.position();
+    }
+
+    /**
+     * 归还累积缓冲区，连接关闭时调用，之后仍然可以继续使用，会重新申请缓冲区
+     * <p>
+     * 在 {@link #decode} 的回调中调用时，decode 处理完当前帧后立即返回，不再读取已经归还的缓冲区。
+     *
+     * @author shiloh
+     * @date 2026/10/18 14:20
+     */
+    public void release() {
+        if (this.cumulation != null) {
+            this.bufferPool.release(this.cumulation);
+            this.cumulation = null;
+        }
+    }
+
+    /**
+     * 丢弃已解码的数据，把剩余的半个帧移动到缓冲区开头
+     *
+     * @param offset 已解码的数据长度
+     * @param end    数据结束位置
+     * @author shiloh
+     * @date 2026/10/18 11:16
+     */
+    private void discard(int offset, int end) {
+        if (offset == 0) {
+            return;
+        }
+        if (offset == end) {
+            // 没有剩余数据，归还缓冲区，下次读取时再申请
+            this.release();
+            return;
+        }
+        this.cumulation.limit(end).position(offset);
+        this.cumulation.compact();
+    }
+
+    /**
+     * 获取可写入的累积缓冲区，保证至少有一部分剩余空间
+     * <p>
+     * 用于异步通道等无法直接调用 {@link #readFrom} 的场景：把数据读入返回的缓冲区后再调用 {@link #decode}，
+     * 期间不能调用本解码器的其他方法。
+     *
+     * @return 写模式的缓冲区
+     * @author shiloh
+     * @date 2026/10/18 11:17
+     */
+    public ByteBuffer writableBuffer() {
+        this.ensureWritable(this.requiredBytes());
+        return this.cumulation;
+    }
+
+    /**
+     * 计算下一个帧还需要的空间：已知帧长度时需要容纳整个帧，否则至少需要一个帧头
+     *
+     * @return 需要的剩余空间
+     * @author shiloh
+     * @date 2026/10/18 11:18
+     */
+    private int requiredBytes() {
+        if (this.cumulation == null) {
+            return this.initialBufferSize;
+        }
+        final int pending = this.cumulation.position();
+        if (pending < HEADER_LENGTH) {
+            return HEADER_LENGTH - pending;
+        }
+        final int length = this.frameLength(this.cumulation.getInt(0));
+        if (length < 0 || length > this.maxFrameLength) {
+            // 交给 decode 报错
+            return 1;
+        }
+        return Math.max(1, HEADER_LENGTH + length - pending);
+    }
+
+    /**
+     * 确保缓冲区至少有 minWritable 字节的剩余空间，不足时扩容并复制已有数据
+     *
+     * @param minWritable 需要的剩余空间
+     * @author shiloh
+     * @date 2026/10/18 11:19
+     */
+    private void ensureWritable(int minWritable) {
+        if (this.cumulation == null) {
+            this.cumulation = this.bufferPool.acquire(Math.max(this.initialBufferSize, minWritable));
+            return;
+        }
+        if (this.cumulation.remaining() >= minWritable) {
+            return;
+        }
+        // 缓冲池按 2 的幂分配，扩容后的容量至少翻倍
+        final ByteBuffer newBuffer = this.bufferPool.acquire(this.cumulation.position() + minWritable);
+        newBuffer.put(this.cumulation.flip());
+        this.bufferPool.release(this.cumulation);
+        this.cumulation = newBuffer;
+    }
+}
@@ -0,0 +1,67 @@
+package org.shiloh.codec;
+
+import java.nio.ByteBuffer;
+
+import static org.shiloh.codec.FrameDecoder.HEADER_LENGTH;
+
+/**
+ * 长度前缀帧编码器
+ * <p>
+ * 帧格式：4 字节大端序的负载长度 + 负载数据，与 {@link FrameDecoder} 对应。
+ *
+ * @author shiloh
+ * @date 2026/10/18 11:05
+ */
+public final class FrameEncoder {
+    private FrameEncoder() {}
+
+    /**
+     * 计算帧的总长度
+     *
+     * @param payloadLength 负载长度
+     * @return 帧头 + 负载的长度
+     * @author shiloh
+     * @date 2026/10/18 11:05
+     */
+    public static int frameLength(int payloadLength) {
+        return HEADER_LENGTH + payloadLength;
+    }
+
+    /**
+     * 把负载编码为一个新的帧，返回的缓冲区处于读模式
+     *
+     * @param payload 负载数据
+     * @return 帧
+     * @author shiloh
+     * @date 2026/10/18 11:06
+     */
+    public static ByteBuffer encode(byte[] payload) {
+        final ByteBuffer frame = ByteBuffer.allocate(frameLength(payload.length));
+        frame.putInt(payload.length).put(payload);
+        return frame.flip();
+    }
+
+    /**
+     * 把负载编码到目标缓冲区中，会消费 payload 的剩余数据
+     *
+     * @param payload 负载数据，读模式
+     * @param dest    目标缓冲区，写模式，剩余空间不能小于帧长度
+     * @author shiloh
+     * @date 2026/10/18 11:07
+     */
+    public static void encode(ByteBuffer payload, ByteBuffer dest) {
+        dest.putInt(payload.remaining()).put(payload);
+    }
+
+    /**
+     * 写入帧头，之后由调用方写入 length 个字节的负载
+     *
+     * @param dest          目标缓冲区，写模式
+     * @param payloadLength 负载长度
+     * @author shiloh
+     * @date 2026/10/18 11:08
+     */
+    public static void writeHeader(ByteBuffer dest, int payloadLength) {
+        dest.putInt(payloadLength);
+    }
+}
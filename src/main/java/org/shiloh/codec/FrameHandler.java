@@ -0,0 +1,25 @@
+package org.shiloh.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 完整帧的回调
+ *
+ * @author shiloh
+ * @date 2026/10/18 11:02
+ */
+@FunctionalInterface
+public interface FrameHandler {
+    /**
+     * 处理一个完整的帧
+     * <p>
+     * frame 是解码器读缓冲区的切片（没有复制数据），只在本次回调中有效，需要保留数据时请自行复制。
+     *
+     * @param frame 帧的负载数据，position 为 0，limit 为负载长度
+     * @throws IOException 处理失败时抛出，调用方通常会关闭连接
+     * @author shiloh
+     * @date 2026/10/18 11:02
+     */
+    void onFrame(ByteBuffer frame) throws IOException;
+}
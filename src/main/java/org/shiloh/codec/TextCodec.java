@@ -0,0 +1,166 @@
+package org.shiloh.codec;
+
+import org.shiloh.buffer.BufferPool;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import static org.shiloh.codec.FrameDecoder.HEADER_LENGTH;
+
+/**
+ * 文本编解码：聊天消息在网络上统一使用 UTF-8，不再依赖平台默认字符集
+ * <p>
+ * {@link String#getBytes()} 和 {@code new String(bytes)} 每次都会创建新的编解码器和中间数组，
+ * 这里每个线程缓存一个 {@link CharsetEncoder} 和 {@link CharsetDecoder}，字符直接编码到调用方（通常是缓冲池）的
+ * ByteBuffer 中，解码时使用线程内复用的 CharBuffer，只有最后需要字符串时才创建 String。
+ * <p>
+ * 非法的字节序列和无法编码的字符（例如不成对的代理字符）都替换为替换字符，不会抛出异常。
+ * 一个字符可能被拆到两次 read 中的字节流使用 {@link TextDecoder}，只需要读取、不需要字符串时使用 {@link TextView}。
+ *
+ * @author shiloh
+ * @date 2026/10/19 02:40
+ */
+public final class TextCodec {
+    /**
+     * 网络上使用的字符集
+     */
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    /**
+     * UTF-8 中一个 char 最多编码为 3 个字节（代理对是两个 char 编码为 4 个字节）
+     */
+    public static final int MAX_BYTES_PER_CHAR = 3;
+
+    private static final ThreadLocal<CharsetEncoder> ENCODER = ThreadLocal.withInitial(() -> CHARSET.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    private static final ThreadLocal<CharsetDecoder> DECODER = ThreadLocal.withInitial(() -> CHARSET.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    /**
+     * 解码为字符串时使用的临时字符缓冲区，按需扩容
+     */
+    private static final ThreadLocal<CharBuffer[]> CHARS = ThreadLocal.withInitial(() -> new CharBuffer[1]);
+
+    private TextCodec() {}
+
+    /**
+     * 当前线程的编码器，已经重置
+     *
+     * @return 编码器
+     */
+    static CharsetEncoder encoder() {
+        return ENCODER.get().reset();
+    }
+
+    /**
+     * 当前线程的解码器，已经重置
+     *
+     * @return 解码器
+     */
+    static CharsetDecoder decoder() {
+        return DECODER.get().reset();
+    }
+
+    /**
+     * 编码 chars 个字符最多需要的字节数
+     *
+     * @param chars 字符数
+     * @return 字节数
+     */
+    public static int maxEncodedLength(int chars) {
+        return chars * MAX_BYTES_PER_CHAR;
+    }
+
+    /**
+     * 把文本编码到目标缓冲区
+     *
+     * @param text 文本
+     * @param dest 目标缓冲区，写模式
+     * @return 写入的字节数
+     * @throws BufferOverflowException 剩余空间不足，此时 dest 的 position 不变
+     * @author shiloh
+     * @date 2026/10/19 02:41
+     */
+    public static int encode(CharSequence text, ByteBuffer dest) {
+        final int start = dest.position();
+        final CharsetEncoder encoder = encoder();
+        final CharBuffer chars = text instanceof final CharBuffer buffer ? buffer.duplicate() : CharBuffer.wrap(text);
+        if (encoder.encode(chars, dest, true).isOverflow() || encoder.flush(dest).isOverflow()) {
+            dest.position(start);
+            throw new BufferOverflowException();
+        }
+        return dest.position() - start;
+    }
+
+    /**
+     * 把文本编码为一个帧，帧缓冲区从缓冲池申请，写完后由调用方归还
+     *
+     * @param text 文本
+     * @param pool 缓冲池
+     * @return 帧，读模式
+     * @author shiloh
+     * @date 2026/10/19 02:42
+     */
+    public static ByteBuffer encodeFrame(CharSequence text, BufferPool pool) {
+        final ByteBuffer frame = pool.acquire(FrameEncoder.frameLength(maxEncodedLength(text.length())));
+        frame.position(HEADER_LENGTH);
+        final int length = encode(text, frame);
+        frame.putInt(0, length);
+        return frame.flip();
+    }
+
+    /**
+     * 把字节解码为字符串，会消费 src 的剩余数据
+     *
+     * @param src 字节，读模式，必须是完整的字符
+     * @return 字符串
+     * @author shiloh
+     * @date 2026/10/19 02:43
+     */
+    public static String decode(ByteBuffer src) {
+        // UTF-8 解码出的 char 数不会超过字节数
+        final CharBuffer chars = chars(src.remaining());
+        decode(src, chars, decoder());
+        return chars.flip().toString();
+    }
+
+    /**
+     * 把全部字节解码到字符缓冲区，剩余空间不能小于字节数
+     *
+     * @param src     字节，读模式
+     * @param dest    字符缓冲区，写模式
+     * @param decoder 已经重置的解码器
+     */
+    static void decode(ByteBuffer src, CharBuffer dest, CharsetDecoder decoder) {
+        final CoderResult result = decoder.decode(src, dest, true);
+        if (result.isOverflow() || decoder.flush(dest).isOverflow()) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    /**
+     * 当前线程至少能容纳 capacity 个字符的临时字符缓冲区，已清空
+     *
+     * @param capacity 容量
+     * @return 写模式的字符缓冲区
+     */
+    private static CharBuffer chars(int capacity) {
+        final CharBuffer[] holder = CHARS.get();
+        CharBuffer chars = holder[0];
+        if (chars == null || chars.capacity() < capacity) {
+            chars = CharBuffer.allocate(Math.max(256, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1));
+            holder[0] = chars;
+        }
+        return chars.clear();
+    }
+}
@@ -0,0 +1,110 @@
+package org.shiloh.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+
+/**
+ * 增量 UTF-8 解码器，用于没有分帧的字节流
+ * <p>
+ * 一个中文字符是 3 个字节，可能被拆到两次 read 中，直接解码每次读到的数据会在拆开的位置产生乱码。
+ * 本解码器把末尾不完整的字符（最多 3 个字节）留下来，和下一次的数据拼在一起解码。
+ * <p>
+ * 解码器本身使用 {@link TextCodec} 中每个线程缓存的 {@link CharsetDecoder}，这里只保存留下的字节和复用的字符缓冲区，
+ * 每个字节流（连接）一个实例，非线程安全。
+ *
+ * @author shiloh
+ * @date 2026/10/19 02:50
+ */
+public final class TextDecoder {
+    /**
+     * 上次解码留下的不完整字符，写模式
+     */
+    private final ByteBuffer carry = ByteBuffer.allocate(4);
+
+    /**
+     * 解码结果，每次解码复用
+     */
+    private CharBuffer chars = CharBuffer.allocate(256);
+
+    /**
+     * 解码新读取到的字节，会消费 src 的全部剩余数据
+     *
+     * @param src 新读取到的字节，读模式
+     * @return 解码出的字符，在下一次调用本解码器之前有效
+     * @author shiloh
+     * @date 2026/10/19 02:51
+     */
+    public CharBuffer decode(ByteBuffer src) {
+        // 留下的字节最多补全一个字符（可能是代理对），UTF-8 解码出的 char 数不会超过字节数
+        final CharBuffer out = this.chars(src.remaining() + 2);
+        final CharsetDecoder decoder = TextCodec.decoder();
+        if (this.carry.position() > 0 && !this.completeCarry(src, out, decoder)) {
+            return out.flip();
+        }
+        decoder.decode(src, out, false);
+        // 剩下的是末尾不完整的字符，留到下一次
+        this.carry.put(src);
+        return out.flip();
+    }
+
+    /**
+     * 字节流结束，把留下的不完整字符解码为替换字符
+     *
+     * @return 解码出的字符，没有留下的字节时为空
+     * @author shiloh
+     * @date 2026/10/19 02:52
+     */
+    public CharBuffer finish() {
+        final CharBuffer out = this.chars(this.carry.position());
+        TextCodec.decode(this.carry.flip(), out, TextCodec.decoder());
+        this.carry.clear();
+        return out.flip();
+    }
+
+    /**
+     * 尚未解码的字节数
+     *
+     * @return 字节数
+     */
+    public int pendingBytes() {
+        return this.carry.position();
+    }
+
+    /**
+     * 用新数据补全上次留下的字符
+     *
+     * @param src     新数据，只消费补全用掉的部分
+     * @param out     输出
+     * @param decoder 解码器
+     * @return 补全后返回 true；新数据不够补全时全部放入 carry，返回 false
+     */
+    private boolean completeCarry(ByteBuffer src, CharBuffer out, CharsetDecoder decoder) {
+        final int carried = this.carry.position();
+        final int taken = Math.min(this.carry.remaining(), src.remaining());
+        this.carry.put(src.slice(src.position(), taken)).flip();
+        decoder.decode(this.carry, out, false);
+        final int consumed = this.carry.position();
+        if (consumed < carried) {
+            // 仍然不完整，新数据已经全部放入 carry
+            src.position(src.position() + taken);
+            this.carry.compact();
+            return false;
+        }
+        // 多放入 carry 但没有用掉的新数据退回 src，从 src 继续解码
+        src.position(src.position() + consumed - carried);
+        this.carry.clear();
+        decoder.reset();
+        return true;
+    }
+
+    /**
+     * 至少能容纳 capacity 个字符的输出缓冲区，已清空
+     */
+    private CharBuffer chars(int capacity) {
+        if (this.chars.capacity() < capacity) {
+            this.chars = CharBuffer.allocate(Integer.highestOneBit(capacity - 1) << 1);
+        }
+        return this.chars.clear();
+    }
+}
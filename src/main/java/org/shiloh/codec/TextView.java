@@ -0,0 +1,87 @@
+package org.shiloh.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * UTF-8 字节的字符视图
+ * <p>
+ * {@link #wrap(ByteBuffer)} 把字节解码到视图内部复用的字符数组中，之后按 {@link CharSequence} 读取，
+ * 例如用 {@link Integer#parseInt(CharSequence, int, int, int)} 解析命令参数，不需要为每条消息创建 String，
+ * 只有调用 {@link #toString()} 时才会创建。
+ * <p>
+ * 视图在下一次 wrap 之前有效，非线程安全，通常每个线程一个实例。
+ *
+ * @author shiloh
+ * @date 2026/10/19 02:45
+ */
+public final class TextView implements CharSequence {
+    /**
+     * 解码后的字符，读模式，[0, limit) 为内容
+     */
+    private CharBuffer chars = CharBuffer.allocate(64).flip();
+
+    /**
+     * 解码字节，不改变 bytes 的 position
+     *
+     * @param bytes UTF-8 字节，读模式
+     * @return this
+     * @author shiloh
+     * @date 2026/10/19 02:46
+     */
+    public TextView wrap(ByteBuffer bytes) {
+        final int length = bytes.remaining();
+        if (this.chars.capacity() < length) {
+            this.chars = CharBuffer.allocate(Integer.highestOneBit(length - 1) << 1);
+        }
+        this.chars.clear();
+        TextCodec.decode(bytes.duplicate(), this.chars, TextCodec.decoder());
+        this.chars.flip();
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return this.chars.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return this.chars.get(index);
+    }
+
+    /**
+     * 子序列，与视图共享字符数组，同样在下一次 wrap 之前有效
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return this.chars.subSequence(start, end);
+    }
+
+    /**
+     * 从 offset 开始的内容是否与 other 相同
+     *
+     * @param offset 起始下标
+     * @param other  比较的内容
+     * @return 相同返回 true，超出视图范围时返回 false
+     * @author shiloh
+     * @date 2026/10/19 02:47
+     */
+    public boolean regionMatches(int offset, CharSequence other) {
+        final int length = other.length();
+        if (offset < 0 || offset + length > this.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.chars.get(offset + i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return this.chars.toString();
+    }
+}
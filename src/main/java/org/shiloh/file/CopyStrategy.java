@@ -0,0 +1,30 @@
+package org.shiloh.file;
+
+/**
+ * 文件复制策略
+ *
+ * @author shiloh
+ * @date 2026/10/18 17:02
+ */
+public enum CopyStrategy {
+    /**
+     * 根据文件大小和文件系统自动选择
+     */
+    AUTO,
+
+    /**
+     * 使用直接缓冲区循环 read/write，数据会经过用户态，适用于小文件和网络文件系统
+     */
+    BUFFERED_LOOP,
+
+    /**
+     * 分块调用 {@link java.nio.channels.FileChannel#transferTo}，Linux 上由内核直接复制（copy_file_range/sendfile），
+     * 数据不经过用户态
+     */
+    TRANSFER_TO,
+
+    /**
+     * 按窗口滑动映射源文件（{@link java.nio.MappedByteBuffer}），再写入目标文件，减少一次用户态复制
+     */
+    MAPPED
+}
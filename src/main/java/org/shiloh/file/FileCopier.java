@@ -0,0 +1,263 @@
+package org.shiloh.file;
+
+import org.shiloh.buffer.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * 文件复制
+ * <p>
+ * 支持三种复制策略（{@link CopyStrategy}），默认根据文件大小和文件系统自动选择。所有位置和长度都使用 long，
+ * 支持超过 2GB 的文件；{@link FileChannel#transferTo} 和 {@link FileChannel#write} 一次调用可能只处理一部分数据
+ * （例如 Linux 上单次 sendfile 最多 2GB），所以都会循环调用直到全部复制完成。
+ * <p>
+ * 线程安全，同一个实例可以同时复制多个文件。
+ *
+ * @author shiloh
+ * @date 2026/10/18 17:05
+ */
+public class FileCopier {
+    /**
+     * 默认的缓冲区大小：1MB
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 默认每次 transferTo 的块大小：64MB
+     */
+    public static final long DEFAULT_TRANSFER_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * 默认每次映射的窗口大小：256MB
+     */
+    public static final long DEFAULT_MAP_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * 小于该大小的文件直接使用缓冲区复制，一两次 read/write 就能完成，其他方式的准备开销反而更大
+     */
+    public static final long SMALL_FILE_THRESHOLD = 64 * 1024;
+
+    /**
+     * 网络或用户态文件系统的类型，transferTo 在这些文件系统上无法由内核直接复制，
+     * mmap 在文件被其他客户端截断时会导致进程崩溃（SIGBUS），所以只使用缓冲区复制
+     */
+    private static final Set<String> REMOTE_FILE_SYSTEMS = Set.of(
+            "nfs", "nfs4", "cifs", "smb", "smbfs", "smb2", "9p", "fuse", "fuseblk", "sshfs", "davfs"
+    );
+
+    /**
+     * 是否为 Linux 系统
+     */
+    private static final boolean LINUX = System.getProperty("os.name", "")
+            .toLowerCase(Locale.ROOT)
+            .startsWith("linux");
+
+    /**
+     * 缓冲区大小
+     */
+    private final int bufferSize;
+
+    /**
+     * 每次 transferTo 的块大小
+     */
+    private final long transferChunkSize;
+
+    /**
+     * 每次映射的窗口大小
+     */
+    private final long mapWindowSize;
+
+    /**
+     * 缓冲池
+     */
+    private final BufferPool bufferPool;
+
+    public FileCopier() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_TRANSFER_CHUNK_SIZE, DEFAULT_MAP_WINDOW_SIZE);
+    }
+
+    public FileCopier(int bufferSize, long transferChunkSize, long mapWindowSize) {
+        if (bufferSize <= 0 || transferChunkSize <= 0 || mapWindowSize <= 0 || mapWindowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "bufferSize: " + bufferSize + ", transferChunkSize: " + transferChunkSize
+                            + ", mapWindowSize: " + mapWindowSize
+            );
+        }
+        this.bufferSize = bufferSize;
+        this.transferChunkSize = transferChunkSize;
+        this.mapWindowSize = mapWindowSize;
+        this.bufferPool = BufferPool.DEFAULT;
+    }
+
+    /**
+     * 复制文件，自动选择复制策略，目标文件已存在时会覆盖
+     *
+     * @param src  源文件
+     * @param dest 目标文件
+     * @return 复制的字节数
+     * @throws IOException 复制失败
+     * @author shiloh
+     * @date 2026/10/18 17:08
+     */
+    public long copy(Path src, Path dest) throws IOException {
+        return this.copy(src, dest, CopyStrategy.AUTO);
+    }
+
+    /**
+     * 使用指定的策略复制文件，目标文件已存在时会覆盖
+     *
+     * @param src      源文件
+     * @param dest     目标文件
+     * @param strategy 复制策略
+     * @return 复制的字节数
+     * @throws IOException 复制失败
+     * @author shiloh
+     * @date 2026/10/18 17:09
+     */
+    public long copy(Path src, Path dest, CopyStrategy strategy) throws IOException {
+        final CopyStrategy actual = strategy == CopyStrategy.AUTO ? this.choose(src, dest) : strategy;
+        try (
+                final FileChannel in = FileChannel.open(src, READ);
+                final FileChannel out = FileChannel.open(dest, CREATE, WRITE, TRUNCATE_EXISTING)
+        ) {
+            return this.copy(in, out, in.size(), actual);
+        }
+    }
+
+    /**
+     * 根据文件大小和所在的文件系统选择复制策略
+     * <ul>
+     *     <li>小文件：{@link CopyStrategy#BUFFERED_LOOP}</li>
+     *     <li>任意一端在网络或用户态文件系统上：{@link CopyStrategy#BUFFERED_LOOP}</li>
+     *     <li>Linux：{@link CopyStrategy#TRANSFER_TO}，由内核直接复制</li>
+     *     <li>其他系统：{@link CopyStrategy#MAPPED}，JDK 在这些系统上的 transferTo 本身也是基于 mmap 实现的，
+     *     但每次只映射 8MB</li>
+     * </ul>
+     *
+     * @param src  源文件
+     * @param dest 目标文件，可以不存在
+     * @return 复制策略，不会返回 {@link CopyStrategy#AUTO}
+     * @throws IOException 获取文件信息失败
+     * @author shiloh
+     * @date 2026/10/18 17:10
+     */
+    public CopyStrategy choose(Path src, Path dest) throws IOException {
+        if (Files.size(src) < SMALL_FILE_THRESHOLD) {
+            return CopyStrategy.BUFFERED_LOOP;
+        }
+        final Path destDir = dest.toAbsolutePath().getParent();
+        if (isRemote(Files.getFileStore(src)) || (destDir != null && isRemote(Files.getFileStore(destDir)))) {
+            return CopyStrategy.BUFFERED_LOOP;
+        }
+        return LINUX ? CopyStrategy.TRANSFER_TO : CopyStrategy.MAPPED;
+    }
+
+    /**
+     * 从源通道的 0 位置复制 size 个字节到目标通道的当前位置
+     *
+     * @param in       源通道
+     * @param out      目标通道
+     * @param size     复制的字节数
+     * @param strategy 复制策略，不能为 {@link CopyStrategy#AUTO}
+     * @return 复制的字节数
+     * @throws IOException 复制失败
+     * @author shiloh
+     * @date 2026/10/18 17:12
+     */
+    public long copy(FileChannel in, FileChannel out, long size, CopyStrategy strategy) throws IOException {
+        return switch (strategy) {
+            case BUFFERED_LOOP -> this.bufferedLoop(in, out, size);
+            case TRANSFER_TO -> this.transferTo(in, out, size);
+            case MAPPED -> this.mapped(in, out, size);
+            case AUTO -> throw new IllegalArgumentException("strategy must be resolved before copying channels");
+        };
+    }
+
+    /**
+     * 使用直接缓冲区循环读写
+     */
+    private long bufferedLoop(FileChannel in, FileChannel out, long size) throws IOException {
+        final ByteBuffer buffer = this.bufferPool.acquire((int) Math.min(this.bufferSize, Math.max(size, 1)));
+        try {
+            long position = 0;
+            while (position < size) {
+                buffer.clear();
+                if (buffer.remaining() > size - position) {
+                    buffer.limit((int) (size - position));
+                }
+                // 使用绝对位置读取，不依赖通道当前的位置
+                final int read = in.read(buffer, position);
+                if (read == -1) {
+                    throw truncated(position, size);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                position += read;
+            }
+            return position;
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 分块调用 transferTo，每次返回的字节数可能小于请求的字节数
+     */
+    private long transferTo(FileChannel in, FileChannel out, long size) throws IOException {
+        long position = 0;
+        while (position < size) {
+            final long count = Math.min(this.transferChunkSize, size - position);
+            final long transferred = in.transferTo(position, count, out);
+            if (transferred == 0 && in.size() <= position) {
+                // 源文件在复制过程中被截断
+                throw truncated(position, size);
+            }
+            position += transferred;
+        }
+        return position;
+    }
+
+    /**
+     * 按窗口映射源文件后写入目标通道，单个映射不能超过 2GB
+     */
+    private long mapped(FileChannel in, FileChannel out, long size) throws IOException {
+        long position = 0;
+        while (position < size) {
+            final long length = Math.min(this.mapWindowSize, size - position);
+            if (in.size() < position + length) {
+                // 映射超出文件末尾的区域会导致访问时崩溃，映射前先检查
+                throw truncated(position, size);
+            }
+            final MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+            while (window.hasRemaining()) {
+                out.write(window);
+            }
+            position += length;
+        }
+        return position;
+    }
+
+    private static boolean isRemote(FileStore fileStore) {
+        final String type = fileStore.type().toLowerCase(Locale.ROOT);
+        return REMOTE_FILE_SYSTEMS.contains(type) || type.startsWith("fuse.");
+    }
+
+    private static IOException truncated(long position, long size) {
+        return new IOException("source file truncated during copy at " + position + " of " + size + " bytes");
+    }
+}
@@ -0,0 +1,338 @@
+package org.shiloh.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 日志的一个段：一个预分配大小的记录文件和一个稀疏索引文件，都通过内存映射读写
+ * <p>
+ * 记录格式与网络上的消息帧完全相同：4 字节大端长度 + 内容，所以可以不经过解析直接发送给客户端。
+ * 文件预分配后全部为 0，长度为 0 的位置就是数据的末尾，因此不允许写入内容为空的记录。
+ * <p>
+ * 索引项为 8 字节：相对 id（int） + 记录位置（int），每写入 indexIntervalBytes 字节记录一项。
+ * 第一条记录固定在位置 0，不写索引项，所以位置为 0 的索引项表示索引的末尾。
+ * <p>
+ * 非线程安全，由 {@link MessageLog} 加锁访问；{@link #committedPosition()} 可以在任意线程读取。
+ *
+ * @author shiloh
+ * @date 2026/10/18 23:02
+ */
+final class LogSegment implements Closeable {
+    /**
+     * 记录头的长度
+     */
+    static final int HEADER_LENGTH = 4;
+
+    /**
+     * 索引项的长度
+     */
+    private static final int INDEX_ENTRY_LENGTH = 8;
+
+    private final long baseId;
+    private final Path logFile;
+    private final Path indexFile;
+    private final FileChannel logChannel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer log;
+    private final MappedByteBuffer index;
+    private final int indexIntervalBytes;
+
+    /**
+     * 索引项数量
+     */
+    private int indexEntries;
+
+    /**
+     * 下一条记录的写入位置
+     */
+    private int writePosition;
+
+    /**
+     * 已写入的数据末尾，发布给其他线程读取
+     */
+    private volatile int committedPosition;
+
+    /**
+     * 已经刷盘的位置
+     */
+    private int flushedPosition;
+
+    /**
+     * 上一个索引项之后写入的字节数
+     */
+    private int bytesSinceIndexEntry;
+
+    /**
+     * 下一条记录的 id
+     */
+    private long nextId;
+
+    /**
+     * 最后一次写入的时间
+     */
+    private long lastAppendMillis;
+
+    private LogSegment(Path directory, long baseId, int segmentBytes, int indexIntervalBytes) throws IOException {
+        this.baseId = baseId;
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.logFile = directory.resolve(fileName(baseId, ".log"));
+        this.indexFile = directory.resolve(fileName(baseId, ".index"));
+        this.logChannel = FileChannel.open(this.logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.indexChannel = FileChannel.open(this.indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // 已有的段文件按实际大小映射，新的段文件按配置的大小映射
+        final int logSize = (int) Math.max(this.logChannel.size(), segmentBytes);
+        final int indexSize = (logSize / indexIntervalBytes + 1) * INDEX_ENTRY_LENGTH;
+        this.log = this.logChannel.map(FileChannel.MapMode.READ_WRITE, 0, logSize);
+        this.index = this.indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(indexSize, this.indexChannel.size()));
+        this.nextId = baseId;
+        this.lastAppendMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 创建新的段
+     *
+     * @param directory          日志目录
+     * @param baseId             段中第一条记录的 id
+     * @param segmentBytes       记录文件的大小
+     * @param indexIntervalBytes 每写入多少字节记录一个索引项
+     * @return 段
+     * @throws IOException 创建或映射文件失败
+     * @author shiloh
+     * @date 2026/10/18 23:03
+     */
+    static LogSegment create(Path directory, long baseId, int segmentBytes, int indexIntervalBytes)
+            throws IOException {
+        return new LogSegment(directory, baseId, segmentBytes, indexIntervalBytes);
+    }
+
+    /**
+     * 打开已有的段，从最后一个索引项开始扫描，恢复数据末尾和下一条记录的 id
+     *
+     * @param directory          日志目录
+     * @param baseId             段中第一条记录的 id，即文件名
+     * @param segmentBytes       新建记录文件的大小，已有的文件按实际大小映射
+     * @param indexIntervalBytes 每写入多少字节记录一个索引项
+     * @return 段
+     * @throws IOException 读取或映射文件失败
+     * @author shiloh
+     * @date 2026/10/18 23:03
+     */
+    static LogSegment open(Path directory, long baseId, int segmentBytes, int indexIntervalBytes)
+            throws IOException {
+        final LogSegment segment = new LogSegment(directory, baseId, segmentBytes, indexIntervalBytes);
+        segment.recover();
+        return segment;
+    }
+
+    /**
+     * 段文件名：20 位的起始 id，按文件名排序即按 id 排序
+     *
+     * @param baseId 段中第一条记录的 id
+     * @param suffix 文件后缀
+     * @return 文件名
+     * @author shiloh
+     * @date 2026/10/18 23:04
+     */
+    static String fileName(long baseId, String suffix) {
+        return String.format("%020d%s", baseId, suffix);
+    }
+
+    /**
+     * 恢复段的写入状态：丢弃指向无效记录的索引项，再从最后一个有效索引项开始扫描到第一个不完整的记录
+     *
+     * @throws IOException 读取文件的修改时间失败
+     * @author shiloh
+     * @date 2026/10/18 23:04
+     */
+    private void recover() throws IOException {
+        final int maxEntries = this.index.capacity() / INDEX_ENTRY_LENGTH;
+        while (this.indexEntries < maxEntries && this.index.getInt(this.indexEntries * INDEX_ENTRY_LENGTH + 4) > 0) {
+            this.indexEntries++;
+        }
+        // 索引项可能先于记录落盘，丢弃指向无效记录的索引项
+        while (this.indexEntries > 0
+                && this.recordEnd(this.index.getInt((this.indexEntries - 1) * INDEX_ENTRY_LENGTH + 4)) < 0) {
+            this.indexEntries--;
+            this.index.putLong(this.indexEntries * INDEX_ENTRY_LENGTH, 0L);
+        }
+        int position = 0;
+        long id = this.baseId;
+        if (this.indexEntries > 0) {
+            final int entry = (this.indexEntries - 1) * INDEX_ENTRY_LENGTH;
+            id = this.baseId + this.index.getInt(entry);
+            position = this.index.getInt(entry + 4);
+        }
+        int lastIndexed = position;
+        while (true) {
+            final int end = this.recordEnd(position);
+            if (end < 0) {
+                break;
+            }
+            position = end;
+            id++;
+        }
+        this.writePosition = position;
+        this.committedPosition = position;
+        this.flushedPosition = position;
+        this.bytesSinceIndexEntry = position - lastIndexed;
+        this.nextId = id;
+        this.lastAppendMillis = Files.getLastModifiedTime(this.logFile).toMillis();
+    }
+
+    /**
+     * 位置上的记录的结束位置，没有完整的记录时返回 -1
+     *
+     * @param position 记录的起始位置
+     * @return 记录的结束位置，也就是下一条记录的起始位置
+     * @author shiloh
+     * @date 2026/10/18 23:05
+     */
+    private int recordEnd(int position) {
+        if (position + HEADER_LENGTH > this.log.capacity()) {
+            return -1;
+        }
+        final int length = this.log.getInt(position);
+        if (length <= 0 || length > this.log.capacity() - position - HEADER_LENGTH) {
+            return -1;
+        }
+        return position + HEADER_LENGTH + length;
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param frame 完整的记录（长度 + 内容）
+     * @return 放不下时返回 false
+     * @author shiloh
+     * @date 2026/10/18 23:06
+     */
+    boolean append(ByteBuffer frame) {
+        final int length = frame.remaining();
+        if (length > this.log.capacity() - this.writePosition) {
+            return false;
+        }
+        if (this.bytesSinceIndexEntry >= this.indexIntervalBytes && this.writePosition > 0
+                && (this.indexEntries + 1) * INDEX_ENTRY_LENGTH <= this.index.capacity()) {
+            final int entry = this.indexEntries * INDEX_ENTRY_LENGTH;
+            this.index.putInt(entry, (int) (this.nextId - this.baseId));
+            this.index.putInt(entry + 4, this.writePosition);
+            this.indexEntries++;
+            this.bytesSinceIndexEntry = 0;
+        }
+        this.log.put(this.writePosition, frame, frame.position(), length);
+        this.writePosition += length;
+        this.bytesSinceIndexEntry += length;
+        this.committedPosition = this.writePosition;
+        this.nextId++;
+        this.lastAppendMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * 查找记录的位置：先在稀疏索引中二分查找不超过目标的最后一项，再从该项开始顺序扫描
+     *
+     * @param id 记录 id，范围 [baseId, nextId]
+     * @return 记录的起始位置，id 为 nextId 时返回数据末尾
+     * @author shiloh
+     * @date 2026/10/18 23:07
+     */
+    int positionOf(long id) {
+        if (id >= this.nextId) {
+            return this.writePosition;
+        }
+        final int relativeId = (int) (id - this.baseId);
+        int low = 0;
+        int high = this.indexEntries - 1;
+        int position = 0;
+        int currentId = 0;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int entryId = this.index.getInt(mid * INDEX_ENTRY_LENGTH);
+            if (entryId <= relativeId) {
+                currentId = entryId;
+                position = this.index.getInt(mid * INDEX_ENTRY_LENGTH + 4);
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        while (currentId < relativeId) {
+            position = this.recordEnd(position);
+            currentId++;
+        }
+        return position;
+    }
+
+    /**
+     * 把尚未刷盘的范围刷到磁盘
+     *
+     * @param end 刷盘的结束位置
+     * @throws java.io.UncheckedIOException 刷盘失败
+     * @author shiloh
+     * @date 2026/10/18 23:08
+     */
+    void force(int end) {
+        final int start = this.flushedPosition;
+        if (end > start) {
+            this.log.force(start, end - start);
+            this.index.force();
+            this.flushedPosition = end;
+        }
+    }
+
+    long baseId() {
+        return this.baseId;
+    }
+
+    long nextId() {
+        return this.nextId;
+    }
+
+    int writePosition() {
+        return this.writePosition;
+    }
+
+    int flushedPosition() {
+        return this.flushedPosition;
+    }
+
+    int committedPosition() {
+        return this.committedPosition;
+    }
+
+    long lastAppendMillis() {
+        return this.lastAppendMillis;
+    }
+
+    FileChannel channel() {
+        return this.logChannel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.logChannel.close();
+        this.indexChannel.close();
+    }
+
+    /**
+     * 关闭并删除段文件；映射的内存在 MappedByteBuffer 被回收后才会释放
+     *
+     * @throws IOException 关闭或删除文件失败
+     * @author shiloh
+     * @date 2026/10/18 23:09
+     */
+    void delete() throws IOException {
+        this.close();
+        Files.deleteIfExists(this.logFile);
+        Files.deleteIfExists(this.indexFile);
+    }
+}
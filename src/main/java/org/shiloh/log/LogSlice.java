@@ -0,0 +1,17 @@
+package org.shiloh.log;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * 日志中一段连续记录在段文件中的位置，可以直接用 {@link FileChannel#transferTo} 发送
+ *
+ * @param channel  段文件的通道，只能使用绝对位置读取，不要修改它的 position，也不要关闭
+ * @param position 第一条记录的起始位置
+ * @param count    字节数
+ * @param firstId  第一条记录的 id
+ * @param endId    最后一条记录的下一个 id
+ * @author shiloh
+ * @date 2026/10/18 23:01
+ */
+public record LogSlice(FileChannel channel, long position, long count, long firstId, long endId) {
+}
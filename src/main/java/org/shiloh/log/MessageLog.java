@@ -0,0 +1,374 @@
+package org.shiloh.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 基于内存映射文件的只追加消息日志
+ * <p>
+ * 日志由多个 {@link LogSegment} 组成，每条记录按写入顺序分配一个递增的 id，写满一个段后滚动到新的段，
+ * 旧的段按总大小和时间删除。写入只是一次内存拷贝，刷盘由共享的后台线程每隔 flushIntervalMillis 做一次，
+ * 这段时间内的所有写入合并为一次 force（group commit），需要确认落盘的调用方使用 {@link #awaitDurable(long)}。
+ * <p>
+ * {@link #append(ByteBuffer)} 和 {@link #slices(long, long)} 可以在任意线程调用。
+ *
+ * @author shiloh
+ * @date 2026/10/18 23:10
+ */
+public final class MessageLog implements Closeable {
+    /**
+     * 所有日志共享的刷盘线程
+     */
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "message-log-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path directory;
+    private final MessageLogConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object flushMonitor = new Object();
+    private final ScheduledFuture<?> flushTask;
+
+    /**
+     * 所有的段，按 id 排序，写时复制，最后一个是正在写入的段
+     */
+    private volatile LogSegment[] segments;
+
+    /**
+     * 下一条记录的 id，在记录写入之后发布
+     */
+    private volatile long nextId;
+
+    /**
+     * 该 id 之前的记录都已经刷盘
+     */
+    private volatile long durableId;
+
+    /**
+     * 刷盘失败的原因，设置后不再清除：force 失败后无法确定哪些页已经落盘，之后等待刷盘的调用都会失败
+     */
+    private volatile IOException flushFailure;
+
+    private volatile boolean closed;
+
+    private MessageLog(Path directory, MessageLogConfig config, LogSegment[] segments) {
+        this.directory = directory;
+        this.config = config;
+        this.segments = segments;
+        this.nextId = segments[segments.length - 1].nextId();
+        this.durableId = this.nextId;
+        this.flushTask = FLUSHER.scheduleWithFixedDelay(this::flushQuietly, config.flushIntervalMillis(),
+                config.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 打开目录下的日志，目录不存在时创建，已有的段文件会被恢复
+     *
+     * @param directory 日志目录，一个目录只能由一个 MessageLog 打开
+     * @param config    配置
+     * @return 日志
+     * @throws IOException 读写文件失败
+     * @author shiloh
+     * @date 2026/10/18 23:11
+     */
+    public static MessageLog open(Path directory, MessageLogConfig config) throws IOException {
+        Files.createDirectories(directory);
+        final long[] baseIds;
+        try (Stream<Path> files = Files.list(directory)) {
+            baseIds = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".log"))
+                    .mapToLong(name -> Long.parseLong(name.substring(0, name.length() - ".log".length())))
+                    .sorted()
+                    .toArray();
+        }
+        final LogSegment[] segments;
+        if (baseIds.length == 0) {
+            segments = new LogSegment[]{
+                    LogSegment.create(directory, 0, config.segmentBytes(), config.indexIntervalBytes())
+            };
+        } else {
+            segments = new LogSegment[baseIds.length];
+            for (int i = 0; i < baseIds.length; i++) {
+                segments[i] = LogSegment.open(directory, baseIds[i], config.segmentBytes(),
+                        config.indexIntervalBytes());
+            }
+        }
+        return new MessageLog(directory, config, segments);
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param frame 完整的消息帧（4 字节长度 + 内容），内容不能为空，buffer 的 position 不会改变
+     * @return 记录的 id
+     * @throws IOException 日志已关闭或创建新的段失败
+     * @author shiloh
+     * @date 2026/10/18 23:12
+     */
+    public long append(ByteBuffer frame) throws IOException {
+        final int length = frame.remaining() - LogSegment.HEADER_LENGTH;
+        if (length <= 0 || frame.getInt(frame.position()) != length) {
+            throw new IllegalArgumentException("not a non-empty frame");
+        }
+        if (frame.remaining() > this.config.segmentBytes()) {
+            throw new IllegalArgumentException("frame larger than segment: " + frame.remaining());
+        }
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                throw new ClosedChannelException();
+            }
+            LogSegment active = this.segments[this.segments.length - 1];
+            if (!active.append(frame)) {
+                active = this.roll(active);
+                active.append(frame);
+            }
+            final long id = this.nextId;
+            this.nextId = id + 1;
+            return id;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 创建新的段，然后按保留策略删除旧的段，持有锁时调用
+     *
+     * @param active 已经写满的段
+     * @return 新的段
+     * @throws IOException 创建新的段或删除旧的段失败
+     * @author shiloh
+     * @date 2026/10/18 23:13
+     */
+    private LogSegment roll(LogSegment active) throws IOException {
+        final LogSegment next = LogSegment.create(this.directory, active.nextId(), this.config.segmentBytes(),
+                this.config.indexIntervalBytes());
+        final LogSegment[] current = this.segments;
+        final LogSegment[] rolled = Arrays.copyOf(current, current.length + 1);
+        rolled[current.length] = next;
+        this.segments = rolled;
+        this.applyRetention();
+        return next;
+    }
+
+    /**
+     * 删除超出保留大小或保留时间的最旧的段，正在写入的段不会被删除，持有锁时调用
+     *
+     * @throws IOException 删除段文件失败
+     * @author shiloh
+     * @date 2026/10/18 23:14
+     */
+    private void applyRetention() throws IOException {
+        final LogSegment[] current = this.segments;
+        long totalBytes = 0;
+        for (final LogSegment segment : current) {
+            totalBytes += segment.committedPosition();
+        }
+        final long now = System.currentTimeMillis();
+        int expired = 0;
+        while (expired < current.length - 1) {
+            final LogSegment oldest = current[expired];
+            final boolean overSize = this.config.retentionBytes() > 0 && totalBytes > this.config.retentionBytes();
+            final boolean overAge = this.config.retentionMillis() > 0
+                    && now - oldest.lastAppendMillis() > this.config.retentionMillis();
+            if (!overSize && !overAge) {
+                break;
+            }
+            totalBytes -= oldest.committedPosition();
+            expired++;
+        }
+        if (expired == 0) {
+            return;
+        }
+        this.segments = Arrays.copyOfRange(current, expired, current.length);
+        for (int i = 0; i < expired; i++) {
+            current[i].delete();
+        }
+    }
+
+    /**
+     * 把已写入的记录刷到磁盘并唤醒等待的线程；通常由后台线程定时调用，也可以手动调用
+     *
+     * @throws IOException 刷盘失败或删除过期的段失败
+     * @author shiloh
+     * @date 2026/10/18 23:15
+     */
+    public void flush() throws IOException {
+        synchronized (this.flushMonitor) {
+            // 先读 nextId 再读段：该 id 之前的记录一定已经在这些段中
+            final long id = this.nextId;
+            final LogSegment[] current = this.segments;
+            try {
+                for (int i = current.length - 1; i >= 0; i--) {
+                    final LogSegment segment = current[i];
+                    final int end = segment.committedPosition();
+                    if (segment.flushedPosition() >= end) {
+                        break;
+                    }
+                    segment.force(end);
+                }
+            } catch (UncheckedIOException e) {
+                // 唤醒等待的线程，让它们失败而不是一直等下去
+                this.flushFailure = e.getCause();
+                this.flushMonitor.notifyAll();
+                throw e.getCause();
+            }
+            if (id > this.durableId) {
+                this.durableId = id;
+                this.flushMonitor.notifyAll();
+            }
+        }
+        if (this.config.retentionMillis() > 0 && this.lock.tryLock()) {
+            try {
+                if (!this.closed) {
+                    this.applyRetention();
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 后台线程的刷盘任务，异常不能抛出去，否则定时任务会被取消，之后的记录再也不会刷盘
+     *
+     * @author shiloh
+     * @date 2026/10/18 23:15
+     */
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 等待记录刷盘，多个线程的等待会合并为同一次 force
+     *
+     * @param id 记录 id
+     * @throws InterruptedException 等待时被中断
+     * @throws IOException          日志在记录刷盘之前被关闭，或者刷盘失败
+     * @author shiloh
+     * @date 2026/10/18 23:16
+     */
+    public void awaitDurable(long id) throws InterruptedException, IOException {
+        synchronized (this.flushMonitor) {
+            while (this.durableId <= id) {
+                if (this.flushFailure != null) {
+                    throw new IOException("flush failed", this.flushFailure);
+                }
+                if (this.closed) {
+                    throw new ClosedChannelException();
+                }
+                this.flushMonitor.wait();
+            }
+        }
+    }
+
+    /**
+     * 最旧的还保留着的记录的 id
+     *
+     * @return 记录 id
+     * @author shiloh
+     * @date 2026/10/18 23:17
+     */
+    public long firstId() {
+        return this.segments[0].baseId();
+    }
+
+    /**
+     * 下一条记录的 id
+     *
+     * @return 记录 id
+     * @author shiloh
+     * @date 2026/10/18 23:17
+     */
+    public long nextId() {
+        return this.nextId;
+    }
+
+    /**
+     * 该 id 之前的记录都已经刷盘
+     *
+     * @return 记录 id
+     * @author shiloh
+     * @date 2026/10/18 23:17
+     */
+    public long durableId() {
+        return this.durableId;
+    }
+
+    /**
+     * 查找 [fromId, toId) 范围内的记录在段文件中的位置，超出保留范围的部分会被忽略
+     *
+     * @param fromId 起始 id（包含）
+     * @param toId   结束 id（不包含）
+     * @return 每个段一个 {@link LogSlice}，按 id 排序；段可能随后因为保留策略被删除，这时读取会抛出
+     * {@link ClosedChannelException}
+     * @author shiloh
+     * @date 2026/10/18 23:18
+     */
+    public List<LogSlice> slices(long fromId, long toId) {
+        this.lock.lock();
+        try {
+            final LogSegment[] current = this.segments;
+            final long from = Math.max(fromId, current[0].baseId());
+            final long to = Math.min(toId, this.nextId);
+            if (from >= to) {
+                return Collections.emptyList();
+            }
+            final List<LogSlice> slices = new ArrayList<>(2);
+            for (final LogSegment segment : current) {
+                final long first = Math.max(from, segment.baseId());
+                final long end = Math.min(to, segment.nextId());
+                if (first >= end) {
+                    continue;
+                }
+                final int start = segment.positionOf(first);
+                slices.add(new LogSlice(segment.channel(), start, segment.positionOf(end) - start, first, end));
+            }
+            return slices;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.flushTask.cancel(false);
+            this.flush();
+            this.closed = true;
+            for (final LogSegment segment : this.segments) {
+                segment.close();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        synchronized (this.flushMonitor) {
+            this.flushMonitor.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.shiloh.log;
+
+/**
+ * {@link MessageLog} 的配置
+ *
+ * @param segmentBytes        每个段文件的大小，写满后滚动到新的段文件，不能超过 2GB（一个 MappedByteBuffer 的上限）
+ * @param indexIntervalBytes  稀疏索引的间隔，每写入这么多字节记录一个索引项，越小查找越快、索引文件越大
+ * @param flushIntervalMillis 刷盘间隔，这段时间内的所有写入合并为一次 force（group commit）
+ * @param retentionBytes      保留的总字节数，超过后删除最旧的段文件，0 表示不限制
+ * @param retentionMillis     段文件最后一次写入后保留的时间，超过后删除，0 表示不限制
+ * @author shiloh
+ * @date 2026/10/18 23:00
+ */
+public record MessageLogConfig(int segmentBytes, int indexIntervalBytes, long flushIntervalMillis,
+                               long retentionBytes, long retentionMillis) {
+    /**
+     * 默认配置：64MB 的段，4KB 一个索引项，每 10ms 刷一次盘，最多保留 1GB，不限制时间
+     */
+    public static final MessageLogConfig DEFAULT = new MessageLogConfig(64 * 1024 * 1024, 4096, 10, 1L << 30, 0);
+
+    public MessageLogConfig {
+        if (segmentBytes < 64 || indexIntervalBytes <= 0 || flushIntervalMillis <= 0 || retentionBytes < 0
+                || retentionMillis < 0) {
+            throw new IllegalArgumentException("invalid message log config");
+        }
+    }
+}
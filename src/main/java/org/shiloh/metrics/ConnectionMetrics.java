@@ -0,0 +1,146 @@
+package org.shiloh.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个连接的指标：收发的字节数、消息数和发送队列的积压
+ * <p>
+ * 每次更新同时累加到所属服务端的汇总计数器，连接关闭后汇总值仍然保留。
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:33
+ */
+public class ConnectionMetrics {
+    private final ServerMetrics server;
+    private final String name;
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder messagesDropped = new LongAdder();
+
+    /**
+     * 发送队列中积压的字节数，只有连接所属的线程写入，使用 lazySet 避免内存屏障
+     */
+    private final AtomicLong outboundQueueBytes = new AtomicLong();
+
+    ConnectionMetrics(ServerMetrics server, String name) {
+        this.server = server;
+        this.name = name;
+    }
+
+    /**
+     * 记录读取到的字节数
+     *
+     * @param bytes 字节数
+     * @author shiloh
+     * @date 2026/10/18 20:34
+     */
+    public void bytesRead(long bytes) {
+        this.bytesIn.add(bytes);
+        this.server.bytesIn.add(bytes);
+    }
+
+    /**
+     * 记录解码出的消息数
+     *
+     * @param messages 消息数
+     * @author shiloh
+     * @date 2026/10/18 20:34
+     */
+    public void messagesRead(int messages) {
+        this.messagesIn.add(messages);
+        this.server.messagesIn.add(messages);
+    }
+
+    /**
+     * 记录写出的字节数
+     *
+     * @param bytes 字节数
+     * @author shiloh
+     * @date 2026/10/18 20:35
+     */
+    public void bytesWritten(long bytes) {
+        this.bytesOut.add(bytes);
+        this.server.bytesOut.add(bytes);
+    }
+
+    /**
+     * 记录一条消息已经完整写出
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:35
+     */
+    public void messageWritten() {
+        this.messagesOut.increment();
+        this.server.messagesOut.increment();
+    }
+
+    /**
+     * 记录一次写 socket 的系统调用，一次聚集写可能写出多条消息
+     *
+     * @author shiloh
+     * @date 2026/10/19 01:40
+     */
+    public void writeCalled() {
+        this.server.writeCalls.increment();
+    }
+
+    /**
+     * 记录一条消息因为背压被丢弃
+     *
+     * @author shiloh
+     * @date 2026/10/18 22:03
+     */
+    public void messageDropped() {
+        this.messagesDropped.increment();
+        this.server.messagesDropped.increment();
+    }
+
+    /**
+     * 更新发送队列中积压的字节数
+     *
+     * @param bytes 字节数
+     * @author shiloh
+     * @date 2026/10/18 20:36
+     */
+    public void outboundQueueBytes(long bytes) {
+        this.outboundQueueBytes.lazySet(bytes);
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public long bytesIn() {
+        return this.bytesIn.sum();
+    }
+
+    public long bytesOut() {
+        return this.bytesOut.sum();
+    }
+
+    public long messagesIn() {
+        return this.messagesIn.sum();
+    }
+
+    public long messagesOut() {
+        return this.messagesOut.sum();
+    }
+
+    public long messagesDropped() {
+        return this.messagesDropped.sum();
+    }
+
+    public long outboundQueueBytes() {
+        return this.outboundQueueBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " in=" + this.bytesIn() + "B/" + this.messagesIn() + "msg out=" + this.bytesOut() + "B/"
+                + this.messagesOut() + "msg dropped=" + this.messagesDropped() + "msg queued="
+                + this.outboundQueueBytes() + "B";
+    }
+}
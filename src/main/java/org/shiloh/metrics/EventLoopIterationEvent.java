@@ -0,0 +1,51 @@
+package org.shiloh.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 事件循环一次迭代的 JFR 事件
+ * <p>
+ * 每次循环一个事件，数量很多，默认不记录，需要在 JFR 配置中开启 {@code org.shiloh.EventLoopIteration}。
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:46
+ */
+@Name("org.shiloh.EventLoopIteration")
+@Label("Event Loop Iteration")
+@Category({"Learn NIO", "Event Loop"})
+@Description("One iteration of a selector loop")
+@Enabled(false)
+@StackTrace(false)
+class EventLoopIterationEvent extends Event {
+    @Label("Loop")
+    String loop;
+
+    @Label("Keys")
+    int keys;
+
+    @Label("Select Wait")
+    @Timespan
+    long selectWait;
+
+    @Label("Loop Duration")
+    @Timespan
+    long loopDuration;
+
+    static void commit(String loop, int keys, long selectWaitNanos, long loopNanos) {
+        final EventLoopIterationEvent event = new EventLoopIterationEvent();
+        if (event.shouldCommit()) {
+            event.loop = loop;
+            event.keys = keys;
+            event.selectWait = selectWaitNanos;
+            event.loopDuration = loopNanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.shiloh.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个事件循环（选择器线程）的指标
+ * <p>
+ * 每次循环结束时由事件循环线程调用 {@link #recordIteration}，计数器使用 {@link LongAdder}，
+ * 循环耗时记录到 {@link LatencyHistogram}，都可以在 JMX 线程中随时读取。
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:31
+ */
+public class EventLoopMetrics implements EventLoopMetricsMBean {
+    private final String name;
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder selectWaitNanos = new LongAdder();
+    private final LongAdder keysProcessed = new LongAdder();
+
+    /**
+     * 循环耗时，只有事件循环线程写入
+     */
+    private final LatencyHistogram loopDuration = new LatencyHistogram();
+
+    EventLoopMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 记录一次循环，只能在事件循环线程调用
+     *
+     * @param selectWaitNanos 阻塞在 select 上的时间（纳秒）
+     * @param keys            本次处理的就绪事件数
+     * @param loopNanos       处理事件和任务的耗时（纳秒），不含 select 等待
+     * @author shiloh
+     * @date 2026/10/18 20:32
+     */
+    public void recordIteration(long selectWaitNanos, int keys, long loopNanos) {
+        this.iterations.increment();
+        this.selectWaitNanos.add(selectWaitNanos);
+        this.keysProcessed.add(keys);
+        this.loopDuration.record(loopNanos);
+        if (ServerMetrics.JFR_ENABLED) {
+            EventLoopIterationEvent.commit(this.name, keys, selectWaitNanos, loopNanos);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public long getIterations() {
+        return this.iterations.sum();
+    }
+
+    @Override
+    public long getSelectWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.selectWaitNanos.sum());
+    }
+
+    @Override
+    public double getAverageSelectWaitMicros() {
+        final long iterations = this.iterations.sum();
+        return iterations == 0 ? 0 : this.selectWaitNanos.sum() / 1000.0 / iterations;
+    }
+
+    @Override
+    public long getKeysProcessed() {
+        return this.keysProcessed.sum();
+    }
+
+    @Override
+    public double getAverageKeysPerIteration() {
+        final long iterations = this.iterations.sum();
+        return iterations == 0 ? 0 : (double) this.keysProcessed.sum() / iterations;
+    }
+
+    @Override
+    public double getLoopDurationP50Micros() {
+        return this.loopDuration.valueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getLoopDurationP99Micros() {
+        return this.loopDuration.valueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getLoopDurationP999Micros() {
+        return this.loopDuration.valueAtPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getLoopDurationMaxMicros() {
+        return this.loopDuration.max() / 1000.0;
+    }
+}
@@ -0,0 +1,59 @@
+package org.shiloh.metrics;
+
+/**
+ * 事件循环指标的 JMX 接口
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:30
+ */
+public interface EventLoopMetricsMBean {
+    /**
+     * @return 事件循环名称
+     */
+    String getName();
+
+    /**
+     * @return 循环次数
+     */
+    long getIterations();
+
+    /**
+     * @return 阻塞在 select 上的总时间（毫秒）
+     */
+    long getSelectWaitMillis();
+
+    /**
+     * @return 每次 select 平均阻塞时间（微秒）
+     */
+    double getAverageSelectWaitMicros();
+
+    /**
+     * @return 处理过的就绪事件总数
+     */
+    long getKeysProcessed();
+
+    /**
+     * @return 每次循环平均处理的就绪事件数
+     */
+    double getAverageKeysPerIteration();
+
+    /**
+     * @return 循环耗时（不含 select 等待）的 p50（微秒）
+     */
+    double getLoopDurationP50Micros();
+
+    /**
+     * @return 循环耗时的 p99（微秒）
+     */
+    double getLoopDurationP99Micros();
+
+    /**
+     * @return 循环耗时的 p99.9（微秒）
+     */
+    double getLoopDurationP999Micros();
+
+    /**
+     * @return 循环耗时的最大值（微秒）
+     */
+    double getLoopDurationMaxMicros();
+}
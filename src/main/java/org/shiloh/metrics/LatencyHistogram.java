@@ -0,0 +1,184 @@
+package org.shiloh.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数线性直方图，用于统计延迟分布
+ * <p>
+ * 把 [2^k, 2^(k+1)) 区间再线性地分成 128 个桶，小于 128 的值每个值一个桶，相对误差不超过 1/128（约 0.8%），
+ * 覆盖 0 到 {@link Long#MAX_VALUE} 只需要约 7300 个桶，记录一个值只有一次位运算和一次数组写入，不分配内存。
+ * <p>
+ * 只允许一个线程调用 {@link #record(long)}，其他线程可以随时读取（读取到的是近似一致的快照）；
+ * 多个线程各自记录后可以用 {@link #add(LatencyHistogram)} 合并。
+ *
+ * @author shiloh
+ * @date 2026/10/18 19:30
+ */
+public class LatencyHistogram {
+    /**
+     * 每个 2 的幂区间内线性桶数量的位数
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * 每个 2 的幂区间内线性桶的数量
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 桶的总数
+     */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /**
+     * 每个桶的计数，只有一个写线程，使用 lazySet 保证其他线程可以读到
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 汇总值只在写线程修改，不使用 volatile 避免每次记录都有内存屏障，其他线程读到的可能稍有滞后
+     */
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * 记录一个值，负数按 0 处理
+     *
+     * @param value 值，一般为纳秒
+     * @author shiloh
+     * @date 2026/10/18 19:32
+     */
+    public void record(long value) {
+        final long v = Math.max(0, value);
+        final int index = bucketIndex(v);
+        this.counts.lazySet(index, this.counts.get(index) + 1);
+        this.sum += v;
+        if (v < this.min) {
+            this.min = v;
+        }
+        if (v > this.max) {
+            this.max = v;
+        }
+        this.totalCount++;
+    }
+
+    /**
+     * 合并另一个直方图的记录，调用期间 other 不能有写入
+     *
+     * @param other 另一个直方图
+     * @author shiloh
+     * @date 2026/10/18 19:33
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long count = other.counts.get(i);
+            if (count != 0) {
+                this.counts.lazySet(i, this.counts.get(i) + count);
+            }
+        }
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        this.totalCount += other.totalCount;
+    }
+
+    /**
+     * 清空所有记录，只能在写线程调用
+     *
+     * @author shiloh
+     * @date 2026/10/18 19:34
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts.lazySet(i, 0);
+        }
+        this.totalCount = 0;
+        this.sum = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+
+    /**
+     * 获取指定百分位的值
+     * <p>
+     * 返回该值所在桶的上界（不超过记录过的最大值），即至少有 percentile% 的记录小于等于返回值。
+     *
+     * @param percentile 百分位，取值范围 [0, 100]，例如 99.9
+     * @return 百分位的值，没有记录时返回 0
+     * @author shiloh
+     * @date 2026/10/18 19:35
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile: " + percentile);
+        }
+        final long total = this.totalCount;
+        if (total == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += this.counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * @return 记录的数量
+     */
+    public long count() {
+        return this.totalCount;
+    }
+
+    /**
+     * @return 记录的最小值，没有记录时返回 0
+     */
+    public long min() {
+        return this.totalCount == 0 ? 0 : this.min;
+    }
+
+    /**
+     * @return 记录的最大值
+     */
+    public long max() {
+        return this.max;
+    }
+
+    /**
+     * @return 平均值，没有记录时返回 0
+     */
+    public double mean() {
+        final long total = this.totalCount;
+        return total == 0 ? 0 : (double) this.sum / total;
+    }
+
+    /**
+     * 计算值所在的桶
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // 最高位以下再保留 SUB_BUCKET_BITS 位作为桶内的线性偏移
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * 计算桶内的最大值
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,294 @@
+package org.shiloh.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端指标：接收的连接、打开的连接、收发的汇总流量，以及各个事件循环和连接的指标
+ * <p>
+ * 调用 {@link #register()} 后以 MBean 的形式注册到平台 MBeanServer，可以用 jconsole/jmc 查看：
+ * <ul>
+ *     <li>{@code org.shiloh.chat:type=Server,name=<name>}：服务端汇总指标</li>
+ *     <li>{@code org.shiloh.chat:type=EventLoop,server=<name>,name=<loop>}：每个事件循环的指标</li>
+ * </ul>
+ * 接收速率等速率类指标由采样线程每秒计算一次（{@link #sample}），读取属性只返回最近一次的结果，
+ * 多个客户端同时读取也不会互相影响。
+ * <p>
+ * 通过 -Dorg.shiloh.metrics.jfr=true 开启 JFR 事件，每次循环提交一个 {@link EventLoopIterationEvent}（默认不记录，
+ * 需要在 JFR 配置中开启），每秒提交一个 {@link ServerMetricsEvent}。
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:38
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+    /**
+     * 是否提交 JFR 事件
+     */
+    static final boolean JFR_ENABLED = Boolean.getBoolean("org.shiloh.metrics.jfr");
+
+    private static final String DOMAIN = "org.shiloh.chat";
+
+    /**
+     * 速率的采样周期
+     */
+    private static final long SAMPLE_PERIOD_MILLIS = 1000;
+
+    /**
+     * 所有已注册的服务端共用的采样线程
+     */
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "server-metrics-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final LongAdder accepted = new LongAdder();
+    final LongAdder bytesIn = new LongAdder();
+    final LongAdder bytesOut = new LongAdder();
+    final LongAdder messagesIn = new LongAdder();
+    final LongAdder messagesOut = new LongAdder();
+    final LongAdder messagesDropped = new LongAdder();
+    final LongAdder writeCalls = new LongAdder();
+    private final Set<ConnectionMetrics> connections = ConcurrentHashMap.newKeySet();
+    private final List<EventLoopMetrics> eventLoops = new CopyOnWriteArrayList<>();
+
+    /**
+     * 上次采样时的连接总数和时间，只由 {@link #sample} 读写
+     */
+    private long lastAccepted;
+    private long lastSampleNanos = System.nanoTime();
+
+    /**
+     * 最近一个采样周期内平均每秒接收的连接数
+     */
+    private volatile double acceptRate;
+
+    /**
+     * 周期性采样的任务，注册后才有
+     */
+    private ScheduledFuture<?> samplingTask;
+
+    /**
+     * 周期性提交 JFR 事件的回调
+     */
+    private Runnable jfrHook;
+
+    public ServerMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 创建一个事件循环的指标
+     *
+     * @param loopName 事件循环名称
+     * @return 事件循环的指标
+     * @author shiloh
+     * @date 2026/10/18 20:40
+     */
+    public EventLoopMetrics newEventLoop(String loopName) {
+        final EventLoopMetrics metrics = new EventLoopMetrics(loopName);
+        this.eventLoops.add(metrics);
+        return metrics;
+    }
+
+    /**
+     * 记录接收了一个连接
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:41
+     */
+    public void connectionAccepted() {
+        this.accepted.increment();
+    }
+
+    /**
+     * 创建一个连接的指标，直到 {@link #connectionClosed} 之前都计入打开的连接
+     *
+     * @param connectionName 连接名称，一般为远程地址
+     * @return 连接的指标
+     * @author shiloh
+     * @date 2026/10/18 20:42
+     */
+    public ConnectionMetrics connectionOpened(String connectionName) {
+        final ConnectionMetrics metrics = new ConnectionMetrics(this, connectionName);
+        this.connections.add(metrics);
+        return metrics;
+    }
+
+    /**
+     * 记录连接已关闭
+     *
+     * @param metrics 连接的指标
+     * @author shiloh
+     * @date 2026/10/18 20:42
+     */
+    public void connectionClosed(ConnectionMetrics metrics) {
+        this.connections.remove(metrics);
+    }
+
+    /**
+     * 注册服务端和所有事件循环的 MBean，注册之后创建的事件循环不会注册
+     *
+     * @throws JMException 注册失败，例如名称重复
+     * @author shiloh
+     * @date 2026/10/18 20:43
+     */
+    public void register() throws JMException {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        mBeanServer.registerMBean(this, this.serverObjectName());
+        for (final EventLoopMetrics eventLoop : this.eventLoops) {
+            mBeanServer.registerMBean(eventLoop, this.eventLoopObjectName(eventLoop));
+        }
+        this.samplingTask = SAMPLER.scheduleAtFixedRate(() -> this.sample(System.nanoTime()), SAMPLE_PERIOD_MILLIS,
+                SAMPLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        if (JFR_ENABLED) {
+            this.jfrHook = () -> ServerMetricsEvent.commit(this);
+            jdk.jfr.FlightRecorder.addPeriodicEvent(ServerMetricsEvent.class, this.jfrHook);
+        }
+    }
+
+    /**
+     * 注销已注册的 MBean
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:44
+     */
+    public void unregister() {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (mBeanServer.isRegistered(this.serverObjectName())) {
+                mBeanServer.unregisterMBean(this.serverObjectName());
+            }
+            for (final EventLoopMetrics eventLoop : this.eventLoops) {
+                if (mBeanServer.isRegistered(this.eventLoopObjectName(eventLoop))) {
+                    mBeanServer.unregisterMBean(this.eventLoopObjectName(eventLoop));
+                }
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        if (this.jfrHook != null) {
+            jdk.jfr.FlightRecorder.removePeriodicEvent(this.jfrHook);
+            this.jfrHook = null;
+        }
+        if (this.samplingTask != null) {
+            this.samplingTask.cancel(false);
+            this.samplingTask = null;
+        }
+    }
+
+    /**
+     * 结束一个采样周期，计算这个周期内的速率
+     * <p>
+     * 注册后由采样线程每秒调用一次；没有注册时由调用方按固定周期调用，同一时间只能有一个调用方。
+     *
+     * @param nowNanos 当前时间
+     * @author shiloh
+     * @date 2026/10/19 11:35
+     */
+    public void sample(long nowNanos) {
+        final long accepted = this.accepted.sum();
+        final double seconds = (nowNanos - this.lastSampleNanos) / 1e9;
+        if (seconds <= 0) {
+            return;
+        }
+        this.acceptRate = (accepted - this.lastAccepted) / seconds;
+        this.lastAccepted = accepted;
+        this.lastSampleNanos = nowNanos;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public List<EventLoopMetrics> eventLoops() {
+        return this.eventLoops;
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return this.accepted.sum();
+    }
+
+    @Override
+    public int getOpenConnections() {
+        return this.connections.size();
+    }
+
+    @Override
+    public double getAcceptRate() {
+        return this.acceptRate;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return this.bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return this.bytesOut.sum();
+    }
+
+    @Override
+    public long getMessagesIn() {
+        return this.messagesIn.sum();
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return this.messagesOut.sum();
+    }
+
+    @Override
+    public long getMessagesDropped() {
+        return this.messagesDropped.sum();
+    }
+
+    @Override
+    public long getWriteCalls() {
+        return this.writeCalls.sum();
+    }
+
+    @Override
+    public long getMaxOutboundQueueBytes() {
+        long max = 0;
+        for (final ConnectionMetrics connection : this.connections) {
+            max = Math.max(max, connection.outboundQueueBytes());
+        }
+        return max;
+    }
+
+    @Override
+    public String[] topConnections(int limit) {
+        final Comparator<ConnectionMetrics> byQueuedBytes =
+                Comparator.comparingLong(ConnectionMetrics::outboundQueueBytes);
+        return this.connections.stream()
+                .sorted(byQueuedBytes.reversed())
+                .limit(Math.max(0, limit))
+                .map(ConnectionMetrics::toString)
+                .toArray(String[]::new);
+    }
+
+    private ObjectName serverObjectName() throws JMException {
+        return new ObjectName(DOMAIN + ":type=Server,name=" + ObjectName.quote(this.name));
+    }
+
+    private ObjectName eventLoopObjectName(EventLoopMetrics eventLoop) throws JMException {
+        return new ObjectName(DOMAIN + ":type=EventLoop,server=" + ObjectName.quote(this.name) + ",name="
+                + ObjectName.quote(eventLoop.getName()));
+    }
+}
@@ -0,0 +1,72 @@
+package org.shiloh.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * 服务端指标的周期性 JFR 事件，默认每秒一次
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:47
+ */
+@Name("org.shiloh.ServerMetrics")
+@Label("Server Metrics")
+@Category({"Learn NIO", "Server"})
+@Description("Periodic snapshot of server-wide counters")
+@Period("1 s")
+@StackTrace(false)
+class ServerMetricsEvent extends Event {
+    @Label("Server")
+    String server;
+
+    @Label("Accepted Connections")
+    long acceptedConnections;
+
+    @Label("Open Connections")
+    int openConnections;
+
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+
+    @Label("Messages In")
+    long messagesIn;
+
+    @Label("Messages Out")
+    long messagesOut;
+
+    @Label("Messages Dropped")
+    long messagesDropped;
+
+    @Label("Write Calls")
+    long writeCalls;
+
+    @Label("Max Outbound Queue")
+    @DataAmount
+    long maxOutboundQueueBytes;
+
+    static void commit(ServerMetrics metrics) {
+        final ServerMetricsEvent event = new ServerMetricsEvent();
+        event.server = metrics.name();
+        event.acceptedConnections = metrics.getAcceptedConnections();
+        event.openConnections = metrics.getOpenConnections();
+        event.bytesIn = metrics.getBytesIn();
+        event.bytesOut = metrics.getBytesOut();
+        event.messagesIn = metrics.getMessagesIn();
+        event.messagesOut = metrics.getMessagesOut();
+        event.messagesDropped = metrics.getMessagesDropped();
+        event.writeCalls = metrics.getWriteCalls();
+        event.maxOutboundQueueBytes = metrics.getMaxOutboundQueueBytes();
+        event.commit();
+    }
+}
@@ -0,0 +1,67 @@
+package org.shiloh.metrics;
+
+/**
+ * 服务端指标的 JMX 接口
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:37
+ */
+public interface ServerMetricsMBean {
+    /**
+     * @return 接收的连接总数
+     */
+    long getAcceptedConnections();
+
+    /**
+     * @return 当前打开的连接数
+     */
+    int getOpenConnections();
+
+    /**
+     * @return 最近一个采样周期（1 秒）内平均每秒接收的连接数，多次读取互不影响
+     */
+    double getAcceptRate();
+
+    /**
+     * @return 读取的总字节数
+     */
+    long getBytesIn();
+
+    /**
+     * @return 写出的总字节数
+     */
+    long getBytesOut();
+
+    /**
+     * @return 收到的消息总数
+     */
+    long getMessagesIn();
+
+    /**
+     * @return 发出的消息总数
+     */
+    long getMessagesOut();
+
+    /**
+     * @return 因为背压丢弃的消息总数
+     */
+    long getMessagesDropped();
+
+    /**
+     * @return 写 socket 的系统调用次数，与 {@link #getMessagesOut()} 的比值就是每次写出的平均消息数
+     */
+    long getWriteCalls();
+
+    /**
+     * @return 所有连接中发送队列积压最多的字节数
+     */
+    long getMaxOutboundQueueBytes();
+
+    /**
+     * 按发送队列积压从多到少列出连接的指标
+     *
+     * @param limit 最多返回的连接数
+     * @return 每个连接一行
+     */
+    String[] topConnections(int limit);
+}
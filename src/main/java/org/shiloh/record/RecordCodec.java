@@ -0,0 +1,507 @@
+package org.shiloh.record;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * record 的二进制编解码器
+ * <p>
+ * 第一次使用时根据 record 的组件生成布局，并缓存每个组件访问方法和规范构造方法的 {@link MethodHandle}，之后每个 record
+ * 类只有一个编解码器实例（{@link #of(Class)}）。访问方法的 MethodHandle 按组件类型转换为精确的签名，基本类型的组件不会装箱。
+ * <p>
+ * 支持的组件类型：8 种基本类型、对应的包装类型（可以为 null）和 String。编码后的格式：
+ * <pre>
+ * +--------+-------------+------------------------+----------------+
+ * | 长度 4 | null 位图   | 定长区：每个组件一个槽位 | 变长区：字符串 |
+ * +--------+-------------+------------------------+----------------+
+ * </pre>
+ * 长度为后面内容的字节数，与聊天室消息帧的格式一致，可以直接使用 FrameDecoder 拆分。
+ * 基本类型和包装类型的槽位是它本身的宽度，字符串的槽位是 8 字节：UTF-8 内容相对记录起始位置的偏移和字节数。
+ * 每个组件的槽位偏移在生成布局时就已确定，{@link RecordView} 可以直接读取单个组件，不需要解析整条记录。
+ * <p>
+ * 编码时直接把字符逐个编码为 UTF-8 写入缓冲区，不创建中间的 byte[] 和 String，整个编码过程没有内存分配。
+ * 所有方法都使用绝对位置访问缓冲区，编码和解码完成后才移动 position，失败时 position 不变。
+ * <p>
+ * 线程安全，record 类及其访问方法需要是 public 的。
+ *
+ * @param <R> record 类型
+ * @author shiloh
+ * @date 2026/10/19 00:10
+ */
+public final class RecordCodec<R extends Record> {
+    /**
+     * 每个 record 类的编解码器
+     */
+    private static final ClassValue<RecordCodec<?>> CODECS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected RecordCodec<?> computeValue(Class<?> type) {
+            return new RecordCodec(type.asSubclass(Record.class));
+        }
+    };
+
+    /**
+     * 长度字段的字节数
+     */
+    static final int HEADER_LENGTH = 4;
+
+    /**
+     * 字符串槽位的字节数：偏移 + 字节数
+     */
+    private static final int STRING_SLOT = 8;
+
+    private final Class<R> type;
+
+    /**
+     * 组件名称
+     */
+    private final String[] names;
+
+    /**
+     * 组件类型
+     */
+    private final Kind[] kinds;
+
+    /**
+     * 组件是否可以为 null
+     */
+    private final boolean[] nullable;
+
+    /**
+     * 访问方法，签名为 (Record) 基本类型 或 (Record) Object
+     */
+    private final MethodHandle[] accessors;
+
+    /**
+     * 规范构造方法，签名为 (Object[]) Object
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * 组件的槽位相对记录起始位置的偏移
+     */
+    private final int[] offsets;
+
+    /**
+     * 字符串组件的下标
+     */
+    private final int[] stringFields;
+
+    /**
+     * null 位图的字节数
+     */
+    private final int bitmapLength;
+
+    /**
+     * 定长部分的字节数（包括长度字段）
+     */
+    private final int fixedLength;
+
+    private RecordCodec(Class<R> type) {
+        final RecordComponent[] components = type.getRecordComponents();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.type = type;
+        this.names = new String[components.length];
+        this.kinds = new Kind[components.length];
+        this.nullable = new boolean[components.length];
+        this.accessors = new MethodHandle[components.length];
+        this.offsets = new int[components.length];
+        final Class<?>[] parameterTypes = new Class<?>[components.length];
+        this.bitmapLength = (components.length + 7) >>> 3;
+        int offset = HEADER_LENGTH + this.bitmapLength;
+        int strings = 0;
+        try {
+            for (int i = 0; i < components.length; i++) {
+                final RecordComponent component = components[i];
+                final Class<?> componentType = component.getType();
+                final Kind kind = Kind.of(componentType);
+                if (kind == null) {
+                    throw new IllegalArgumentException("unsupported component type: " + component);
+                }
+                this.names[i] = component.getName();
+                this.kinds[i] = kind;
+                this.nullable[i] = !componentType.isPrimitive();
+                final Class<?> returnType = componentType.isPrimitive() ? componentType : Object.class;
+                this.accessors[i] = lookup.unreflect(component.getAccessor())
+                        .asType(MethodType.methodType(returnType, Record.class));
+                this.offsets[i] = offset;
+                offset += kind.width;
+                parameterTypes[i] = componentType;
+                if (kind == Kind.STRING) {
+                    strings++;
+                }
+            }
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("inaccessible record: " + type.getName(), e);
+        }
+        this.fixedLength = offset;
+        this.stringFields = new int[strings];
+        for (int i = 0, j = 0; i < components.length; i++) {
+            if (this.kinds[i] == Kind.STRING) {
+                this.stringFields[j++] = i;
+            }
+        }
+    }
+
+    /**
+     * 获取 record 类的编解码器，每个类只生成一次
+     *
+     * @param type record 类
+     * @param <R>  record 类型
+     * @return 编解码器
+     * @throws IllegalArgumentException 包含不支持的组件类型，或者 record 不是 public 的
+     * @author shiloh
+     * @date 2026/10/19 00:11
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends Record> RecordCodec<R> of(Class<R> type) {
+        return (RecordCodec<R>) CODECS.get(type);
+    }
+
+    /**
+     * 获取组件的下标，用于 {@link RecordView} 按下标读取
+     *
+     * @param name 组件名称
+     * @return 下标
+     * @throws IllegalArgumentException 没有这个组件
+     * @author shiloh
+     * @date 2026/10/19 00:12
+     */
+    public int fieldIndex(String name) {
+        for (int i = 0; i < this.names.length; i++) {
+            if (this.names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("no such component: " + name);
+    }
+
+    /**
+     * 计算编码后的字节数（包括长度字段）
+     *
+     * @param record record
+     * @return 字节数
+     * @author shiloh
+     * @date 2026/10/19 00:13
+     */
+    public int encodedLength(R record) {
+        int length = this.fixedLength;
+        for (final int field : this.stringFields) {
+            final String value = (String) this.getObject(field, record);
+            if (value != null) {
+                length += utf8Length(value);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 把 record 编码到缓冲区的 position 处，完成后 position 移动到记录末尾
+     *
+     * @param record record
+     * @param buffer 缓冲区，堆内或直接缓冲区都可以
+     * @return 写入的字节数
+     * @throws BufferOverflowException 剩余空间不足，此时 position 不变，但 position 之后的内容可能已被改写
+     * @author shiloh
+     * @date 2026/10/19 00:14
+     */
+    public int encode(R record, ByteBuffer buffer) {
+        final int start = buffer.position();
+        final int limit = buffer.limit();
+        if (this.fixedLength > limit - start) {
+            throw new BufferOverflowException();
+        }
+        // 清空 null 位图
+        for (int i = start + HEADER_LENGTH; i < start + HEADER_LENGTH + this.bitmapLength; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        int variable = this.fixedLength;
+        for (int i = 0; i < this.kinds.length; i++) {
+            final int slot = start + this.offsets[i];
+            final MethodHandle accessor = this.accessors[i];
+            try {
+                if (!this.nullable[i]) {
+                    switch (this.kinds[i]) {
+                        case BOOLEAN -> {
+                            final boolean value = (boolean) accessor.invokeExact((Record) record);
+                            buffer.put(slot, (byte) (value ? 1 : 0));
+                        }
+                        case BYTE -> buffer.put(slot, (byte) accessor.invokeExact((Record) record));
+                        case SHORT -> buffer.putShort(slot, (short) accessor.invokeExact((Record) record));
+                        case CHAR -> buffer.putChar(slot, (char) accessor.invokeExact((Record) record));
+                        case INT -> buffer.putInt(slot, (int) accessor.invokeExact((Record) record));
+                        case LONG -> buffer.putLong(slot, (long) accessor.invokeExact((Record) record));
+                        case FLOAT -> buffer.putFloat(slot, (float) accessor.invokeExact((Record) record));
+                        case DOUBLE -> buffer.putDouble(slot, (double) accessor.invokeExact((Record) record));
+                        default -> throw new IllegalStateException();
+                    }
+                    continue;
+                }
+                final Object value = (Object) accessor.invokeExact((Record) record);
+                if (value == null) {
+                    final int bitmap = start + HEADER_LENGTH + (i >>> 3);
+                    buffer.put(bitmap, (byte) (buffer.get(bitmap) | 1 << (i & 7)));
+                    // 槽位清零，保证相同的 record 编码结果相同
+                    for (int j = 0; j < this.kinds[i].width; j++) {
+                        buffer.put(slot + j, (byte) 0);
+                    }
+                    continue;
+                }
+                switch (this.kinds[i]) {
+                    case BOOLEAN -> buffer.put(slot, (byte) ((Boolean) value ? 1 : 0));
+                    case BYTE -> buffer.put(slot, (Byte) value);
+                    case SHORT -> buffer.putShort(slot, (Short) value);
+                    case CHAR -> buffer.putChar(slot, (Character) value);
+                    case INT -> buffer.putInt(slot, (Integer) value);
+                    case LONG -> buffer.putLong(slot, (Long) value);
+                    case FLOAT -> buffer.putFloat(slot, (Float) value);
+                    case DOUBLE -> buffer.putDouble(slot, (Double) value);
+                    case STRING -> {
+                        // 每个组件只访问一次：先按每个字符最多 3 个字节粗略判断空间，不够时再计算准确的字节数
+                        final String text = (String) value;
+                        if (text.length() * 3 > limit - start - variable
+                                && utf8Length(text) > limit - start - variable) {
+                            throw new BufferOverflowException();
+                        }
+                        final int written = encodeUtf8(text, buffer, start + variable);
+                        buffer.putInt(slot, variable);
+                        buffer.putInt(slot + 4, written);
+                        variable += written;
+                    }
+                }
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+        buffer.putInt(start, variable - HEADER_LENGTH);
+        buffer.position(start + variable);
+        return variable;
+    }
+
+    /**
+     * 从缓冲区的 position 处解码一条完整的记录，完成后 position 移动到记录末尾
+     *
+     * @param buffer 缓冲区
+     * @return record
+     * @throws BufferUnderflowException 缓冲区中没有完整的记录，此时缓冲区不变
+     * @author shiloh
+     * @date 2026/10/19 00:15
+     */
+    public R decode(ByteBuffer buffer) {
+        final RecordView<R> view = new RecordView<>(this);
+        final R record = this.decode(view.wrap(buffer, buffer.position()));
+        buffer.position(buffer.position() + view.length());
+        return record;
+    }
+
+    /**
+     * 解码缓冲区指定位置的一条完整的记录，不修改缓冲区的 position
+     *
+     * @param buffer 缓冲区
+     * @param index  记录的起始位置
+     * @return record
+     * @throws BufferUnderflowException 从 index 到 limit 之间没有完整的记录
+     * @author shiloh
+     * @date 2026/10/19 01:00
+     */
+    public R decode(ByteBuffer buffer, int index) {
+        return this.decode(new RecordView<>(this).wrap(buffer, index));
+    }
+
+    /**
+     * 解码视图当前指向的记录
+     *
+     * @param view 视图
+     * @return record
+     * @author shiloh
+     * @date 2026/10/19 01:01
+     */
+    public R decode(RecordView<R> view) {
+        final Object[] args = new Object[this.kinds.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = view.get(i);
+        }
+        try {
+            return this.type.cast(this.constructor.invokeExact(args));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * 创建一个可以重复使用的 {@link RecordView}
+     *
+     * @return 视图
+     * @author shiloh
+     * @date 2026/10/19 00:16
+     */
+    public RecordView<R> newView() {
+        return new RecordView<>(this);
+    }
+
+    private Object getObject(int field, R record) {
+        try {
+            return (Object) this.accessors[field].invokeExact((Record) record);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    Kind kind(int field) {
+        return this.kinds[field];
+    }
+
+    boolean nullable(int field) {
+        return this.nullable[field];
+    }
+
+    int offset(int field) {
+        return this.offsets[field];
+    }
+
+    int fixedLength() {
+        return this.fixedLength;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordCodec" + Arrays.toString(this.names) + " of " + this.type.getName();
+    }
+
+    /**
+     * 访问方法和构造方法只会抛出 record 自身的异常，原样抛出
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException(e);
+    }
+
+    /**
+     * 字符串编码为 UTF-8 后的字节数，无法配对的代理字符按 String.getBytes 的方式替换为一个 '?'
+     */
+    static int utf8Length(String value) {
+        final int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // 4 个字节对应 2 个 char
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 把字符串编码为 UTF-8 写入缓冲区的指定位置，调用方需要保证空间足够
+     *
+     * @return 写入的字节数
+     */
+    static int encodeUtf8(String value, ByteBuffer buffer, int index) {
+        final int start = index;
+        final int length = value.length();
+        int i = 0;
+        // ASCII 快速路径：每次判断 8 个字符，都是 ASCII 时拼成一个 long 写入，减少逐字节写入的边界检查
+        while (i + 8 <= length) {
+            long word = 0;
+            int bits = 0;
+            for (int j = 0; j < 8; j++) {
+                final char c = value.charAt(i + j);
+                bits |= c;
+                word = word << 8 | c;
+            }
+            if ((bits & 0xFF80) != 0) {
+                break;
+            }
+            buffer.putLong(index, buffer.order() == ByteOrder.BIG_ENDIAN ? word : Long.reverseBytes(word));
+            index += 8;
+            i += 8;
+        }
+        for (; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put(index++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(index++, (byte) (0xC0 | c >> 6));
+                buffer.put(index++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put(index++, (byte) (0xF0 | codePoint >> 18));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put(index++, (byte) '?');
+            } else {
+                buffer.put(index++, (byte) (0xE0 | c >> 12));
+                buffer.put(index++, (byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+        return index - start;
+    }
+
+    /**
+     * 支持的组件类型
+     */
+    enum Kind {
+        BOOLEAN(1), BYTE(1), SHORT(2), CHAR(2), INT(4), LONG(8), FLOAT(4), DOUBLE(8), STRING(STRING_SLOT);
+
+        /**
+         * 槽位的字节数
+         */
+        final int width;
+
+        Kind(int width) {
+            this.width = width;
+        }
+
+        static Kind of(Class<?> type) {
+            if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            } else if (type == byte.class || type == Byte.class) {
+                return BYTE;
+            } else if (type == short.class || type == Short.class) {
+                return SHORT;
+            } else if (type == char.class || type == Character.class) {
+                return CHAR;
+            } else if (type == int.class || type == Integer.class) {
+                return INT;
+            } else if (type == long.class || type == Long.class) {
+                return LONG;
+            } else if (type == float.class || type == Float.class) {
+                return FLOAT;
+            } else if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            } else if (type == String.class) {
+                return STRING;
+            }
+            return null;
+        }
+    }
+}
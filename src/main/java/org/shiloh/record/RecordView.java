@@ -0,0 +1,213 @@
+package org.shiloh.record;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 编码后的 record 的只读视图（flyweight）
+ * <p>
+ * 视图只保存缓冲区和记录的起始位置，读取组件时根据 {@link RecordCodec} 生成的布局直接从对应的槽位读取，不解析其他组件，
+ * 基本类型的组件读取时没有内存分配。同一个视图可以用 {@link #wrap} 依次指向缓冲区中的多条记录，遍历大量记录时只需要一个对象。
+ * <p>
+ * 非线程安全，不修改缓冲区的 position 和 limit。
+ *
+ * @param <R> record 类型
+ * @author shiloh
+ * @date 2026/10/19 00:20
+ */
+public final class RecordView<R extends Record> {
+    private final RecordCodec<R> codec;
+    private ByteBuffer buffer;
+    private int start;
+    private int length;
+
+    RecordView(RecordCodec<R> codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 指向缓冲区中的一条记录
+     *
+     * @param buffer 缓冲区
+     * @param index  记录的起始位置（长度字段的位置）
+     * @return 当前视图
+     * @throws BufferUnderflowException 从 index 到 limit 之间没有完整的记录
+     * @author shiloh
+     * @date 2026/10/19 00:21
+     */
+    public RecordView<R> wrap(ByteBuffer buffer, int index) {
+        if (buffer.limit() - index < RecordCodec.HEADER_LENGTH) {
+            throw new BufferUnderflowException();
+        }
+        final int length = buffer.getInt(index) + RecordCodec.HEADER_LENGTH;
+        if (length < this.codec.fixedLength() || length > buffer.limit() - index) {
+            throw new BufferUnderflowException();
+        }
+        this.buffer = buffer;
+        this.start = index;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * 记录的字节数（包括长度字段），加上起始位置就是下一条记录的位置
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * 组件是否为 null
+     *
+     * @param field 组件下标
+     * @return 为 null 时返回 true
+     */
+    public boolean isNull(int field) {
+        if (!this.codec.nullable(field)) {
+            return false;
+        }
+        final byte bitmap = this.buffer.get(this.start + RecordCodec.HEADER_LENGTH + (field >>> 3));
+        return (bitmap & 1 << (field & 7)) != 0;
+    }
+
+    public boolean getBoolean(int field) {
+        return this.buffer.get(this.slot(field, RecordCodec.Kind.BOOLEAN)) != 0;
+    }
+
+    public byte getByte(int field) {
+        return this.buffer.get(this.slot(field, RecordCodec.Kind.BYTE));
+    }
+
+    public short getShort(int field) {
+        return this.buffer.getShort(this.slot(field, RecordCodec.Kind.SHORT));
+    }
+
+    public char getChar(int field) {
+        return this.buffer.getChar(this.slot(field, RecordCodec.Kind.CHAR));
+    }
+
+    public int getInt(int field) {
+        return this.buffer.getInt(this.slot(field, RecordCodec.Kind.INT));
+    }
+
+    public long getLong(int field) {
+        return this.buffer.getLong(this.slot(field, RecordCodec.Kind.LONG));
+    }
+
+    public float getFloat(int field) {
+        return this.buffer.getFloat(this.slot(field, RecordCodec.Kind.FLOAT));
+    }
+
+    public double getDouble(int field) {
+        return this.buffer.getDouble(this.slot(field, RecordCodec.Kind.DOUBLE));
+    }
+
+    /**
+     * 读取字符串组件，会创建新的 String
+     *
+     * @param field 组件下标
+     * @return 字符串，组件为 null 时返回 null
+     * @throws BufferUnderflowException 槽位中的偏移量和长度超出了记录的范围
+     */
+    public String getString(int field) {
+        final int slot = this.slot(field, RecordCodec.Kind.STRING);
+        if (this.isNull(field)) {
+            return null;
+        }
+        final int from = this.stringStart(slot);
+        final byte[] bytes = new byte[this.buffer.getInt(slot + 4)];
+        this.buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 字符串组件 UTF-8 编码的字节数
+     *
+     * @param field 组件下标
+     * @return 字节数，组件为 null 时返回 -1
+     * @throws BufferUnderflowException 槽位中的偏移量和长度超出了记录的范围
+     */
+    public int stringLength(int field) {
+        final int slot = this.slot(field, RecordCodec.Kind.STRING);
+        if (this.isNull(field)) {
+            return -1;
+        }
+        this.stringStart(slot);
+        return this.buffer.getInt(slot + 4);
+    }
+
+    /**
+     * 比较字符串组件与给定的字符串是否相等，直接比较 UTF-8 字节，不创建 String
+     *
+     * @param field 组件下标
+     * @param value 字符串
+     * @return 相等时返回 true，两者都为 null 时也返回 true
+     * @throws BufferUnderflowException 槽位中的偏移量和长度超出了记录的范围
+     */
+    public boolean stringEquals(int field, String value) {
+        final int slot = this.slot(field, RecordCodec.Kind.STRING);
+        if (this.isNull(field) || value == null) {
+            return this.isNull(field) && value == null;
+        }
+        int index = this.stringStart(slot);
+        final int length = this.buffer.getInt(slot + 4);
+        if (RecordCodec.utf8Length(value) != length) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                // 非 ASCII 字符比较少见，逐个字符处理比较复杂，直接比较解码后的字符串
+                return value.equals(this.getString(field));
+            }
+            if (this.buffer.get(index++) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取组件并装箱，供 {@link RecordCodec#decode} 使用
+     */
+    Object get(int field) {
+        if (this.isNull(field)) {
+            return null;
+        }
+        return switch (this.codec.kind(field)) {
+            case BOOLEAN -> this.getBoolean(field);
+            case BYTE -> this.getByte(field);
+            case SHORT -> this.getShort(field);
+            case CHAR -> this.getChar(field);
+            case INT -> this.getInt(field);
+            case LONG -> this.getLong(field);
+            case FLOAT -> this.getFloat(field);
+            case DOUBLE -> this.getDouble(field);
+            case STRING -> this.getString(field);
+        };
+    }
+
+    /**
+     * 字符串数据的绝对位置，槽位中的偏移量和长度来自缓冲区，必须落在 [start, start + length) 以内，
+     * 否则会读到下一条记录甚至记录之外的数据
+     */
+    private int stringStart(int slot) {
+        final int offset = this.buffer.getInt(slot);
+        final int length = this.buffer.getInt(slot + 4);
+        if (offset < 0 || length < 0 || offset > this.length - length) {
+            throw new BufferUnderflowException();
+        }
+        return this.start + offset;
+    }
+
+    /**
+     * 组件槽位的绝对位置
+     */
+    private int slot(int field, RecordCodec.Kind kind) {
+        if (this.codec.kind(field) != kind) {
+            throw new IllegalArgumentException("component " + field + " is " + this.codec.kind(field));
+        }
+        return this.start + this.codec.offset(field);
+    }
+}
@@ -0,0 +1,91 @@
+package org.shiloh.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * 带代数的文件：名称为 {@code <name>.<generation>}
+ * <p>
+ * 重写整个文件（扩容、压缩）时写入下一代文件，写完后切换过去，而不是用新文件替换旧文件：旧文件可能还处于内存映射状态，
+ * 映射在 MappedByteBuffer 被回收之前一直有效，Windows 上既不能替换也不能删除这样的文件。
+ * 所以旧文件只是尝试删除，删除失败时留到下次打开时再删除。
+ *
+ * @author shiloh
+ * @date 2026/10/19 12:10
+ */
+final class GenerationFiles {
+    private GenerationFiles() {}
+
+    /**
+     * 某一代文件的路径
+     *
+     * @param directory  目录
+     * @param name       文件名（不含代数）
+     * @param generation 代数
+     * @return 文件路径
+     * @author shiloh
+     * @date 2026/10/19 12:11
+     */
+    static Path path(Path directory, String name, long generation) {
+        return directory.resolve(name + "." + generation);
+    }
+
+    /**
+     * 列出目录下所有代的文件，从新到旧排序
+     *
+     * @param directory 目录
+     * @param name      文件名（不含代数）
+     * @return 代数，从大到小
+     * @throws IOException 读取目录失败
+     * @author shiloh
+     * @date 2026/10/19 12:12
+     */
+    static long[] list(Path directory, String name) throws IOException {
+        final String prefix = name + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(fileName -> fileName.startsWith(prefix)
+                            && fileName.substring(prefix.length()).matches("\\d+"))
+                    .mapToLong(fileName -> Long.parseLong(fileName.substring(prefix.length())))
+                    .map(generation -> -generation)
+                    .sorted()
+                    .map(generation -> -generation)
+                    .toArray();
+        }
+    }
+
+    /**
+     * 删除除当前代以外的所有代的文件，删除失败时忽略
+     *
+     * @param directory 目录
+     * @param name      文件名（不含代数）
+     * @param current   当前代数
+     * @throws IOException 读取目录失败
+     * @author shiloh
+     * @date 2026/10/19 12:13
+     */
+    static void deleteOthers(Path directory, String name, long current) throws IOException {
+        for (final long generation : list(directory, name)) {
+            if (generation != current) {
+                deleteQuietly(path(directory, name, generation));
+            }
+        }
+    }
+
+    /**
+     * 尝试删除文件，失败时忽略
+     *
+     * @param file 文件
+     * @author shiloh
+     * @date 2026/10/19 12:14
+     */
+    static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // 文件仍然被映射（Windows），下次打开时再删除
+        }
+    }
+}
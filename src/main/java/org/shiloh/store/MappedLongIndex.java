@@ -0,0 +1,283 @@
+package org.shiloh.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 保存在内存映射文件中的 long -> long 哈希表，键和值都不装箱
+ * <p>
+ * 开放寻址（线性探测）实现，负载因子 0.5，删除时把同一探测序列中后面的元素前移，没有墓碑。
+ * 每个槽位 16 字节：键 + 值，值为 0 表示空槽位，所以值不能为 0。表的内容就是文件的内容，重新打开时直接映射，不需要重建。
+ * <p>
+ * 扩容时把所有元素插入下一代文件（{@link GenerationFiles}），再切换到新文件，不替换仍然被映射的原文件；
+ * 当前代数由调用方保存。非线程安全。
+ *
+ * @author shiloh
+ * @date 2026/10/19 01:05
+ */
+final class MappedLongIndex implements Closeable {
+    /**
+     * 槽位的字节数
+     */
+    private static final int SLOT_LENGTH = 16;
+
+    /**
+     * 最小容量
+     */
+    private static final int MIN_CAPACITY = 1024;
+
+    /**
+     * 最大容量，文件映射为一个 MappedByteBuffer，不能超过 2GB
+     */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private final Path directory;
+    private final String name;
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer slots;
+    private int mask;
+    private int size;
+
+    private MappedLongIndex(Path directory, String name, long generation, FileChannel channel, int capacity, int size)
+            throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.generation = generation;
+        this.channel = channel;
+        this.slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * SLOT_LENGTH);
+        this.mask = capacity - 1;
+        this.size = size;
+    }
+
+    /**
+     * 打开某一代的索引文件，文件不存在时创建；其他代的文件是上次扩容后没能删除的，打开时删除
+     *
+     * @param directory  目录
+     * @param name       索引文件名（不含代数）
+     * @param generation 代数，由调用方保存
+     * @param size       索引中的元素数量，由调用方保存
+     * @return 索引
+     * @throws IOException 读写文件失败，或者文件大小不正确
+     * @author shiloh
+     * @date 2026/10/19 01:06
+     */
+    static MappedLongIndex open(Path directory, String name, long generation, int size) throws IOException {
+        final Path file = GenerationFiles.path(directory, name, generation);
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        final long fileSize = channel.size();
+        int capacity = MIN_CAPACITY;
+        if (fileSize > 0) {
+            capacity = (int) (fileSize / SLOT_LENGTH);
+            if (fileSize % SLOT_LENGTH != 0 || Integer.bitCount(capacity) != 1) {
+                channel.close();
+                throw new IOException("corrupted index file: " + file);
+            }
+        }
+        GenerationFiles.deleteOthers(directory, name, generation);
+        return new MappedLongIndex(directory, name, generation, channel, capacity, size);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * 当前的代数，每次扩容或清空后加 1
+     */
+    long generation() {
+        return this.generation;
+    }
+
+    /**
+     * 查找键对应的值
+     *
+     * @param key 键
+     * @return 不存在时返回 0
+     * @author shiloh
+     * @date 2026/10/19 01:06
+     */
+    long get(long key) {
+        int index = this.slotOf(key);
+        long value;
+        while ((value = this.slots.getLong(index * SLOT_LENGTH + 8)) != 0) {
+            if (this.slots.getLong(index * SLOT_LENGTH) == key) {
+                return value;
+            }
+            index = (index + 1) & this.mask;
+        }
+        return 0;
+    }
+
+    /**
+     * 添加或替换
+     *
+     * @param key   键
+     * @param value 值，不能为 0
+     * @return 原来的值，不存在时返回 0
+     * @throws IOException 扩容失败
+     * @author shiloh
+     * @date 2026/10/19 01:07
+     */
+    long put(long key, long value) throws IOException {
+        if (value == 0) {
+            throw new IllegalArgumentException("value must not be 0");
+        }
+        final long previous = this.set(key, value);
+        if (previous == 0 && ++this.size * 2 > this.mask + 1) {
+            this.resize((this.mask + 1) * 2);
+        }
+        return previous;
+    }
+
+    /**
+     * 写入槽位，不检查容量
+     *
+     * @param key   键
+     * @param value 值，不能为 0
+     * @return 原来的值，不存在时返回 0
+     * @author shiloh
+     * @date 2026/10/19 01:07
+     */
+    private long set(long key, long value) {
+        int index = this.slotOf(key);
+        long current;
+        while ((current = this.slots.getLong(index * SLOT_LENGTH + 8)) != 0) {
+            if (this.slots.getLong(index * SLOT_LENGTH) == key) {
+                this.slots.putLong(index * SLOT_LENGTH + 8, value);
+                return current;
+            }
+            index = (index + 1) & this.mask;
+        }
+        this.slots.putLong(index * SLOT_LENGTH, key);
+        this.slots.putLong(index * SLOT_LENGTH + 8, value);
+        return 0;
+    }
+
+    /**
+     * 删除
+     *
+     * @param key 键
+     * @return 原来的值，不存在时返回 0
+     * @author shiloh
+     * @date 2026/10/19 01:07
+     */
+    long remove(long key) {
+        int index = this.slotOf(key);
+        long value;
+        while ((value = this.slots.getLong(index * SLOT_LENGTH + 8)) != 0) {
+            if (this.slots.getLong(index * SLOT_LENGTH) == key) {
+                this.shiftBack(index);
+                this.size--;
+                return value;
+            }
+            index = (index + 1) & this.mask;
+        }
+        return 0;
+    }
+
+    /**
+     * 删除槽位后，把同一探测序列中后面的元素向前移动，保证查找时不会提前遇到空槽位
+     *
+     * @param removed 被删除的槽位下标
+     * @author shiloh
+     * @date 2026/10/19 01:08
+     */
+    private void shiftBack(int removed) {
+        int gap = removed;
+        int index = (gap + 1) & this.mask;
+        long value;
+        while ((value = this.slots.getLong(index * SLOT_LENGTH + 8)) != 0) {
+            final long key = this.slots.getLong(index * SLOT_LENGTH);
+            final int home = this.slotOf(key);
+            // 元素的初始槽位不在 (gap, index] 之间时，可以移动到 gap
+            if (((index - home) & this.mask) >= ((index - gap) & this.mask)) {
+                this.slots.putLong(gap * SLOT_LENGTH, key);
+                this.slots.putLong(gap * SLOT_LENGTH + 8, value);
+                gap = index;
+            }
+            index = (index + 1) & this.mask;
+        }
+        this.slots.putLong(gap * SLOT_LENGTH, 0);
+        this.slots.putLong(gap * SLOT_LENGTH + 8, 0);
+    }
+
+    /**
+     * 清空所有元素，用于重建索引
+     *
+     * @throws IOException 重建文件失败
+     * @author shiloh
+     * @date 2026/10/19 01:08
+     */
+    void clear() throws IOException {
+        this.size = 0;
+        this.resize(MIN_CAPACITY);
+    }
+
+    /**
+     * 把所有元素插入新容量的下一代文件，切换到新文件后尝试删除原文件
+     * <p>
+     * 原文件的映射在 MappedByteBuffer 被回收之前一直有效，Windows 上此时删除会失败，留到下次打开时删除。
+     *
+     * @param capacity 新的容量，2 的幂
+     * @throws IOException 超过最大容量，或者读写文件失败
+     * @author shiloh
+     * @date 2026/10/19 01:09
+     */
+    private void resize(int capacity) throws IOException {
+        if (capacity > MAX_CAPACITY) {
+            throw new IOException("index full: " + GenerationFiles.path(this.directory, this.name, this.generation));
+        }
+        final Path oldFile = GenerationFiles.path(this.directory, this.name, this.generation);
+        final Path newFile = GenerationFiles.path(this.directory, this.name, this.generation + 1);
+        // 上次崩溃时可能留下了没有写完的下一代文件
+        Files.deleteIfExists(newFile);
+        final FileChannel newChannel = FileChannel.open(newFile, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final MappedByteBuffer oldSlots = this.slots;
+        final int oldCapacity = this.mask + 1;
+        this.slots = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * SLOT_LENGTH);
+        this.mask = capacity - 1;
+        if (this.size > 0) {
+            for (int i = 0; i < oldCapacity; i++) {
+                final long value = oldSlots.getLong(i * SLOT_LENGTH + 8);
+                if (value != 0) {
+                    this.set(oldSlots.getLong(i * SLOT_LENGTH), value);
+                }
+            }
+        }
+        this.slots.force();
+        this.channel.close();
+        this.channel = newChannel;
+        this.generation++;
+        GenerationFiles.deleteQuietly(oldFile);
+    }
+
+    /**
+     * 键的初始槽位，乘以黄金分割常数打散连续的键
+     *
+     * @param key 键
+     * @return 槽位下标
+     * @author shiloh
+     * @date 2026/10/19 01:09
+     */
+    private int slotOf(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & this.mask;
+    }
+
+    void force() {
+        this.slots.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,387 @@
+package org.shiloh.store;
+
+import org.shiloh.record.RecordCodec;
+import org.shiloh.record.RecordView;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ToLongFunction;
+
+/**
+ * 堆外的 record 存储：record 按 {@link RecordCodec} 的格式保存在内存映射的数据文件中，按 long 类型的 id 索引
+ * <p>
+ * 数据文件只追加：更新时写入新的条目并把旧条目标记为已删除，删除时只做标记，被占用的空间由 {@link #compact()} 回收。
+ * 每个条目为：状态（int）+ id（long）+ 编码后的 record，record 本身由定长的槽位和变长的字符串组成。
+ * id 到条目位置的索引是一个同样保存在内存映射文件中的开放寻址哈希表（{@link MappedLongIndex}），键不装箱。
+ * <p>
+ * 所有数据都在堆外，存储多少条记录，堆上都只有这几个对象；读取可以用 {@link #view(long, RecordView)} 直接读取单个字段，
+ * 不创建 record。
+ * <p>
+ * 数据文件头部保存写入位置、记录数、索引文件的代数和是否正常关闭的标记。正常关闭后重新打开时直接映射两个文件，
+ * 不需要重建索引；没有正常关闭时（进程崩溃）顺序扫描数据文件重建索引。
+ * <p>
+ * 数据文件和索引文件都按代保存（{@link GenerationFiles}）：压缩和扩容写入下一代文件后切换过去，不替换仍然被映射的文件。
+ * 打开时使用魔数有效的最新一代数据文件。
+ * <p>
+ * 非线程安全。数据文件映射为一个 MappedByteBuffer，不能超过 2GB。
+ *
+ * @param <R> record 类型
+ * @author shiloh
+ * @date 2026/10/19 01:10
+ */
+public final class RecordStore<R extends Record> implements Closeable {
+    private static final int MAGIC = 0x52535431;
+
+    /**
+     * 文件头：魔数（int）、写入位置（long）、记录数（long）、已删除的字节数（long）、是否正常关闭（byte）、
+     * 索引文件的代数（long）
+     */
+    private static final int HEADER_LENGTH = 64;
+    private static final int WRITE_POSITION_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int GARBAGE_OFFSET = 24;
+    private static final int CLEAN_OFFSET = 32;
+    private static final int INDEX_GENERATION_OFFSET = 40;
+
+    private static final String DATA_FILE = "records.data";
+    private static final String INDEX_FILE = "records.index";
+
+    /**
+     * 条目头：状态（int）+ id（long）
+     */
+    private static final int ENTRY_HEADER_LENGTH = 12;
+    private static final int LIVE = 1;
+    private static final int DELETED = 2;
+
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+
+    private final Path directory;
+    private final RecordCodec<R> codec;
+    private final ToLongFunction<R> keyFunction;
+    private final MappedLongIndex index;
+    private final RecordView<R> view;
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer data;
+    private int writePosition;
+    private long garbageBytes;
+
+    private RecordStore(Path directory, Class<R> type, ToLongFunction<R> keyFunction) throws IOException {
+        this.directory = directory;
+        this.codec = RecordCodec.of(type);
+        this.keyFunction = keyFunction;
+        this.view = this.codec.newView();
+        this.generation = latestGeneration(directory);
+        this.channel = FileChannel.open(this.dataFile(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        final boolean created = this.channel.size() == 0;
+        this.data = this.channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(this.channel.size(), INITIAL_CAPACITY));
+        final boolean clean;
+        if (created) {
+            this.data.putInt(0, MAGIC);
+            this.writePosition = HEADER_LENGTH;
+            clean = true;
+        } else {
+            this.writePosition = (int) this.data.getLong(WRITE_POSITION_OFFSET);
+            this.garbageBytes = this.data.getLong(GARBAGE_OFFSET);
+            clean = this.data.get(CLEAN_OFFSET) == 1;
+        }
+        GenerationFiles.deleteOthers(directory, DATA_FILE, this.generation);
+        this.index = MappedLongIndex.open(directory, INDEX_FILE, this.data.getLong(INDEX_GENERATION_OFFSET),
+                (int) this.data.getLong(COUNT_OFFSET));
+        if (!clean) {
+            this.rebuildIndex();
+        }
+        // 打开期间标记为未正常关闭，崩溃后再打开时会重建索引
+        this.data.put(CLEAN_OFFSET, (byte) 0);
+        this.writeHeader();
+    }
+
+    /**
+     * 打开目录下的存储，目录或文件不存在时创建
+     *
+     * @param directory   存储目录
+     * @param type        record 类
+     * @param keyFunction 获取 record 的 id
+     * @param <R>         record 类型
+     * @return 存储
+     * @throws IOException 读写文件失败
+     * @author shiloh
+     * @date 2026/10/19 01:11
+     */
+    public static <R extends Record> RecordStore<R> open(Path directory, Class<R> type, ToLongFunction<R> keyFunction)
+            throws IOException {
+        Files.createDirectories(directory);
+        return new RecordStore<>(directory, type, keyFunction);
+    }
+
+    /**
+     * 魔数有效的最新一代数据文件；没有魔数的文件是写入过程中崩溃留下的，跳过。没有有效的数据文件时返回一个新的代数
+     *
+     * @param directory 存储目录
+     * @return 代数
+     * @throws IOException 读取文件失败，或者文件不是存储的数据文件
+     */
+    private static long latestGeneration(Path directory) throws IOException {
+        final ByteBuffer magic = ByteBuffer.allocate(4);
+        final long[] generations = GenerationFiles.list(directory, DATA_FILE);
+        for (final long generation : generations) {
+            final Path file = GenerationFiles.path(directory, DATA_FILE, generation);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                magic.clear();
+                while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+                    // 读满 4 字节
+                }
+            }
+            if (magic.position() == 4 && magic.getInt(0) == MAGIC) {
+                return generation;
+            }
+            if (magic.position() == 4 && magic.getInt(0) != 0) {
+                throw new IOException("not a record store: " + file);
+            }
+        }
+        return generations.length == 0 ? 0 : generations[0] + 1;
+    }
+
+    /**
+     * 当前一代的数据文件
+     */
+    private Path dataFile() {
+        return GenerationFiles.path(this.directory, DATA_FILE, this.generation);
+    }
+
+    /**
+     * 顺序扫描数据文件，把所有未删除的条目重新加入索引
+     */
+    private void rebuildIndex() throws IOException {
+        this.index.clear();
+        this.garbageBytes = 0;
+        int position = HEADER_LENGTH;
+        while (position < this.writePosition) {
+            final int length = this.entryLength(position);
+            if (this.data.getInt(position) == LIVE) {
+                this.index.put(this.data.getLong(position + 4), position);
+            } else {
+                this.garbageBytes += length;
+            }
+            position += length;
+        }
+    }
+
+    /**
+     * 添加或替换 record
+     *
+     * @param record record
+     * @throws IOException 扩展文件失败
+     * @author shiloh
+     * @date 2026/10/19 01:12
+     */
+    public void put(R record) throws IOException {
+        final long key = this.keyFunction.applyAsLong(record);
+        final int length = ENTRY_HEADER_LENGTH + this.codec.encodedLength(record);
+        this.ensureCapacity(length);
+        final int position = this.writePosition;
+        this.data.position(position + ENTRY_HEADER_LENGTH);
+        this.codec.encode(record, this.data);
+        this.data.putLong(position + 4, key);
+        this.data.putInt(position, LIVE);
+        this.writePosition = position + length;
+        final long previous = this.index.put(key, position);
+        if (previous != 0) {
+            this.markDeleted((int) previous);
+        }
+        this.writeHeader();
+    }
+
+    /**
+     * 获取 record
+     *
+     * @param key id
+     * @return record，不存在时返回 null
+     * @author shiloh
+     * @date 2026/10/19 01:13
+     */
+    public R get(long key) {
+        final RecordView<R> found = this.view(key, this.view);
+        return found == null ? null : this.codec.decode(found);
+    }
+
+    /**
+     * 让视图指向 record，不创建任何对象；视图在下一次修改存储之前有效
+     *
+     * @param key  id
+     * @param view 视图，由 {@link RecordCodec#newView()} 创建
+     * @return 传入的视图，不存在时返回 null
+     * @author shiloh
+     * @date 2026/10/19 01:14
+     */
+    public RecordView<R> view(long key, RecordView<R> view) {
+        final long position = this.index.get(key);
+        return position == 0 ? null : view.wrap(this.data, (int) position + ENTRY_HEADER_LENGTH);
+    }
+
+    /**
+     * 是否包含 record
+     *
+     * @param key id
+     * @return 包含时返回 true
+     */
+    public boolean contains(long key) {
+        return this.index.get(key) != 0;
+    }
+
+    /**
+     * 删除 record
+     *
+     * @param key id
+     * @return 存在并删除时返回 true
+     * @author shiloh
+     * @date 2026/10/19 01:15
+     */
+    public boolean delete(long key) {
+        final long position = this.index.remove(key);
+        if (position == 0) {
+            return false;
+        }
+        this.markDeleted((int) position);
+        this.writeHeader();
+        return true;
+    }
+
+    private void markDeleted(int position) {
+        this.data.putInt(position, DELETED);
+        this.garbageBytes += this.entryLength(position);
+    }
+
+    /**
+     * 条目的字节数：条目头 + record 的长度字段 + record 的内容
+     */
+    private int entryLength(int position) {
+        return ENTRY_HEADER_LENGTH + 4 + this.data.getInt(position + ENTRY_HEADER_LENGTH);
+    }
+
+    /**
+     * 记录数
+     */
+    public int size() {
+        return this.index.size();
+    }
+
+    /**
+     * 已删除、等待 {@link #compact()} 回收的字节数
+     */
+    public long garbageBytes() {
+        return this.garbageBytes;
+    }
+
+    /**
+     * 数据文件中已使用的字节数
+     */
+    public long dataBytes() {
+        return this.writePosition;
+    }
+
+    /**
+     * 压缩：把未删除的条目按原来的顺序复制到下一代数据文件，更新索引中的位置，然后切换到新文件并尝试删除原文件
+     * <p>
+     * 新文件的内容刷盘之后才写入魔数，魔数是切换的提交点：之前崩溃时重新打开仍然使用原文件，之后崩溃时使用新文件，
+     * 两种情况都会因为未正常关闭的标记重建索引。原文件的映射在 MappedByteBuffer 被回收之前一直有效，
+     * Windows 上此时删除会失败，留到下次打开时删除。需要临时占用一份存活数据大小的磁盘空间。
+     *
+     * @throws IOException 读写文件失败
+     * @author shiloh
+     * @date 2026/10/19 01:16
+     */
+    public void compact() throws IOException {
+        final Path oldFile = this.dataFile();
+        final Path newFile = GenerationFiles.path(this.directory, DATA_FILE, this.generation + 1);
+        Files.deleteIfExists(newFile);
+        final FileChannel newChannel = FileChannel.open(newFile, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final long liveBytes = this.writePosition - this.garbageBytes;
+        final MappedByteBuffer compacted = newChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(INITIAL_CAPACITY, Long.highestOneBit(Math.max(liveBytes, 1)) * 2));
+        int target = HEADER_LENGTH;
+        int position = HEADER_LENGTH;
+        while (position < this.writePosition) {
+            final int length = this.entryLength(position);
+            if (this.data.getInt(position) == LIVE) {
+                compacted.put(target, this.data, position, length);
+                this.index.put(this.data.getLong(position + 4), target);
+                target += length;
+            }
+            position += length;
+        }
+        this.data = compacted;
+        this.writePosition = target;
+        this.garbageBytes = 0;
+        this.writeHeader();
+        this.index.force();
+        compacted.force();
+        compacted.putInt(0, MAGIC);
+        compacted.force();
+        this.channel.close();
+        this.channel = newChannel;
+        this.generation++;
+        GenerationFiles.deleteQuietly(oldFile);
+    }
+
+    /**
+     * 剩余空间不足时按 2 倍扩展数据文件并重新映射
+     */
+    private void ensureCapacity(int length) throws IOException {
+        final long required = (long) this.writePosition + length;
+        if (required <= this.data.capacity()) {
+            return;
+        }
+        long capacity = this.data.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            if (required > Integer.MAX_VALUE) {
+                throw new IOException("record store full: " + this.dataFile());
+            }
+            capacity = Integer.MAX_VALUE;
+        }
+        this.data = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void writeHeader() {
+        this.data.putLong(WRITE_POSITION_OFFSET, this.writePosition);
+        this.data.putLong(COUNT_OFFSET, this.index.size());
+        this.data.putLong(GARBAGE_OFFSET, this.garbageBytes);
+        this.data.putLong(INDEX_GENERATION_OFFSET, this.index.generation());
+    }
+
+    /**
+     * 把数据文件和索引文件刷到磁盘
+     */
+    public void force() {
+        this.index.force();
+        this.data.force();
+    }
+
+    /**
+     * 刷盘并标记为正常关闭
+     *
+     * @throws IOException 关闭文件失败
+     */
+    @Override
+    public void close() throws IOException {
+        this.writeHeader();
+        this.index.force();
+        this.data.force();
+        this.data.put(CLEAN_OFFSET, (byte) 1);
+        this.data.force();
+        this.index.close();
+        this.channel.close();
+    }
+}
@@ -0,0 +1,222 @@
+package org.shiloh.timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 哈希时间轮，用于管理大量连接的空闲超时、心跳等定时任务
+ * <p>
+ * 时间被划分为固定长度的 tick，环形数组的每个槽位对应一个 tick，到期时间按 tick 数对数组长度取模放入对应槽位，
+ * 超过一圈的任务记录剩余圈数。添加、取消都是 O(1)，每个 tick 只处理一个槽位，不需要扫描所有连接；
+ * 代价是到期时间的精度为一个 tick（只会推迟，不会提前）。
+ * <p>
+ * 时间轮本身不创建线程，由事件循环调用 {@link #advance(long)} 推进，并用 {@link #millisUntilNextTick(long)}
+ * 作为 select 的超时时间，这样定时任务和网络事件在同一个线程中处理，不需要加锁。
+ * <p>
+ * 非线程安全，只能在一个线程中使用。
+ *
+ * @author shiloh
+ * @date 2026/10/18 21:12
+ */
+public class HashedTimingWheel {
+    /**
+     * 每个 tick 的长度（纳秒）
+     */
+    private final long tickNanos;
+
+    /**
+     * 槽位，长度为 2 的幂
+     */
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    /**
+     * 时间轮的起始时间，第 n 个 tick 在 startNanos + n * tickNanos 时到期
+     */
+    private final long startNanos;
+
+    /**
+     * 下一个要处理的 tick
+     */
+    private long tick;
+
+    /**
+     * 尚未到期也未取消的任务数
+     */
+    int pendingTimeouts;
+
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, System.nanoTime());
+    }
+
+    /**
+     * @param tickDuration  每个 tick 的长度
+     * @param unit          tick 长度的单位
+     * @param ticksPerWheel 槽位数量，向上取整为 2 的幂
+     * @param startNanos    起始时间，与 {@link System#nanoTime()} 的时间基准相同
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, long startNanos) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("tickDuration: " + tickDuration + ", ticksPerWheel: " + ticksPerWheel);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        final int size = ticksPerWheel == 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 添加一个定时任务
+     *
+     * @param task  任务
+     * @param delay 延迟时间
+     * @param unit  延迟时间的单位
+     * @return 定时任务，可以用来取消
+     * @author shiloh
+     * @date 2026/10/18 21:14
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return this.scheduleAt(task, System.nanoTime() + unit.toNanos(delay));
+    }
+
+    /**
+     * 添加一个在指定时间到期的定时任务
+     * <p>
+     * 在到期任务中添加的新任务最早在下一个 tick 执行。
+     *
+     * @param task          任务
+     * @param deadlineNanos 到期时间，与 {@link System#nanoTime()} 的时间基准相同
+     * @return 定时任务，可以用来取消
+     * @author shiloh
+     * @date 2026/10/18 21:15
+     */
+    public Timeout scheduleAt(Runnable task, long deadlineNanos) {
+        final Timeout timeout = new Timeout(this, task, deadlineNanos);
+        // 到期时间所在的 tick 向上取整，保证不会提前执行；已经过期的任务放到下一个要处理的 tick
+        final long relative = Math.max(0, deadlineNanos - this.startNanos);
+        final long target = Math.max(this.tick, (relative + this.tickNanos - 1) / this.tickNanos);
+        timeout.remainingRounds = (target - this.tick) / this.wheel.length;
+        this.wheel[(int) (target & this.mask)].add(timeout);
+        this.pendingTimeouts++;
+        return timeout;
+    }
+
+    /**
+     * 推进时间轮，执行所有到期的任务
+     *
+     * @param nowNanos 当前时间，与 {@link System#nanoTime()} 的时间基准相同
+     * @return 执行的任务数
+     * @author shiloh
+     * @date 2026/10/18 21:16
+     */
+    public int advance(long nowNanos) {
+        final long lastTick = (nowNanos - this.startNanos) / this.tickNanos;
+        int expired = 0;
+        while (this.tick <= lastTick) {
+            final Bucket bucket = this.wheel[(int) (this.tick & this.mask)];
+            this.tick++;
+            expired += bucket.expire();
+            if (this.pendingTimeouts == 0) {
+                // 没有任务时直接跳到当前 tick，避免长时间空闲后逐个处理空槽位
+                this.tick = Math.max(this.tick, lastTick + 1);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 距离下一个 tick 到期的毫秒数，作为 select 的超时时间
+     *
+     * @param nowNanos 当前时间
+     * @return 毫秒数，至少为 1，避免 select(0) 无限阻塞
+     * @author shiloh
+     * @date 2026/10/18 21:17
+     */
+    public long millisUntilNextTick(long nowNanos) {
+        final long nanos = this.startNanos + this.tick * this.tickNanos - nowNanos;
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * @return 尚未到期也未取消的任务数
+     */
+    public int pendingTimeouts() {
+        return this.pendingTimeouts;
+    }
+
+    /**
+     * 一个槽位，双向链表
+     */
+    static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = this.tail;
+            timeout.next = null;
+            if (this.tail == null) {
+                this.head = timeout;
+            } else {
+                this.tail.next = timeout;
+            }
+            this.tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                this.head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                this.tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /**
+         * 执行本槽位中到期的任务，其余任务的剩余圈数减一
+         * <p>
+         * 先把整个链表摘下来再遍历，任务执行时添加到本槽位的新任务不会在这一轮被处理。
+         * 摘下的每个节点都先解除与槽位的关联，任务执行时取消本轮尚未处理的任务只会设置取消状态，
+         * 不会通过摘下链表中的旧指针修改槽位，遍历到它时再跳过。
+         *
+         * @return 执行的任务数
+         */
+        int expire() {
+            Timeout timeout = this.head;
+            this.head = null;
+            this.tail = null;
+            for (Timeout detached = timeout; detached != null; detached = detached.next) {
+                detached.bucket = null;
+            }
+            int expired = 0;
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                timeout.bucket = null;
+                timeout.prev = null;
+                timeout.next = null;
+                if (timeout.isCancelled()) {
+                    // 在本轮其他任务中被取消
+                } else if (timeout.remainingRounds <= 0) {
+                    expired++;
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                    this.add(timeout);
+                }
+                timeout = next;
+            }
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.shiloh.timer;
+
+/**
+ * {@link HashedTimingWheel} 中的一个定时任务，同时也是所在槽位双向链表的节点
+ * <p>
+ * 非线程安全，只能在时间轮所在的线程中使用。
+ *
+ * @author shiloh
+ * @date 2026/10/18 21:10
+ */
+public final class Timeout {
+    private static final int ST_INIT = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    private final Runnable task;
+    private final long deadlineNanos;
+
+    /**
+     * 还需要经过多少圈才到期
+     */
+    long remainingRounds;
+
+    /**
+     * 所在的槽位，正在处理到期任务时为 null
+     */
+    HashedTimingWheel.Bucket bucket;
+    Timeout prev;
+    Timeout next;
+
+    private final HashedTimingWheel timingWheel;
+    private int state = ST_INIT;
+
+    Timeout(HashedTimingWheel timingWheel, Runnable task, long deadlineNanos) {
+        this.timingWheel = timingWheel;
+        this.task = task;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 取消任务，O(1) 地从槽位中移除
+     *
+     * @return 取消成功返回 true，已经到期或已经取消返回 false
+     * @author shiloh
+     * @date 2026/10/18 21:11
+     */
+    public boolean cancel() {
+        if (this.state != ST_INIT) {
+            return false;
+        }
+        this.state = ST_CANCELLED;
+        if (this.bucket != null) {
+            this.bucket.remove(this);
+        }
+        this.timingWheel.pendingTimeouts--;
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return this.state == ST_CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return this.state == ST_EXPIRED;
+    }
+
+    /**
+     * @return 到期时间，与 {@link System#nanoTime()} 的时间基准相同
+     */
+    public long deadlineNanos() {
+        return this.deadlineNanos;
+    }
+
+    /**
+     * 到期，执行任务
+     */
+    void expire() {
+        this.state = ST_EXPIRED;
+        this.timingWheel.pendingTimeouts--;
+        this.task.run();
+    }
+}
@@ -0,0 +1,49 @@
+package org.shiloh.util;
+
+/**
+ * {@link ByteUtils} 中数组扫描的可替换实现
+ * <p>
+ * 默认构建只包含 {@link ByteUtils} 自身的 SWAR 实现；使用 {@code -Pvector} 构建时会额外编译基于 Vector API 的实现，
+ * 运行时由 {@link ByteUtils} 按需通过反射加载，默认构建因此不依赖孵化模块 jdk.incubator.vector。
+ *
+ * @author shiloh
+ * @date 2026/10/19 11:10
+ */
+interface ByteKernel {
+    /**
+     * 统计数组 [from, to) 中 0 的个数，调用方已经检查过下标范围
+     *
+     * @param data 数据
+     * @param from 起始位置（包含）
+     * @param to   结束位置（不包含）
+     * @return 0 的个数
+     * @author shiloh
+     * @date 2026/10/19 11:10
+     */
+    int countZeros(byte[] data, int from, int to);
+
+    /**
+     * 查找数组 [from, to) 中第一个等于 value 的字节，调用方已经检查过下标范围
+     *
+     * @param data  数据
+     * @param from  起始位置（包含）
+     * @param to    结束位置（不包含）
+     * @param value 要查找的字节
+     * @return 下标，找不到时返回 -1
+     * @author shiloh
+     * @date 2026/10/19 11:10
+     */
+    int indexOf(byte[] data, int from, int to, byte value);
+
+    /**
+     * 从后往前查找数组 [from, to) 中最后一个不为 0 的字节，调用方已经检查过下标范围
+     *
+     * @param data 数据
+     * @param from 起始位置（包含）
+     * @param to   结束位置（不包含）
+     * @return 有效数据的结束位置，全部为 0 时返回 from
+     * @author shiloh
+     * @date 2026/10/19 11:10
+     */
+    int effectiveLength(byte[] data, int from, int to);
+}
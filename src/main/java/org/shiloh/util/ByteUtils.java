@@ -1,16 +1,91 @@
 package org.shiloh.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
 /**
+ * 字节处理工具
+ * <p>
+ * 查找、统计、压缩这类逐字节扫描的操作都使用 SWAR（SIMD Within A Register）的方式实现：一次读取 8 个字节到一个 long 中，
+ * 用位运算同时判断 8 个字节，而不是每次循环只处理一个字节。使用 {@code -Pvector} 构建并且启动参数包含
+ * {@code --add-modules jdk.incubator.vector} 时，数组改用 Vector API，一次处理一个 CPU 向量寄存器宽度的数据。
+ * <p>
+ * 所有 {@link ByteBuffer} 版本的方法都使用绝对位置访问，不修改缓冲区的 position 和 limit（压缩除外），
+ * 同时支持堆内缓冲区和直接缓冲区。
+ *
  * @author shiloh
  * @date 2023/2/25 18:53
  */
 public final class ByteUtils {
     private ByteUtils() {}
 
+    /**
+     * 空数组
+     */
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * 以小端序把 byte[] 中任意位置的 8 个字节读成 long，低地址的字节在低位
+     */
+    private static final VarHandle LONG_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, LITTLE_ENDIAN);
+
+    /**
+     * 以小端序把 ByteBuffer 中任意位置的 8 个字节读成 long，同时支持堆内和直接缓冲区
+     */
+    private static final VarHandle LONG_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, LITTLE_ENDIAN);
+
+    /**
+     * 每个字节都是 0x7F
+     */
+    private static final long LOW_7_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * 每个字节都是 0x01，乘以一个字节的值可以把它复制到 8 个字节中
+     */
+    private static final long ONES = 0x0101010101010101L;
+
+    /**
+     * 数据量小于该值时，Vector API 的准备开销大于收益
+     */
+    private static final int VECTOR_THRESHOLD = 64;
+
+    /**
+     * Vector API 实现，没有启用时为 null。需要使用 -Pvector 构建并且启动参数包含 --add-modules jdk.incubator.vector，
+     * 可以通过 -Dorg.shiloh.bytes.vector=false 强制关闭
+     */
+    private static final ByteKernel VECTOR_KERNEL = loadVectorKernel();
+
+    /**
+     * 加载 Vector API 实现，类不存在（默认构建）或者运行时没有该模块时返回 null，使用 SWAR 实现
+     *
+     * @return Vector API 实现，不可用时返回 null
+     * @author shiloh
+     * @date 2026/10/19 11:11
+     */
+    private static ByteKernel loadVectorKernel() {
+        if ("false".equals(System.getProperty("org.shiloh.bytes.vector"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (ByteKernel) Class.forName("org.shiloh.util.VectorByteKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
     /**
      * 去掉 byte 数组中的 0，避免乱码
      * <p>
-     * ASCII码 0 代表空字符
+     * ASCII码 0 代表空字符。数组中间的 0 也会去掉，其余字节保持原来的顺序。
+     * <p>
+     * 数组中没有 0 时直接返回原数组，不会复制。
      *
      * @param data 原数据
      * @return 不包含 0 的字节数组
@@ -18,19 +93,300 @@ public final class ByteUtils {
      * @date 2023/2/25 18:26
      */
     public static byte[] trimByteData(byte[] data) {
-        int length = 0;
-        for (final byte b : data) {
-            if (b == 0) {
+        final int zeros = countZeros(data, 0, data.length);
+        if (zeros == 0) {
+            return data;
+        }
+        if (zeros == data.length) {
+            return EMPTY;
+        }
+        final byte[] result = new byte[data.length - zeros];
+        copyNonZero(data, result);
+        return result;
+    }
+
+    /**
+     * 原地去掉缓冲区 [position, limit) 中的 0，剩余的字节前移，limit 设置为新的结束位置
+     *
+     * @param buffer 缓冲区，读模式
+     * @return 去掉 0 之后的字节数
+     * @author shiloh
+     * @date 2026/10/18 15:02
+     */
+    public static int compactZeros(ByteBuffer buffer) {
+        final int from = buffer.position();
+        final int end = compactZeros(buffer, from, buffer.limit());
+        buffer.limit(end);
+        return end - from;
+    }
+
+    /**
+     * 原地去掉缓冲区 [from, to) 中的 0，剩余的字节前移到 from 开始的位置
+     *
+     * @param buffer 缓冲区
+     * @param from   起始位置（包含）
+     * @param to     结束位置（不包含）
+     * @return 去掉 0 之后数据的结束位置
+     * @author shiloh
+     * @date 2026/10/18 15:03
+     */
+    public static int compactZeros(ByteBuffer buffer, int from, int to) {
+        Objects.checkFromToIndex(from, to, buffer.limit());
+        int read = from;
+        int write = from;
+        // 8 个字节一组，没有 0 的一组整体移动
+        for (; read + Long.BYTES <= to; read += Long.BYTES) {
+            final long word = (long) LONG_BUFFER.get(buffer, read);
+            if (zeroBytes(word) == 0) {
+                if (write != read) {
+                    LONG_BUFFER.set(buffer, write, word);
+                }
+                write += Long.BYTES;
                 continue;
             }
-            length++;
+            // 这一组中有 0，逐个字节处理
+            for (int i = 0; i < Long.BYTES; i++) {
+                final byte b = (byte) (word >>> (i << 3));
+                if (b != 0) {
+                    buffer.put(write++, b);
+                }
+            }
         }
-        if (length == 0) {
-            return new byte[0];
+        for (; read < to; read++) {
+            final byte b = buffer.get(read);
+            if (b != 0) {
+                buffer.put(write++, b);
+            }
         }
+        return write;
+    }
 
-        final byte[] result = new byte[length];
-        System.arraycopy(data, 0, result, 0, length);
-        return result;
+    /**
+     * 统计数组 [from, to) 中 0 的个数
+     *
+     * @param data 数据
+     * @param from 起始位置（包含）
+     * @param to   结束位置（不包含）
+     * @return 0 的个数
+     * @author shiloh
+     * @date 2026/10/18 15:05
+     */
+    public static int countZeros(byte[] data, int from, int to) {
+        Objects.checkFromToIndex(from, to, data.length);
+        if (VECTOR_KERNEL != null && to - from >= VECTOR_THRESHOLD) {
+            return VECTOR_KERNEL.countZeros(data, from, to);
+        }
+        int count = 0;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            count += Long.bitCount(zeroBytes((long) LONG_ARRAY.get(data, i)));
+        }
+        for (; i < to; i++) {
+            if (data[i] == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 查找缓冲区 [position, limit) 中第一个等于 value 的字节，例如查找分隔符
+     *
+     * @param buffer 缓冲区
+     * @param value  要查找的字节
+     * @return 绝对位置，找不到时返回 -1
+     * @author shiloh
+     * @date 2026/10/18 15:06
+     */
+    public static int indexOf(ByteBuffer buffer, byte value) {
+        return indexOf(buffer, buffer.position(), buffer.limit(), value);
+    }
+
+    /**
+     * 查找缓冲区 [from, to) 中第一个等于 value 的字节
+     *
+     * @param buffer 缓冲区
+     * @param from   起始位置（包含）
+     * @param to     结束位置（不包含）
+     * @param value  要查找的字节
+     * @return 绝对位置，找不到时返回 -1
+     * @author shiloh
+     * @date 2026/10/18 15:07
+     */
+    public static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        Objects.checkFromToIndex(from, to, buffer.limit());
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset();
+            final int index = indexOf(buffer.array(), offset + from, offset + to, value);
+            return index < 0 ? index : index - offset;
+        }
+        final long pattern = (value & 0xFFL) * ONES;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            // 与目标字节相同的字节异或后为 0
+            final long mask = zeroBytes((long) LONG_BUFFER.get(buffer, i) ^ pattern);
+            if (mask != 0) {
+                return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找数组 [from, to) 中第一个等于 value 的字节
+     *
+     * @param data  数据
+     * @param from  起始位置（包含）
+     * @param to    结束位置（不包含）
+     * @param value 要查找的字节
+     * @return 下标，找不到时返回 -1
+     * @author shiloh
+     * @date 2026/10/18 15:08
+     */
+    public static int indexOf(byte[] data, int from, int to, byte value) {
+        Objects.checkFromToIndex(from, to, data.length);
+        if (VECTOR_KERNEL != null && to - from >= VECTOR_THRESHOLD) {
+            return VECTOR_KERNEL.indexOf(data, from, to, value);
+        }
+        final long pattern = (value & 0xFFL) * ONES;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            final long mask = zeroBytes((long) LONG_ARRAY.get(data, i) ^ pattern);
+            if (mask != 0) {
+                return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 计算缓冲区 [position, limit) 去掉末尾的 0 之后的有效长度，例如读取到固定长度数组中的字符串
+     *
+     * @param buffer 缓冲区
+     * @return 有效长度
+     * @author shiloh
+     * @date 2026/10/18 15:09
+     */
+    public static int effectiveLength(ByteBuffer buffer) {
+        return effectiveLength(buffer, buffer.position(), buffer.limit()) - buffer.position();
+    }
+
+    /**
+     * 从后往前查找缓冲区 [from, to) 中最后一个不为 0 的字节
+     *
+     * @param buffer 缓冲区
+     * @param from   起始位置（包含）
+     * @param to     结束位置（不包含）
+     * @return 有效数据的结束位置（绝对位置），全部为 0 时返回 from
+     * @author shiloh
+     * @date 2026/10/18 15:10
+     */
+    public static int effectiveLength(ByteBuffer buffer, int from, int to) {
+        Objects.checkFromToIndex(from, to, buffer.limit());
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset();
+            return effectiveLength(buffer.array(), offset + from, offset + to) - offset;
+        }
+        int i = to;
+        for (; i - Long.BYTES >= from; i -= Long.BYTES) {
+            final long word = (long) LONG_BUFFER.get(buffer, i - Long.BYTES);
+            if (word != 0) {
+                // 小端序，高位对应高地址
+                return i - (Long.numberOfLeadingZeros(word) >>> 3);
+            }
+        }
+        for (; i > from; i--) {
+            if (buffer.get(i - 1) != 0) {
+                return i;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * 从后往前查找数组 [from, to) 中最后一个不为 0 的字节
+     *
+     * @param data 数据
+     * @param from 起始位置（包含）
+     * @param to   结束位置（不包含）
+     * @return 有效数据的结束位置，全部为 0 时返回 from
+     * @author shiloh
+     * @date 2026/10/18 15:11
+     */
+    public static int effectiveLength(byte[] data, int from, int to) {
+        Objects.checkFromToIndex(from, to, data.length);
+        if (VECTOR_KERNEL != null && to - from >= VECTOR_THRESHOLD) {
+            return VECTOR_KERNEL.effectiveLength(data, from, to);
+        }
+        int i = to;
+        for (; i - Long.BYTES >= from; i -= Long.BYTES) {
+            final long word = (long) LONG_ARRAY.get(data, i - Long.BYTES);
+            if (word != 0) {
+                return i - (Long.numberOfLeadingZeros(word) >>> 3);
+            }
+        }
+        for (; i > from; i--) {
+            if (data[i - 1] != 0) {
+                return i;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * 把 src 中不为 0 的字节依次复制到 dest 中
+     *
+     * @param src  原数据
+     * @param dest 目标数组，长度等于 src 中不为 0 的字节数
+     * @author shiloh
+     * @date 2026/10/18 15:12
+     */
+    private static void copyNonZero(byte[] src, byte[] dest) {
+        int read = 0;
+        int write = 0;
+        for (; read + Long.BYTES <= src.length && write + Long.BYTES <= dest.length; read += Long.BYTES) {
+            final long word = (long) LONG_ARRAY.get(src, read);
+            if (zeroBytes(word) == 0) {
+                LONG_ARRAY.set(dest, write, word);
+                write += Long.BYTES;
+                continue;
+            }
+            for (int i = 0; i < Long.BYTES; i++) {
+                final byte b = (byte) (word >>> (i << 3));
+                if (b != 0) {
+                    dest[write++] = b;
+                }
+            }
+        }
+        for (; read < src.length; read++) {
+            if (src[read] != 0) {
+                dest[write++] = src[read];
+            }
+        }
+    }
+
+    /**
+     * 找出 long 中值为 0 的字节：值为 0 的字节对应位置的最高位为 1，其余位都为 0
+     * <p>
+     * 每个字节先去掉最高位再加上 0x7F，低 7 位不为 0 时会进位到最高位，且不会进位到相邻的字节，
+     * 再或上原值的最高位，只有整个字节为 0 时最高位才是 0，取反后得到结果。
+     *
+     * @param word 8 个字节
+     * @return 掩码
+     * @author shiloh
+     * @date 2026/10/18 15:13
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_7_BITS) + LOW_7_BITS) | word | LOW_7_BITS);
     }
 }
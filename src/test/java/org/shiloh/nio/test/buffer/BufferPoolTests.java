@@ -0,0 +1,121 @@
+package org.shiloh.nio.test.buffer;
+
+import org.junit.Test;
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.buffer.PoolStats;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link BufferPool} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/18 14:30
+ */
+public class BufferPoolTests {
+    /**
+     * 申请的容量向上取整到 2 的幂，归还后再次申请会命中缓存
+     *
+     * @author shiloh
+     * @date 2026/10/18 14:31
+     */
+    @Test
+    public void testAcquireAndRelease() {
+        final BufferPool bufferPool = new BufferPool();
+        final ByteBuffer buffer = bufferPool.acquire(1000);
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(buffer.capacity()).isEqualTo(1024);
+        assertThat(buffer.position()).isZero();
+        assertThat(buffer.limit()).isEqualTo(1024);
+        assertThat(bufferPool.stats().bytesOutstanding()).isEqualTo(1024);
+
+        buffer.putInt(1).flip();
+        bufferPool.release(buffer);
+        final ByteBuffer reused = bufferPool.acquire(1024);
+        assertThat(reused).isSameAs(buffer);
+        // 归还时已经重置为写模式
+        assertThat(reused.position()).isZero();
+        assertThat(reused.limit()).isEqualTo(1024);
+        bufferPool.release(reused);
+
+        final PoolStats stats = bufferPool.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.bytesOutstanding()).isZero();
+        assertThat(stats.hitRatio()).isEqualTo(0.5);
+    }
+
+    /**
+     * 线程本地缓存满了之后放入共享池，其他线程可以拿到
+     *
+     * @author shiloh
+     * @date 2026/10/18 14:32
+     */
+    @Test
+    public void testSharedArena() throws InterruptedException {
+        // 每个线程每个等级只缓存 1 个
+        final BufferPool bufferPool = new BufferPool(1, 1024 * 1024);
+        final ByteBuffer first = bufferPool.acquire(256);
+        final ByteBuffer second = bufferPool.acquire(256);
+        bufferPool.release(first);
+        bufferPool.release(second);
+        assertThat(bufferPool.stats().bytesPooled()).isEqualTo(256);
+
+        final ByteBuffer[] fromOtherThread = new ByteBuffer[1];
+        final Thread thread = new Thread(() -> fromOtherThread[0] = bufferPool.acquire(200));
+        thread.start();
+        thread.join();
+        assertThat(fromOtherThread[0]).isSameAs(second);
+        assertThat(bufferPool.stats().hits()).isEqualTo(1);
+    }
+
+    /**
+     * 不使用线程本地缓存时，只归还的线程不会囤积缓冲区，归还的缓冲区都能被申请的线程拿到
+     *
+     * @author shiloh
+     * @date 2026/10/19 09:30
+     */
+    @Test
+    public void testWithoutThreadCache() throws InterruptedException {
+        final BufferPool bufferPool = new BufferPool(0, 1024 * 1024);
+        final ByteBuffer[] buffers = new ByteBuffer[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = bufferPool.acquire(256);
+        }
+        // 另一个线程只归还，不申请
+        final Thread releaser = new Thread(() -> {
+            for (final ByteBuffer buffer : buffers) {
+                bufferPool.release(buffer);
+            }
+        });
+        releaser.start();
+        releaser.join();
+        assertThat(bufferPool.stats().bytesPooled()).isEqualTo(4 * 256);
+
+        for (int i = 0; i < buffers.length; i++) {
+            assertThat(bufferPool.acquire(256)).isIn((Object[]) buffers);
+        }
+        assertThat(bufferPool.stats().hits()).isEqualTo(4);
+        assertThat(bufferPool.stats().bytesPooled()).isZero();
+        assertThatThrownBy(() -> new BufferPool(-1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 超过最大等级的申请不做缓存
+     *
+     * @author shiloh
+     * @date 2026/10/18 14:33
+     */
+    @Test
+    public void testHugeBufferIsNotPooled() {
+        final BufferPool bufferPool = new BufferPool();
+        final ByteBuffer huge = bufferPool.acquire(BufferPool.MAX_SIZE + 1);
+        assertThat(huge.capacity()).isEqualTo(BufferPool.MAX_SIZE + 1);
+        bufferPool.release(huge);
+        assertThat(bufferPool.acquire(BufferPool.MAX_SIZE + 1)).isNotSameAs(huge);
+        assertThat(bufferPool.stats().misses()).isEqualTo(2);
+    }
+}
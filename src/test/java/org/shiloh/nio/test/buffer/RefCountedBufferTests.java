@@ -0,0 +1,46 @@
+package org.shiloh.nio.test.buffer;
+
+import org.junit.Test;
+import org.shiloh.buffer.RefCountedBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link RefCountedBuffer} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/18 13:30
+ */
+public class RefCountedBufferTests {
+    /**
+     * 每个视图的读取进度互不影响，最后一个引用释放时才回收
+     *
+     * @author shiloh
+     * @date 2026/10/18 13:31
+     */
+    @Test
+    public void testSharedViews() {
+        final AtomicInteger deallocated = new AtomicInteger();
+        final ByteBuffer frame = ByteBuffer.allocateDirect(8).putLong(42L).flip();
+        final RefCountedBuffer msg = RefCountedBuffer.wrap(frame, buffer -> deallocated.incrementAndGet());
+
+        final ByteBuffer view1 = msg.retain().view();
+        final ByteBuffer view2 = msg.retain().view();
+        assertThat(view1.getLong()).isEqualTo(42L);
+        assertThat(view1.hasRemaining()).isFalse();
+        assertThat(view2.remaining()).isEqualTo(8);
+        assertThat(view2.isReadOnly()).isTrue();
+        assertThat(view2.isDirect()).isTrue();
+
+        assertThat(msg.release()).isFalse();
+        assertThat(msg.release()).isFalse();
+        assertThat(deallocated).hasValue(0);
+        assertThat(msg.release()).isTrue();
+        assertThat(deallocated).hasValue(1);
+        assertThatThrownBy(msg::retain).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -1,6 +1,7 @@
 package org.shiloh.nio.test.channel;
 
 import org.junit.Test;
+import org.shiloh.buffer.BufferPool;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -47,21 +48,26 @@ public class FileChannelTests {
             // 2.大文件对象，使用时不会占用JVM内存。
             // 3.不需要频繁创建，生命周期较长，能重复使用的情况。
             // 排除以上情况，建议使用堆内内存块缓冲区，只有数据量达到一定的量级，使用直接缓冲区才会有一定的优势。
-            final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(1024);
-            while (true) {
-                // 从输入通道中读取数据到缓冲区中
-                final int read = srcChannel.read(byteBuffer);
-                // 读取到 -1 表示到文件末尾了
-                if (read == -1) {
-                    break;
+            // 直接缓冲区的分配代价较高，这里从缓冲池中获取（ByteBuffer.allocateDirect(1024) 的复用版本），用完后归还
+            final ByteBuffer byteBuffer = BufferPool.DEFAULT.acquire(1024);
+            try {
+                while (true) {
+                    // 从输入通道中读取数据到缓冲区中
+                    final int read = srcChannel.read(byteBuffer);
+                    // 读取到 -1 表示到文件末尾了
+                    if (read == -1) {
+                        break;
+                    }
+                    System.out.printf("本次读取到了 %d 字节\n", read);
+                    // 切换读写模式
+                    byteBuffer.flip();
+                    // 换缓冲区中的内容写入到输出文件中
+                    destChannel.write(byteBuffer);
+                    // 清空缓冲区
+                    byteBuffer.clear();
                 }
-                System.out.printf("本次读取到了 %d 字节\n", read);
-                // 切换读写模式
-                byteBuffer.flip();
-                // 换缓冲区中的内容写入到输出文件中
-                destChannel.write(byteBuffer);
-                // 清空缓冲区
-                byteBuffer.clear();
+            } finally {
+                BufferPool.DEFAULT.release(byteBuffer);
             }
         }
     }
@@ -1,5 +1,7 @@
 package org.shiloh.nio.test.channel;
 
+import org.shiloh.codec.TextDecoder;
+
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
@@ -27,17 +29,17 @@ public class SocketChannelTests {
                 // 获取 SocketChannel，accept() 方法可以获得一个 SocketChannel，也就是客户端的连接通道。
                 final SocketChannel socketChannel = serverSocketChannel.accept();
                 System.out.println("remote address: " + socketChannel.getRemoteAddress());
+                // 每个连接一个增量解码器，一次 read 末尾被拆开的中文字符留到下一次 read 再解码
+                final TextDecoder textDecoder = new TextDecoder();
                 while ((socketChannel.read(byteBuffer)) != -1) {
                     // 反转读写模式
                     byteBuffer.flip();
                     // 打印接收到的数据
-                    final byte[] container = new byte[byteBuffer.limit()];
-                    // 将字节从缓冲区传输到给定的目标数组
-                    byteBuffer.get(container, 0, byteBuffer.limit());
-                    System.out.println(new String(container));
+                    System.out.print(textDecoder.decode(byteBuffer));
                     // 清空缓冲区
                     byteBuffer.clear();
                 }
+                System.out.println(textDecoder.finish());
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,370 @@
+package org.shiloh.nio.test.chat;
+
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.buffer.RefCountedBuffer;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+import org.shiloh.codec.TextCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.shiloh.nio.test.chat.GroupChatServer.HOST;
+import static org.shiloh.nio.test.chat.GroupChatServer.PORT;
+
+/**
+ * Nio 多人聊天室 - NIO.2 异步版服务端
+ * <p>
+ * 基于 {@link AsynchronousServerSocketChannel} 和 {@link CompletionHandler}（Proactor 模型）：发起读写操作后立即返回，
+ * 操作完成后由 {@link AsynchronousChannelGroup} 的线程池回调。Linux 上底层仍然是 epoll，由 JDK 代替我们完成就绪后的读写。
+ * <p>
+ * 异步通道同一时刻只允许一个未完成的读操作和一个未完成的写操作，否则会抛出
+ * {@link java.nio.channels.ReadPendingException}/{@link java.nio.channels.WritePendingException}，所以：
+ * <ul>
+ *     <li>每次读完成并处理完消息后才发起下一次读</li>
+ *     <li>写操作使用发送队列串行化，队列不为空且当前没有写操作时才发起写</li>
+ * </ul>
+ * 消息帧格式和广播方式与 {@link GroupChatServer} 相同。
+ * <p>
+ * 发送队列的限制与 {@link GroupChatServer} 相同（{@link OutboundLimits}）：每个连接积压的字节数超过硬上限，
+ * 或者所有连接的总量超过全局上限时断开连接，不读数据的客户端不会无限占用内存。异步版没有暂停读取，高水位不起作用。
+ * <p>
+ * 启动参数：第一个参数为线程池大小，默认为 CPU 核心数；第二个参数为监听端口，默认为 {@link GroupChatServer#PORT}。
+ * 与 {@link GroupChatServer} 的性能对比使用 {@link LoadGenerator}，两个服务端分别启动后用相同的参数压测。
+ *
+ * @author shiloh
+ * @date 2026/10/18 19:02
+ */
+public class AsyncGroupChatServer {
+    /**
+     * 通道组，所有通道的回调都在它的线程池中执行
+     */
+    private final AsynchronousChannelGroup channelGroup;
+
+    /**
+     * 服务器通道
+     */
+    private final AsynchronousServerSocketChannel serverChannel;
+
+    /**
+     * 当前在线的连接
+     */
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 发送队列的限制
+     */
+    private final OutboundLimits outboundLimits = OutboundLimits.fromSystemProperties();
+
+    public AsyncGroupChatServer(int threads, int port) throws IOException {
+        // 固定大小的线程池，回调中不能有阻塞操作
+        this.channelGroup = AsynchronousChannelGroup.withFixedThreadPool(threads, Executors.defaultThreadFactory());
+        this.serverChannel = AsynchronousServerSocketChannel.open(this.channelGroup)
+                .bind(new InetSocketAddress(HOST, port), 1024);
+    }
+
+    /**
+     * 启动服务端，阻塞当前线程直到通道组关闭
+     *
+     * @throws InterruptedException 等待被中断
+     * @author shiloh
+     * @date 2026/10/18 19:05
+     */
+    public void start() throws InterruptedException {
+        this.accept();
+        this.channelGroup.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /**
+     * 停止服务端，关闭所有连接，{@link #start()} 随后返回
+     *
+     * @author shiloh
+     * @date 2026/10/19 12:40
+     */
+    public void stop() {
+        try {
+            this.serverChannel.close();
+            this.channelGroup.shutdownNow();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 实际监听的端口，构造时端口为 0 时由系统分配
+     *
+     * @return 端口
+     * @throws IOException 服务器通道已关闭
+     * @author shiloh
+     * @date 2026/10/19 12:41
+     */
+    public int localPort() throws IOException {
+        return ((InetSocketAddress) this.serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * 发起一次异步 accept，完成后立即发起下一次
+     */
+    private void accept() {
+        this.serverChannel.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel channel, Void attachment) {
+                AsyncGroupChatServer.this.accept();
+                final Connection connection = new Connection(channel);
+                AsyncGroupChatServer.this.connections.add(connection);
+                try {
+                    System.out.println(channel.getRemoteAddress() + "上线了~~");
+                } catch (IOException ignored) {
+                    // 连接已关闭，获取不到远程地址
+                }
+                connection.read();
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                if (AsyncGroupChatServer.this.serverChannel.isOpen()) {
+                    e.printStackTrace();
+                    AsyncGroupChatServer.this.accept();
+                }
+            }
+        });
+    }
+
+    /**
+     * 转发消息到其他连接
+     */
+    private void broadcast(Connection sender, RefCountedBuffer msg) {
+        for (final Connection connection : this.connections) {
+            if (connection != sender) {
+                connection.enqueue(msg);
+            }
+        }
+    }
+
+    /**
+     * 一个客户端连接
+     */
+    private final class Connection {
+        private final AsynchronousSocketChannel channel;
+
+        /**
+         * 帧解码器，同一时刻只有一个读操作，回调之间通过通道组建立 happens-before 关系
+         */
+        private final FrameDecoder frameDecoder = new FrameDecoder();
+
+        /**
+         * 发送队列，任意线程都可以放入
+         */
+        private final Queue<RefCountedBuffer> outboundQueue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 发送队列中（包括正在写出的）消息的字节数
+         */
+        private final AtomicLong queuedBytes = new AtomicLong();
+
+        /**
+         * 是否有未完成的写操作
+         */
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        /**
+         * 是否已关闭
+         */
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        /**
+         * 正在写出的消息
+         */
+        private RefCountedBuffer writingMsg;
+
+        /**
+         * 正在写出的视图
+         */
+        private ByteBuffer writingView;
+
+        private final CompletionHandler<Integer, Void> readHandler = new CompletionHandler<>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if (count == -1) {
+                    // 客户端主动断开连接
+                    Connection.this.close();
+                    Connection.this.frameDecoder.release();
+                    return;
+                }
+                try {
+                    Connection.this.frameDecoder.decode(Connection.this::relay);
+                } catch (IOException e) {
+                    Connection.this.close();
+                    Connection.this.frameDecoder.release();
+                    return;
+                }
+                // 处理完本次读取的数据后再发起下一次读
+                Connection.this.read();
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                // 解码器只在读回调中使用，由读回调负责归还缓冲区
+                Connection.this.close();
+                Connection.this.frameDecoder.release();
+            }
+        };
+
+        private final CompletionHandler<Integer, Void> writeHandler = new CompletionHandler<>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if (Connection.this.writingView.hasRemaining()) {
+                    // 只写出了一部分，继续写剩下的
+                    Connection.this.channel.write(Connection.this.writingView, null, this);
+                    return;
+                }
+                Connection.this.release(Connection.this.writingMsg);
+                Connection.this.writingMsg = null;
+                Connection.this.writingView = null;
+                Connection.this.writeNext();
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                Connection.this.release(Connection.this.writingMsg);
+                Connection.this.writingMsg = null;
+                Connection.this.writingView = null;
+                Connection.this.close();
+                // 仍持有 writing 标记，由 writeNext 释放队列中剩余的消息
+                Connection.this.writeNext();
+            }
+        };
+
+        private Connection(AsynchronousSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * 发起一次异步读
+         */
+        private void read() {
+            if (this.closed.get()) {
+                this.frameDecoder.release();
+                return;
+            }
+            this.channel.read(this.frameDecoder.writableBuffer(), null, this.readHandler);
+        }
+
+        /**
+         * 编码一次后转发给其他连接
+         */
+        private void relay(ByteBuffer payload) {
+            if (GroupChatServer.VERBOSE) {
+                System.out.println("msg from client: " + TextCodec.decode(payload.duplicate()));
+            }
+            final BufferPool bufferPool = BufferPool.DEFAULT;
+            final ByteBuffer frame = bufferPool.acquire(FrameEncoder.frameLength(payload.remaining()));
+            FrameEncoder.encode(payload, frame);
+            final RefCountedBuffer msg = RefCountedBuffer.wrap(frame.flip(), bufferPool::release);
+            try {
+                AsyncGroupChatServer.this.broadcast(this, msg);
+            } finally {
+                msg.release();
+            }
+        }
+
+        /**
+         * 放入发送队列，当前没有写操作时发起写；超过每个连接的硬上限或者全局上限时断开连接
+         */
+        private void enqueue(RefCountedBuffer msg) {
+            if (this.closed.get()) {
+                return;
+            }
+            final OutboundLimits limits = AsyncGroupChatServer.this.outboundLimits;
+            final int length = msg.length();
+            if (this.queuedBytes.addAndGet(length) > limits.maxConnectionBytes() || !limits.tryReserve(length)) {
+                this.queuedBytes.addAndGet(-length);
+                // 客户端跟不上，断开连接；队列中已有的消息由 close 释放
+                this.close();
+                return;
+            }
+            this.outboundQueue.offer(msg.retain());
+            if (this.writing.compareAndSet(false, true)) {
+                this.writeNext();
+            }
+        }
+
+        /**
+         * 写出队首的消息，队列为空时结束写操作；调用前必须已经持有 writing 标记
+         */
+        private void writeNext() {
+            while (true) {
+                final RefCountedBuffer msg = this.outboundQueue.poll();
+                if (msg != null) {
+                    if (this.closed.get()) {
+                        this.release(msg);
+                        continue;
+                    }
+                    this.writingMsg = msg;
+                    this.writingView = msg.view();
+                    this.channel.write(this.writingView, null, this.writeHandler);
+                    return;
+                }
+                this.writing.set(false);
+                // 释放标记之后可能有新消息入队，而入队线程看到标记未释放没有发起写，这里需要再检查一次
+                if (this.outboundQueue.isEmpty() || !this.writing.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 消息已经写完或者被丢弃，释放引用和占用的配额
+         */
+        private void release(RefCountedBuffer msg) {
+            final int length = msg.length();
+            msg.release();
+            this.queuedBytes.addAndGet(-length);
+            AsyncGroupChatServer.this.outboundLimits.release(length);
+        }
+
+        /**
+         * 关闭连接，可以在任意线程调用；未完成的读写操作会以失败回调结束
+         */
+        private void close() {
+            if (!this.closed.compareAndSet(false, true)) {
+                return;
+            }
+            AsyncGroupChatServer.this.connections.remove(this);
+            try {
+                // 打印离线通知
+                System.out.println(this.channel.getRemoteAddress() + "离线了...");
+            } catch (IOException ignored) {
+                // 连接已关闭，获取不到远程地址
+            }
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            // 当前没有写操作时由这里释放已入队的消息，否则由写回调释放
+            if (this.writing.compareAndSet(false, true)) {
+                this.writeNext();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        final int port = args.length > 1 ? Integer.parseInt(args[1]) : PORT;
+        new AsyncGroupChatServer(threads, port).start();
+    }
+}
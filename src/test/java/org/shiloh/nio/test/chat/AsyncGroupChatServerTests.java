@@ -0,0 +1,93 @@
+package org.shiloh.nio.test.chat;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AsyncGroupChatServer} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/19 12:42
+ */
+public class AsyncGroupChatServerTests {
+    private AsyncGroupChatServer server;
+
+    private Thread serverThread;
+
+    private void start() throws IOException {
+        this.server = new AsyncGroupChatServer(2, 0);
+        this.serverThread = new Thread(() -> {
+            try {
+                this.server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "async-chat-server");
+        this.serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        System.clearProperty("chat.highWatermark");
+        System.clearProperty("chat.lowWatermark");
+        if (this.server != null) {
+            this.server.stop();
+            this.serverThread.join(5000);
+        }
+    }
+
+    /**
+     * 一个客户端发送的消息广播给另一个客户端
+     *
+     * @author shiloh
+     * @date 2026/10/19 12:43
+     */
+    @Test(timeout = 30_000)
+    public void testBroadcast() throws Exception {
+        this.start();
+        try (TestChatClient sender = new TestChatClient(this.server.localPort(), 200);
+             TestChatClient receiver = new TestChatClient(this.server.localPort(), 200)) {
+            assertThat(GroupChatServerTests.awaitBroadcast(sender, receiver)).isEqualTo("hello");
+        }
+    }
+
+    /**
+     * 不读取数据的客户端积压超过每个连接的硬上限时被断开
+     *
+     * @author shiloh
+     * @date 2026/10/19 12:44
+     */
+    @Test(timeout = 30_000)
+    public void testDisconnectSlowConsumer() throws Exception {
+        // 硬上限为高水位的 4 倍，即 256 KB
+        System.setProperty("chat.highWatermark", String.valueOf(64 * 1024));
+        System.setProperty("chat.lowWatermark", String.valueOf(16 * 1024));
+        this.start();
+        final String payload = "x".repeat(1000);
+        try (TestChatClient sender = new TestChatClient(this.server.localPort(), 200);
+             TestChatClient receiver = new TestChatClient(this.server.localPort(), 200)) {
+            assertThat(GroupChatServerTests.awaitBroadcast(sender, receiver)).isEqualTo("hello");
+            // 约 20 MB，远超过 socket 缓冲区和硬上限
+            for (int i = 0; i < 20_000; i++) {
+                sender.send(payload);
+            }
+            // 读完已经发出的数据后读到连接关闭，没有被断开时一直读下去直到超时失败
+            while (true) {
+                try {
+                    receiver.receive();
+                } catch (EOFException | SocketException e) {
+                    break;
+                } catch (SocketTimeoutException e) {
+                    // 服务端还在转发
+                }
+            }
+        }
+    }
+}
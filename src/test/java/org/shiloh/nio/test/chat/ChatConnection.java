@@ -0,0 +1,761 @@
+package org.shiloh.nio.test.chat;
+
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.buffer.RefCountedBuffer;
+import org.shiloh.codec.FrameCompressor;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+import org.shiloh.metrics.ConnectionMetrics;
+import org.shiloh.timer.Timeout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
+
+/**
+ * Nio 多人聊天室 - 客户端连接的状态，作为 {@link SelectionKey} 的附件
+ * <p>
+ * 消息入队时不立即写出，而是交给工作线程，在本次事件循环的最后用一次聚集写（{@link SocketChannel#write(ByteBuffer[])}）
+ * 把这次循环中入队的所有消息一起写出，高扇出时每个连接每次循环只有一次系统调用，而不是每条消息一次。
+ * 非阻塞模式下只会写入 socket 发送缓冲区能容纳的数据，写不完的部分留在发送队列，只有队列不为空时才关注
+ * {@link SelectionKey#OP_WRITE} 事件，等通道可写时再继续写入。否则发送缓冲区一直可写，选择器会不停地返回写事件，导致线程空转。
+ * <p>
+ * 发送队列超过高水位时按 {@link SlowConsumerPolicy} 处理慢消费者；不论哪种策略，超过每个连接的硬上限时都断开连接，
+ * 所有连接的发送队列总量还受 {@link OutboundLimits} 的全局上限约束，一个不读数据的客户端不会无限占用内存，
+ * 也不会拖慢其他客户端的转发。
+ * <p>
+ * 同时记录最后一次读取到数据的时间，由工作线程的时间轮做空闲检测和心跳。
+ * <p>
+ * 客户端重连后可以请求回放聊天室的历史消息（{@link HistoryReplay}），回放在发送队列的两条消息之间进行：
+ * 已经写出一部分的队首消息先写完，然后发送历史消息，再继续发送队列中的实时消息。
+ * 回放开始时发送队列中已有的、在快照范围内的消息会被移除，之后通过实时转发到达的也按消息 id 丢弃，只从日志回放一次。
+ * 客户端开启消息 id（/ids on）后，可以知道收到的每条消息的 id，重连时从最后收到的 id 之后开始回放。
+ * <p>
+ * 非线程安全，只能在所属的工作线程中使用。
+ *
+ * @author shiloh
+ * @date 2026/10/18 12:05
+ */
+public class ChatConnection {
+    /**
+     * 消息 id 帧的前缀，后面是聊天室 id 和消息 id
+     */
+    static final String MESSAGE_ID_PREFIX = "/id ";
+
+    /**
+     * 所属的工作线程
+     */
+    private final ChatWorker worker;
+
+    /**
+     * 客户端连接通道
+     */
+    private final SocketChannel channel;
+
+    /**
+     * 注册到选择器后返回的 key
+     */
+    private final SelectionKey key;
+
+    /**
+     * 帧解码器，保存上次读取剩余的半个帧
+     */
+    private final FrameDecoder frameDecoder = new FrameDecoder();
+
+    /**
+     * 发送队列，队首的消息可能已经写了一部分
+     */
+    private final Deque<Outbound> outboundQueue = new ArrayDeque<>();
+
+    /**
+     * 发送队列中尚未写出的字节数
+     */
+    private long queuedBytes;
+
+    /**
+     * 是否已经交给工作线程在本次循环结束时写出
+     */
+    private boolean flushScheduled;
+
+    /**
+     * 连接的指标
+     */
+    private final ConnectionMetrics metrics;
+
+    /**
+     * 发送队列的限制
+     */
+    private final OutboundLimits limits;
+
+    /**
+     * 是否因为发送队列超过高水位暂停了读取
+     */
+    private boolean readPaused;
+
+    /**
+     * 最后一次读取到数据的时间
+     */
+    private long lastReadNanos;
+
+    /**
+     * 空闲检测的定时任务
+     */
+    private Timeout idleTimeout;
+
+    /**
+     * 已加入的聊天室
+     */
+    private int[] rooms = new int[0];
+
+    /**
+     * 在每个已加入聊天室的成员数组中的下标，与 rooms 一一对应
+     */
+    private int[] roomSlots = new int[0];
+
+    /**
+     * 当前聊天室，发送的普通消息转发到这个聊天室
+     */
+    private int currentRoom = RoomIndex.DEFAULT_ROOM;
+
+    /**
+     * 正在进行的历史消息回放，没有时为 null
+     */
+    private HistoryReplay replay;
+
+    /**
+     * 最近一次回放的聊天室
+     */
+    private int replayRoom = -1;
+
+    /**
+     * 最近一次回放的起始消息 id
+     */
+    private long replayFromId;
+
+    /**
+     * 最近一次回放的快照末尾，该聊天室中 id 在 [replayFromId, replayEndId) 范围内的实时消息已经包含在回放中
+     */
+    private long replayEndId;
+
+    /**
+     * 是否协商了压缩：开启后解码器接受压缩帧，转发时优先发送压缩帧
+     */
+    private boolean compression;
+
+    /**
+     * 是否等待关闭：在解码回调中出错时设置，解码结束后由工作线程关闭
+     */
+    private boolean closeRequested;
+
+    /**
+     * 是否在聊天室消息前附带消息 id
+     */
+    private boolean messageIds;
+
+    public ChatConnection(ChatWorker worker, SocketChannel channel, SelectionKey key, ConnectionMetrics metrics,
+                          OutboundLimits limits) {
+        this.worker = worker;
+        this.channel = channel;
+        this.key = key;
+        this.metrics = metrics;
+        this.limits = limits;
+    }
+
+    public SocketChannel channel() {
+        return this.channel;
+    }
+
+    public SelectionKey key() {
+        return this.key;
+    }
+
+    public FrameDecoder frameDecoder() {
+        return this.frameDecoder;
+    }
+
+    public ConnectionMetrics metrics() {
+        return this.metrics;
+    }
+
+    public long lastReadNanos() {
+        return this.lastReadNanos;
+    }
+
+    public void lastReadNanos(long lastReadNanos) {
+        this.lastReadNanos = lastReadNanos;
+    }
+
+    public void idleTimeout(Timeout idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public boolean closeRequested() {
+        return this.closeRequested;
+    }
+
+    public void requestClose() {
+        this.closeRequested = true;
+    }
+
+    /**
+     * 是否正在回放历史消息
+     *
+     * @return 是则返回 true
+     * @author shiloh
+     * @date 2026/10/19 09:10
+     */
+    public boolean replaying() {
+        return this.replay != null;
+    }
+
+    public boolean compression() {
+        return this.compression;
+    }
+
+    /**
+     * 开启或关闭压缩，开启后解码器使用工作线程的压缩器解压客户端发来的压缩帧
+     *
+     * @param compressor 工作线程的压缩器，null 表示关闭压缩
+     * @author shiloh
+     * @date 2026/10/19 02:12
+     */
+    public void compression(FrameCompressor compressor) {
+        this.compression = compressor != null;
+        this.frameDecoder.decompressWith(compressor);
+    }
+
+    public boolean messageIds() {
+        return this.messageIds;
+    }
+
+    public void messageIds(boolean messageIds) {
+        this.messageIds = messageIds;
+    }
+
+    public int[] rooms() {
+        return this.rooms;
+    }
+
+    public int currentRoom() {
+        return this.currentRoom;
+    }
+
+    /**
+     * 连接在聊天室成员数组中的下标，未加入时返回 -1
+     *
+     * @param roomId 聊天室 id
+     * @return 下标
+     * @author shiloh
+     * @date 2026/10/19 09:40
+     */
+    int slot(int roomId) {
+        for (int i = 0; i < this.rooms.length; i++) {
+            if (this.rooms[i] == roomId) {
+                return this.roomSlots[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 记录已加入聊天室，并设为当前聊天室，由 {@link RoomIndex} 调用
+     *
+     * @param roomId 聊天室 id
+     * @param slot   在聊天室成员数组中的下标
+     * @author shiloh
+     * @date 2026/10/18 22:46
+     */
+    void joined(int roomId, int slot) {
+        this.currentRoom = roomId;
+        if (this.slot(roomId) >= 0) {
+            return;
+        }
+        final int count = this.rooms.length;
+        this.rooms = Arrays.copyOf(this.rooms, count + 1);
+        this.rooms[count] = roomId;
+        this.roomSlots = Arrays.copyOf(this.roomSlots, count + 1);
+        this.roomSlots[count] = slot;
+    }
+
+    /**
+     * 记录在聊天室成员数组中的下标发生了变化（其他成员退出时被移到空出的位置），由 {@link RoomIndex} 调用
+     *
+     * @param roomId 聊天室 id
+     * @param slot   新的下标
+     * @author shiloh
+     * @date 2026/10/19 09:41
+     */
+    void moved(int roomId, int slot) {
+        for (int i = 0; i < this.rooms.length; i++) {
+            if (this.rooms[i] == roomId) {
+                this.roomSlots[i] = slot;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 记录已退出聊天室，退出的是当前聊天室时，当前聊天室切换为最早加入的聊天室，由 {@link RoomIndex} 调用
+     *
+     * @param roomId 聊天室 id
+     * @return 退出前在聊天室成员数组中的下标，未加入时返回 -1
+     * @author shiloh
+     * @date 2026/10/18 22:47
+     */
+    int left(int roomId) {
+        int slot = -1;
+        for (int i = 0; i < this.rooms.length; i++) {
+            if (this.rooms[i] == roomId) {
+                slot = this.roomSlots[i];
+                final int[] updated = new int[this.rooms.length - 1];
+                System.arraycopy(this.rooms, 0, updated, 0, i);
+                System.arraycopy(this.rooms, i + 1, updated, i, updated.length - i);
+                this.rooms = updated;
+                final int[] slots = new int[updated.length];
+                System.arraycopy(this.roomSlots, 0, slots, 0, i);
+                System.arraycopy(this.roomSlots, i + 1, slots, i, slots.length - i);
+                this.roomSlots = slots;
+                break;
+            }
+        }
+        if (this.currentRoom == roomId) {
+            this.currentRoom = this.rooms.length > 0 ? this.rooms[0] : RoomIndex.DEFAULT_ROOM;
+        }
+        return slot;
+    }
+
+    /**
+     * 发送队列中尚未写出的字节数
+     *
+     * @return 字节数
+     * @author shiloh
+     * @date 2026/10/18 12:06
+     */
+    public long queuedBytes() {
+        return this.queuedBytes;
+    }
+
+    /**
+     * 把共享缓冲区放入发送队列并尝试写出
+     * <p>
+     * 本方法会持有一个引用，并使用独立的只读视图写出，写完或连接关闭时释放引用，调用方不需要为每个连接增加引用。
+     * <p>
+     * 队列原本为空时交给工作线程，在本次循环结束时和同一循环中入队的其他消息一起写出；
+     * 队列不为空说明已经安排了写出或者在等待可写事件，此时只排队，保证消息的顺序；已经安排写出并且积累够一批时提前写出。
+     * <p>
+     * 超过全局上限时本条消息不再发给这个连接；如果这个连接的积压已经超过高水位，说明它就是占用内存的慢消费者，断开连接。
+     *
+     * @param msg 共享缓冲区
+     * @throws IOException 写入失败，或者按策略需要断开连接
+     * @author shiloh
+     * @date 2026/10/18 12:08
+     */
+    public void enqueue(RefCountedBuffer msg) throws IOException {
+        this.enqueue(msg, -1, -1, null);
+    }
+
+    /**
+     * 把聊天室的一条实时消息放入发送队列，已经包含在历史消息回放中的消息会被丢弃，其余同 {@link #enqueue(RefCountedBuffer)}
+     * <p>
+     * 开启了消息 id 时，先发送一个 {@code /id 聊天室id 消息id} 文本帧再发送消息（没有写入日志的消息 id 为 -1）。
+     * 消息 id 帧和消息帧一样由所有接收者共享，作为发送队列中紧挨着的两项，丢弃或者在回放之前写完时总是一起处理，
+     * 客户端不会把 id 对应到错误的消息上。
+     *
+     * @param msg       共享缓冲区
+     * @param roomId    聊天室 id
+     * @param messageId 消息在聊天室日志中的 id，没有写入日志时为 -1
+     * @param idFrame   共享的消息 id 帧，由 {@link #messageIdFrame(int, long)} 创建，不需要时为 null
+     * @throws IOException 写入失败，或者按策略需要断开连接
+     * @author shiloh
+     * @date 2026/10/18 23:42
+     */
+    public void enqueue(RefCountedBuffer msg, int roomId, long messageId, RefCountedBuffer idFrame)
+            throws IOException {
+        if (msg.length() == 0) {
+            return;
+        }
+        if (roomId == this.replayRoom && messageId >= this.replayFromId && messageId < this.replayEndId) {
+            return;
+        }
+        final boolean withId = this.messageIds && idFrame != null;
+        final int length = withId ? idFrame.length() + msg.length() : msg.length();
+        if (this.queuedBytes + length > this.limits.maxConnectionBytes()) {
+            // 暂停读取时发往它的消息还会继续排队，需要一个与策略无关的硬上限
+            this.metrics.messageDropped();
+            throw new IOException("slow consumer: " + this.queuedBytes + " bytes queued, hard limit reached");
+        }
+        if (!this.limits.tryReserve(length)) {
+            this.metrics.messageDropped();
+            if (this.queuedBytes >= this.limits.highWatermark()) {
+                throw new IOException("slow consumer: global outbound limit reached");
+            }
+            return;
+        }
+        final boolean wasEmpty = this.outboundQueue.isEmpty() && this.replay == null;
+        if (withId) {
+            this.outboundQueue.offer(new Outbound(idFrame.retain(), roomId, messageId, true, false));
+        }
+        this.outboundQueue.offer(new Outbound(msg.retain(), roomId, messageId, false, withId));
+        this.queuedBytes += length;
+        this.metrics.outboundQueueBytes(this.queuedBytes);
+        if (wasEmpty && !this.flushScheduled) {
+            this.flushScheduled = true;
+            this.worker.scheduleFlush(this);
+        } else if (this.flushScheduled && this.queuedBytes >= GroupChatServer.WRITE_BATCH_BYTES) {
+            // 本次循环积累的数据已经够一批，提前写出，避免一次读取到大量消息时在循环结束前就超过高水位
+            this.flush();
+        }
+        if (this.queuedBytes > this.limits.highWatermark()) {
+            this.onHighWatermark();
+        }
+    }
+
+    /**
+     * 编码一条消息的消息 id 帧，转发时每条消息编码一次，所有开启了消息 id 的接收者共享
+     *
+     * @param roomId    聊天室 id
+     * @param messageId 消息在聊天室日志中的 id，没有写入日志时为 -1
+     * @return 共享缓冲区，持有一个引用
+     * @author shiloh
+     * @date 2026/10/19 10:25
+     */
+    static RefCountedBuffer messageIdFrame(int roomId, long messageId) {
+        // 消息 id 帧只包含 ASCII 字符，字节数等于字符数
+        final String text = MESSAGE_ID_PREFIX + roomId + ' ' + messageId;
+        final BufferPool bufferPool = BufferPool.DEFAULT;
+        final ByteBuffer frame = bufferPool.acquire(FrameEncoder.frameLength(text.length()));
+        frame.putInt(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            frame.put((byte) text.charAt(i));
+        }
+        return RefCountedBuffer.wrap(frame.flip(), bufferPool::release);
+    }
+
+    /**
+     * 已经写出一部分、必须在回放之前写完的队首消息的 id，用于从回放中排除这条消息
+     *
+     * @param roomId 聊天室 id
+     * @return 消息 id，队首消息没有开始写出、不属于这个聊天室或者没有写入日志时返回 -1
+     * @author shiloh
+     * @date 2026/10/19 12:20
+     */
+    public long unfinishedMessageId(int roomId) {
+        final Outbound head = this.outboundQueue.peek();
+        return this.unfinished() > 0 && head.roomId == roomId ? head.messageId : -1;
+    }
+
+    /**
+     * 队首必须先写完的项数：已经写出一部分的消息，已经写出一部分的消息 id 帧和它的消息，或者消息 id 帧已经写完的消息
+     *
+     * @return 项数，队首没有开始写出时返回 0
+     * @author shiloh
+     * @date 2026/10/19 12:30
+     */
+    private int unfinished() {
+        final Outbound head = this.outboundQueue.peek();
+        if (head == null) {
+            return 0;
+        }
+        if (head.idFrame) {
+            return head.started() ? 2 : 0;
+        }
+        return head.afterIdFrame || head.started() ? 1 : 0;
+    }
+
+    /**
+     * 开始回放聊天室的历史消息
+     * <p>
+     * 发送队列中这个聊天室 id 在 [fromId, endId) 范围内的消息会从日志回放，从队列中移除；
+     * 必须先写完的队首消息除外，调用方用 {@link #unfinishedMessageId(int)} 把它从回放中排除。
+     *
+     * @param roomId 聊天室 id
+     * @param fromId 起始消息 id
+     * @param endId  快照末尾，该聊天室中 id 在 [fromId, endId) 范围内的实时消息不再发送
+     * @param replay 回放
+     * @throws IOException           写入失败
+     * @throws IllegalStateException 上一次回放还没有结束，调用前先用 {@link #replaying()} 检查
+     * @author shiloh
+     * @date 2026/10/18 23:43
+     */
+    public void replay(int roomId, long fromId, long endId, HistoryReplay replay) throws IOException {
+        if (this.replay != null) {
+            throw new IllegalStateException("history replay already in progress");
+        }
+        this.replayRoom = roomId;
+        this.replayFromId = fromId;
+        this.replayEndId = endId;
+        this.replay = replay;
+        final Iterator<Outbound> iterator = this.outboundQueue.iterator();
+        for (int i = this.unfinished(); i > 0; i--) {
+            iterator.next();
+        }
+        // 消息 id 帧和它的消息的聊天室、消息 id 相同，一起移除
+        while (iterator.hasNext()) {
+            final Outbound entry = iterator.next();
+            if (entry.roomId == roomId && entry.messageId >= fromId && entry.messageId < endId) {
+                iterator.remove();
+                this.remove(entry);
+            }
+        }
+        this.metrics.outboundQueueBytes(this.queuedBytes);
+        this.flush();
+    }
+
+    /**
+     * 释放已经从发送队列中移除、没有写出的消息
+     *
+     * @param entry 消息
+     * @author shiloh
+     * @date 2026/10/19 12:21
+     */
+    private void remove(Outbound entry) {
+        final int remaining = entry.view.remaining();
+        entry.owner.release();
+        this.queuedBytes -= remaining;
+        this.limits.release(remaining);
+    }
+
+    /**
+     * 发送队列超过高水位，按慢消费者策略处理
+     *
+     * @throws IOException 策略为断开连接
+     * @author shiloh
+     * @date 2026/10/18 21:58
+     */
+    private void onHighWatermark() throws IOException {
+        switch (this.limits.policy()) {
+            case PAUSE_READ -> {
+                if (!this.readPaused) {
+                    this.readPaused = true;
+                    this.setInterest(OP_READ, false);
+                }
+            }
+            case DROP_OLDEST -> this.dropOldest();
+            case DISCONNECT -> throw new IOException("slow consumer: " + this.queuedBytes + " bytes queued");
+        }
+    }
+
+    /**
+     * 从队首开始丢弃消息，直到不超过高水位，已经写出一部分的队首消息必须保留，否则客户端收到的帧会错乱；
+     * 消息 id 帧和它的消息一起丢弃
+     *
+     * @author shiloh
+     * @date 2026/10/18 21:59
+     */
+    private void dropOldest() {
+        final Iterator<Outbound> iterator = this.outboundQueue.iterator();
+        for (int i = this.unfinished(); i > 0; i--) {
+            iterator.next();
+        }
+        while (this.queuedBytes > this.limits.highWatermark() && iterator.hasNext()) {
+            Outbound entry = iterator.next();
+            iterator.remove();
+            this.remove(entry);
+            if (entry.idFrame) {
+                entry = iterator.next();
+                iterator.remove();
+                this.remove(entry);
+            }
+            this.metrics.messageDropped();
+        }
+        this.metrics.outboundQueueBytes(this.queuedBytes);
+    }
+
+    /**
+     * 工作线程在循环结束时调用，写出本次循环中入队的消息
+     *
+     * @throws IOException 写入失败
+     * @author shiloh
+     * @date 2026/10/19 01:45
+     */
+    public void flushScheduled() throws IOException {
+        this.flushScheduled = false;
+        if (this.key.isValid()) {
+            this.flush();
+        }
+    }
+
+    /**
+     * 尽可能多地写出发送队列中的数据，在循环结束或通道可写时调用
+     * <p>
+     * 每次从队首取出最多 {@link GroupChatServer#WRITE_BATCH_SIZE} 条、{@link GroupChatServer#WRITE_BATCH_BYTES} 字节的消息，
+     * 用一次聚集写写出。写不完时关注可写事件，写完后取消关注。有历史消息回放时，只把已经写出一部分的队首消息写完，
+     * 然后先发送历史消息，队列中的实时消息排在历史消息之后。
+     *
+     * @throws IOException 写入失败
+     * @author shiloh
+     * @date 2026/10/18 12:10
+     */
+    public void flush() throws IOException {
+        final ByteBuffer[] batch = this.worker.writeBatch();
+        while (true) {
+            final Outbound head = this.outboundQueue.peek();
+            // 回放之前只写完队首消息，后面的实时消息不能插到历史消息前面
+            int limit = this.replay != null ? this.unfinished() : batch.length;
+            if (limit == 0) {
+                if (!this.replay.transferTo(this.channel, this.metrics)) {
+                    this.setInterest(OP_WRITE, true);
+                    return;
+                }
+                this.replay.close();
+                this.replay = null;
+                limit = batch.length;
+            }
+            if (head == null) {
+                break;
+            }
+            // 第一条消息超过字节上限时也要写出，否则永远写不出去
+            int count = 0;
+            long bytes = 0;
+            for (final Outbound entry : this.outboundQueue) {
+                if (count == limit
+                        || count > 0 && bytes + entry.view.remaining() > GroupChatServer.WRITE_BATCH_BYTES) {
+                    break;
+                }
+                batch[count++] = entry.view;
+                bytes += entry.view.remaining();
+            }
+            final long written = count == 1 ? this.channel.write(head.view) : this.channel.write(batch, 0, count);
+            Arrays.fill(batch, 0, count, null);
+            this.metrics.writeCalled();
+            this.queuedBytes -= written;
+            this.limits.release(written);
+            this.metrics.bytesWritten(written);
+            Outbound entry;
+            while ((entry = this.outboundQueue.peek()) != null && !entry.view.hasRemaining()) {
+                this.outboundQueue.poll();
+                // 本连接已写完，释放对共享缓冲区的引用
+                entry.owner.release();
+                if (!entry.idFrame) {
+                    this.metrics.messageWritten();
+                }
+            }
+            if (written < bytes) {
+                // socket 发送缓冲区已满，等待可写事件
+                this.metrics.outboundQueueBytes(this.queuedBytes);
+                this.setInterest(OP_WRITE, true);
+                this.resumeReadIfDrained();
+                return;
+            }
+        }
+        this.metrics.outboundQueueBytes(0);
+        this.setInterest(OP_WRITE, false);
+        this.resumeReadIfDrained();
+    }
+
+    /**
+     * 暂停读取后发送队列降到低水位时恢复读取
+     *
+     * @author shiloh
+     * @date 2026/10/18 22:00
+     */
+    private void resumeReadIfDrained() {
+        if (this.readPaused && this.queuedBytes <= this.limits.lowWatermark()) {
+            this.readPaused = false;
+            this.setInterest(OP_READ, true);
+        }
+    }
+
+    /**
+     * 释放连接持有的资源，发送队列中尚未写出的共享缓冲区都会释放引用
+     *
+     * @author shiloh
+     * @date 2026/10/18 12:11
+     */
+    public void release() {
+        if (this.idleTimeout != null) {
+            this.idleTimeout.cancel();
+            this.idleTimeout = null;
+        }
+        if (this.replay != null) {
+            this.replay.close();
+            this.replay = null;
+        }
+        Outbound entry;
+        while ((entry = this.outboundQueue.poll()) != null) {
+            entry.owner.release();
+        }
+        this.limits.release(this.queuedBytes);
+        this.queuedBytes = 0;
+        this.metrics.outboundQueueBytes(0);
+        this.frameDecoder.release();
+    }
+
+    /**
+     * 设置是否关注指定的事件
+     *
+     * @param op         事件
+     * @param interested 是否关注
+     * @author shiloh
+     * @date 2026/10/18 12:12
+     */
+    private void setInterest(int op, boolean interested) {
+        if (!this.key.isValid()) {
+            return;
+        }
+        final int ops = this.key.interestOps();
+        final int newOps = interested ? ops | op : ops & ~op;
+        if (ops != newOps) {
+            this.key.interestOps(newOps);
+        }
+    }
+
+    /**
+     * 发送队列中的一条消息
+     */
+    private static final class Outbound {
+        /**
+         * 共享缓冲区的独立视图，队首的视图可能已经写了一部分
+         */
+        private final ByteBuffer view;
+
+        /**
+         * 视图对应的共享缓冲区，视图写完后释放引用
+         */
+        private final RefCountedBuffer owner;
+
+        /**
+         * 聊天室 id，不是聊天室消息时为 -1
+         */
+        private final int roomId;
+
+        /**
+         * 消息在聊天室日志中的 id，没有写入日志时为 -1
+         */
+        private final long messageId;
+
+        /**
+         * 是否为消息 id 帧，队列中的下一项就是它的消息
+         */
+        private final boolean idFrame;
+
+        /**
+         * 前一项是否为它的消息 id 帧
+         */
+        private final boolean afterIdFrame;
+
+        private Outbound(RefCountedBuffer owner, int roomId, long messageId, boolean idFrame, boolean afterIdFrame) {
+            this.view = owner.view();
+            this.owner = owner;
+            this.roomId = roomId;
+            this.messageId = messageId;
+            this.idFrame = idFrame;
+            this.afterIdFrame = afterIdFrame;
+        }
+
+        /**
+         * 是否已经写出了一部分，这时必须先写完，否则客户端收到的帧会错乱
+         */
+        private boolean started() {
+            return this.view.remaining() < this.owner.length();
+        }
+    }
+}
@@ -0,0 +1,958 @@
+package org.shiloh.nio.test.chat;
+
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.buffer.RefCountedBuffer;
+import org.shiloh.codec.FrameCompressor;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+import org.shiloh.codec.TextCodec;
+import org.shiloh.codec.TextView;
+import org.shiloh.log.LogSlice;
+import org.shiloh.log.MessageLog;
+import org.shiloh.metrics.ConnectionMetrics;
+import org.shiloh.metrics.EventLoopMetrics;
+import org.shiloh.timer.HashedTimingWheel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.channels.SelectionKey.OP_ACCEPT;
+import static java.nio.channels.SelectionKey.OP_READ;
+
+/**
+ * Nio 多人聊天室 - 工作线程（从 Reactor）
+ * <p>
+ * 每个工作线程持有一个独立的选择器，负责处理分配给它的客户端连接的读写事件。
+ * <p>
+ * 其他线程不能直接操作本线程的选择器（{@link SocketChannel#register} 会和 {@link Selector#select()} 互相阻塞），
+ * 所以新连接和跨线程的转发任务都先放入队列，再通过 {@link Selector#wakeup()} 唤醒本线程，由本线程自己处理。
+ * <p>
+ * 空闲检测和心跳使用本线程的 {@link HashedTimingWheel}：每个连接只有一个定时任务，select 的超时时间就是时间轮下一个 tick
+ * 的时间，每次循环推进时间轮，不需要定期遍历 {@link Selector#keys()}。连接有数据时只更新最后读取时间，不重新添加定时任务，
+ * 任务到期时再根据最后读取时间决定发送心跳、断开连接或者推迟检测。
+ * <p>
+ * 客户端可以通过 /compress on 协商压缩：转发时每条消息只在读取到它的线程压缩一次，压缩帧和普通帧一样在所有接收者之间共享，
+ * 协商了压缩的接收者发送压缩帧，其他接收者发送普通帧；心跳和历史消息回放不压缩。
+ * <p>
+ * 分片模式下每个工作线程还持有一个 SO_REUSEPORT 的监听 socket（{@link #listen}），在自己的选择器上接收连接，
+ * 接收到的连接直接由本线程处理，不经过主线程和 {@link #register} 的队列。
+ *
+ * @author shiloh
+ * @date 2026/10/18 10:12
+ */
+public class ChatWorker implements Runnable {
+    /**
+     * 心跳帧，长度为 0 的帧，所有连接共享，不会释放
+     */
+    private static final RefCountedBuffer HEARTBEAT = RefCountedBuffer.wrap(FrameEncoder.encode(new byte[0]));
+
+    /**
+     * 所属的服务端
+     */
+    private final GroupChatServer server;
+
+    /**
+     * 工作线程下标，也是在聊天室订阅索引中的分区
+     */
+    private final int index;
+
+    /**
+     * 工作线程名称
+     */
+    private final String name;
+
+    /**
+     * 选择器
+     */
+    private final Selector selector;
+
+    /**
+     * 等待注册到选择器的客户端连接
+     */
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 其他线程投递过来、需要在本线程执行的任务
+     */
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 是否已经唤醒过选择器，避免重复调用 wakeup 带来的系统调用开销
+     */
+    private final AtomicBoolean wakenUp = new AtomicBoolean();
+
+    /**
+     * 事件循环的指标
+     */
+    private final EventLoopMetrics metrics;
+
+    /**
+     * 时间轮，100ms 一个 tick，512 个槽位，一圈约 51 秒
+     */
+    private final HashedTimingWheel timingWheel = new HashedTimingWheel(100, TimeUnit.MILLISECONDS, 512);
+
+    /**
+     * 本次循环中有消息入队、需要在循环结束时写出的连接
+     */
+    private final Deque<ChatConnection> dirtyConnections = new ArrayDeque<>();
+
+    /**
+     * 聚集写使用的数组，所有连接共用
+     */
+    private final ByteBuffer[] writeBatch = new ByteBuffer[GroupChatServer.WRITE_BATCH_SIZE];
+
+    /**
+     * 压缩器，压缩转发的消息，也用于解压本线程连接发来的压缩帧
+     */
+    private final FrameCompressor compressor = new FrameCompressor(GroupChatServer.COMPRESSION_LEVEL,
+            GroupChatServer.COMPRESSION_THRESHOLD, FrameCompressor.DEFAULT_DICTIONARY);
+
+    /**
+     * 解析命令使用的字符视图，命令不需要创建字符串
+     */
+    private final TextView commandView = new TextView();
+
+    /**
+     * 命令中每个单词的起止下标，依次为 [start0, end0, start1, end1, ...]，最多 3 个单词
+     */
+    private final int[] commandTokens = new int[6];
+
+    /**
+     * 正在解码的连接，解码回调中要关闭它时只做标记，等解码结束后再关闭，见 {@link #closeChannel}
+     */
+    private ChatConnection decodingConnection;
+
+    /**
+     * 分片模式下本线程的监听 socket，主从模式下为 null
+     */
+    private ServerSocketChannel listener;
+
+    /**
+     * 监听 socket 的 key，接收连接失败时暂时取消可接收连接事件
+     */
+    private SelectionKey listenerKey;
+
+    /**
+     * 本次循环 select 返回的时间，作为连接最后读取时间，避免每次读取都获取一次系统时间
+     */
+    private long loopNanos;
+
+    /**
+     * 工作线程
+     */
+    private Thread thread;
+
+    public ChatWorker(GroupChatServer server, int index, String name) throws IOException {
+        this(server, index, name, server.metrics().newEventLoop(name));
+    }
+
+    /**
+     * 单元测试中只使用连接的发送队列，不启动线程，可以没有服务端
+     */
+    ChatWorker(GroupChatServer server, int index, String name, EventLoopMetrics metrics) throws IOException {
+        this.server = server;
+        this.index = index;
+        this.name = name;
+        this.selector = Selector.open();
+        this.metrics = metrics;
+    }
+
+    /**
+     * 启动工作线程
+     *
+     * @author shiloh
+     * @date 2026/10/18 10:15
+     */
+    public void start() {
+        this.thread = new Thread(this, this.name);
+        this.thread.start();
+    }
+
+    /**
+     * 关闭工作线程
+     *
+     * @author shiloh
+     * @date 2026/10/18 10:15
+     */
+    public void shutdown() {
+        try {
+            this.selector.close();
+            if (this.listener != null) {
+                this.listener.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 等待工作线程退出
+     *
+     * @throws InterruptedException 等待时被中断
+     * @author shiloh
+     * @date 2026/10/19 03:23
+     */
+    public void awaitTermination() throws InterruptedException {
+        this.thread.join();
+    }
+
+    /**
+     * 分片模式：用 SO_REUSEPORT 绑定一个本线程独有的监听 socket，需要在 {@link #start()} 之前调用
+     * <p>
+     * 多个工作线程绑定同一个地址，内核按连接的四元组哈希把新连接分配到其中一个监听 socket 的连接队列中。
+     *
+     * @param address 监听地址，所有工作线程相同
+     * @param backlog 连接队列长度
+     * @return 实际绑定的端口，地址的端口为 0 时由系统分配
+     * @throws IOException 绑定失败
+     * @author shiloh
+     * @date 2026/10/19 03:24
+     */
+    public int listen(InetSocketAddress address, int backlog) throws IOException {
+        final ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            channel.bind(address, backlog);
+            channel.configureBlocking(false);
+            this.listenerKey = channel.register(this.selector, OP_ACCEPT);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.listener = channel;
+        return channel.socket().getLocalPort();
+    }
+
+    /**
+     * 把客户端连接交给本线程处理，可以在任意线程调用
+     *
+     * @param clientChannel 客户端连接
+     * @author shiloh
+     * @date 2026/10/18 10:16
+     */
+    public void register(SocketChannel clientChannel) {
+        this.pendingChannels.offer(clientChannel);
+        this.wakeup();
+    }
+
+    /**
+     * 投递一个任务到本线程执行，可以在任意线程调用
+     *
+     * @param task 任务
+     * @author shiloh
+     * @date 2026/10/18 10:17
+     */
+    public void execute(Runnable task) {
+        this.pendingTasks.offer(task);
+        this.wakeup();
+    }
+
+    /**
+     * 工作线程下标
+     *
+     * @return 下标
+     * @author shiloh
+     * @date 2026/10/18 22:48
+     */
+    public int index() {
+        return this.index;
+    }
+
+    /**
+     * 当前线程是否为本工作线程
+     *
+     * @return 是则返回 true
+     * @author shiloh
+     * @date 2026/10/18 10:18
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == this.thread;
+    }
+
+    /**
+     * 唤醒选择器，在本线程调用时无需唤醒
+     *
+     * @author shiloh
+     * @date 2026/10/18 10:18
+     */
+    private void wakeup() {
+        if (!this.inEventLoop() && this.wakenUp.compareAndSet(false, true)) {
+            this.selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long selectStart = System.nanoTime();
+                // 有待处理的任务时不阻塞，直接检查就绪事件
+                final int keys;
+                if (!this.pendingChannels.isEmpty() || !this.pendingTasks.isEmpty()) {
+                    keys = this.selector.selectNow();
+                } else if (this.timingWheel.pendingTimeouts() > 0) {
+                    // 最多阻塞到时间轮的下一个 tick
+                    keys = this.selector.select(this.timingWheel.millisUntilNextTick(selectStart));
+                } else {
+                    keys = this.selector.select();
+                }
+                final long selectEnd = System.nanoTime();
+                this.loopNanos = selectEnd;
+                // 重置唤醒标记，之后投递的任务需要再次唤醒选择器
+                this.wakenUp.set(false);
+                this.processSelectedKeys();
+                this.registerPendingChannels();
+                this.runPendingTasks();
+                this.timingWheel.advance(System.nanoTime());
+                this.flushDirtyConnections();
+                this.metrics.recordIteration(selectEnd - selectStart, keys, System.nanoTime() - selectEnd);
+            }
+        } catch (ClosedSelectorException ignored) {
+            // 选择器已关闭，工作线程退出
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            this.compressor.end();
+        }
+    }
+
+    /**
+     * 处理就绪的事件
+     *
+     * @author shiloh
+     * @date 2026/10/18 10:20
+     */
+    private void processSelectedKeys() {
+        final Set<SelectionKey> selectionKeys = this.selector.selectedKeys();
+        final Iterator<SelectionKey> iterator = selectionKeys.iterator();
+        while (iterator.hasNext()) {
+            final SelectionKey eventKey = iterator.next();
+            // 移除已处理过的事件，避免重复处理
+            iterator.remove();
+            if (eventKey.isValid() && eventKey.isAcceptable()) {
+                this.accept();
+                continue;
+            }
+            if (eventKey.isValid() && eventKey.isWritable()) {
+                // 可写事件，继续写出发送队列中剩余的数据
+                this.flushData(eventKey);
+            }
+            if (eventKey.isValid() && eventKey.isReadable()) {
+                // 可读取事件，读取客户端发送过来的消息，转发到其他客户端
+                this.readData(eventKey);
+            }
+        }
+    }
+
+    /**
+     * 注册新分配过来的客户端连接
+     *
+     * @author shiloh
+     * @date 2026/10/18 10:21
+     */
+    private void registerPendingChannels() {
+        SocketChannel clientChannel;
+        while ((clientChannel = this.pendingChannels.poll()) != null) {
+            this.registerChannel(clientChannel);
+        }
+    }
+
+    /**
+     * 分片模式：接收本线程监听 socket 上的新连接，一次最多取出一批，剩下的等下一次循环
+     *
+     * @author shiloh
+     * @date 2026/10/19 03:25
+     */
+    private void accept() {
+        for (int i = 0; i < GroupChatServer.ACCEPT_BATCH; i++) {
+            final SocketChannel clientChannel;
+            try {
+                clientChannel = this.listener.accept();
+            } catch (IOException e) {
+                // 例如文件描述符耗尽：连接还在队列中，监听 socket 一直是可接收状态，马上重试只会让选择器空转，
+                // 暂停接收一段时间再恢复
+                e.printStackTrace();
+                this.listenerKey.interestOps(0);
+                this.timingWheel.schedule(this::resumeAccept, GroupChatServer.ACCEPT_BACKOFF_MILLIS,
+                        TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (clientChannel == null) {
+                // 连接队列已经取空
+                return;
+            }
+            this.server.metrics().connectionAccepted();
+            this.registerChannel(clientChannel);
+        }
+    }
+
+    /**
+     * 接收连接失败的退避时间结束，重新关注可接收连接事件
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:20
+     */
+    private void resumeAccept() {
+        if (this.listenerKey.isValid()) {
+            this.listenerKey.interestOps(OP_ACCEPT);
+        }
+    }
+
+    /**
+     * 把客户端连接注册到本线程的选择器，并加入默认聊天室
+     *
+     * @param clientChannel 客户端连接
+     * @author shiloh
+     * @date 2026/10/18 10:21
+     */
+    private void registerChannel(SocketChannel clientChannel) {
+        try {
+            // 分片模式下直接从监听 socket 接收的连接还是阻塞模式
+            clientChannel.configureBlocking(false);
+            // 将客户端连接对应的通道注册到选择器中，并指定可读取事件，附加上该连接的状态
+            final SelectionKey key = clientChannel.register(this.selector, OP_READ);
+            final String remoteAddress = String.valueOf(clientChannel.getRemoteAddress());
+            final ConnectionMetrics metrics = this.server.metrics().connectionOpened(remoteAddress);
+            final ChatConnection connection =
+                    new ChatConnection(this, clientChannel, key, metrics, this.server.outboundLimits());
+            key.attach(connection);
+            connection.lastReadNanos(this.loopNanos);
+            this.scheduleIdleCheck(key, connection, this.loopNanos);
+            this.join(connection, RoomIndex.DEFAULT_ROOM);
+            System.out.println(remoteAddress + "上线了~~ [" + this.name + "]");
+        } catch (IOException e) {
+            e.printStackTrace();
+            this.closeQuietly(clientChannel);
+        }
+    }
+
+    /**
+     * 执行其他线程投递过来的任务
+     *
+     * @author shiloh
+     * @date 2026/10/18 10:22
+     */
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = this.pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 安排连接在本次循环结束时写出，只能在本线程调用
+     *
+     * @param connection 连接
+     * @author shiloh
+     * @date 2026/10/19 01:46
+     */
+    void scheduleFlush(ChatConnection connection) {
+        this.dirtyConnections.offer(connection);
+    }
+
+    /**
+     * 聚集写使用的数组，只能在本线程使用
+     *
+     * @return 数组，使用后需要清空
+     * @author shiloh
+     * @date 2026/10/19 01:47
+     */
+    ByteBuffer[] writeBatch() {
+        return this.writeBatch;
+    }
+
+    /**
+     * 写出本次循环中有消息入队的连接，每个连接一次聚集写
+     * <p>
+     * 同一次循环中读取到的所有消息（包括一次读取中解码出的多个连续的帧）、其他线程投递过来的转发和心跳都已经入队，
+     * 每个连接只需要一次系统调用，而不是每条消息一次。
+     *
+     * @author shiloh
+     * @date 2026/10/19 01:48
+     */
+    private void flushDirtyConnections() {
+        ChatConnection connection;
+        while ((connection = this.dirtyConnections.poll()) != null) {
+            try {
+                connection.flushScheduled();
+            } catch (IOException e) {
+                this.closeChannel(connection.key());
+            }
+        }
+    }
+
+    /**
+     * 读取客户端发送过来的消息，转发到其他客户端
+     *
+     * @param eventKey key 对象
+     * @author shiloh
+     * @date 2026/10/18 10:23
+     */
+    private void readData(SelectionKey eventKey) {
+        final ChatConnection connection = (ChatConnection) eventKey.attachment();
+        final SocketChannel socketChannel = connection.channel();
+        try {
+            // 把通道的数据写入解码器的缓冲区，解码器中保存着上次读取剩余的半个帧
+            final int count = connection.frameDecoder().readFrom(socketChannel);
+            if (count == -1) {
+                // 客户端主动断开连接
+                this.closeChannel(eventKey);
+                return;
+            }
+            connection.metrics().bytesRead(count);
+            connection.lastReadNanos(this.loopNanos);
+            // 解码出所有完整的帧，并转发给其他客户端
+            final int frames;
+            this.decodingConnection = connection;
+            try {
+                frames = connection.frameDecoder().decode(frame -> this.relay(connection, frame));
+            } finally {
+                this.decodingConnection = null;
+            }
+            connection.metrics().messagesRead(frames);
+            if (connection.closeRequested()) {
+                // 解码回调中要求关闭连接，解码器已经不再使用缓冲区，现在可以释放
+                this.closeChannel(eventKey);
+            }
+        } catch (IOException e) {
+            this.closeChannel(eventKey);
+        }
+    }
+
+    /**
+     * 把客户端发送过来的一帧消息转发给当前聊天室中的其他客户端，以 / 开头的消息作为命令处理
+     * <p>
+     * 消息只编码一次，放入一个从缓冲池申请的直接缓冲区，所有接收者共享这一个缓冲区，不再为每个接收者创建字符串和字节数组，
+     * 最后一个接收者写完后归还到缓冲池。聊天室配置了日志时，转发前先把这个帧追加到日志中，日志中保存的始终是普通帧。
+     *
+     * @param sender  发送者
+     * @param payload 消息内容，解码器缓冲区的切片
+     * @author shiloh
+     * @date 2026/10/18 13:15
+     */
+    private void relay(ChatConnection sender, ByteBuffer payload) {
+        if (sender.closeRequested()) {
+            // 连接即将关闭，丢弃同一次读取中剩余的帧
+            return;
+        }
+        if (!payload.hasRemaining()) {
+            // 客户端回复的心跳，只用于更新最后读取时间，不转发
+            return;
+        }
+        if (GroupChatServer.VERBOSE) {
+            System.out.println("msg from client: " + TextCodec.decode(payload.duplicate()));
+        }
+        if (payload.get(payload.position()) == '/') {
+            this.handleCommand(sender, this.commandView.wrap(payload));
+            return;
+        }
+        final RoomIndex.Room room = this.server.roomIndex().room(sender.currentRoom());
+        if (room == null || sender.slot(room.id()) < 0) {
+            // 已经退出了所有聊天室
+            return;
+        }
+        final BufferPool bufferPool = BufferPool.DEFAULT;
+        final ByteBuffer frame = bufferPool.acquire(FrameEncoder.frameLength(payload.remaining()));
+        FrameEncoder.encode(payload, frame);
+        frame.flip();
+        long messageId = -1;
+        final RoomIndex roomIndex = this.server.roomIndex();
+        final MessageLog log = roomIndex.acquireLog(room);
+        if (log != null) {
+            try {
+                // 日志记录与网络上的帧格式相同，直接追加编码好的帧；只是内存拷贝，刷盘由后台线程批量完成
+                messageId = log.append(frame);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                roomIndex.releaseLog(room);
+            }
+        }
+        final RefCountedBuffer msg = RefCountedBuffer.wrap(frame, bufferPool::release);
+        final RefCountedBuffer compressed = this.compress(frame);
+        // 每条消息只编码一次消息 id 帧，开启了消息 id 的接收者共享，不需要为每个接收者复制消息
+        final RefCountedBuffer idFrame = ChatConnection.messageIdFrame(room.id(), messageId);
+        try {
+            this.server.broadcast(this, sender, room, messageId, msg, compressed, idFrame);
+        } finally {
+            // 释放读取线程持有的引用，剩余的引用由各个接收者写完后释放
+            msg.release();
+            idFrame.release();
+            if (compressed != null) {
+                compressed.release();
+            }
+        }
+    }
+
+    /**
+     * 把编码好的帧压缩为一个共享的压缩帧
+     * <p>
+     * 没有连接协商压缩、负载小于阈值或者压缩没有收益时不压缩，接收者都发送普通帧。
+     *
+     * @param frame 编码好的帧，读模式，不会改变 position
+     * @return 压缩帧，不压缩时为 null
+     * @author shiloh
+     * @date 2026/10/19 02:14
+     */
+    private RefCountedBuffer compress(ByteBuffer frame) {
+        final int payloadLength = frame.remaining() - FrameDecoder.HEADER_LENGTH;
+        if (payloadLength < this.compressor.threshold() || !this.server.compressionNegotiated()) {
+            return null;
+        }
+        final BufferPool bufferPool = BufferPool.DEFAULT;
+        final ByteBuffer compressed = bufferPool.acquire(FrameCompressor.maxFrameLength(payloadLength));
+        if (!this.compressor.compress(frame.slice(frame.position() + FrameDecoder.HEADER_LENGTH, payloadLength),
+                compressed)) {
+            bufferPool.release(compressed);
+            return null;
+        }
+        return RefCountedBuffer.wrap(compressed.flip(), bufferPool::release);
+    }
+
+    /**
+     * 处理客户端的命令，目前支持：
+     * <ul>
+     *     <li>/join 聊天室id：加入聊天室，并设为当前聊天室</li>
+     *     <li>/leave 聊天室id：退出聊天室</li>
+     *     <li>/history 聊天室id 起始消息id：加入聊天室，并回放日志中从起始消息 id 开始的历史消息，见 {@link #replay}</li>
+     *     <li>/compress on|off：开启或关闭压缩，开启后客户端可以发送压缩帧，也会收到压缩帧</li>
+     *     <li>/ids on|off：开启或关闭消息 id，开启后每条聊天室消息前有一个 {@code /id 聊天室id 消息id} 帧，
+     *     见 {@link ChatConnection#enqueue(RefCountedBuffer, int, long)}</li>
+     * </ul>
+     * 无法识别的命令直接忽略。命令直接在字符视图上拆分和解析，不创建字符串。
+     *
+     * @param sender  发送者
+     * @param command 命令
+     * @author shiloh
+     * @date 2026/10/18 22:50
+     */
+    private void handleCommand(ChatConnection sender, TextView command) {
+        final int tokens = this.tokenize(command);
+        if (tokens < 2) {
+            return;
+        }
+        if (this.tokenEquals(command, 0, "/compress")) {
+            this.compression(sender, this.tokenEquals(command, 1, "on"));
+            return;
+        }
+        if (this.tokenEquals(command, 0, "/ids")) {
+            sender.messageIds(this.tokenEquals(command, 1, "on"));
+            return;
+        }
+        final int[] bounds = this.commandTokens;
+        final int roomId;
+        final long fromId;
+        try {
+            roomId = Integer.parseInt(command, bounds[2], bounds[3], 10);
+            fromId = tokens > 2 ? Long.parseLong(command, bounds[4], bounds[5], 10) : 0;
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (this.tokenEquals(command, 0, "/join")) {
+            this.join(sender, roomId);
+        } else if (this.tokenEquals(command, 0, "/history")) {
+            this.replay(sender, roomId, fromId);
+        } else if (this.tokenEquals(command, 0, "/leave")) {
+            this.server.roomIndex().leave(roomId, this.index, sender);
+        }
+    }
+
+    /**
+     * 按空白字符拆分命令，把前 3 个单词的起止下标写入 {@link #commandTokens}
+     *
+     * @param command 命令
+     * @return 单词数量，最多 3 个
+     * @author shiloh
+     * @date 2026/10/19 03:05
+     */
+    private int tokenize(CharSequence command) {
+        final int[] bounds = this.commandTokens;
+        final int length = command.length();
+        int tokens = 0;
+        int i = 0;
+        while (tokens < bounds.length / 2) {
+            while (i < length && Character.isWhitespace(command.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            bounds[tokens * 2] = i;
+            while (i < length && !Character.isWhitespace(command.charAt(i))) {
+                i++;
+            }
+            bounds[tokens * 2 + 1] = i;
+            tokens++;
+        }
+        return tokens;
+    }
+
+    /**
+     * 命令中的第 token 个单词是否为 expected
+     *
+     * @param command  命令
+     * @param token    单词下标
+     * @param expected 期望的单词
+     * @return 相同则返回 true
+     * @author shiloh
+     * @date 2026/10/19 03:06
+     */
+    private boolean tokenEquals(TextView command, int token, String expected) {
+        final int start = this.commandTokens[token * 2];
+        return this.commandTokens[token * 2 + 1] - start == expected.length()
+                && command.regionMatches(start, expected);
+    }
+
+    /**
+     * 开启或关闭连接的压缩
+     *
+     * @param connection 连接
+     * @param enabled    是否开启
+     * @author shiloh
+     * @date 2026/10/19 02:15
+     */
+    private void compression(ChatConnection connection, boolean enabled) {
+        if (connection.compression() == enabled) {
+            return;
+        }
+        connection.compression(enabled ? this.compressor : null);
+        this.server.compressionChanged(enabled);
+    }
+
+    /**
+     * 加入聊天室
+     *
+     * @param connection 连接
+     * @param roomId     聊天室 id
+     * @return 聊天室，id 超出范围时返回 null
+     * @author shiloh
+     * @date 2026/10/18 22:51
+     */
+    private RoomIndex.Room join(ChatConnection connection, int roomId) {
+        return this.server.roomIndex().join(roomId, this.index, connection);
+    }
+
+    /**
+     * 回放聊天室的历史消息，然后无缝切换到实时消息
+     * <p>
+     * 先加入聊天室，再获取日志的快照末尾：之后写入日志的消息在转发时一定能看到这个连接，会通过实时转发到达；
+     * 快照范围内的消息从日志回放，发送队列中已有的和之后才转发过来的按消息 id 丢弃。已经写出一部分的队首消息只能写完，
+     * 把它从回放中排除。这样请求之后客户端不会漏收也不会重复收到，已经在 socket 中的消息由客户端按起始 id 自行处理。
+     * <p>
+     * 回放使用零拷贝的 {@link java.nio.channels.FileChannel#transferTo}，是 DataTransferTests.testTransferTo 在网络上的应用。
+     *
+     * @param connection 连接
+     * @param roomId     聊天室 id
+     * @param fromId     起始消息 id，早于日志保留范围的部分会被忽略
+     * @author shiloh
+     * @date 2026/10/18 23:45
+     */
+    private void replay(ChatConnection connection, int roomId, long fromId) {
+        if (connection.replaying()) {
+            // 上一次回放还没有结束，忽略重复的请求
+            return;
+        }
+        final RoomIndex.Room room = this.join(connection, roomId);
+        final RoomIndex roomIndex = this.server.roomIndex();
+        final MessageLog log = room != null ? roomIndex.acquireLog(room) : null;
+        if (log == null) {
+            return;
+        }
+        final long startId = Math.max(fromId, 0);
+        final long endId = log.nextId();
+        final long unfinishedId = connection.unfinishedMessageId(roomId);
+        final List<LogSlice> slices;
+        if (unfinishedId >= startId && unfinishedId < endId) {
+            slices = new ArrayList<>(log.slices(startId, unfinishedId));
+            slices.addAll(log.slices(unfinishedId + 1, endId));
+        } else {
+            slices = log.slices(startId, endId);
+        }
+        try {
+            // 回放持有日志的引用，结束或连接关闭时释放
+            connection.replay(roomId, startId, endId, new HistoryReplay(slices,
+                    connection.messageIds() ? roomId : -1, () -> roomIndex.releaseLog(room)));
+        } catch (IOException e) {
+            this.closeChannel(connection.key());
+        }
+    }
+
+    /**
+     * 为连接添加下一次空闲检测
+     * <p>
+     * 还没到心跳间隔时在心跳间隔到期，否则在空闲超时时间到期，都从最后读取时间开始计算。
+     *
+     * @param key        key 对象
+     * @param connection 连接
+     * @param nowNanos   当前时间
+     * @author shiloh
+     * @date 2026/10/18 21:30
+     */
+    private void scheduleIdleCheck(SelectionKey key, ChatConnection connection, long nowNanos) {
+        if (GroupChatServer.IDLE_TIMEOUT_MILLIS <= 0) {
+            return;
+        }
+        final long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(GroupChatServer.HEARTBEAT_MILLIS);
+        final long delayNanos = heartbeatNanos > 0 && nowNanos - connection.lastReadNanos() < heartbeatNanos
+                ? heartbeatNanos
+                : TimeUnit.MILLISECONDS.toNanos(GroupChatServer.IDLE_TIMEOUT_MILLIS);
+        connection.idleTimeout(this.timingWheel.scheduleAt(() -> this.checkIdle(key, connection),
+                connection.lastReadNanos() + delayNanos));
+    }
+
+    /**
+     * 空闲检测：超过空闲超时时间就断开连接，超过心跳间隔就发送心跳帧，然后添加下一次检测
+     *
+     * @param key        key 对象
+     * @param connection 连接
+     * @author shiloh
+     * @date 2026/10/18 21:31
+     */
+    private void checkIdle(SelectionKey key, ChatConnection connection) {
+        if (!key.isValid()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final long idleNanos = now - connection.lastReadNanos();
+        if (idleNanos >= TimeUnit.MILLISECONDS.toNanos(GroupChatServer.IDLE_TIMEOUT_MILLIS)) {
+            System.out.println(connection.channel().socket().getRemoteSocketAddress() + "空闲超时");
+            this.closeChannel(key);
+            return;
+        }
+        if (GroupChatServer.HEARTBEAT_MILLIS > 0
+                && idleNanos >= TimeUnit.MILLISECONDS.toNanos(GroupChatServer.HEARTBEAT_MILLIS)) {
+            try {
+                connection.enqueue(HEARTBEAT);
+            } catch (IOException e) {
+                this.closeChannel(key);
+                return;
+            }
+        }
+        this.scheduleIdleCheck(key, connection, now);
+    }
+
+    /**
+     * 通道可写时继续写出发送队列中的数据
+     *
+     * @param eventKey key 对象
+     * @author shiloh
+     * @date 2026/10/18 12:15
+     */
+    private void flushData(SelectionKey eventKey) {
+        try {
+            ((ChatConnection) eventKey.attachment()).flush();
+        } catch (IOException e) {
+            this.closeChannel(eventKey);
+        }
+    }
+
+    /**
+     * 转发消息到聊天室中本线程负责的其他客户端，只能在本线程调用
+     * <p>
+     * 只遍历聊天室在本线程分区中的成员，不再遍历选择器上的所有 key。
+     * 每个客户端的发送队列持有共享缓冲区的一个引用和一个只读视图，写不完的部分等可写事件再发送，慢客户端不会阻塞其他客户端。
+     *
+     * @param ignore     不需要通知的连接
+     * @param room       聊天室
+     * @param messageId  消息在聊天室日志中的 id，没有写入日志时为 -1
+     * @param msg        共享的消息帧
+     * @param compressed 共享的压缩帧，发给协商了压缩的连接，没有压缩时为 null
+     * @param idFrame    共享的消息 id 帧，发给开启了消息 id 的连接
+     * @author shiloh
+     * @date 2026/10/18 10:25
+     */
+    public void notifyLocalClient(ChatConnection ignore, RoomIndex.Room room, long messageId, RefCountedBuffer msg,
+                                  RefCountedBuffer compressed, RefCountedBuffer idFrame) {
+        // 遍历期间关闭连接会把最后一个成员移到它的位置，从后往前遍历不会漏掉成员
+        final ChatConnection[] members = room.members(this.index);
+        for (int i = room.size(this.index) - 1; i >= 0; i--) {
+            final ChatConnection connection = members[i];
+            // 这里需要排除掉不需要通知的连接
+            if (connection != ignore && connection.key().isValid()) {
+                try {
+                    connection.enqueue(compressed != null && connection.compression() ? compressed : msg,
+                            room.id(), messageId, idFrame);
+                } catch (IOException e) {
+                    this.closeChannel(connection.key());
+                }
+            }
+        }
+    }
+
+    /**
+     * 关闭客户端连接并取消注册
+     * <p>
+     * 连接正在解码时（在它自己的解码回调中）不能释放解码器的缓冲区，只标记为待关闭，由 {@link #readData} 在解码结束后关闭。
+     *
+     * @param eventKey key 对象
+     * @author shiloh
+     * @date 2026/10/18 10:26
+     */
+    private void closeChannel(SelectionKey eventKey) {
+        if (!eventKey.isValid()) {
+            // 已经关闭过
+            return;
+        }
+        if (this.decodingConnection != null && eventKey.attachment() == this.decodingConnection) {
+            this.decodingConnection.requestClose();
+            return;
+        }
+        final SocketChannel socketChannel = (SocketChannel) eventKey.channel();
+        try {
+            // 打印离线通知
+            System.out.println(socketChannel.getRemoteAddress() + "离线了...");
+        } catch (IOException ignored) {
+            // 连接已关闭，获取不到远程地址
+        }
+        // 取消注册
+        eventKey.cancel();
+        this.closeQuietly(socketChannel);
+        if (eventKey.attachment() instanceof final ChatConnection connection) {
+            for (final int roomId : connection.rooms()) {
+                this.server.roomIndex().leave(roomId, this.index, connection);
+            }
+            if (connection.compression()) {
+                this.server.compressionChanged(false);
+            }
+            connection.release();
+            this.server.metrics().connectionClosed(connection.metrics());
+        }
+    }
+
+    /**
+     * 关闭通道，忽略异常
+     *
+     * @param channel 通道
+     * @author shiloh
+     * @date 2026/10/18 10:27
+     */
+    private void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
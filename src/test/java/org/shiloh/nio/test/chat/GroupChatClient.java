@@ -1,22 +1,35 @@
 package org.shiloh.nio.test.chat;
 
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.codec.FrameCompressor;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+import org.shiloh.codec.TextCodec;
+
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.Queue;
 import java.util.Scanner;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
 import static org.shiloh.nio.test.chat.GroupChatServer.HOST;
 import static org.shiloh.nio.test.chat.GroupChatServer.PORT;
-import static org.shiloh.util.ByteUtils.trimByteData;
 
 /**
  * Nio 多人聊天室 - 客户端
+ * <p>
+ * 所有网络读写都在一个 IO 线程中完成：读取服务器转发的消息，写出待发送的消息。
+ * 其他线程通过无锁队列提交消息并唤醒选择器，消息的送达延迟只取决于网络，不再受轮询间隔影响。
  *
  * @author shiloh
  * @date 2023/2/25 19:04
@@ -37,7 +50,38 @@ public class GroupChatClient {
      */
     private String username;
 
+    /**
+     * 帧解码器，保存服务器发送过来的半个帧；始终接受压缩帧，输入 /compress on 后服务器才会发送压缩帧
+     */
+    private final FrameDecoder frameDecoder = new FrameDecoder();
+
+    /**
+     * 缓冲池，消息帧从这里申请，写完后归还
+     */
+    private final BufferPool bufferPool = BufferPool.DEFAULT;
+
+    /**
+     * 其他线程放入的待发送消息帧
+     */
+    private final Queue<ByteBuffer> pendingFrames = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 发送队列，只在 IO 线程访问
+     */
+    private final Deque<ByteBuffer> outboundQueue = new ArrayDeque<>();
+
+    /**
+     * 是否已经唤醒过选择器，避免重复调用 wakeup
+     */
+    private final AtomicBoolean wakenUp = new AtomicBoolean();
+
+    /**
+     * 是否继续运行
+     */
+    private volatile boolean running = true;
+
     public GroupChatClient() {
+        this.frameDecoder.decompressWith(new FrameCompressor());
         this.init();
     }
 
@@ -68,67 +112,180 @@ public class GroupChatClient {
     }
 
     /**
-     * 向服务端发送消息
+     * 向服务端发送消息，可以在任意线程调用
+     * <p>
+     * 发送线程只负责编码，把消息帧放入队列后唤醒 IO 线程，由 IO 线程写入通道，避免多个线程同时写通道。
      *
+     * @param msg 消息
      * @author shiloh
      * @date 2023/2/25 19:07
      */
-    private void sendMsg(String msg) {
-        msg = this.username + "说: " + msg;
-        try {
-            this.socketChannel.write(ByteBuffer.wrap(msg.getBytes()));
-        } catch (Exception e) {
-            e.printStackTrace();
+    public void sendMsg(String msg) {
+        // 以 / 开头的是发给服务端的命令，例如 /join 1，原样发送
+        // 使用 UTF-8 直接编码到缓冲池的缓冲区中，不经过中间的字节数组
+        final ByteBuffer frame = TextCodec.encodeFrame(msg.startsWith("/") ? msg : this.username + "说: " + msg,
+                this.bufferPool);
+        this.pendingFrames.offer(frame);
+        if (this.wakenUp.compareAndSet(false, true)) {
+            this.selector.wakeup();
         }
     }
 
     /**
-     * 读取服务端发送过来的消息
+     * 启动 IO 线程
      *
      * @author shiloh
-     * @date 2023/2/25 19:09
+     * @date 2026/10/18 20:10
+     */
+    public void start() {
+        final Thread ioThread = new Thread(this::run, "chat-client-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * 关闭客户端，可以在任意线程调用
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:11
      */
-    private void readMsg() {
+    public void shutdown() {
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    /**
+     * IO 线程的事件循环：读取服务器转发过来的消息，写出待发送的消息
+     * <p>
+     * 没有事件时阻塞在 {@link Selector#select()} 上，消息到达或者有消息要发送时立即被唤醒，不再定时轮询。
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:12
+     */
+    private void run() {
         try {
-            final int count = this.selector.select();
-            if (count > 0) {
-                final Set<SelectionKey> selectionKeys = this.selector.selectedKeys();
-                final Iterator<SelectionKey> iterator = selectionKeys.iterator();
+            while (this.running && this.socketChannel.isOpen()) {
+                if (this.pendingFrames.isEmpty()) {
+                    this.selector.select();
+                } else {
+                    this.selector.selectNow();
+                }
+                // 重置唤醒标记，之后放入的消息需要再次唤醒选择器
+                this.wakenUp.set(false);
+                final Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
                 while (iterator.hasNext()) {
                     final SelectionKey selectionKey = iterator.next();
-                    // 判断事件类型是否为可读事件
-                    if (selectionKey.isReadable()) {
-                        // 获取消息
-                        final SocketChannel channel = (SocketChannel) selectionKey.channel();
-                        // 创建一个缓冲区
-                        final ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
-                        // 从服务器的通道中读取数据到缓冲区
-                        channel.read(byteBuffer);
-                        // 转为为字符串并打印
-                        System.out.println(new String(trimByteData(byteBuffer.array())));
-                    }
                     // 移除已处理的事件，避免重复处理
                     iterator.remove();
+                    if (selectionKey.isValid() && selectionKey.isWritable()) {
+                        this.flush(selectionKey);
+                    }
+                    if (selectionKey.isValid() && selectionKey.isReadable()) {
+                        this.readMsg(selectionKey);
+                    }
+                }
+                // 把其他线程放入的消息移到发送队列并写出
+                ByteBuffer frame;
+                while ((frame = this.pendingFrames.poll()) != null) {
+                    this.outboundQueue.offer(frame);
+                }
+                final SelectionKey key = this.socketChannel.keyFor(this.selector);
+                if (key != null && key.isValid() && !this.outboundQueue.isEmpty()) {
+                    this.flush(key);
                 }
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            this.close();
         }
     }
 
-    public static void main(String[] args) {
-        final GroupChatClient chatClient = new GroupChatClient();
-        // 启动线程，读取服务器转发过来的消息
-        new Thread(() -> {
-            while (true) {
-                chatClient.readMsg();
-                try {
-                    TimeUnit.SECONDS.sleep(3L);
-                } catch (Exception e) {
-                    e.printStackTrace();
+    /**
+     * 读取服务端发送过来的消息
+     *
+     * @param selectionKey key 对象
+     * @author shiloh
+     * @date 2023/2/25 19:09
+     */
+    private void readMsg(SelectionKey selectionKey) {
+        try {
+            // 从服务器的通道中读取数据到解码器的缓冲区
+            if (this.frameDecoder.readFrom(this.socketChannel) == -1) {
+                System.out.println("服务器已关闭连接");
+                this.running = false;
+                return;
+            }
+            // 解码出完整的帧，直接从缓冲区解码为字符串并打印
+            this.frameDecoder.decode(frame -> {
+                if (frame.hasRemaining()) {
+                    System.out.println(TextCodec.decode(frame));
+                } else {
+                    // 服务器的心跳，回复一个同样长度为 0 的帧，在本次循环结束前写出
+                    final ByteBuffer heartbeat = this.bufferPool.acquire(FrameEncoder.frameLength(0));
+                    FrameEncoder.writeHeader(heartbeat, 0);
+                    this.outboundQueue.offer(heartbeat.flip());
                 }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            this.running = false;
+        }
+    }
+
+    /**
+     * 写出发送队列中的消息，写不完时关注可写事件，等通道可写时再继续
+     *
+     * @param selectionKey key 对象
+     * @author shiloh
+     * @date 2026/10/18 20:14
+     */
+    private void flush(SelectionKey selectionKey) {
+        try {
+            ByteBuffer frame;
+            while ((frame = this.outboundQueue.peek()) != null) {
+                this.socketChannel.write(frame);
+                if (frame.hasRemaining()) {
+                    // 发送缓冲区已满
+                    selectionKey.interestOps(OP_READ | OP_WRITE);
+                    return;
+                }
+                this.bufferPool.release(this.outboundQueue.poll());
             }
-        }).start();
+            selectionKey.interestOps(OP_READ);
+        } catch (IOException e) {
+            e.printStackTrace();
+            this.running = false;
+        }
+    }
+
+    /**
+     * 关闭连接，归还所有缓冲区，只能在 IO 线程调用
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:15
+     */
+    private void close() {
+        try {
+            this.selector.close();
+            this.socketChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.frameDecoder.release();
+        ByteBuffer frame;
+        while ((frame = this.outboundQueue.poll()) != null) {
+            this.bufferPool.release(frame);
+        }
+        while ((frame = this.pendingFrames.poll()) != null) {
+            this.bufferPool.release(frame);
+        }
+    }
+
+    public static void main(String[] args) {
+        final GroupChatClient chatClient = new GroupChatClient();
+        // 启动 IO 线程，读取服务器转发过来的消息
+        chatClient.start();
         // 主线程发送消息到服务器
         final Scanner scanner = new Scanner(System.in);
         while (scanner.hasNextLine()) {
@@ -136,5 +293,6 @@ public class GroupChatClient {
             // 发送消息到服务器
             chatClient.sendMsg(msg);
         }
+        chatClient.shutdown();
     }
 }
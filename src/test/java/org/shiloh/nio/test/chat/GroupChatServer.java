@@ -1,17 +1,50 @@
 package org.shiloh.nio.test.chat;
 
+import org.shiloh.buffer.RefCountedBuffer;
+import org.shiloh.log.MessageLog;
+import org.shiloh.log.MessageLogConfig;
+import org.shiloh.metrics.ServerMetrics;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
-import java.nio.channels.*;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.channels.SelectionKey.OP_ACCEPT;
-import static org.shiloh.util.ByteUtils.trimByteData;
 
 /**
  * Nio 多人聊天室 - 服务端
+ * <p>
+ * 采用主从 Reactor 模型：主线程（boss）的选择器只负责接收连接，接收到的连接按轮询的方式分配给 N 个工作线程（worker），
+ * 每个工作线程使用独立的选择器处理各自连接的读写事件，这样多个 CPU 核心可以同时处理消息。
+ * <p>
+ * 连接建立后加入默认聊天室 0，客户端可以用 /join N、/leave N 加入、退出聊天室，普通消息只转发到当前聊天室，
+ * 聊天室 id 的范围是 [0, chat.maxRooms)，见 {@link RoomIndex}。
+ * <p>
+ * 启动参数：第一个参数为工作线程数，默认为 CPU 核心数；第二个参数为监听端口，默认为 {@link #PORT}。
+ * <p>
+ * 运行指标注册为 MBean（{@code org.shiloh.chat:type=Server,name=chat-<port>} 及每个工作线程的事件循环），
+ * 可以用 jconsole 连接查看，见 {@link ServerMetrics}。
+ * <p>
+ * 通过 -Dchat.logDir 指定目录后，每个聊天室的消息在转发前追加到 {@code <logDir>/room-<id>} 下的 {@link MessageLog}，
+ * 客户端重连后可以用 /history 聊天室id 起始消息id 回放历史消息。客户端发送 /ids on 后，每条聊天室消息前都会带上
+ * {@code /id 聊天室id 消息id}，用来在重连时选择起始消息 id，见 {@link ChatConnection#enqueue(RefCountedBuffer, int, long)}。
+ * <p>
+ * 通过 -Dchat.reusePort=true 开启分片模式：不再有主线程接收连接，每个工作线程用 SO_REUSEPORT 绑定同一个地址，
+ * 在自己的选择器上接收连接，由内核在这些监听 socket 之间分配新连接。部署后大量客户端同时重连时，
+ * 接收连接不再集中在一个线程上。每个分片只处理自己接收的连接，分片之间只通过工作线程的无锁任务队列传递转发任务，
+ * 见 {@link ChatWorker#execute}。平台不支持 SO_REUSEPORT 时退回主从模式。
  *
  * @author shiloh
  * @date 2023/2/25 18:40
@@ -27,6 +60,61 @@ public class GroupChatServer {
      */
     private ServerSocketChannel serverSocketChannel;
 
+    /**
+     * 工作线程
+     */
+    private final ChatWorker[] workers;
+
+    /**
+     * 下一个分配连接的工作线程下标
+     */
+    private int nextWorker;
+
+    /**
+     * 是否为分片模式，每个工作线程自己接收连接
+     */
+    private boolean sharded;
+
+    /**
+     * 是否尝试开启分片模式
+     */
+    private final boolean reusePort;
+
+    /**
+     * 实际监听的端口，构造时传入 0 时由系统分配
+     */
+    private int localPort;
+
+    /**
+     * 主从模式下接收连接失败后恢复接收的时间，只在暂停接收（监听 socket 的 key 不关注任何事件）时有意义
+     */
+    private long acceptResumeNanos;
+
+    /**
+     * 监听端口
+     */
+    private final int port;
+
+    /**
+     * 运行指标
+     */
+    private final ServerMetrics metrics;
+
+    /**
+     * 聊天室订阅索引，按工作线程分区
+     */
+    private final RoomIndex roomIndex;
+
+    /**
+     * 发送队列的限制，所有连接共享
+     */
+    private final OutboundLimits outboundLimits = OutboundLimits.fromSystemProperties();
+
+    /**
+     * 协商了压缩的连接数，为 0 时转发不需要压缩
+     */
+    private final AtomicInteger compressingConnections = new AtomicInteger();
+
     /**
      * 服务端绑定地址
      */
@@ -37,7 +125,120 @@ public class GroupChatServer {
      */
     public static final int PORT = 8099;
 
+    /**
+     * 是否打印每一条消息，通过 -Dchat.verbose=true 开启，压测时不要开启
+     */
+    static final boolean VERBOSE = Boolean.getBoolean("chat.verbose");
+
+    /**
+     * 空闲超时时间（毫秒），超过这个时间没有收到客户端的任何数据就断开连接，通过 -Dchat.idleTimeoutMillis 设置，0 表示不检测
+     */
+    static final long IDLE_TIMEOUT_MILLIS = Long.getLong("chat.idleTimeoutMillis", 60_000L);
+
+    /**
+     * 心跳间隔（毫秒），超过这个时间没有收到客户端的数据就发送一个心跳帧，客户端需要回复，通过 -Dchat.heartbeatMillis 设置
+     */
+    static final long HEARTBEAT_MILLIS = Long.getLong("chat.heartbeatMillis", 20_000L);
+
+    /**
+     * 一次聚集写最多写出的消息数，通过 -Dchat.writeBatchSize 设置，至少为 1
+     */
+    static final int WRITE_BATCH_SIZE = positiveInteger("chat.writeBatchSize", 64);
+
+    /**
+     * 一次聚集写最多写出的字节数，通过 -Dchat.writeBatchBytes 设置，至少为 1
+     */
+    static final int WRITE_BATCH_BYTES = positiveInteger("chat.writeBatchBytes", 256 * 1024);
+
+    /**
+     * 聊天室数量上限，聊天室 id 的范围是 [0, maxRooms)，超出范围的 /join 被忽略，通过 -Dchat.maxRooms 设置
+     */
+    static final int MAX_ROOMS = Integer.getInteger("chat.maxRooms", 1024);
+
+    /**
+     * 同时打开的聊天室日志数量上限，通过 -Dchat.maxOpenLogs 设置，见 {@link RoomIndex}
+     */
+    static final int MAX_OPEN_LOGS = Integer.getInteger("chat.maxOpenLogs", 64);
+
+    /**
+     * 历史消息日志的目录，通过 -Dchat.logDir 设置，不设置时不保存历史消息
+     */
+    static final String LOG_DIR = System.getProperty("chat.logDir");
+
+    /**
+     * 压缩阈值（字节），协商了压缩的连接只会收到负载不小于该值的压缩帧，通过 -Dchat.compressionThreshold 设置
+     */
+    static final int COMPRESSION_THRESHOLD = Integer.getInteger("chat.compressionThreshold", 256);
+
+    /**
+     * 压缩级别，1 最快，9 压缩率最高，通过 -Dchat.compressionLevel 设置
+     */
+    static final int COMPRESSION_LEVEL = Integer.getInteger("chat.compressionLevel", 1);
+
+    /**
+     * 是否开启 SO_REUSEPORT 分片模式，通过 -Dchat.reusePort=true 开启
+     */
+    static final boolean REUSE_PORT = Boolean.getBoolean("chat.reusePort");
+
+    /**
+     * 监听 socket 的连接队列长度（backlog），JDK 默认只有 50，重连高峰时队列满了新连接会被拒绝或重试，
+     * 通过 -Dchat.acceptBacklog 设置，实际长度还受内核参数 net.core.somaxconn 限制
+     */
+    static final int ACCEPT_BACKLOG = Integer.getInteger("chat.acceptBacklog", 1024);
+
+    /**
+     * 每次可接收连接事件最多接收的连接数，通过 -Dchat.acceptBatch 设置
+     */
+    static final int ACCEPT_BATCH = Integer.getInteger("chat.acceptBatch", 64);
+
+    /**
+     * 接收连接失败（例如文件描述符耗尽）后暂停接收的时间，通过 -Dchat.acceptBackoffMillis 设置
+     */
+    static final long ACCEPT_BACKOFF_MILLIS = Long.getLong("chat.acceptBackoffMillis", 100L);
+
     public GroupChatServer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GroupChatServer(int workerCount) {
+        this(workerCount, PORT);
+    }
+
+    public GroupChatServer(int workerCount, int port) {
+        this(workerCount, port, LOG_DIR == null ? null : Paths.get(LOG_DIR));
+    }
+
+    /**
+     * @param workerCount 工作线程数
+     * @param port        监听端口，0 表示由系统分配，见 {@link #localPort()}
+     * @param logDir      历史消息日志的目录，为 null 时不保存历史消息
+     */
+    public GroupChatServer(int workerCount, int port, Path logDir) {
+        this(workerCount, port, logDir, REUSE_PORT);
+    }
+
+    /**
+     * 单元测试中不通过系统属性，直接指定是否开启分片模式
+     *
+     * @param workerCount 工作线程数
+     * @param port        监听端口，0 表示由系统分配，见 {@link #localPort()}
+     * @param logDir      历史消息日志的目录，为 null 时不保存历史消息
+     * @param reusePort   是否开启分片模式，平台不支持 SO_REUSEPORT 时仍然使用主线程接收连接
+     */
+    GroupChatServer(int workerCount, int port, Path logDir, boolean reusePort) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+        this.workers = new ChatWorker[workerCount];
+        this.roomIndex = logDir == null
+                ? new RoomIndex(workerCount, MAX_ROOMS)
+                : new RoomIndex(workerCount, MAX_ROOMS, MAX_OPEN_LOGS, roomId -> {
+                    final Path directory = logDir.resolve("room-" + roomId);
+                    return MessageLog.open(directory, MessageLogConfig.DEFAULT);
+                });
+        this.port = port;
+        this.reusePort = reusePort;
+        this.metrics = new ServerMetrics("chat-" + port);
         this.init();
     }
 
@@ -48,43 +249,113 @@ public class GroupChatServer {
      * @date 2023/2/25 18:45
      */
     public void start() {
-        this.listen();
+        for (final ChatWorker worker : this.workers) {
+            worker.start();
+        }
+        if (this.sharded) {
+            this.awaitShards();
+        } else {
+            this.listen();
+        }
     }
 
     /**
-     * 服务端初始化
+     * 服务端初始化，监听失败时关闭已经打开的资源并抛出 {@link UncheckedIOException}，
+     * 否则分片模式下 {@link #start()} 会一直等待没有监听 socket 的工作线程
      *
      * @author shiloh
      * @date 2023/2/25 18:42
      */
     private void init() {
         try {
-            // 打开一个选择器
-            this.selector = Selector.open();
-            // 打开 server socket channel
-            this.serverSocketChannel = ServerSocketChannel.open();
-            // 绑定地址、端口号
-            this.serverSocketChannel.bind(new InetSocketAddress(HOST, PORT));
-            // 设置为非阻塞模式
-            this.serverSocketChannel.configureBlocking(false);
-            // 把通道注册到选择器中，并指定可接收连接事件
-            this.serverSocketChannel.register(this.selector, OP_ACCEPT);
+            // 创建工作线程
+            for (int i = 0; i < this.workers.length; i++) {
+                this.workers[i] = new ChatWorker(this, i, "chat-worker-" + i);
+            }
+            this.sharded = this.reusePort && supportsReusePort();
+            if (this.sharded) {
+                // 每个工作线程绑定一个监听 socket，各自接收连接；端口为 0 时由第一个工作线程绑定时分配，
+                // 其他工作线程绑定同一个端口
+                int port = this.port;
+                for (final ChatWorker worker : this.workers) {
+                    port = worker.listen(new InetSocketAddress(HOST, port), ACCEPT_BACKLOG);
+                }
+                this.localPort = port;
+            } else {
+                if (this.reusePort) {
+                    System.out.println("当前平台不支持 SO_REUSEPORT，使用主线程接收连接");
+                }
+                // 打开一个选择器
+                this.selector = Selector.open();
+                // 打开 server socket channel
+                this.serverSocketChannel = ServerSocketChannel.open();
+                // 绑定地址、端口号，并指定连接队列长度
+                this.serverSocketChannel.bind(new InetSocketAddress(HOST, this.port), ACCEPT_BACKLOG);
+                this.localPort = this.serverSocketChannel.socket().getLocalPort();
+                // 设置为非阻塞模式
+                this.serverSocketChannel.configureBlocking(false);
+                // 把通道注册到选择器中，并指定可接收连接事件
+                this.serverSocketChannel.register(this.selector, OP_ACCEPT);
+            }
+        } catch (IOException e) {
+            this.closeOnInitFailure();
+            throw new UncheckedIOException("chat server init failed on port " + this.port, e);
+        }
+        try {
+            // 注册指标的 MBean，失败时只是无法通过 JMX 查看指标
+            this.metrics.register();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * 监听客户端连接，接收客户端消息，转发到其他客户端
+     * 初始化失败，关闭已经创建的工作线程选择器、监听 socket 和聊天室日志
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:21
+     */
+    private void closeOnInitFailure() {
+        for (final ChatWorker worker : this.workers) {
+            if (worker != null) {
+                worker.shutdown();
+            }
+        }
+        try {
+            if (this.selector != null) {
+                this.selector.close();
+            }
+            if (this.serverSocketChannel != null) {
+                this.serverSocketChannel.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.roomIndex.close();
+    }
+
+    /**
+     * 监听客户端连接，把连接分配给工作线程
      *
      * @author shiloh
      * @date 2023/2/25 18:45
      */
     private void listen() {
         try {
+            final SelectionKey serverKey = this.serverSocketChannel.keyFor(this.selector);
             while (true) {
+                long timeout = 3000L;
+                if (serverKey.interestOps() == 0) {
+                    // 接收连接失败后的退避中，到时间后恢复接收
+                    final long remaining = this.acceptResumeNanos - System.nanoTime();
+                    if (remaining > 0) {
+                        timeout = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remaining));
+                    } else {
+                        serverKey.interestOps(OP_ACCEPT);
+                    }
+                }
                 // 获取监听的事件总数
-                final int totalEvents = this.selector.select(3000L);
+                final int totalEvents = this.selector.select(timeout);
                 if (totalEvents == 0) {
                     System.out.println("等待连接中...");
                     continue;
@@ -96,89 +367,260 @@ public class GroupChatServer {
                     final SelectionKey eventKey = iterator.next();
                     // 判断事件类型
                     if (eventKey.isAcceptable()) {
-                        // 可接收连接事件，获取客户端连接
-                        final SocketChannel clientChannel = this.serverSocketChannel.accept();
-                        // 设置为非阻塞模式
-                        clientChannel.configureBlocking(false);
-                        // 将客户端连接对应的通道注册到选择器中，并指定可读取事件
-                        clientChannel.register(this.selector, SelectionKey.OP_READ);
-                        System.out.println(clientChannel.getRemoteAddress() + "上线了~~");
-                    } else if (eventKey.isReadable()) {
-                        // 可读取事件，读取客户端发送过来的消息，转发到其他客户端
-                        this.readData(eventKey);
+                        // 可接收连接事件，一次取出连接队列中的多个连接，减少重连高峰时的 select 次数
+                        for (int i = 0; i < ACCEPT_BATCH; i++) {
+                            final SocketChannel clientChannel;
+                            try {
+                                clientChannel = this.serverSocketChannel.accept();
+                            } catch (IOException e) {
+                                // 例如文件描述符耗尽，暂停接收一段时间再恢复，避免选择器空转
+                                e.printStackTrace();
+                                eventKey.interestOps(0);
+                                this.acceptResumeNanos = System.nanoTime()
+                                        + TimeUnit.MILLISECONDS.toNanos(ACCEPT_BACKOFF_MILLIS);
+                                break;
+                            }
+                            if (clientChannel == null) {
+                                // 连接队列已经取空
+                                break;
+                            }
+                            this.metrics.connectionAccepted();
+                            // 设置为非阻塞模式
+                            clientChannel.configureBlocking(false);
+                            // 轮询选择一个工作线程，由它负责该连接后续的读写事件
+                            this.workers[this.nextWorker].register(clientChannel);
+                            this.nextWorker = (this.nextWorker + 1) % this.workers.length;
+                        }
                     }
                     // 移除已处理过的事件，避免重复处理
                     iterator.remove();
                 }
             }
+        } catch (ClosedSelectorException e) {
+            // 调用了 stop()
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            this.shutdown();
+        }
+    }
 
+    /**
+     * 停止服务端，可以在任意线程调用，{@link #start()} 随后返回
+     *
+     * @author shiloh
+     * @date 2026/10/19 10:20
+     */
+    public void stop() {
+        if (this.sharded) {
+            for (final ChatWorker worker : this.workers) {
+                worker.shutdown();
+            }
+            return;
+        }
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
     /**
-     * 读取客户端发送过来的消息，转发到其他客户端
+     * 实际监听的端口，构造时传入 0 时由系统分配
+     *
+     * @return 端口
+     * @author shiloh
+     * @date 2026/10/19 10:21
+     */
+    public int localPort() {
+        return this.localPort;
+    }
+
+    /**
+     * 分片模式下主线程不接收连接，只等待工作线程退出
      *
-     * @param eventKey key 对象
      * @author shiloh
-     * @date 2023/2/25 18:51
+     * @date 2026/10/19 03:20
      */
-    private void readData(SelectionKey eventKey) {
-        SocketChannel socketChannel = null;
+    private void awaitShards() {
+        System.out.println("分片模式：" + this.workers.length + " 个工作线程通过 SO_REUSEPORT 监听端口 " + this.localPort);
         try {
-            socketChannel = (SocketChannel) eventKey.channel();
-            // 创建一个缓冲区
-            final ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
-            // 把通道的数据写入缓冲区
-            final int count = socketChannel.read(byteBuffer);
-            // 判断是否读取到了数据
-            if (count > 0) {
-                // 将消息转换为字符串，并转发给其他客户端
-                final String msg = new String(trimByteData(byteBuffer.array()));
-                System.out.println("msg from client: " + msg);
-                this.notifyAllClient(socketChannel, msg);
+            for (final ChatWorker worker : this.workers) {
+                worker.awaitTermination();
             }
-        } catch (Exception e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.shutdown();
+        }
+    }
+
+    /**
+     * 关闭工作线程，释放聊天室日志和指标
+     *
+     * @author shiloh
+     * @date 2026/10/19 03:21
+     */
+    private void shutdown() {
+        for (final ChatWorker worker : this.workers) {
+            worker.shutdown();
+        }
+        if (this.serverSocketChannel != null) {
             try {
-                // 打印离线通知
-                if (socketChannel != null) {
-                    System.out.println(socketChannel.getRemoteAddress() + "离线了...");
-                    // 关闭流
-                    socketChannel.close();
-                }
-                // 取消注册
-                eventKey.cancel();
-            } catch (IOException ioException) {
-                ioException.printStackTrace();
+                this.serverSocketChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
+        this.roomIndex.close();
+        this.metrics.unregister();
     }
 
     /**
-     * 转发消息到其他客户端
+     * 读取必须为正数的整数配置，配置错误时启动失败，而不是带着无法写出数据的配置运行
      *
-     * @param ignoreChannel 不需要通知的 Channel
-     * @param msg           消息内容
+     * @param key          系统属性名
+     * @param defaultValue 没有配置时的默认值
+     * @return 配置的值
+     * @throws IllegalArgumentException 配置的值小于 1
+     * @author shiloh
+     * @date 2026/10/19 11:30
+     */
+    private static int positiveInteger(String key, int defaultValue) {
+        final int value = Integer.getInteger(key, defaultValue);
+        if (value < 1) {
+            throw new IllegalArgumentException(key + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * 当前平台是否支持 SO_REUSEPORT，Linux 3.9 以上和 macOS 支持，Windows 不支持
+     *
+     * @return 支持则返回 true
+     * @author shiloh
+     * @date 2026/10/19 03:22
+     */
+    private static boolean supportsReusePort() {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 获取运行指标
+     *
+     * @return 运行指标
+     * @author shiloh
+     * @date 2026/10/18 20:50
+     */
+    ServerMetrics metrics() {
+        return this.metrics;
+    }
+
+    /**
+     * 获取发送队列的限制
+     *
+     * @return 发送队列的限制
+     * @author shiloh
+     * @date 2026/10/18 22:02
+     */
+    OutboundLimits outboundLimits() {
+        return this.outboundLimits;
+    }
+
+    /**
+     * 获取聊天室订阅索引
+     *
+     * @return 聊天室订阅索引
+     * @author shiloh
+     * @date 2026/10/18 22:45
+     */
+    RoomIndex roomIndex() {
+        return this.roomIndex;
+    }
+
+    /**
+     * 连接开启或关闭压缩时调用，可以在任意线程调用
+     *
+     * @param enabled 是否开启
+     * @author shiloh
+     * @date 2026/10/19 02:10
+     */
+    void compressionChanged(boolean enabled) {
+        this.compressingConnections.addAndGet(enabled ? 1 : -1);
+    }
+
+    /**
+     * 是否有连接协商了压缩
+     *
+     * @return 有则返回 true
+     * @author shiloh
+     * @date 2026/10/19 02:10
+     */
+    boolean compressionNegotiated() {
+        return this.compressingConnections.get() > 0;
+    }
+
+    /**
+     * 转发消息到聊天室中的其他客户端
+     * <p>
+     * 每个客户端只能由负责它的工作线程写入，所以本线程的客户端直接转发，其他线程的客户端通过任务队列交给对应的线程转发，
+     * 在该聊天室中没有成员的工作线程直接跳过。
+     * 消息帧在所有线程之间共享，投递给其他线程前先增加一个引用，对应线程转发完后释放；压缩帧和消息 id 帧同样只编码一次，
+     * 所有线程共享。
+     *
+     * @param source     读取到消息的工作线程
+     * @param sender     发送者，不需要通知
+     * @param room       聊天室
+     * @param messageId  消息在聊天室日志中的 id，没有写入日志时为 -1
+     * @param msg        共享的消息帧
+     * @param compressed 共享的压缩帧，没有压缩时为 null
+     * @param idFrame    共享的消息 id 帧，发给开启了消息 id 的连接
      * @author shiloh
      * @date 2023/2/25 18:57
      */
-    private void notifyAllClient(SocketChannel ignoreChannel, String msg) throws IOException {
-        System.out.println("服务器转发消息~");
-        for (final SelectionKey key : this.selector.keys()) {
-            final Channel channel = key.channel();
-            // channel 的实际类型为 SocketChannel，这里需要排除掉不需要通知的 channel
-            // JDK instanceof 新语法，可直接在判断中声明变量去使用，无需手动强转
-            if (channel instanceof final SocketChannel socketChannel && channel != ignoreChannel) {
-                // 将消息包装成一个 byte buffer
-                final ByteBuffer byteBuffer = ByteBuffer.wrap(msg.getBytes());
-                socketChannel.write(byteBuffer);
+    void broadcast(ChatWorker source, ChatConnection sender, RoomIndex.Room room, long messageId,
+                   RefCountedBuffer msg, RefCountedBuffer compressed, RefCountedBuffer idFrame) {
+        if (VERBOSE) {
+            System.out.println("服务器转发消息~");
+        }
+        for (final ChatWorker worker : this.workers) {
+            if (room.size(worker.index()) == 0) {
+                continue;
+            }
+            if (worker == source) {
+                worker.notifyLocalClient(sender, room, messageId, msg, compressed, idFrame);
+            } else {
+                msg.retain();
+                idFrame.retain();
+                if (compressed != null) {
+                    compressed.retain();
+                }
+                worker.execute(() -> {
+                    try {
+                        worker.notifyLocalClient(sender, room, messageId, msg, compressed, idFrame);
+                    } finally {
+                        msg.release();
+                        idFrame.release();
+                        if (compressed != null) {
+                            compressed.release();
+                        }
+                    }
+                });
             }
         }
     }
 
     public static void main(String[] args) {
         // 启动服务器
-        new GroupChatServer().start();
+        final int workerCount = args.length > 0
+                ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        final int port = args.length > 1 ? Integer.parseInt(args[1]) : PORT;
+        final GroupChatServer server = new GroupChatServer(workerCount, port);
+        server.start();
     }
 }
@@ -0,0 +1,78 @@
+package org.shiloh.nio.test.chat;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link GroupChatServer} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/19 11:22
+ */
+public class GroupChatServerTests {
+    /**
+     * 端口已经被占用时构造直接失败，而不是启动一个无法接收连接的服务端
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:23
+     */
+    @Test
+    public void testFailFastWhenPortInUse() throws Exception {
+        try (ServerSocketChannel occupied = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(GroupChatServer.HOST, 0))) {
+            final int port = occupied.socket().getLocalPort();
+            assertThatThrownBy(() -> new GroupChatServer(1, port, null))
+                    .isInstanceOf(UncheckedIOException.class)
+                    .hasMessageContaining(String.valueOf(port));
+        }
+    }
+
+    /**
+     * 分片模式下端口为 0 时，所有工作线程绑定第一个工作线程分配到的端口，消息可以广播到其他工作线程上的连接
+     *
+     * @author shiloh
+     * @date 2026/10/19 12:03
+     */
+    @Test(timeout = 30_000)
+    public void testShardedEphemeralPort() throws Exception {
+        final GroupChatServer server = new GroupChatServer(2, 0, null, true);
+        final Thread serverThread = new Thread(server::start, "chat-server");
+        serverThread.start();
+        try {
+            assertThat(server.localPort()).isPositive();
+            try (TestChatClient sender = new TestChatClient(server.localPort(), 200)) {
+                // 多建几个连接，让内核把它们分到不同的工作线程
+                for (int i = 0; i < 4; i++) {
+                    try (TestChatClient receiver = new TestChatClient(server.localPort(), 200)) {
+                        assertThat(awaitBroadcast(sender, receiver)).isEqualTo("hello");
+                    }
+                }
+            }
+        } finally {
+            server.stop();
+            serverThread.join(5000);
+        }
+    }
+
+    /**
+     * 连接在服务端注册之前发出的消息收不到，重复发送直到接收方收到
+     */
+    static String awaitBroadcast(TestChatClient sender, TestChatClient receiver) throws IOException {
+        while (true) {
+            sender.send("hello");
+            try {
+                return receiver.receive();
+            } catch (SocketTimeoutException e) {
+                // 接收方还没有加入聊天室
+            }
+        }
+    }
+}
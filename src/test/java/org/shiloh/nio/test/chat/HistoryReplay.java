@@ -0,0 +1,139 @@
+package org.shiloh.nio.test.chat;
+
+import org.shiloh.codec.FrameEncoder;
+import org.shiloh.log.LogSlice;
+import org.shiloh.metrics.ConnectionMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Nio 多人聊天室 - 向一个连接回放聊天室的历史消息
+ * <p>
+ * 日志中的记录与网络上的帧格式相同，所以直接用 {@link FileChannel#transferTo} 把段文件的数据发送到 socket（Linux 上为
+ * sendfile），数据不经过 Java 堆，也不需要解码、重新编码。非阻塞的 socket 一次可能只发送一部分，记录下发送到的位置，
+ * 等可写事件后从这里继续。
+ * <p>
+ * 开启了消息 id 的连接在每个片段前先收到一个 {@code /id 聊天室id 起始id} 文本帧，片段中的消息 id 从起始 id 开始连续递增。
+ * <p>
+ * 回放期间持有聊天室日志的引用，日志不会因为打开的日志数量超过上限而被关闭，回放结束或连接关闭时调用 {@link #close()} 释放。
+ * <p>
+ * 非线程安全，只能在连接所属的工作线程中使用。
+ *
+ * @author shiloh
+ * @date 2026/10/18 23:40
+ */
+public class HistoryReplay {
+    /**
+     * 要发送的日志片段
+     */
+    private final List<LogSlice> slices;
+
+    /**
+     * 正在发送的片段下标
+     */
+    private int current;
+
+    /**
+     * 当前片段已发送的字节数
+     */
+    private long sent;
+
+    /**
+     * 聊天室 id，不需要发送消息 id 时为 -1
+     */
+    private final int roomId;
+
+    /**
+     * 当前片段的消息 id 帧，还没发送或不需要发送时为 null
+     */
+    private ByteBuffer header;
+
+    /**
+     * 回放结束时释放日志的引用
+     */
+    private Runnable onClose;
+
+    /**
+     * @param slices  要发送的日志片段
+     * @param roomId  聊天室 id，为 -1 时不发送消息 id
+     * @param onClose 回放结束时调用，释放日志的引用
+     */
+    public HistoryReplay(List<LogSlice> slices, int roomId, Runnable onClose) {
+        this.slices = slices;
+        this.roomId = roomId;
+        this.onClose = onClose;
+    }
+
+    /**
+     * 尽可能多地发送剩余的历史消息
+     * <p>
+     * 段文件可能在回放期间因为保留策略被删除，通道会被关闭：还没开始发送的片段直接跳过，已经发送了一部分的片段无法继续，
+     * 否则客户端收到的帧会错乱，只能断开连接。
+     *
+     * @param channel 客户端连接通道
+     * @param metrics 连接的指标
+     * @return 全部发送完时返回 true，socket 发送缓冲区已满时返回 false
+     * @throws IOException 发送失败
+     * @author shiloh
+     * @date 2026/10/18 23:41
+     */
+    public boolean transferTo(SocketChannel channel, ConnectionMetrics metrics) throws IOException {
+        while (this.current < this.slices.size()) {
+            final LogSlice slice = this.slices.get(this.current);
+            if (this.roomId >= 0 && this.sent == 0) {
+                if (this.header == null) {
+                    final String text = ChatConnection.MESSAGE_ID_PREFIX + this.roomId + ' ' + slice.firstId();
+                    this.header = FrameEncoder.encode(text.getBytes(StandardCharsets.US_ASCII));
+                }
+                while (this.header.hasRemaining()) {
+                    final int written = channel.write(this.header);
+                    if (written == 0) {
+                        return false;
+                    }
+                    metrics.bytesWritten(written);
+                }
+            }
+            while (this.sent < slice.count()) {
+                final long written;
+                try {
+                    written = slice.channel().transferTo(slice.position() + this.sent, slice.count() - this.sent,
+                            channel);
+                } catch (ClosedChannelException e) {
+                    if (this.sent > 0 || !channel.isOpen()) {
+                        throw e;
+                    }
+                    // 这个片段的消息已经过期删除，跳过
+                    break;
+                }
+                if (written == 0) {
+                    return false;
+                }
+                this.sent += written;
+                metrics.bytesWritten(written);
+            }
+            this.current++;
+            this.sent = 0;
+            this.header = null;
+        }
+        return true;
+    }
+
+    /**
+     * 结束回放，释放日志的引用，可以重复调用
+     *
+     * @author shiloh
+     * @date 2026/10/19 10:05
+     */
+    public void close() {
+        if (this.onClose != null) {
+            this.onClose.run();
+            this.onClose = null;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package org.shiloh.nio.test.chat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.shiloh.log.MessageLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 历史消息回放的集成测试：客户端的接收缓冲区很小并且暂时不读取，回放只能发送一部分，等客户端读取后继续；
+ * 客户端按收到的消息 id 断点续传，不会漏收也不会重复收到
+ *
+ * @author shiloh
+ * @date 2026/10/19 10:40
+ */
+public class HistoryReplayTests {
+    private static final int ROOM = 1;
+
+    /**
+     * 历史消息数量，加上填充后约 10 MB，超过 Linux 默认的发送缓冲区上限（net.ipv4.tcp_wmem 的 4 MB），
+     * 客户端不读取时回放一定会停在中间
+     */
+    private static final int HISTORY = 20_000;
+
+    /**
+     * 消息内容的填充
+     */
+    private static final String PADDING = "x".repeat(500);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private GroupChatServer server;
+
+    private Thread serverThread;
+
+    @Before
+    public void setUp() {
+        // 积压的实时消息要超过 socket 缓冲区，提高慢消费者的高水位，避免客户端被断开
+        System.setProperty("chat.highWatermark", String.valueOf(16 * 1024 * 1024));
+        this.server = new GroupChatServer(2, 0, this.folder.getRoot().toPath());
+        this.serverThread = new Thread(this.server::start, "chat-server");
+        this.serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        this.server.stop();
+        this.serverThread.join(5000);
+        System.clearProperty("chat.highWatermark");
+    }
+
+    /**
+     * 回放期间实时消息继续到达：回放被小接收缓冲区阻塞后继续发送，实时消息排在回放之后，
+     * 快照范围内又通过实时转发到达的消息被丢弃，每条消息按 id 顺序恰好收到一次
+     *
+     * @author shiloh
+     * @date 2026/10/19 10:41
+     */
+    @Test(timeout = 60_000)
+    public void testReplayWithLiveMessages() throws Exception {
+        try (Client writer = new Client(this.server.localPort(), 0)) {
+            writer.send("/join " + ROOM);
+            sendMessages(writer, 0, HISTORY);
+            this.awaitLogged(HISTORY);
+
+            try (Client reader = new Client(this.server.localPort(), 4096)) {
+                reader.send("/ids on");
+                reader.send("/history " + ROOM + " 0");
+                // 回放期间继续发送，其中一部分在加入聊天室之后、快照之前写入日志
+                sendMessages(writer, HISTORY, HISTORY + 200);
+                // 暂时不读取，服务端的发送缓冲区写满后回放只能停下来等可写事件
+                Thread.sleep(300);
+                assertThat(reader.readMessages(HISTORY + 200)).isEqualTo(HISTORY + 200);
+            }
+        }
+    }
+
+    /**
+     * 客户端读取一部分后断开，重连后从最后收到的 id 之后回放，拼起来正好是完整的历史
+     *
+     * @author shiloh
+     * @date 2026/10/19 10:42
+     */
+    @Test(timeout = 60_000)
+    public void testResumeFromLastId() throws Exception {
+        try (Client writer = new Client(this.server.localPort(), 0)) {
+            writer.send("/join " + ROOM);
+            sendMessages(writer, 0, HISTORY);
+            this.awaitLogged(HISTORY);
+        }
+        long nextId;
+        try (Client reader = new Client(this.server.localPort(), 4096)) {
+            reader.send("/ids on");
+            reader.send("/history " + ROOM + " 0");
+            Thread.sleep(300);
+            // 读到一半断开，服务端的回放停在某个片段的中间
+            nextId = reader.readMessages(HISTORY / 3);
+        }
+        assertThat(nextId).isEqualTo(HISTORY / 3);
+        try (Client reader = new Client(this.server.localPort(), 4096)) {
+            reader.nextId = nextId;
+            reader.send("/ids on");
+            reader.send("/history " + ROOM + " " + nextId);
+            assertThat(reader.readMessages(HISTORY - (int) nextId)).isEqualTo(HISTORY);
+        }
+    }
+
+    /**
+     * 请求回放时已经在聊天室中，并且发送队列中积压了实时消息、队首消息只写出了一部分：
+     * 队首消息先写完，队列中快照范围内的消息只从日志回放一次，新的实时消息排在回放之后
+     *
+     * @author shiloh
+     * @date 2026/10/19 12:25
+     */
+    @Test(timeout = 60_000)
+    public void testReplayWithQueuedMessages() throws Exception {
+        // 积压约 6 MB，超过 socket 缓冲区
+        final int queued = 12_000;
+        final int total = HISTORY + queued + 200;
+        try (Client writer = new Client(this.server.localPort(), 0)) {
+            writer.send("/join " + ROOM);
+            sendMessages(writer, 0, HISTORY);
+            this.awaitLogged(HISTORY);
+
+            try (Client reader = new Client(this.server.localPort(), 4096)) {
+                reader.send("/ids on");
+                reader.send("/join " + ROOM);
+                this.awaitMembers(2);
+                // 暂时不读取，实时消息积压在发送队列中
+                sendMessages(writer, HISTORY, HISTORY + queued);
+                this.awaitLogged(HISTORY + queued);
+                Thread.sleep(300);
+                reader.send("/history " + ROOM + " 0");
+                sendMessages(writer, HISTORY + queued, total);
+
+                final List<Long> ids = reader.readUntil(total - 1);
+                // 请求之前已经发出的实时消息，按顺序排在回放之前，最后一条可能是写完的队首消息
+                final int replayStart = ids.indexOf(0L);
+                assertThat(replayStart).isNotNegative();
+                for (int i = 0; i < replayStart; i++) {
+                    assertThat(ids.get(i)).isEqualTo(HISTORY + i);
+                }
+                // 之后每条消息按 id 顺序恰好收到一次；队首消息在请求时只写出了一部分的话，写完后不再回放
+                final List<Long> all = new ArrayList<>();
+                for (long id = 0; id < total; id++) {
+                    all.add(id);
+                }
+                final List<Long> withoutHead = new ArrayList<>(all);
+                if (replayStart > 0) {
+                    withoutHead.remove(ids.get(replayStart - 1));
+                }
+                assertThat(ids.subList(replayStart, ids.size())).isIn(all, withoutHead);
+            }
+        }
+    }
+
+    private static void sendMessages(Client client, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            client.send("message-" + i + " " + PADDING);
+        }
+    }
+
+    /**
+     * 等待聊天室的成员数量达到 count
+     */
+    private void awaitMembers(int count) throws InterruptedException {
+        while (true) {
+            final RoomIndex.Room room = this.server.roomIndex().room(ROOM);
+            if (room != null && room.size(0) + room.size(1) >= count) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 等待消息都写入聊天室的日志
+     */
+    private void awaitLogged(long count) throws InterruptedException {
+        final RoomIndex roomIndex = this.server.roomIndex();
+        while (true) {
+            final RoomIndex.Room room = roomIndex.room(ROOM);
+            final MessageLog log = room != null ? roomIndex.acquireLog(room) : null;
+            if (log != null) {
+                try {
+                    if (log.nextId() >= count) {
+                        return;
+                    }
+                } finally {
+                    roomIndex.releaseLog(room);
+                }
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 阻塞模式的测试客户端
+     */
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        /**
+         * 下一条消息的 id，收到的 /id 帧必须与它相同
+         */
+        private long nextId;
+
+        private Client(int port, int receiveBufferSize) throws IOException {
+            this.socket = new Socket();
+            if (receiveBufferSize > 0) {
+                // 必须在连接之前设置，否则 TCP 窗口已经协商好了
+                this.socket.setReceiveBufferSize(receiveBufferSize);
+            }
+            this.socket.connect(new InetSocketAddress(GroupChatServer.HOST, port));
+            this.in = new DataInputStream(this.socket.getInputStream());
+            this.out = new DataOutputStream(this.socket.getOutputStream());
+        }
+
+        private void send(String text) throws IOException {
+            final byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+            this.out.writeInt(payload.length);
+            this.out.write(payload);
+            this.out.flush();
+        }
+
+        /**
+         * 读取 count 条聊天室消息，检查 /id 帧给出的 id 连续，并且与消息的内容一致
+         *
+         * @return 下一条消息的 id
+         */
+        private long readMessages(int count) throws IOException {
+            int received = 0;
+            while (received < count) {
+                final int length = this.in.readInt();
+                if (length == 0) {
+                    // 心跳
+                    continue;
+                }
+                final byte[] payload = new byte[length];
+                this.in.readFully(payload);
+                final String text = new String(payload, StandardCharsets.UTF_8);
+                if (text.startsWith(ChatConnection.MESSAGE_ID_PREFIX)) {
+                    final String[] tokens = text.split(" ");
+                    assertThat(Integer.parseInt(tokens[1])).isEqualTo(ROOM);
+                    // 没有漏掉也没有重复的消息
+                    assertThat(Long.parseLong(tokens[2])).isEqualTo(this.nextId);
+                    continue;
+                }
+                assertThat(text).startsWith("message-" + this.nextId + " ");
+                this.nextId++;
+                received++;
+            }
+            return this.nextId;
+        }
+
+        /**
+         * 读取聊天室消息，直到收到 id 为 lastId 的消息，检查每条消息的内容与 /id 帧给出的 id 一致
+         *
+         * @return 按顺序收到的消息 id
+         */
+        private List<Long> readUntil(long lastId) throws IOException {
+            final List<Long> ids = new ArrayList<>();
+            long id = -1;
+            while (ids.isEmpty() || ids.get(ids.size() - 1) != lastId) {
+                final int length = this.in.readInt();
+                if (length == 0) {
+                    continue;
+                }
+                final byte[] payload = new byte[length];
+                this.in.readFully(payload);
+                final String text = new String(payload, StandardCharsets.UTF_8);
+                if (text.startsWith(ChatConnection.MESSAGE_ID_PREFIX)) {
+                    id = Long.parseLong(text.split(" ")[2]);
+                    continue;
+                }
+                assertThat(text).startsWith("message-" + id + " ");
+                ids.add(id++);
+            }
+            return ids;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.socket.close();
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package org.shiloh.nio.test.chat;
+
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+import org.shiloh.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.channels.SelectionKey.OP_CONNECT;
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
+import static org.shiloh.nio.test.chat.GroupChatServer.HOST;
+import static org.shiloh.nio.test.chat.GroupChatServer.PORT;
+
+/**
+ * 聊天室压测工具：少量选择器线程驱动大量并发连接
+ * <p>
+ * 连接平均分配给若干个线程，每个线程一个选择器，负责自己的连接的建立、发送和接收。其中一部分连接作为发送者，
+ * 按指定的总速率发送带时间戳的消息，服务端把每条消息广播给其他所有连接，接收方用消息中的时间戳计算端到端延迟，
+ * 记录到 {@link LatencyHistogram}，结束后汇总吞吐量和 p50/p99/p99.9 延迟。
+ * <p>
+ * 发送采用开环方式：每条消息都有预定的发送时间，时间戳写入的是预定时间而不是实际发送时间，
+ * 服务端变慢导致发送落后时，积压的等待时间也会计入延迟，避免协调遗漏（coordinated omission）让结果偏乐观。
+ * 连接发送缓冲区满时不再写入新消息，计入背压次数。
+ * <p>
+ * 启动参数：端口 连接数 线程数 发送者数 每秒消息总数 消息大小 持续秒数，默认为 8099 1000 4 100 200 64 10。
+ * 每条消息会被送达 连接数 - 1 次，大量连接时注意调整 ulimit -n。
+ *
+ * @author shiloh
+ * @date 2026/10/18 19:50
+ */
+public class LoadGenerator {
+    /**
+     * 每批建立的连接数，避免超过服务端的 accept 队列长度
+     */
+    private static final int CONNECT_BATCH = 100;
+
+    /**
+     * 消息内容的最小长度：发送时间 + 发送者编号
+     */
+    private static final int MIN_PAYLOAD_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final int port;
+    private final int connectionCount;
+    private final int senderCount;
+    private final int rate;
+    private final int payloadSize;
+    private final LoadThread[] loadThreads;
+
+    /**
+     * 所有连接建立完成
+     */
+    private final CountDownLatch connected;
+
+    /**
+     * 是否发送消息
+     */
+    private volatile boolean sending;
+
+    /**
+     * 是否继续运行
+     */
+    private volatile boolean running = true;
+
+    public LoadGenerator(int port, int connectionCount, int threadCount, int senderCount, int rate, int payloadSize)
+            throws IOException {
+        if (connectionCount < 2 || threadCount < 1 || senderCount < 1 || senderCount > connectionCount || rate < 1
+                || payloadSize < MIN_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("connectionCount >= 2, threadCount >= 1, 1 <= senderCount <= "
+                    + "connectionCount, rate >= 1, payloadSize >= " + MIN_PAYLOAD_SIZE);
+        }
+        this.port = port;
+        this.connectionCount = connectionCount;
+        this.senderCount = senderCount;
+        this.rate = rate;
+        this.payloadSize = payloadSize;
+        this.connected = new CountDownLatch(threadCount);
+        this.loadThreads = new LoadThread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            this.loadThreads[i] = new LoadThread(i);
+        }
+    }
+
+    /**
+     * 运行压测并打印结果
+     *
+     * @param durationSeconds 发送消息的持续时间（秒）
+     * @throws InterruptedException 等待被中断
+     * @author shiloh
+     * @date 2026/10/18 19:55
+     */
+    public void run(int durationSeconds) throws InterruptedException {
+        final Thread[] threads = new Thread[this.loadThreads.length];
+        final long connectStart = System.nanoTime();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this.loadThreads[i], "load-" + i);
+            threads[i].start();
+        }
+        this.connected.await();
+        final long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+        // 等服务端把新连接注册到选择器上，否则前几条消息的送达数会偏少
+        TimeUnit.MILLISECONDS.sleep(500);
+
+        final long start = System.nanoTime();
+        this.sending = true;
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        this.sending = false;
+        // 等待已发送的消息全部送达，连续一段时间收不到新消息就结束
+        long lastReceived = -1;
+        for (int i = 0; i < 50; i++) {
+            TimeUnit.MILLISECONDS.sleep(100);
+            final long received = this.receivedSoFar();
+            if (received == lastReceived) {
+                break;
+            }
+            lastReceived = received;
+        }
+        this.running = false;
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        this.report(connectMillis, start);
+    }
+
+    /**
+     * 目前为止收到的消息数，只用于判断是否还有消息在途
+     */
+    private long receivedSoFar() {
+        long received = 0;
+        for (final LoadThread loadThread : this.loadThreads) {
+            received += loadThread.received;
+        }
+        return received;
+    }
+
+    private void report(long connectMillis, long start) {
+        final LatencyHistogram connectLatency = new LatencyHistogram();
+        final LatencyHistogram latency = new LatencyHistogram();
+        long sent = 0;
+        long received = 0;
+        long receivedBytes = 0;
+        long backpressured = 0;
+        long errors = 0;
+        long lastReceive = start;
+        for (final LoadThread loadThread : this.loadThreads) {
+            connectLatency.add(loadThread.connectLatency);
+            latency.add(loadThread.latency);
+            sent += loadThread.sent;
+            received += loadThread.received;
+            receivedBytes += loadThread.receivedBytes;
+            backpressured += loadThread.backpressured;
+            errors += loadThread.errors;
+            lastReceive = Math.max(lastReceive, loadThread.lastReceiveNanos);
+        }
+        final double seconds = Math.max(1, lastReceive - start) / 1e9;
+        final long expected = sent * (this.connectionCount - 1);
+        System.out.printf("连接数 %d，线程数 %d，发送者 %d，目标速率 %d msg/s，消息大小 %d B%n", this.connectionCount,
+                this.loadThreads.length, this.senderCount, this.rate, this.payloadSize);
+        System.out.printf("建立连接耗时 %d ms，连接错误 %d%n", connectMillis, errors);
+        printPercentiles("connect", connectLatency);
+        System.out.printf("发送 %d 条，背压 %d 次，送达 %d / %d (%.2f%%)%n", sent, backpressured, received, expected,
+                expected == 0 ? 0 : received * 100.0 / expected);
+        System.out.printf("吞吐量 %.0f msg/s，%.2f MB/s%n", received / seconds, receivedBytes / seconds / 1024 / 1024);
+        printPercentiles("end-to-end", latency);
+    }
+
+    private static void printPercentiles(String name, LatencyHistogram histogram) {
+        System.out.printf("%-12s p50 = %8.1f us, p99 = %8.1f us, p99.9 = %8.1f us, max = %8.1f us%n", name,
+                histogram.valueAtPercentile(50) / 1000.0, histogram.valueAtPercentile(99) / 1000.0,
+                histogram.valueAtPercentile(99.9) / 1000.0, histogram.max() / 1000.0);
+    }
+
+    /**
+     * 一个压测线程，连接编号对线程数取余等于自己编号的连接都由本线程负责
+     */
+    private final class LoadThread implements Runnable {
+        private final int index;
+        private final List<Connection> senders = new ArrayList<>();
+        private final LatencyHistogram connectLatency = new LatencyHistogram();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final ByteBuffer payload;
+        private Selector selector;
+
+        /**
+         * 统计值只在本线程写入，主线程在 join 之后读取
+         */
+        private long sent;
+        private volatile long received;
+        private long receivedBytes;
+        private long backpressured;
+        private long errors;
+        private long lastReceiveNanos;
+
+        /**
+         * 下一个发送消息的连接
+         */
+        private int nextSender;
+
+        private LoadThread(int index) {
+            this.index = index;
+            this.payload = ByteBuffer.allocate(LoadGenerator.this.payloadSize);
+        }
+
+        @Override
+        public void run() {
+            // 每个线程只能计数一次，否则一个线程退出时会替还没有建立完连接的线程计数
+            boolean countedDown = false;
+            try {
+                this.selector = Selector.open();
+                this.connectAll();
+                LoadGenerator.this.connected.countDown();
+                countedDown = true;
+                this.loop();
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                if (!countedDown) {
+                    // 连接失败时也不能让主线程一直等待
+                    LoadGenerator.this.connected.countDown();
+                }
+                this.close();
+            }
+        }
+
+        /**
+         * 分批建立本线程负责的连接
+         */
+        private void connectAll() throws IOException {
+            final InetSocketAddress address = new InetSocketAddress(HOST, LoadGenerator.this.port);
+            final int threadCount = LoadGenerator.this.loadThreads.length;
+            final int batch = CONNECT_BATCH * threadCount;
+            for (int batchStart = 0; batchStart < LoadGenerator.this.connectionCount; batchStart += batch) {
+                final int batchEnd = Math.min(LoadGenerator.this.connectionCount, batchStart + batch);
+                int pending = 0;
+                for (int id = batchStart + this.index; id < batchEnd; id += threadCount) {
+                    final SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    final Connection connection = new Connection(id, channel);
+                    if (id < LoadGenerator.this.senderCount) {
+                        this.senders.add(connection);
+                    }
+                    if (channel.connect(address)) {
+                        this.connectLatency.record(System.nanoTime() - connection.connectStart);
+                        channel.register(this.selector, OP_READ, connection);
+                    } else {
+                        channel.register(this.selector, OP_CONNECT, connection);
+                        pending++;
+                    }
+                }
+                while (pending > 0) {
+                    this.selector.select();
+                    final Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        final SelectionKey key = iterator.next();
+                        iterator.remove();
+                        if (key.isConnectable()) {
+                            pending--;
+                            this.finishConnect(key);
+                        } else {
+                            this.process(key);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void finishConnect(SelectionKey key) {
+            final Connection connection = (Connection) key.attachment();
+            try {
+                if (((SocketChannel) key.channel()).finishConnect()) {
+                    this.connectLatency.record(System.nanoTime() - connection.connectStart);
+                    key.interestOps(OP_READ);
+                }
+            } catch (IOException e) {
+                this.errors++;
+                this.closeKey(key);
+            }
+        }
+
+        /**
+         * 事件循环：到了预定时间就发送消息，其余时间处理读写事件
+         */
+        private void loop() throws IOException {
+            final int senderCount = this.senders.size();
+            // 总速率按发送者数量分摊到各个线程
+            final long intervalNanos = senderCount == 0 ? 0 :
+                    (long) (1e9 * LoadGenerator.this.senderCount / senderCount / LoadGenerator.this.rate);
+            long nextSendTime = 0;
+            while (LoadGenerator.this.running) {
+                long timeoutMillis = 100;
+                if (LoadGenerator.this.sending && senderCount > 0) {
+                    final long now = System.nanoTime();
+                    if (nextSendTime == 0) {
+                        nextSendTime = now;
+                    }
+                    while (nextSendTime <= now) {
+                        this.send(nextSendTime);
+                        nextSendTime += intervalNanos;
+                    }
+                    // select 的精度是毫秒，高速率下每次唤醒发送一批
+                    timeoutMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextSendTime - now));
+                }
+                this.selector.select(timeoutMillis);
+                final Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    final SelectionKey key = iterator.next();
+                    iterator.remove();
+                    this.process(key);
+                }
+            }
+        }
+
+        private void process(SelectionKey key) {
+            final Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush(key);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    this.read(key, connection);
+                }
+            } catch (IOException e) {
+                this.errors++;
+                this.closeKey(key);
+            }
+        }
+
+        /**
+         * 由下一个发送者发送一条消息，时间戳为预定的发送时间
+         */
+        private void send(long sendTime) throws IOException {
+            final Connection connection = this.senders.get(this.nextSender);
+            this.nextSender = (this.nextSender + 1) % this.senders.size();
+            final SelectionKey key = connection.channel.keyFor(this.selector);
+            if (key == null || !key.isValid()) {
+                return;
+            }
+            final int frameLength = FrameEncoder.frameLength(LoadGenerator.this.payloadSize);
+            if (connection.outbound.remaining() < frameLength) {
+                // 发送缓冲区满了，服务端处理不过来
+                this.backpressured++;
+                return;
+            }
+            this.payload.clear();
+            this.payload.putLong(sendTime).putInt(connection.id).position(LoadGenerator.this.payloadSize).flip();
+            FrameEncoder.encode(this.payload, connection.outbound);
+            this.sent++;
+            try {
+                connection.flush(key);
+            } catch (IOException e) {
+                this.errors++;
+                this.closeKey(key);
+            }
+        }
+
+        private void read(SelectionKey key, Connection connection) throws IOException {
+            if (connection.frameDecoder.readFrom(connection.channel) == -1) {
+                throw new IOException("server closed connection");
+            }
+            final long now = System.nanoTime();
+            final int heartbeatsBefore = connection.heartbeats;
+            final int frames = connection.frameDecoder.decode(frame -> {
+                if (!frame.hasRemaining()) {
+                    // 服务端的心跳，回复一个长度为 0 的帧
+                    connection.heartbeats++;
+                    return;
+                }
+                this.latency.record(now - frame.getLong(0));
+                this.receivedBytes += FrameEncoder.frameLength(frame.remaining());
+            });
+            final int messages = frames - (connection.heartbeats - heartbeatsBefore);
+            if (messages > 0) {
+                this.received += messages;
+                this.lastReceiveNanos = now;
+            }
+            while (connection.heartbeats > 0 && connection.outbound.remaining() >= FrameEncoder.frameLength(0)) {
+                connection.heartbeats--;
+                FrameEncoder.writeHeader(connection.outbound, 0);
+                connection.flush(key);
+            }
+        }
+
+        private void closeKey(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // 忽略关闭异常
+            }
+            ((Connection) key.attachment()).frameDecoder.release();
+        }
+
+        private void close() {
+            if (this.selector == null) {
+                return;
+            }
+            for (final SelectionKey key : this.selector.keys()) {
+                this.closeKey(key);
+            }
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 一个压测连接
+     */
+    private final class Connection {
+        private final int id;
+        private final SocketChannel channel;
+        private final long connectStart = System.nanoTime();
+        private final FrameDecoder frameDecoder = new FrameDecoder();
+
+        /**
+         * 待回复的心跳数
+         */
+        private int heartbeats;
+
+        /**
+         * 发送缓冲区，写模式，最多积压 16 帧
+         */
+        private final ByteBuffer outbound;
+
+        private Connection(int id, SocketChannel channel) {
+            this.id = id;
+            this.channel = channel;
+            this.outbound = ByteBuffer.allocateDirect(16 * FrameEncoder.frameLength(LoadGenerator.this.payloadSize));
+        }
+
+        /**
+         * 写出发送缓冲区的数据，写不完时关注可写事件
+         */
+        private void flush(SelectionKey key) throws IOException {
+            this.outbound.flip();
+            this.channel.write(this.outbound);
+            this.outbound.compact();
+            if (this.outbound.position() > 0) {
+                key.interestOps(key.interestOps() | OP_WRITE);
+            } else if ((key.interestOps() & OP_WRITE) != 0) {
+                key.interestOps(key.interestOps() & ~OP_WRITE);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT;
+        final int connections = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        final int senders = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        final int rate = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+        final int payloadSize = args.length > 5 ? Integer.parseInt(args[5]) : 64;
+        final int duration = args.length > 6 ? Integer.parseInt(args[6]) : 10;
+        new LoadGenerator(port, connections, threads, Math.min(senders, connections), rate, payloadSize)
+                .run(duration);
+    }
+}
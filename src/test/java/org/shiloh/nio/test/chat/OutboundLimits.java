@@ -0,0 +1,119 @@
+package org.shiloh.nio.test.chat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发送队列的限制：每个连接的高低水位、慢消费者策略、每个连接的硬上限，以及所有连接共享的全局上限
+ * <p>
+ * 通过系统属性配置：
+ * <ul>
+ *     <li>-Dchat.highWatermark：高水位字节数，默认 512 KB</li>
+ *     <li>-Dchat.lowWatermark：低水位字节数，默认 128 KB</li>
+ *     <li>-Dchat.slowConsumerPolicy：{@link SlowConsumerPolicy}，默认 DISCONNECT</li>
+ *     <li>-Dchat.maxConnectionQueuedBytes：每个连接发送队列的硬上限，不论哪种策略，超过时都断开连接，默认为高水位的 4 倍</li>
+ *     <li>-Dchat.maxQueuedBytes：所有连接发送队列的总字节数上限，默认 256 MB</li>
+ * </ul>
+ * 全局计数器被所有工作线程共享，每次入队和写出各有一次原子加法。
+ *
+ * @author shiloh
+ * @date 2026/10/18 21:52
+ */
+public final class OutboundLimits {
+    private final long lowWatermark;
+    private final long highWatermark;
+    private final long maxConnectionBytes;
+    private final long maxQueuedBytes;
+    private final SlowConsumerPolicy policy;
+
+    /**
+     * 所有连接发送队列中的总字节数
+     */
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    public OutboundLimits(long lowWatermark, long highWatermark, long maxConnectionBytes, long maxQueuedBytes,
+                          SlowConsumerPolicy policy) {
+        if (lowWatermark < 0 || highWatermark < lowWatermark || maxConnectionBytes < highWatermark
+                || maxQueuedBytes < maxConnectionBytes) {
+            throw new IllegalArgumentException(
+                    "require 0 <= lowWatermark <= highWatermark <= maxConnectionBytes <= maxQueuedBytes");
+        }
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.maxConnectionBytes = maxConnectionBytes;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * 从系统属性创建
+     *
+     * @return 发送队列的限制
+     * @author shiloh
+     * @date 2026/10/18 21:53
+     */
+    public static OutboundLimits fromSystemProperties() {
+        final long highWatermark = Long.getLong("chat.highWatermark", 512 * 1024L);
+        return new OutboundLimits(Long.getLong("chat.lowWatermark", 128 * 1024L),
+                highWatermark,
+                Long.getLong("chat.maxConnectionQueuedBytes", 4 * highWatermark),
+                Long.getLong("chat.maxQueuedBytes", 256 * 1024 * 1024L),
+                SlowConsumerPolicy.valueOf(System.getProperty("chat.slowConsumerPolicy", "DISCONNECT")));
+    }
+
+    /**
+     * 尝试占用全局配额
+     *
+     * @param bytes 字节数
+     * @return 没有超过全局上限返回 true，否则不占用并返回 false
+     * @author shiloh
+     * @date 2026/10/18 21:54
+     */
+    public boolean tryReserve(long bytes) {
+        if (this.queuedBytes.addAndGet(bytes) > this.maxQueuedBytes) {
+            this.queuedBytes.addAndGet(-bytes);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 归还全局配额
+     *
+     * @param bytes 字节数
+     * @author shiloh
+     * @date 2026/10/18 21:55
+     */
+    public void release(long bytes) {
+        this.queuedBytes.addAndGet(-bytes);
+    }
+
+    public long lowWatermark() {
+        return this.lowWatermark;
+    }
+
+    public long highWatermark() {
+        return this.highWatermark;
+    }
+
+    /**
+     * @return 每个连接发送队列的硬上限，不论哪种策略，超过时都断开连接
+     */
+    public long maxConnectionBytes() {
+        return this.maxConnectionBytes;
+    }
+
+    public long maxQueuedBytes() {
+        return this.maxQueuedBytes;
+    }
+
+    public SlowConsumerPolicy policy() {
+        return this.policy;
+    }
+
+    /**
+     * @return 所有连接发送队列中的总字节数
+     */
+    public long queuedBytes() {
+        return this.queuedBytes.get();
+    }
+}
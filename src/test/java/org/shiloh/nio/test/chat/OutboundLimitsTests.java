@@ -0,0 +1,69 @@
+package org.shiloh.nio.test.chat;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link OutboundLimits} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/19 11:00
+ */
+public class OutboundLimitsTests {
+    /**
+     * 水位和上限必须依次不减
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:01
+     */
+    @Test
+    public void testRejectsInvalidLimits() {
+        assertThatThrownBy(() -> new OutboundLimits(-1, 10, 10, 10, SlowConsumerPolicy.DISCONNECT))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OutboundLimits(20, 10, 10, 10, SlowConsumerPolicy.DISCONNECT))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OutboundLimits(5, 10, 9, 10, SlowConsumerPolicy.DISCONNECT))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OutboundLimits(5, 10, 20, 19, SlowConsumerPolicy.DISCONNECT))
+                .isInstanceOf(IllegalArgumentException.class);
+        final OutboundLimits limits = new OutboundLimits(5, 10, 20, 40, SlowConsumerPolicy.PAUSE_READ);
+        assertThat(limits.lowWatermark()).isEqualTo(5);
+        assertThat(limits.highWatermark()).isEqualTo(10);
+        assertThat(limits.maxConnectionBytes()).isEqualTo(20);
+        assertThat(limits.maxQueuedBytes()).isEqualTo(40);
+        assertThat(limits.policy()).isEqualTo(SlowConsumerPolicy.PAUSE_READ);
+    }
+
+    /**
+     * 超过全局上限时不占用配额，归还后可以继续占用
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:02
+     */
+    @Test
+    public void testGlobalReservation() {
+        final OutboundLimits limits = new OutboundLimits(0, 10, 10, 100, SlowConsumerPolicy.DISCONNECT);
+        assertThat(limits.tryReserve(60)).isTrue();
+        assertThat(limits.tryReserve(40)).isTrue();
+        assertThat(limits.tryReserve(1)).isFalse();
+        assertThat(limits.queuedBytes()).isEqualTo(100);
+        limits.release(30);
+        assertThat(limits.tryReserve(30)).isTrue();
+        assertThat(limits.queuedBytes()).isEqualTo(100);
+    }
+
+    /**
+     * 没有配置时每个连接的硬上限是高水位的 4 倍
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:03
+     */
+    @Test
+    public void testDefaults() {
+        final OutboundLimits limits = OutboundLimits.fromSystemProperties();
+        assertThat(limits.maxConnectionBytes()).isEqualTo(4 * limits.highWatermark());
+        assertThat(limits.maxQueuedBytes()).isGreaterThanOrEqualTo(limits.maxConnectionBytes());
+    }
+}
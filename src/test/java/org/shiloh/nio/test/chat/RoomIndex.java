@@ -0,0 +1,457 @@
+package org.shiloh.nio.test.chat;
+
+import org.shiloh.log.MessageLog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Nio 多人聊天室 - 聊天室订阅索引
+ * <p>
+ * 从聊天室 id 到成员连接的索引，广播时只遍历该聊天室的成员，开销与聊天室大小成正比，与服务端的总连接数无关。
+ * <ul>
+ *     <li>聊天室 id 的范围是 [0, maxRooms)，聊天室表是按 id 下标的 {@link AtomicReferenceArray}，键为 int，不装箱，
+ *     工作线程读取时不加锁，新建聊天室也不需要复制整张表。客户端不能通过 /join 任意 id 无限制地创建聊天室</li>
+ *     <li>最后一个成员退出后聊天室被删除，同时关闭它的日志；之后再加入同一个 id 时重新创建</li>
+ *     <li>每个聊天室的成员按工作线程分区，只由对应的工作线程修改和遍历（连接只在所属的工作线程中加入、退出聊天室），
+ *     分区是一个数组，退出时把最后一个成员移到空出的位置（swap-remove），成员在数组中的下标记录在连接上，
+ *     加入、退出都是 O(1)；其他线程只读取分区的成员数量，用来跳过没有成员的分区</li>
+ * </ul>
+ * 广播时跳过没有成员的分区，对应的工作线程不会被唤醒。
+ * <p>
+ * 配置了日志工厂时，每个聊天室有自己的 {@link MessageLog}，用于保存历史消息。日志在第一次写入或回放时才打开，
+ * 同时打开的日志不超过 maxOpenLogs 个（每个日志映射一个段文件，并占用刷盘线程的一个定时任务），超过时按 CLOCK 算法
+ * 关闭最近没有使用的日志。正在写入或回放的日志持有引用（{@link #acquireLog}），不会被关闭；所有打开的日志都持有引用时，
+ * 暂时允许超过上限。
+ *
+ * @author shiloh
+ * @date 2026/10/18 22:40
+ */
+public class RoomIndex {
+    /**
+     * 默认聊天室，连接建立后自动加入
+     */
+    public static final int DEFAULT_ROOM = 0;
+
+    private static final ChatConnection[] EMPTY = new ChatConnection[0];
+
+    /**
+     * 分区数量，即工作线程数量
+     */
+    private final int partitions;
+
+    /**
+     * 聊天室表，下标为聊天室 id
+     */
+    private final AtomicReferenceArray<Room> rooms;
+
+    /**
+     * 聊天室日志工厂，为 null 时不保存历史消息
+     */
+    private final LogFactory logFactory;
+
+    /**
+     * 同时打开的日志数量上限
+     */
+    private final int maxOpenLogs;
+
+    /**
+     * 日志已打开的聊天室，加锁访问
+     */
+    private final List<Room> openLogs = new ArrayList<>();
+
+    /**
+     * CLOCK 算法的指针，指向下一个检查的聊天室
+     */
+    private int clockHand;
+
+    public RoomIndex(int partitions, int maxRooms) {
+        this(partitions, maxRooms, 1, null);
+    }
+
+    public RoomIndex(int partitions, int maxRooms, int maxOpenLogs, LogFactory logFactory) {
+        if (maxRooms < 1) {
+            throw new IllegalArgumentException("maxRooms must be positive: " + maxRooms);
+        }
+        if (maxOpenLogs < 1) {
+            throw new IllegalArgumentException("maxOpenLogs must be positive: " + maxOpenLogs);
+        }
+        this.partitions = partitions;
+        this.rooms = new AtomicReferenceArray<>(maxRooms);
+        this.maxOpenLogs = maxOpenLogs;
+        this.logFactory = logFactory;
+    }
+
+    /**
+     * 获取聊天室，可以在任意线程调用
+     *
+     * @param roomId 聊天室 id
+     * @return 聊天室，不存在或 id 超出范围时返回 null
+     * @author shiloh
+     * @date 2026/10/18 22:41
+     */
+    public Room room(int roomId) {
+        return roomId >= 0 && roomId < this.rooms.length() ? this.rooms.get(roomId) : null;
+    }
+
+    /**
+     * 加入聊天室，聊天室不存在时创建，只能在连接所属的工作线程调用
+     *
+     * @param roomId     聊天室 id
+     * @param partition  连接所属工作线程的下标
+     * @param connection 连接
+     * @return 聊天室，id 超出范围时返回 null
+     * @author shiloh
+     * @date 2026/10/18 22:42
+     */
+    public Room join(int roomId, int partition, ChatConnection connection) {
+        if (roomId < 0 || roomId >= this.rooms.length()) {
+            return null;
+        }
+        Room room = this.rooms.get(roomId);
+        final int slot = connection.slot(roomId);
+        if (slot >= 0) {
+            // 已经是成员，只切换当前聊天室
+            connection.joined(roomId, slot);
+            return room;
+        }
+        for (;;) {
+            if (room == null || room.retired()) {
+                room = this.createRoom(roomId);
+            }
+            if (room.acquire()) {
+                room.add(partition, connection);
+                return room;
+            }
+            // 聊天室刚被最后一个成员退出而删除，重新创建
+            room = this.rooms.get(roomId);
+        }
+    }
+
+    /**
+     * 退出聊天室，最后一个成员退出时删除聊天室，只能在连接所属的工作线程调用
+     *
+     * @param roomId     聊天室 id
+     * @param partition  连接所属工作线程的下标
+     * @param connection 连接
+     * @author shiloh
+     * @date 2026/10/18 22:43
+     */
+    public void leave(int roomId, int partition, ChatConnection connection) {
+        final Room room = this.room(roomId);
+        if (room == null || connection.slot(roomId) < 0) {
+            return;
+        }
+        room.remove(partition, connection);
+        if (room.release()) {
+            this.retire(room);
+        }
+    }
+
+    /**
+     * 新建聊天室，多个工作线程可能同时新建，需要加锁
+     */
+    private synchronized Room createRoom(int roomId) {
+        final Room current = this.rooms.get(roomId);
+        if (current != null && !current.retired()) {
+            return current;
+        }
+        if (current != null) {
+            // 删除它的线程还在等锁，先关闭旧的日志，保证同一个聊天室的日志同时只被打开一次
+            this.closeLog(current);
+        }
+        final Room room = new Room(roomId, this.partitions);
+        this.rooms.set(roomId, room);
+        return room;
+    }
+
+    /**
+     * 删除已经没有成员的聊天室
+     */
+    private synchronized void retire(Room room) {
+        this.rooms.compareAndSet(room.id, room, null);
+        this.closeLog(room);
+    }
+
+    /**
+     * 获取聊天室的日志并持有一个引用，日志还没打开时打开，可以在任意线程调用；返回的日志在 {@link #releaseLog} 之前不会被关闭
+     * （聊天室被删除时除外）
+     *
+     * @param room 聊天室
+     * @return 日志，没有配置日志或打开失败时返回 null，这时不需要释放
+     * @author shiloh
+     * @date 2026/10/19 10:00
+     */
+    public MessageLog acquireLog(Room room) {
+        if (this.logFactory == null) {
+            return null;
+        }
+        // 先增加引用再读取日志，与 evictLog 中先清空日志再检查引用配合，保证读取到的日志不会被关闭
+        room.logPins.incrementAndGet();
+        final MessageLog log = room.log;
+        if (log != null) {
+            if (!room.logUsed) {
+                room.logUsed = true;
+            }
+            return log;
+        }
+        final MessageLog opened = this.openLog(room);
+        if (opened == null) {
+            room.logPins.decrementAndGet();
+        }
+        return opened;
+    }
+
+    /**
+     * 释放 {@link #acquireLog} 持有的引用
+     *
+     * @param room 聊天室
+     * @author shiloh
+     * @date 2026/10/19 10:01
+     */
+    public void releaseLog(Room room) {
+        room.logPins.decrementAndGet();
+    }
+
+    /**
+     * 打开聊天室的日志，打开的日志达到上限时先关闭一个最近没有使用的日志
+     */
+    private synchronized MessageLog openLog(Room room) {
+        if (room.log != null) {
+            room.logUsed = true;
+            return room.log;
+        }
+        if (room.logFailed || room.retired()) {
+            return null;
+        }
+        if (this.openLogs.size() >= this.maxOpenLogs) {
+            this.evictLog();
+        }
+        final MessageLog log;
+        try {
+            log = this.logFactory.open(room.id);
+        } catch (IOException e) {
+            // 日志打开失败时聊天室照常使用，只是不保存历史消息，也不再重试
+            e.printStackTrace();
+            room.logFailed = true;
+            return null;
+        }
+        room.logUsed = true;
+        room.log = log;
+        this.openLogs.add(room);
+        return log;
+    }
+
+    /**
+     * 按 CLOCK 算法关闭一个日志：最近使用过的日志清除使用标记后跳过，持有引用的日志跳过，最多扫描两圈
+     */
+    private void evictLog() {
+        final List<Room> open = this.openLogs;
+        for (int i = 0, n = open.size() * 2; i < n; i++) {
+            if (this.clockHand >= open.size()) {
+                this.clockHand = 0;
+            }
+            final Room candidate = open.get(this.clockHand);
+            if (candidate.logUsed) {
+                candidate.logUsed = false;
+                this.clockHand++;
+                continue;
+            }
+            final MessageLog log = candidate.log;
+            candidate.log = null;
+            if (candidate.logPins.get() > 0) {
+                // 有线程正在使用，可能已经读取到了日志，不能关闭
+                candidate.log = log;
+                this.clockHand++;
+                continue;
+            }
+            open.set(this.clockHand, open.get(open.size() - 1));
+            open.remove(open.size() - 1);
+            closeQuietly(log);
+            return;
+        }
+    }
+
+    /**
+     * 关闭聊天室的日志，持有锁时调用
+     */
+    private void closeLog(Room room) {
+        final MessageLog log = room.log;
+        if (log != null) {
+            room.log = null;
+            this.openLogs.remove(room);
+            closeQuietly(log);
+        }
+    }
+
+    private static void closeQuietly(MessageLog log) {
+        try {
+            log.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 关闭所有聊天室的日志，服务端停止时调用
+     *
+     * @author shiloh
+     * @date 2026/10/18 23:30
+     */
+    public synchronized void close() {
+        for (final Room room : this.openLogs) {
+            closeQuietly(room.log);
+            room.log = null;
+        }
+        this.openLogs.clear();
+    }
+
+    /**
+     * 聊天室日志工厂
+     */
+    @FunctionalInterface
+    public interface LogFactory {
+        /**
+         * 打开聊天室的日志
+         *
+         * @param roomId 聊天室 id
+         * @return 日志
+         * @throws IOException 打开失败
+         */
+        MessageLog open(int roomId) throws IOException;
+    }
+
+    /**
+     * 一个聊天室
+     */
+    public static final class Room {
+        private final int id;
+
+        /**
+         * 按工作线程分区的成员
+         */
+        private final Partition[] partitions;
+
+        /**
+         * 成员数量，最后一个成员退出后置为 -1，表示聊天室已删除，不能再加入
+         */
+        private final AtomicInteger memberCount = new AtomicInteger();
+
+        /**
+         * 历史消息日志，还没打开或已经被关闭时为 null，只在持有 RoomIndex 的锁时修改
+         */
+        private volatile MessageLog log;
+
+        /**
+         * 日志的引用数量，见 {@link RoomIndex#acquireLog}
+         */
+        private final AtomicInteger logPins = new AtomicInteger();
+
+        /**
+         * 日志最近是否被使用过，CLOCK 算法的访问标记
+         */
+        private volatile boolean logUsed;
+
+        /**
+         * 日志打开失败，不再重试
+         */
+        private boolean logFailed;
+
+        private Room(int id, int partitions) {
+            this.id = id;
+            this.partitions = new Partition[partitions];
+            for (int i = 0; i < partitions; i++) {
+                this.partitions[i] = new Partition();
+            }
+        }
+
+        public int id() {
+            return this.id;
+        }
+
+        /**
+         * 一个分区的成员数量，可以在任意线程调用
+         *
+         * @param partition 工作线程的下标
+         * @return 成员数量
+         */
+        public int size(int partition) {
+            return this.partitions[partition].size;
+        }
+
+        /**
+         * 获取一个分区的成员，只能在对应的工作线程调用，不能修改返回的数组，有效的成员是前 {@link #size(int)} 个
+         * <p>
+         * 成员退出时最后一个成员会移到空出的位置，遍历期间可能关闭当前连接时需要从后往前遍历，这样不会漏掉成员。
+         *
+         * @param partition 工作线程的下标
+         * @return 成员
+         */
+        public ChatConnection[] members(int partition) {
+            return this.partitions[partition].members;
+        }
+
+        private boolean retired() {
+            return this.memberCount.get() < 0;
+        }
+
+        /**
+         * 增加一个成员计数，聊天室已删除时返回 false
+         */
+        private boolean acquire() {
+            for (;;) {
+                final int count = this.memberCount.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (this.memberCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 减少一个成员计数，最后一个成员退出时把聊天室标记为已删除并返回 true
+         */
+        private boolean release() {
+            return this.memberCount.decrementAndGet() == 0 && this.memberCount.compareAndSet(0, -1);
+        }
+
+        private void add(int partition, ChatConnection connection) {
+            final Partition members = this.partitions[partition];
+            if (members.size == members.members.length) {
+                members.members = Arrays.copyOf(members.members, Math.max(4, members.size * 2));
+            }
+            final int slot = members.size;
+            members.members[slot] = connection;
+            connection.joined(this.id, slot);
+            members.size = slot + 1;
+        }
+
+        private void remove(int partition, ChatConnection connection) {
+            final Partition members = this.partitions[partition];
+            final int slot = connection.left(this.id);
+            final int last = members.size - 1;
+            if (slot != last) {
+                final ChatConnection moved = members.members[last];
+                members.members[slot] = moved;
+                moved.moved(this.id, slot);
+            }
+            members.members[last] = null;
+            members.size = last;
+        }
+    }
+
+    /**
+     * 一个工作线程中的成员，数组只由对应的工作线程读写，成员数量会被其他线程读取
+     */
+    private static final class Partition {
+        private ChatConnection[] members = EMPTY;
+
+        private volatile int size;
+    }
+}
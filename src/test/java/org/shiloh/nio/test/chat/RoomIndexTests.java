@@ -0,0 +1,160 @@
+package org.shiloh.nio.test.chat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.shiloh.log.MessageLog;
+import org.shiloh.log.MessageLogConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link RoomIndex} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/19 09:50
+ */
+public class RoomIndexTests {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static ChatConnection connection() {
+        return new ChatConnection(null, null, null, null, null);
+    }
+
+    private static ChatConnection[] members(RoomIndex.Room room, int partition) {
+        return Arrays.copyOf(room.members(partition), room.size(partition));
+    }
+
+    /**
+     * 退出时最后一个成员移到空出的位置，连接上记录的下标随之更新
+     *
+     * @author shiloh
+     * @date 2026/10/19 09:51
+     */
+    @Test
+    public void testSwapRemove() {
+        final RoomIndex index = new RoomIndex(2, 16);
+        final ChatConnection a = connection();
+        final ChatConnection b = connection();
+        final ChatConnection c = connection();
+        final ChatConnection d = connection();
+        final RoomIndex.Room room = index.join(3, 0, a);
+        assertThat(index.join(3, 0, b)).isSameAs(room);
+        index.join(3, 0, c);
+        index.join(3, 1, d);
+        // 重复加入不会重复添加
+        index.join(3, 0, b);
+        assertThat(members(room, 0)).containsExactly(a, b, c);
+        assertThat(room.size(1)).isEqualTo(1);
+
+        index.leave(3, 0, a);
+        assertThat(members(room, 0)).containsExactly(c, b);
+        assertThat(c.slot(3)).isZero();
+        assertThat(a.slot(3)).isEqualTo(-1);
+
+        index.leave(3, 0, b);
+        assertThat(members(room, 0)).containsExactly(c);
+        // 没有加入的连接退出不影响成员
+        index.leave(3, 0, b);
+        assertThat(members(room, 0)).containsExactly(c);
+        assertThat(index.room(3)).isSameAs(room);
+    }
+
+    /**
+     * 最后一个成员退出后聊天室被删除，再次加入时重新创建
+     *
+     * @author shiloh
+     * @date 2026/10/19 09:52
+     */
+    @Test
+    public void testDropEmptyRoom() {
+        final RoomIndex index = new RoomIndex(2, 16);
+        final ChatConnection a = connection();
+        final ChatConnection b = connection();
+        final RoomIndex.Room room = index.join(5, 0, a);
+        index.join(5, 1, b);
+        index.leave(5, 0, a);
+        assertThat(index.room(5)).isSameAs(room);
+        index.leave(5, 1, b);
+        assertThat(index.room(5)).isNull();
+
+        final RoomIndex.Room recreated = index.join(5, 1, b);
+        assertThat(recreated).isNotSameAs(room);
+        assertThat(members(recreated, 1)).containsExactly(b);
+        assertThat(b.currentRoom()).isEqualTo(5);
+    }
+
+    /**
+     * 超出范围的聊天室 id 不能加入
+     *
+     * @author shiloh
+     * @date 2026/10/19 09:53
+     */
+    @Test
+    public void testRoomIdOutOfRange() {
+        final RoomIndex index = new RoomIndex(1, 16);
+        final ChatConnection a = connection();
+        assertThat(index.join(16, 0, a)).isNull();
+        assertThat(index.join(-1, 0, a)).isNull();
+        assertThat(index.room(16)).isNull();
+        assertThat(a.rooms()).isEmpty();
+        assertThat(index.join(15, 0, a)).isNotNull();
+    }
+
+    /**
+     * 日志在第一次使用时才打开，超过上限时关闭最近没有使用且没有引用的日志
+     *
+     * @author shiloh
+     * @date 2026/10/19 10:10
+     */
+    @Test
+    public void testLazyBoundedLogs() throws IOException {
+        final List<Integer> opened = new ArrayList<>();
+        final RoomIndex index = new RoomIndex(1, 16, 2, roomId -> {
+            opened.add(roomId);
+            return MessageLog.open(this.folder.getRoot().toPath().resolve("room-" + roomId),
+                    new MessageLogConfig(1024, 64, 5, 0, 0));
+        });
+        final RoomIndex.Room[] rooms = new RoomIndex.Room[3];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = index.join(i, 0, connection());
+        }
+        assertThat(opened).isEmpty();
+
+        final MessageLog first = index.acquireLog(rooms[0]);
+        final MessageLog second = index.acquireLog(rooms[1]);
+        assertThat(second.append(frame())).isZero();
+        index.releaseLog(rooms[1]);
+        assertThat(opened).containsExactly(0, 1);
+        // 第 0 个日志持有引用，只能关闭第 1 个
+        final MessageLog third = index.acquireLog(rooms[2]);
+        assertThat(opened).containsExactly(0, 1, 2);
+        assertThat(first.append(frame())).isZero();
+        assertThat(third.append(frame())).isZero();
+        assertThatThrownBy(() -> second.append(frame())).isInstanceOf(ClosedChannelException.class);
+        index.releaseLog(rooms[2]);
+        index.releaseLog(rooms[0]);
+
+        // 再次使用时重新打开，已经写入的记录还在
+        final MessageLog reopened = index.acquireLog(rooms[1]);
+        assertThat(reopened).isNotSameAs(second);
+        assertThat(reopened.nextId()).isEqualTo(1);
+        index.releaseLog(rooms[1]);
+        index.close();
+    }
+
+    private static ByteBuffer frame() {
+        final ByteBuffer frame = ByteBuffer.allocate(5);
+        frame.putInt(1).put((byte) 'x').flip();
+        return frame;
+    }
+}
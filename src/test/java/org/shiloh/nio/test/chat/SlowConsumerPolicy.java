@@ -0,0 +1,27 @@
+package org.shiloh.nio.test.chat;
+
+/**
+ * 慢消费者策略：连接的发送队列超过高水位时的处理方式
+ *
+ * @author shiloh
+ * @date 2026/10/18 21:50
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * 停止读取该客户端发送的数据，发送队列降到低水位后恢复读取
+     * <p>
+     * 客户端不读数据时也不让它继续发送，TCP 窗口会把压力反馈给客户端；发往它的消息继续排队，
+     * 超过每个连接的硬上限（{@link OutboundLimits#maxConnectionBytes()}）时断开连接。
+     */
+    PAUSE_READ,
+
+    /**
+     * 丢弃发送队列中最旧的消息（正在写出的那条除外），直到不超过高水位
+     */
+    DROP_OLDEST,
+
+    /**
+     * 断开连接
+     */
+    DISCONNECT
+}
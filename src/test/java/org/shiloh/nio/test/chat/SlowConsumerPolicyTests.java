@@ -0,0 +1,248 @@
+package org.shiloh.nio.test.chat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.shiloh.buffer.RefCountedBuffer;
+import org.shiloh.metrics.ConnectionMetrics;
+import org.shiloh.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link SlowConsumerPolicy} 单元测试：服务端一侧是真实的非阻塞连接，客户端不读取数据，收发缓冲区都设置得很小，
+ * 发送队列很快积压
+ *
+ * @author shiloh
+ * @date 2026/10/19 11:05
+ */
+public class SlowConsumerPolicyTests {
+    private static final int KB = 1024;
+
+    /**
+     * 每条消息的帧长度，远大于 socket 的收发缓冲区
+     */
+    private static final int MESSAGE = 100 * KB;
+
+    private final ServerMetrics serverMetrics = new ServerMetrics("test");
+
+    private ServerSocketChannel listener;
+    private SocketChannel client;
+    private SocketChannel accepted;
+    private Selector selector;
+    private SelectionKey key;
+    private ChatWorker worker;
+    private ConnectionMetrics metrics;
+
+    @Before
+    public void setUp() throws IOException {
+        this.listener = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        this.client = SocketChannel.open();
+        // 必须在连接之前设置，否则 TCP 窗口已经协商好了
+        this.client.setOption(StandardSocketOptions.SO_RCVBUF, 4 * KB);
+        this.client.connect(this.listener.getLocalAddress());
+        this.accepted = this.listener.accept();
+        this.accepted.setOption(StandardSocketOptions.SO_SNDBUF, 4 * KB);
+        this.accepted.configureBlocking(false);
+        this.selector = Selector.open();
+        this.key = this.accepted.register(this.selector, OP_READ);
+        this.worker = new ChatWorker(null, 0, "test", this.serverMetrics.newEventLoop("test"));
+        this.metrics = this.serverMetrics.connectionOpened("test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.worker.shutdown();
+        this.selector.close();
+        this.accepted.close();
+        this.client.close();
+        this.listener.close();
+    }
+
+    private ChatConnection connection(SlowConsumerPolicy policy, long maxConnectionBytes) {
+        final OutboundLimits limits = new OutboundLimits(64 * KB, 256 * KB, maxConnectionBytes, 64L * 1024 * KB,
+                policy);
+        final ChatConnection connection = new ChatConnection(this.worker, this.accepted, this.key, this.metrics,
+                limits);
+        this.key.attach(connection);
+        return connection;
+    }
+
+    private static RefCountedBuffer message(char fill) {
+        final ByteBuffer frame = ByteBuffer.allocate(MESSAGE);
+        frame.putInt(MESSAGE - 4);
+        while (frame.hasRemaining()) {
+            frame.put((byte) fill);
+        }
+        return RefCountedBuffer.wrap(frame.flip());
+    }
+
+    /**
+     * 放入第一条消息并写出一部分，之后的消息只排队，不会在入队时提前写出
+     *
+     * @return 队首消息剩余的字节数
+     */
+    private static long startWriting(ChatConnection connection) throws IOException {
+        connection.enqueue(message('a'));
+        connection.flushScheduled();
+        return connection.queuedBytes();
+    }
+
+    /**
+     * 写出发送队列并读取客户端收到的数据，直到读到 bytes 个字节
+     */
+    private ByteBuffer drain(ChatConnection connection, int bytes) throws IOException {
+        final ByteBuffer received = ByteBuffer.allocate(bytes);
+        this.client.configureBlocking(false);
+        while (received.hasRemaining()) {
+            connection.flush();
+            if (this.client.read(received) < 0) {
+                break;
+            }
+        }
+        return received.flip();
+    }
+
+    /**
+     * 超过高水位立即断开
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:06
+     */
+    @Test
+    public void testDisconnect() throws IOException {
+        final ChatConnection connection = this.connection(SlowConsumerPolicy.DISCONNECT, 1024 * KB);
+        startWriting(connection);
+        while (connection.queuedBytes() + MESSAGE <= 256 * KB) {
+            connection.enqueue(message('b'));
+        }
+        assertThatThrownBy(() -> connection.enqueue(message('c'))).isInstanceOf(IOException.class);
+    }
+
+    /**
+     * 超过高水位停止读取，降到低水位恢复读取
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:07
+     */
+    @Test
+    public void testPauseReadAndResume() throws IOException {
+        final ChatConnection connection = this.connection(SlowConsumerPolicy.PAUSE_READ, 1024 * KB);
+        startWriting(connection);
+        for (int i = 0; i < 3; i++) {
+            connection.enqueue(message('b'));
+        }
+        assertThat(connection.queuedBytes()).isGreaterThan(256 * KB);
+        assertThat(this.key.interestOps() & OP_READ).isZero();
+
+        // 客户端收到的字节数不超过已经写出的字节数，读到这么多时队列一定不超过低水位
+        this.drain(connection, 4 * MESSAGE - 64 * KB);
+        connection.flush();
+        assertThat(connection.queuedBytes()).isLessThanOrEqualTo(64 * KB);
+        assertThat(this.key.interestOps() & OP_READ).isEqualTo(OP_READ);
+    }
+
+    /**
+     * 暂停读取时发往它的消息继续排队，超过每个连接的硬上限时断开
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:08
+     */
+    @Test
+    public void testPauseReadHardLimit() throws IOException {
+        final ChatConnection connection = this.connection(SlowConsumerPolicy.PAUSE_READ, 512 * KB);
+        startWriting(connection);
+        while (connection.queuedBytes() + MESSAGE <= 512 * KB) {
+            connection.enqueue(message('b'));
+        }
+        assertThat(this.key.interestOps() & OP_READ).isZero();
+        assertThatThrownBy(() -> connection.enqueue(message('c'))).isInstanceOf(IOException.class);
+        assertThat(this.metrics.messagesDropped()).isEqualTo(1);
+    }
+
+    /**
+     * 丢弃最旧的消息直到不超过高水位，已经写出一部分的队首消息保留，客户端收到的帧是完整的
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:09
+     */
+    @Test
+    public void testDropOldestKeepsPartialHead() throws IOException {
+        final ChatConnection connection = this.connection(SlowConsumerPolicy.DROP_OLDEST, 1024 * KB);
+        final long headRemaining = startWriting(connection);
+        assertThat(headRemaining).isBetween(1L, MESSAGE - 1L);
+
+        final String fills = "bcdef";
+        for (int i = 0; i < fills.length(); i++) {
+            connection.enqueue(message(fills.charAt(i)));
+        }
+        // 高水位以内能放下的最新的几条消息被保留
+        final int kept = (int) ((256 * KB - headRemaining) / MESSAGE);
+        assertThat(kept).isGreaterThan(0);
+        assertThat(connection.queuedBytes()).isEqualTo(headRemaining + (long) kept * MESSAGE);
+        assertThat(this.metrics.messagesDropped()).isEqualTo(fills.length() - kept);
+
+        final ByteBuffer received = this.drain(connection, (1 + kept) * MESSAGE);
+        assertThat(connection.queuedBytes()).isZero();
+        final String expected = "a" + fills.substring(fills.length() - kept);
+        for (int i = 0; i < expected.length(); i++) {
+            assertThat(received.getInt()).isEqualTo(MESSAGE - 4);
+            for (int j = 0; j < MESSAGE - 4; j++) {
+                assertThat(received.get()).isEqualTo((byte) expected.charAt(i));
+            }
+        }
+        assertThat(received.hasRemaining()).isFalse();
+    }
+
+    /**
+     * 开启了消息 id 时，消息 id 帧和它的消息一起丢弃，保留下来的每条消息前面都是它自己的消息 id 帧
+     *
+     * @author shiloh
+     * @date 2026/10/19 12:35
+     */
+    @Test
+    public void testDropOldestWithMessageIds() throws IOException {
+        final ChatConnection connection = this.connection(SlowConsumerPolicy.DROP_OLDEST, 1024 * KB);
+        connection.messageIds(true);
+        final String fills = "abcdef";
+        int idFrameLength = 0;
+        for (int i = 0; i < fills.length(); i++) {
+            final RefCountedBuffer idFrame = ChatConnection.messageIdFrame(1, i);
+            idFrameLength = idFrame.length();
+            connection.enqueue(message(fills.charAt(i)), 1, i, idFrame);
+            idFrame.release();
+            if (i == 0) {
+                connection.flushScheduled();
+            }
+        }
+        final long headRemaining = connection.queuedBytes() % (MESSAGE + idFrameLength);
+        final int kept = (int) ((256 * KB - headRemaining) / (MESSAGE + idFrameLength));
+        assertThat(this.metrics.messagesDropped()).isEqualTo(fills.length() - 1 - kept);
+
+        final ByteBuffer received = this.drain(connection, (1 + kept) * (MESSAGE + idFrameLength));
+        final String expected = "a" + fills.substring(fills.length() - kept);
+        for (int i = 0; i < expected.length(); i++) {
+            final byte[] idText = new byte[received.getInt()];
+            received.get(idText);
+            assertThat(new String(idText, StandardCharsets.US_ASCII))
+                    .isEqualTo(ChatConnection.MESSAGE_ID_PREFIX + "1 " + fills.indexOf(expected.charAt(i)));
+            assertThat(received.getInt()).isEqualTo(MESSAGE - 4);
+            for (int j = 0; j < MESSAGE - 4; j++) {
+                assertThat(received.get()).isEqualTo((byte) expected.charAt(i));
+            }
+        }
+        assertThat(received.hasRemaining()).isFalse();
+    }
+}
@@ -0,0 +1,73 @@
+package org.shiloh.nio.test.chat;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 聊天服务端单元测试使用的阻塞模式客户端，收发 4 字节长度 + 内容的消息帧
+ *
+ * @author shiloh
+ * @date 2026/10/19 12:00
+ */
+final class TestChatClient implements AutoCloseable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * @param port          服务端端口
+     * @param timeoutMillis 读取的超时时间
+     * @throws IOException 连接失败
+     */
+    TestChatClient(int port, int timeoutMillis) throws IOException {
+        this.socket = new Socket();
+        this.socket.connect(new InetSocketAddress(GroupChatServer.HOST, port));
+        this.socket.setSoTimeout(timeoutMillis);
+        this.in = new DataInputStream(this.socket.getInputStream());
+        this.out = new DataOutputStream(this.socket.getOutputStream());
+    }
+
+    /**
+     * 发送一条消息
+     *
+     * @param text 消息内容
+     * @throws IOException 发送失败
+     * @author shiloh
+     * @date 2026/10/19 12:01
+     */
+    void send(String text) throws IOException {
+        final byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        this.out.writeInt(payload.length);
+        this.out.write(payload);
+        this.out.flush();
+    }
+
+    /**
+     * 读取下一条消息，跳过心跳帧
+     *
+     * @return 消息内容
+     * @throws IOException 读取失败、超时或者连接已关闭
+     * @author shiloh
+     * @date 2026/10/19 12:02
+     */
+    String receive() throws IOException {
+        while (true) {
+            final int length = this.in.readInt();
+            if (length == 0) {
+                continue;
+            }
+            final byte[] payload = new byte[length];
+            this.in.readFully(payload);
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    }
+}
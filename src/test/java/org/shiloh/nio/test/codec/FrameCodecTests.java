@@ -0,0 +1,122 @@
+package org.shiloh.nio.test.codec;
+
+import org.junit.Test;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 长度前缀帧编解码单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/18 11:30
+ */
+public class FrameCodecTests {
+    /**
+     * 一次读取到多个帧（粘包）以及半个帧（拆包）
+     *
+     * @author shiloh
+     * @date 2026/10/18 11:31
+     */
+    @Test
+    public void testCoalescedAndPartialFrames() throws IOException {
+        final ByteBuffer stream = ByteBuffer.allocate(64);
+        stream.put(FrameEncoder.encode("你好".getBytes(UTF_8)))
+                .put(FrameEncoder.encode("nio".getBytes(UTF_8)))
+                .put(FrameEncoder.encode(new byte[0]))
+                .put(FrameEncoder.encode("last".getBytes(UTF_8)))
+                .flip();
+
+        final FrameDecoder frameDecoder = new FrameDecoder();
+        final List<String> messages = new ArrayList<>();
+        // 第一次只给到第四个帧的一半
+        frameDecoder.append(stream.slice(0, stream.limit() - 3));
+        frameDecoder.decode(frame -> messages.add(UTF_8.decode(frame).toString()));
+        assertThat(messages).containsExactly("你好", "nio", "");
+        assertThat(frameDecoder.pendingBytes()).isEqualTo(5);
+
+        frameDecoder.append(stream.slice(stream.limit() - 3, 3));
+        frameDecoder.decode(frame -> messages.add(UTF_8.decode(frame).toString()));
+        assertThat(messages).containsExactly("你好", "nio", "", "last");
+        assertThat(frameDecoder.pendingBytes()).isZero();
+    }
+
+    /**
+     * 帧长度超过初始缓冲区，需要多次读取并扩容
+     *
+     * @author shiloh
+     * @date 2026/10/18 11:32
+     */
+    @Test
+    public void testFrameSpanningManyReads() throws IOException {
+        final byte[] payload = new byte[10_000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        final ByteBuffer frame = FrameEncoder.encode(payload);
+
+        final FrameDecoder frameDecoder = new FrameDecoder(1024 * 1024, 16);
+        final List<byte[]> frames = new ArrayList<>();
+        while (frame.hasRemaining()) {
+            // 每次只追加 7 个字节，模拟多次 read
+            final int length = Math.min(7, frame.remaining());
+            frameDecoder.append(frame.slice(frame.position(), length));
+            frame.position(frame.position() + length);
+            frameDecoder.decode(f -> {
+                final byte[] data = new byte[f.remaining()];
+                f.get(data);
+                frames.add(data);
+            });
+        }
+        assertThat(frames).hasSize(1);
+        assertThat(frames.get(0)).isEqualTo(payload);
+    }
+
+    /**
+     * 帧长度超过限制时抛出异常
+     *
+     * @author shiloh
+     * @date 2026/10/18 11:33
+     */
+    @Test
+    public void testFrameTooLong() {
+        final FrameDecoder frameDecoder = new FrameDecoder(8, 16);
+        frameDecoder.append(FrameEncoder.encode(new byte[9]));
+        assertThatThrownBy(() -> frameDecoder.decode(frame -> {}))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("invalid frame length");
+    }
+
+    /**
+     * 在回调中释放解码器（关闭连接）后，decode 不再读取已经归还的缓冲区
+     *
+     * @author shiloh
+     * @date 2026/10/19 09:12
+     */
+    @Test
+    public void testReleaseInsideHandler() throws IOException {
+        final ByteBuffer stream = ByteBuffer.allocate(64);
+        stream.put(FrameEncoder.encode("a".getBytes(UTF_8)))
+                .put(FrameEncoder.encode("b".getBytes(UTF_8)))
+                .putInt(10).put((byte) 'c')
+                .flip();
+        final FrameDecoder frameDecoder = new FrameDecoder();
+        frameDecoder.append(stream);
+        final List<String> messages = new ArrayList<>();
+        final int frames = frameDecoder.decode(frame -> {
+            messages.add(UTF_8.decode(frame).toString());
+            frameDecoder.release();
+        });
+        assertThat(frames).isEqualTo(1);
+        assertThat(messages).containsExactly("a");
+        assertThat(frameDecoder.pendingBytes()).isZero();
+    }
+}
@@ -0,0 +1,167 @@
+package org.shiloh.nio.test.codec;
+
+import org.junit.After;
+import org.junit.Test;
+import org.shiloh.codec.FrameCompressor;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 帧压缩单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/19 02:20
+ */
+public class FrameCompressorTests {
+    private static final String MESSAGE = "127.0.0.1:52011说: 明天上午的会议改到下午了，大家记得更新一下项目的发布计划，"
+            + "server 和 client 都需要重新 deploy，有什么问题可以现在说，谢谢 thanks please update the issue";
+
+    private final FrameCompressor compressor = new FrameCompressor(Deflater.BEST_SPEED, 64,
+            FrameCompressor.DEFAULT_DICTIONARY);
+
+    @After
+    public void tearDown() {
+        this.compressor.end();
+    }
+
+    /**
+     * 直接缓冲区压缩后再解压，得到原始负载
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:21
+     */
+    @Test
+    public void testRoundTripWithDirectBuffers() throws IOException {
+        final byte[] payload = MESSAGE.getBytes(UTF_8);
+        final ByteBuffer src = ByteBuffer.allocateDirect(payload.length).put(payload).flip();
+        final ByteBuffer frame = ByteBuffer.allocateDirect(FrameCompressor.maxFrameLength(payload.length));
+
+        assertThat(this.compressor.compress(src, frame)).isTrue();
+        assertThat(src.hasRemaining()).isFalse();
+        frame.flip();
+        final int header = frame.getInt();
+        assertThat(header & FrameCompressor.COMPRESSED_FLAG).isNotZero();
+        assertThat(header & ~FrameCompressor.COMPRESSED_FLAG).isEqualTo(frame.remaining());
+        assertThat(frame.remaining()).isLessThan(payload.length);
+        assertThat(FrameCompressor.originalLength(frame)).isEqualTo(payload.length);
+
+        final ByteBuffer dest = ByteBuffer.allocateDirect(payload.length);
+        this.compressor.decompress(frame, dest);
+        assertThat(UTF_8.decode(dest.flip()).toString()).isEqualTo(MESSAGE);
+    }
+
+    /**
+     * 预置字典让短消息也能压缩得更小
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:22
+     */
+    @Test
+    public void testDictionaryShrinksShortMessages() {
+        final FrameCompressor plain = new FrameCompressor(Deflater.BEST_SPEED, 0, null);
+        try {
+            final byte[] payload = MESSAGE.getBytes(UTF_8);
+            final ByteBuffer withDictionary = ByteBuffer.allocate(FrameCompressor.maxFrameLength(payload.length));
+            final ByteBuffer withoutDictionary = ByteBuffer.allocate(FrameCompressor.maxFrameLength(payload.length));
+            assertThat(this.compressor.compress(ByteBuffer.wrap(payload), withDictionary)).isTrue();
+            if (plain.compress(ByteBuffer.wrap(payload), withoutDictionary)) {
+                assertThat(withDictionary.position()).isLessThan(withoutDictionary.position());
+            }
+        } finally {
+            plain.end();
+        }
+    }
+
+    /**
+     * 小于阈值或者压缩后不会更小时放弃压缩，输入输出都不变
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:23
+     */
+    @Test
+    public void testSkipsSmallAndIncompressiblePayloads() {
+        final ByteBuffer dest = ByteBuffer.allocate(FrameCompressor.maxFrameLength(1024));
+        final ByteBuffer small = ByteBuffer.wrap("你好".getBytes(UTF_8));
+        assertThat(this.compressor.compress(small, dest)).isFalse();
+        assertThat(small.remaining()).isEqualTo(6);
+
+        final byte[] random = new byte[1024];
+        new Random(42).nextBytes(random);
+        final ByteBuffer incompressible = ByteBuffer.wrap(random);
+        assertThat(this.compressor.compress(incompressible, dest)).isFalse();
+        assertThat(incompressible.remaining()).isEqualTo(1024);
+        assertThat(dest.position()).isZero();
+    }
+
+    /**
+     * 开启解压的解码器可以处理普通帧和压缩帧混合的数据流，没有开启时压缩帧视为非法
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:24
+     */
+    @Test
+    public void testDecoderHandlesMixedFrames() throws IOException {
+        final byte[] payload = MESSAGE.getBytes(UTF_8);
+        final ByteBuffer stream = ByteBuffer.allocate(1024);
+        stream.put(FrameEncoder.encode("hi".getBytes(UTF_8)));
+        assertThat(this.compressor.compress(ByteBuffer.wrap(payload), stream)).isTrue();
+        stream.put(FrameEncoder.encode(new byte[0])).flip();
+
+        final FrameDecoder frameDecoder = new FrameDecoder(1024, 16);
+        frameDecoder.decompressWith(this.compressor);
+        final List<String> messages = new ArrayList<>();
+        // 每次追加 5 个字节，压缩帧也会被拆开
+        while (stream.hasRemaining()) {
+            final int length = Math.min(5, stream.remaining());
+            frameDecoder.append(stream.slice(stream.position(), length));
+            stream.position(stream.position() + length);
+            frameDecoder.decode(frame -> messages.add(UTF_8.decode(frame).toString()));
+        }
+        assertThat(messages).containsExactly("hi", MESSAGE, "");
+        frameDecoder.release();
+
+        final FrameDecoder strict = new FrameDecoder();
+        final ByteBuffer compressed = ByteBuffer.allocate(FrameCompressor.maxFrameLength(payload.length));
+        this.compressor.compress(ByteBuffer.wrap(payload), compressed);
+        strict.append(compressed.flip());
+        assertThatThrownBy(() -> strict.decode(frame -> {
+        })).isInstanceOf(IOException.class);
+        strict.release();
+    }
+
+    /**
+     * 损坏的压缩帧和超过最大帧长度的原始长度都会报错
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:25
+     */
+    @Test
+    public void testRejectsCorruptedFrames() {
+        final byte[] payload = MESSAGE.getBytes(UTF_8);
+        final ByteBuffer frame = ByteBuffer.allocate(FrameCompressor.maxFrameLength(payload.length));
+        this.compressor.compress(ByteBuffer.wrap(payload), frame);
+        frame.flip();
+
+        final ByteBuffer truncated = frame.slice(FrameDecoder.HEADER_LENGTH, frame.limit() / 2);
+        assertThatThrownBy(() -> this.compressor.decompress(truncated, ByteBuffer.allocate(payload.length)))
+                .isInstanceOf(IOException.class);
+
+        final FrameDecoder frameDecoder = new FrameDecoder(payload.length - 1, 16);
+        frameDecoder.decompressWith(this.compressor);
+        frameDecoder.append(frame);
+        assertThatThrownBy(() -> frameDecoder.decode(f -> {
+        })).isInstanceOf(IOException.class).hasMessageContaining("original length");
+        frameDecoder.release();
+    }
+}
@@ -0,0 +1,111 @@
+package org.shiloh.nio.test.codec;
+
+import org.junit.Test;
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.TextCodec;
+import org.shiloh.codec.TextDecoder;
+import org.shiloh.codec.TextView;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 文本编解码单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/19 02:55
+ */
+public class TextCodecTests {
+    private static final String TEXT = "你好, nio 😀 聊天室";
+
+    /**
+     * 编码到缓冲池的帧中，再解码回字符串
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:56
+     */
+    @Test
+    public void testEncodeFrameAndDecode() {
+        final BufferPool pool = new BufferPool();
+        final ByteBuffer frame = TextCodec.encodeFrame(TEXT, pool);
+        assertThat(frame.isDirect()).isTrue();
+        final byte[] expected = TEXT.getBytes(UTF_8);
+        assertThat(frame.getInt()).isEqualTo(expected.length);
+        assertThat(frame.remaining()).isEqualTo(expected.length);
+        assertThat(TextCodec.decode(frame)).isEqualTo(TEXT);
+        assertThat(frame.hasRemaining()).isFalse();
+        pool.release(frame);
+    }
+
+    /**
+     * 空间不足时抛出异常并且不写入任何数据，非法字符替换为替换字符
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:57
+     */
+    @Test
+    public void testOverflowAndMalformedInput() {
+        final ByteBuffer small = ByteBuffer.allocate(4);
+        assertThatThrownBy(() -> TextCodec.encode("你好", small)).isInstanceOf(BufferOverflowException.class);
+        assertThat(small.position()).isZero();
+
+        assertThat(TextCodec.encode("a\uD800b", small)).isEqualTo(3);
+        assertThat(new String(small.array(), 0, 3, UTF_8)).isEqualTo("a?b");
+        assertThat(TextCodec.decode(ByteBuffer.wrap(new byte[]{'x', (byte) 0xff, 'y'}))).isEqualTo("x�y");
+    }
+
+    /**
+     * 每次只给一个字节，多字节字符被拆开时也能正确解码
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:58
+     */
+    @Test
+    public void testIncrementalDecodeWithCarryOver() {
+        final byte[] bytes = TEXT.getBytes(UTF_8);
+        for (int step = 1; step <= 5; step++) {
+            final TextDecoder decoder = new TextDecoder();
+            final StringBuilder text = new StringBuilder();
+            for (int i = 0; i < bytes.length; i += step) {
+                final ByteBuffer read = ByteBuffer.wrap(bytes, i, Math.min(step, bytes.length - i));
+                text.append(decoder.decode(read));
+                assertThat(read.hasRemaining()).isFalse();
+            }
+            assertThat(decoder.pendingBytes()).isZero();
+            assertThat(text.toString()).as("step %d", step).isEqualTo(TEXT);
+        }
+
+        // 字节流在字符中间结束
+        final TextDecoder decoder = new TextDecoder();
+        assertThat(decoder.decode(ByteBuffer.wrap(bytes, 0, 4)).toString()).isEqualTo("你");
+        assertThat(decoder.pendingBytes()).isEqualTo(1);
+        assertThat(decoder.finish().toString()).isEqualTo("�");
+        assertThat(decoder.pendingBytes()).isZero();
+    }
+
+    /**
+     * 视图不改变字节缓冲区，可以按 CharSequence 读取和解析
+     *
+     * @author shiloh
+     * @date 2026/10/19 02:59
+     */
+    @Test
+    public void testView() {
+        final ByteBuffer bytes = ByteBuffer.wrap("/history 12 345".getBytes(UTF_8));
+        final TextView view = new TextView().wrap(bytes);
+        assertThat(bytes.position()).isZero();
+        assertThat(view.length()).isEqualTo(15);
+        assertThat(view.regionMatches(0, "/history")).isTrue();
+        assertThat(view.regionMatches(10, "/history")).isFalse();
+        assertThat(Integer.parseInt(view, 9, 11, 10)).isEqualTo(12);
+        assertThat(view.subSequence(12, 15).toString()).isEqualTo("345");
+
+        final String longText = "聊".repeat(FrameDecoder.DEFAULT_BUFFER_SIZE);
+        assertThat(view.wrap(ByteBuffer.wrap(longText.getBytes(UTF_8))).toString()).isEqualTo(longText);
+    }
+}
@@ -0,0 +1,179 @@
+package org.shiloh.nio.test.log;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.shiloh.log.LogSlice;
+import org.shiloh.log.MessageLog;
+import org.shiloh.log.MessageLogConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link MessageLog} 单元测试
+ * <p>
+ * 使用很小的段和索引间隔，让少量记录就能覆盖段滚动、稀疏索引查找和保留策略。
+ *
+ * @author shiloh
+ * @date 2026/10/18 23:20
+ */
+public class MessageLogTests {
+    private static final MessageLogConfig SMALL = new MessageLogConfig(1024, 64, 5, 0, 0);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp() {
+        this.directory = this.folder.getRoot().toPath();
+    }
+
+    private static ByteBuffer frame(String content) {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer frame = ByteBuffer.allocate(4 + bytes.length);
+        frame.putInt(bytes.length).put(bytes).flip();
+        return frame;
+    }
+
+    /**
+     * 读取 [fromId, toId) 范围内的记录内容
+     */
+    private static List<String> read(MessageLog log, long fromId, long toId) throws IOException {
+        final List<String> records = new ArrayList<>();
+        long expectedId = -1;
+        for (final LogSlice slice : log.slices(fromId, toId)) {
+            if (expectedId >= 0) {
+                assertThat(slice.firstId()).isEqualTo(expectedId);
+            }
+            expectedId = slice.endId();
+            final ByteBuffer buffer = ByteBuffer.allocate((int) slice.count());
+            while (buffer.hasRemaining()) {
+                slice.channel().read(buffer, slice.position() + buffer.position());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                records.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return records;
+    }
+
+    private static List<String> expected(int from, int to) {
+        final List<String> records = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            records.add("message-" + i);
+        }
+        return records;
+    }
+
+    /**
+     * 写入的记录可以按 id 读出，跨越多个段
+     *
+     * @author shiloh
+     * @date 2026/10/18 23:21
+     */
+    @Test
+    public void testAppendAndReadAcrossSegments() throws IOException {
+        try (MessageLog log = MessageLog.open(this.directory, SMALL)) {
+            for (int i = 0; i < 200; i++) {
+                assertThat(log.append(frame("message-" + i))).isEqualTo(i);
+            }
+            assertThat(log.nextId()).isEqualTo(200);
+            assertThat(log.slices(0, 200).size()).isGreaterThan(1);
+            assertThat(read(log, 0, 200)).isEqualTo(expected(0, 200));
+            assertThat(read(log, 37, 151)).isEqualTo(expected(37, 151));
+            assertThat(read(log, 199, 1000)).isEqualTo(expected(199, 200));
+            assertThat(log.slices(200, 300)).isEmpty();
+        }
+    }
+
+    /**
+     * 重新打开后恢复所有记录，并从原来的 id 继续写入
+     *
+     * @author shiloh
+     * @date 2026/10/18 23:22
+     */
+    @Test
+    public void testReopenRecovers() throws IOException {
+        try (MessageLog log = MessageLog.open(this.directory, SMALL)) {
+            for (int i = 0; i < 150; i++) {
+                log.append(frame("message-" + i));
+            }
+        }
+        try (MessageLog log = MessageLog.open(this.directory, SMALL)) {
+            assertThat(log.firstId()).isZero();
+            assertThat(log.nextId()).isEqualTo(150);
+            assertThat(log.append(frame("message-150"))).isEqualTo(150);
+            assertThat(read(log, 0, 151)).isEqualTo(expected(0, 151));
+        }
+    }
+
+    /**
+     * 超出保留大小时删除最旧的段，正在写入的段保留
+     *
+     * @author shiloh
+     * @date 2026/10/18 23:23
+     */
+    @Test
+    public void testRetentionBySize() throws IOException {
+        try (MessageLog log = MessageLog.open(this.directory, new MessageLogConfig(1024, 64, 5, 2048, 0))) {
+            for (int i = 0; i < 500; i++) {
+                log.append(frame("message-" + i));
+            }
+            assertThat(log.firstId()).isGreaterThan(0);
+            assertThat(log.slices(0, 500).size()).isLessThanOrEqualTo(3);
+            final int first = (int) log.firstId();
+            assertThat(read(log, 0, 500)).isEqualTo(expected(first, 500));
+        }
+        try (Stream<Path> files = Files.list(this.directory)) {
+            assertThat(files.filter(path -> path.toString().endsWith(".log")).count()).isLessThanOrEqualTo(3);
+        }
+    }
+
+    /**
+     * 等待刷盘的线程在后台刷盘后被唤醒
+     *
+     * @author shiloh
+     * @date 2026/10/18 23:24
+     */
+    @Test
+    public void testAwaitDurable() throws Exception {
+        try (MessageLog log = MessageLog.open(this.directory, SMALL)) {
+            final long id = log.append(frame("durable"));
+            log.awaitDurable(id);
+            assertThat(log.durableId()).isGreaterThan(id);
+        }
+    }
+
+    /**
+     * 不接受空内容和长度不一致的消息帧
+     *
+     * @author shiloh
+     * @date 2026/10/18 23:25
+     */
+    @Test
+    public void testRejectsInvalidFrame() throws IOException {
+        try (MessageLog log = MessageLog.open(this.directory, SMALL)) {
+            final ByteBuffer empty = ByteBuffer.allocate(4);
+            final ByteBuffer mismatch = ByteBuffer.allocate(8).putInt(10).putInt(0).flip();
+            assertThatThrownBy(() -> log.append(empty)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> log.append(mismatch)).isInstanceOf(IllegalArgumentException.class);
+            assertThat(log.nextId()).isZero();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.shiloh.nio.test.metrics;
+
+import org.junit.Test;
+import org.shiloh.metrics.LatencyHistogram;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * {@link LatencyHistogram} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/18 19:40
+ */
+public class LatencyHistogramTests {
+    /**
+     * 小于 128 的值精确统计
+     *
+     * @author shiloh
+     * @date 2026/10/18 19:41
+     */
+    @Test
+    public void testExactSmallValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.count()).isEqualTo(100);
+        assertThat(histogram.min()).isEqualTo(1);
+        assertThat(histogram.max()).isEqualTo(100);
+        assertThat(histogram.mean()).isEqualTo(50.5);
+        assertThat(histogram.valueAtPercentile(50)).isEqualTo(50);
+        assertThat(histogram.valueAtPercentile(99)).isEqualTo(99);
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(100);
+        assertThat(histogram.valueAtPercentile(0)).isEqualTo(1);
+    }
+
+    /**
+     * 大值的百分位误差不超过 1/128，且不会超过最大值
+     *
+     * @author shiloh
+     * @date 2026/10/18 19:42
+     */
+    @Test
+    public void testRelativeError() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1_000_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertThat((double) histogram.valueAtPercentile(50)).isCloseTo(500_000_000, within(500_000_000 / 128.0));
+        assertThat((double) histogram.valueAtPercentile(99)).isCloseTo(990_000_000, within(990_000_000 / 128.0));
+        assertThat((double) histogram.valueAtPercentile(99.9)).isCloseTo(999_000_000, within(999_000_000 / 128.0));
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(1_000_000_000L);
+
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    /**
+     * 合并多个线程的直方图
+     *
+     * @author shiloh
+     * @date 2026/10/18 19:43
+     */
+    @Test
+    public void testAddAndReset() {
+        final LatencyHistogram first = new LatencyHistogram();
+        final LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(20);
+        second.record(-5);
+        first.add(second);
+        assertThat(first.count()).isEqualTo(3);
+        assertThat(first.min()).isZero();
+        assertThat(first.max()).isEqualTo(20);
+        assertThat(first.valueAtPercentile(50)).isEqualTo(10);
+
+        first.reset();
+        assertThat(first.count()).isZero();
+        assertThat(first.min()).isZero();
+        assertThat(first.valueAtPercentile(99)).isZero();
+    }
+}
@@ -0,0 +1,112 @@
+package org.shiloh.nio.test.metrics;
+
+import org.junit.Test;
+import org.shiloh.metrics.ConnectionMetrics;
+import org.shiloh.metrics.EventLoopMetrics;
+import org.shiloh.metrics.ServerMetrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ServerMetrics} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/18 20:55
+ */
+public class ServerMetricsTests {
+    /**
+     * 连接的指标汇总到服务端，关闭后不再计入打开的连接
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:56
+     */
+    @Test
+    public void testConnectionMetrics() {
+        final ServerMetrics metrics = new ServerMetrics("test");
+        metrics.connectionAccepted();
+        metrics.connectionAccepted();
+        final ConnectionMetrics first = metrics.connectionOpened("a");
+        final ConnectionMetrics second = metrics.connectionOpened("b");
+        first.bytesRead(100);
+        first.messagesRead(2);
+        second.bytesWritten(50);
+        second.messageWritten();
+        second.outboundQueueBytes(30);
+        second.messageDropped();
+
+        assertThat(metrics.getAcceptedConnections()).isEqualTo(2);
+        assertThat(metrics.getOpenConnections()).isEqualTo(2);
+        assertThat(metrics.getBytesIn()).isEqualTo(100);
+        assertThat(metrics.getMessagesIn()).isEqualTo(2);
+        assertThat(metrics.getBytesOut()).isEqualTo(50);
+        assertThat(metrics.getMessagesOut()).isEqualTo(1);
+        assertThat(metrics.getMessagesDropped()).isEqualTo(1);
+        assertThat(metrics.getMaxOutboundQueueBytes()).isEqualTo(30);
+        // 按积压从多到少排序
+        assertThat(metrics.topConnections(1)).containsExactly(second.toString());
+
+        metrics.connectionClosed(second);
+        assertThat(metrics.getOpenConnections()).isEqualTo(1);
+        assertThat(metrics.getBytesOut()).isEqualTo(50);
+        assertThat(metrics.getMaxOutboundQueueBytes()).isZero();
+    }
+
+    /**
+     * 接收速率按采样周期计算，读取属性不会重置采样窗口
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:36
+     */
+    @Test
+    public void testAcceptRateSampling() {
+        final ServerMetrics metrics = new ServerMetrics("test");
+        final long start = System.nanoTime();
+        metrics.sample(start);
+        for (int i = 0; i < 10; i++) {
+            metrics.connectionAccepted();
+        }
+        assertThat(metrics.getAcceptRate()).isZero();
+        metrics.sample(start + 2_000_000_000L);
+        assertThat(metrics.getAcceptRate()).isEqualTo(5.0);
+        // 多次读取得到同一个值
+        assertThat(metrics.getAcceptRate()).isEqualTo(5.0);
+
+        metrics.sample(start + 3_000_000_000L);
+        assertThat(metrics.getAcceptRate()).isZero();
+    }
+
+    /**
+     * 注册到 MBeanServer 后可以读取服务端和事件循环的属性
+     *
+     * @author shiloh
+     * @date 2026/10/18 20:57
+     */
+    @Test
+    public void testRegisterMBeans() throws Exception {
+        final ServerMetrics metrics = new ServerMetrics("mbean-test");
+        final EventLoopMetrics eventLoop = metrics.newEventLoop("loop-0");
+        eventLoop.recordIteration(1_000_000, 3, 20_000);
+        eventLoop.recordIteration(3_000_000, 1, 40_000);
+        metrics.register();
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName serverName = new ObjectName("org.shiloh.chat:type=Server,name=\"mbean-test\"");
+            final ObjectName loopName =
+                    new ObjectName("org.shiloh.chat:type=EventLoop,server=\"mbean-test\",name=\"loop-0\"");
+            assertThat(mBeanServer.getAttribute(serverName, "OpenConnections")).isEqualTo(0);
+            assertThat(mBeanServer.getAttribute(loopName, "Iterations")).isEqualTo(2L);
+            assertThat(mBeanServer.getAttribute(loopName, "KeysProcessed")).isEqualTo(4L);
+            assertThat(mBeanServer.getAttribute(loopName, "AverageKeysPerIteration")).isEqualTo(2.0);
+            assertThat(mBeanServer.getAttribute(loopName, "AverageSelectWaitMicros")).isEqualTo(2000.0);
+            assertThat((double) mBeanServer.getAttribute(loopName, "LoopDurationMaxMicros")).isEqualTo(40.0);
+        } finally {
+            metrics.unregister();
+        }
+        assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(
+                new ObjectName("org.shiloh.chat:server=\"mbean-test\",*"), null)).isEmpty();
+    }
+}
@@ -1,5 +1,8 @@
 package org.shiloh.nio.test.network;
 
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.codec.TextCodec;
+
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
@@ -28,7 +31,8 @@ public class NioClient {
         }
         // 连接成功后向服务器发送一点数据
         final String msg = "Hello Java Nio~~~";
-        final ByteBuffer byteBuffer = ByteBuffer.wrap(msg.getBytes());
+        // 编码成长度前缀帧，服务端按帧解码，不依赖一次 read 读到的数据边界
+        final ByteBuffer byteBuffer = TextCodec.encodeFrame(msg, BufferPool.DEFAULT);
         // 把 byte buffer 数据写入到通道中
         socketChannel.write(byteBuffer);
         // 让程序卡在这个位置，不关闭连接，观察服务端是否成功接收到了数据
@@ -1,7 +1,9 @@
 package org.shiloh.nio.test.network;
 
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.TextCodec;
+
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -11,7 +13,6 @@ import java.util.Set;
 
 import static java.nio.channels.SelectionKey.OP_ACCEPT;
 import static java.nio.channels.SelectionKey.OP_READ;
-import static org.shiloh.util.ByteUtils.trimByteData;
 
 /**
  * 服务端
@@ -52,20 +53,25 @@ public class NioServer {
                     final SocketChannel socketChannel = serverSocketChannel.accept();
                     // 设置成非阻塞
                     socketChannel.configureBlocking(false);
-                    // 把 socketChannel 注册到选择器中，监听读事件，并绑定一个缓冲区
-                    socketChannel.register(selector, OP_READ, ByteBuffer.allocate(1024));
+                    // 把 socketChannel 注册到选择器中，监听读事件，并绑定一个帧解码器（内部持有该连接的缓冲区）
+                    socketChannel.register(selector, OP_READ, new FrameDecoder());
                 }
                 if (selectionKey.isReadable()) {
                     // 如果是读事件，获取一个 socketChannel
                     final SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
-                    // 获取该通道绑定的缓冲区
-                    final ByteBuffer byteBuffer = (ByteBuffer) selectionKey.attachment();
-                    // 打印从客户端接收到的数据
-                    socketChannel.read(byteBuffer);
-                    final byte[] dataArr = byteBuffer.array();
-                    // 去掉字节数组中多余的0，不然转字符串时，字符串中会包含乱码
-
-                    System.out.println("data from client: " + new String(trimByteData(dataArr)));
+                    // 获取该通道绑定的帧解码器
+                    final FrameDecoder frameDecoder = (FrameDecoder) selectionKey.attachment();
+                    // 读取数据，一次读取可能包含半个帧或多个帧
+                    if (frameDecoder.readFrom(socketChannel) == -1) {
+                        // 客户端断开连接，归还解码器的缓冲区
+                        frameDecoder.release();
+                        selectionKey.cancel();
+                        socketChannel.close();
+                    } else {
+                        // 打印从客户端接收到的每一个完整的帧
+                        frameDecoder.decode(frame ->
+                                System.out.println("data from client: " + TextCodec.decode(frame)));
+                    }
                 }
                 // 从事件集合中移除已经处理的事件，防止重复处理
                 selectionKeyIterator.remove();
@@ -0,0 +1,138 @@
+package org.shiloh.nio.test.record;
+
+import org.junit.Test;
+import org.shiloh.record.RecordCodec;
+import org.shiloh.record.RecordExample;
+import org.shiloh.record.RecordView;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link RecordCodec} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/19 00:30
+ */
+public class RecordCodecTests {
+    /**
+     * 覆盖所有支持的组件类型
+     */
+    public record AllTypes(boolean flag, byte b, short s, char c, int i, long l, float f, double d,
+                           Integer boxed, String text) {
+    }
+
+    /**
+     * 编码后解码得到相等的 record，包括 null、非 ASCII 字符和代理对
+     *
+     * @author shiloh
+     * @date 2026/10/19 00:31
+     */
+    @Test
+    public void testRoundTrip() {
+        final RecordCodec<RecordExample> codec = RecordCodec.of(RecordExample.class);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        final RecordExample[] records = {
+                new RecordExample(1L, "shiloh", "shiloh@gmail.com"),
+                new RecordExample(null, "", null),
+                new RecordExample(Long.MIN_VALUE, "希洛😀", "\uD800x")
+        };
+        for (final RecordExample record : records) {
+            final int length = codec.encode(record, buffer);
+            assertThat(length).isEqualTo(codec.encodedLength(record));
+        }
+        buffer.flip();
+        assertThat(codec.decode(buffer)).isEqualTo(records[0]);
+        assertThat(codec.decode(buffer)).isEqualTo(records[1]);
+        // 无法配对的代理字符与 String.getBytes 一样替换为 '?'
+        assertThat(codec.decode(buffer)).isEqualTo(new RecordExample(Long.MIN_VALUE, "希洛😀",
+                new String("\uD800x".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)));
+        assertThat(buffer.hasRemaining()).isFalse();
+
+        final RecordCodec<AllTypes> allTypesCodec = RecordCodec.of(AllTypes.class);
+        final AllTypes allTypes = new AllTypes(true, (byte) -1, (short) 300, 'Z', -7, 1L << 40, 1.5F, -2.25, null,
+                "ok");
+        final ByteBuffer heap = ByteBuffer.allocate(128);
+        allTypesCodec.encode(allTypes, heap);
+        assertThat(allTypesCodec.decode(heap.flip())).isEqualTo(allTypes);
+    }
+
+    /**
+     * 视图直接读取单个组件，可以依次指向多条记录
+     *
+     * @author shiloh
+     * @date 2026/10/19 00:32
+     */
+    @Test
+    public void testView() {
+        final RecordCodec<RecordExample> codec = RecordCodec.of(RecordExample.class);
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        codec.encode(new RecordExample(1L, "shiloh", "shiloh@gmail.com"), buffer);
+        codec.encode(new RecordExample(null, "张三", null), buffer);
+        buffer.flip();
+
+        final int id = codec.fieldIndex("id");
+        final int username = codec.fieldIndex("username");
+        final int email = codec.fieldIndex("email");
+        final RecordView<RecordExample> view = codec.newView().wrap(buffer, 0);
+        assertThat(view.getLong(id)).isEqualTo(1L);
+        assertThat(view.getString(email)).isEqualTo("shiloh@gmail.com");
+        assertThat(view.stringEquals(username, "shiloh")).isTrue();
+        assertThat(view.stringEquals(username, "shilo")).isFalse();
+
+        view.wrap(buffer, view.length());
+        assertThat(view.isNull(id)).isTrue();
+        assertThat(view.isNull(email)).isTrue();
+        assertThat(view.getString(email)).isNull();
+        assertThat(view.stringLength(username)).isEqualTo(6);
+        assertThat(view.stringEquals(username, "张三")).isTrue();
+        assertThat(buffer.position()).isZero();
+        assertThatThrownBy(() -> view.getInt(id)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 字符串槽位指向记录之外时抛出异常，不会读到后面的数据
+     *
+     * @author shiloh
+     * @date 2026/10/19 11:45
+     */
+    @Test
+    public void testViewRejectsStringOutsideRecord() {
+        final RecordCodec<RecordExample> codec = RecordCodec.of(RecordExample.class);
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        final int length = codec.encode(new RecordExample(1L, "shiloh", "shiloh@gmail.com"), buffer);
+        buffer.flip();
+        // 长度字段少 1 个字节，最后一个字符串的结尾落在记录之外
+        buffer.putInt(0, length - 4 - 1);
+
+        final int username = codec.fieldIndex("username");
+        final int email = codec.fieldIndex("email");
+        final RecordView<RecordExample> view = codec.newView().wrap(buffer, 0);
+        assertThat(view.getString(username)).isEqualTo("shiloh");
+        assertThatThrownBy(() -> view.getString(email)).isInstanceOf(BufferUnderflowException.class);
+        assertThatThrownBy(() -> view.stringEquals(email, "shiloh@gmail.com"))
+                .isInstanceOf(BufferUnderflowException.class);
+        assertThatThrownBy(() -> view.stringLength(email)).isInstanceOf(BufferUnderflowException.class);
+    }
+
+    /**
+     * 空间不足时 position 和 limit 不变
+     *
+     * @author shiloh
+     * @date 2026/10/19 00:33
+     */
+    @Test
+    public void testOverflowLeavesPositionUnchanged() {
+        final RecordCodec<RecordExample> codec = RecordCodec.of(RecordExample.class);
+        final RecordExample record = new RecordExample(1L, "shiloh", "shiloh@gmail.com");
+        final ByteBuffer buffer = ByteBuffer.allocate(codec.encodedLength(record) - 1);
+        assertThatThrownBy(() -> codec.encode(record, buffer)).isInstanceOf(BufferOverflowException.class);
+        assertThat(buffer.position()).isZero();
+        assertThat(buffer.limit()).isEqualTo(buffer.capacity());
+    }
+}
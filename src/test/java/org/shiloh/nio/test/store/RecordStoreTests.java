@@ -0,0 +1,182 @@
+package org.shiloh.nio.test.store;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.shiloh.record.RecordCodec;
+import org.shiloh.record.RecordExample;
+import org.shiloh.record.RecordView;
+import org.shiloh.store.RecordStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link RecordStore} 单元测试
+ * <p>
+ * 写入足够多的记录，让数据文件扩展、索引扩容都至少发生一次。
+ *
+ * @author shiloh
+ * @date 2026/10/19 01:20
+ */
+public class RecordStoreTests {
+    private static final int COUNT = 50_000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp() {
+        this.directory = this.folder.getRoot().toPath();
+    }
+
+    private RecordStore<RecordExample> open() throws IOException {
+        return RecordStore.open(this.directory, RecordExample.class, RecordExample::id);
+    }
+
+    private static RecordExample user(long id, int version) {
+        return new RecordExample(id, "user-" + id + "-" + version, "user" + id + "@example.com");
+    }
+
+    /**
+     * 偶数 id 更新一次，能被 3 整除的 id 删除
+     */
+    private static void populate(RecordStore<RecordExample> store) throws IOException {
+        for (long id = 1; id <= COUNT; id++) {
+            store.put(user(id, 0));
+        }
+        for (long id = 2; id <= COUNT; id += 2) {
+            store.put(user(id, 1));
+        }
+        for (long id = 3; id <= COUNT; id += 3) {
+            assertThat(store.delete(id)).isTrue();
+        }
+    }
+
+    private static void verify(RecordStore<RecordExample> store) {
+        assertThat(store.size()).isEqualTo(COUNT - COUNT / 3);
+        for (long id = 1; id <= COUNT; id++) {
+            final RecordExample expected = id % 3 == 0 ? null : user(id, id % 2 == 0 ? 1 : 0);
+            assertThat(store.get(id)).isEqualTo(expected);
+        }
+        assertThat(store.get(0)).isNull();
+        assertThat(store.get(-1)).isNull();
+    }
+
+    /**
+     * 添加、更新、删除后读取的结果正确，视图可以直接读取字段
+     *
+     * @author shiloh
+     * @date 2026/10/19 01:21
+     */
+    @Test
+    public void testPutGetDelete() throws IOException {
+        try (RecordStore<RecordExample> store = this.open()) {
+            populate(store);
+            verify(store);
+            assertThat(store.delete(3)).isFalse();
+            assertThat(store.garbageBytes()).isGreaterThan(0);
+
+            final RecordCodec<RecordExample> codec = RecordCodec.of(RecordExample.class);
+            final RecordView<RecordExample> view = store.view(4, codec.newView());
+            assertThat(view.getLong(codec.fieldIndex("id"))).isEqualTo(4L);
+            assertThat(view.stringEquals(codec.fieldIndex("username"), "user-4-1")).isTrue();
+            assertThat(store.view(3, codec.newView())).isNull();
+        }
+    }
+
+    /**
+     * 正常关闭后重新打开，数据不变，可以继续写入
+     *
+     * @author shiloh
+     * @date 2026/10/19 01:22
+     */
+    @Test
+    public void testReopen() throws IOException {
+        try (RecordStore<RecordExample> store = this.open()) {
+            populate(store);
+        }
+        try (RecordStore<RecordExample> store = this.open()) {
+            verify(store);
+            store.put(user(3, 2));
+            assertThat(store.get(3)).isEqualTo(user(3, 2));
+        }
+    }
+
+    /**
+     * 没有正常关闭时重新打开，从数据文件重建索引
+     *
+     * @author shiloh
+     * @date 2026/10/19 01:23
+     */
+    @Test
+    public void testRecoverWithoutClose() throws IOException {
+        final RecordStore<RecordExample> crashed = this.open();
+        populate(crashed);
+        crashed.force();
+        // 不关闭第一个存储，模拟进程崩溃后重新打开
+        try (RecordStore<RecordExample> store = this.open()) {
+            verify(store);
+            assertThat(store.garbageBytes()).isEqualTo(crashed.garbageBytes());
+        }
+        crashed.close();
+    }
+
+    private String[] files() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toArray(String[]::new);
+        }
+    }
+
+    /**
+     * 压缩后回收已删除的空间，数据不变，切换到下一代文件并删除原来的文件
+     *
+     * @author shiloh
+     * @date 2026/10/19 01:24
+     */
+    @Test
+    public void testCompact() throws IOException {
+        try (RecordStore<RecordExample> store = this.open()) {
+            populate(store);
+            final long before = store.dataBytes();
+            final long garbage = store.garbageBytes();
+            store.compact();
+            assertThat(this.files()).hasSize(2).contains("records.data.1");
+            assertThat(store.garbageBytes()).isZero();
+            assertThat(store.dataBytes()).isEqualTo(before - garbage);
+            verify(store);
+            store.put(user(3, 3));
+            assertThat(store.get(3)).isEqualTo(user(3, 3));
+            store.delete(3);
+        }
+        try (RecordStore<RecordExample> store = this.open()) {
+            verify(store);
+        }
+    }
+
+    /**
+     * 压缩过程中崩溃留下的、还没有写入魔数的下一代数据文件被忽略并删除
+     *
+     * @author shiloh
+     * @date 2026/10/19 12:15
+     */
+    @Test
+    public void testIgnoreUnfinishedCompaction() throws IOException {
+        try (RecordStore<RecordExample> store = this.open()) {
+            populate(store);
+        }
+        final String[] files = this.files();
+        Files.write(this.directory.resolve("records.data.1"), new byte[4096]);
+        try (RecordStore<RecordExample> store = this.open()) {
+            verify(store);
+        }
+        assertThat(this.files()).containsExactly(files);
+    }
+}
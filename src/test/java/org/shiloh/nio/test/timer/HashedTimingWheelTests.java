@@ -0,0 +1,174 @@
+package org.shiloh.nio.test.timer;
+
+import org.junit.Test;
+import org.shiloh.timer.HashedTimingWheel;
+import org.shiloh.timer.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link HashedTimingWheel} 单元测试，使用手动推进的时间
+ *
+ * @author shiloh
+ * @date 2026/10/18 21:20
+ */
+public class HashedTimingWheelTests {
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 任务在到期时间所在的 tick 执行，不会提前
+     *
+     * @author shiloh
+     * @date 2026/10/18 21:21
+     */
+    @Test
+    public void testExpireInOrder() {
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+        final List<String> fired = new ArrayList<>();
+        timingWheel.scheduleAt(() -> fired.add("a"), 25 * TICK / 10);
+        timingWheel.scheduleAt(() -> fired.add("b"), 5 * TICK);
+        assertThat(timingWheel.pendingTimeouts()).isEqualTo(2);
+
+        assertThat(timingWheel.advance(2 * TICK)).isZero();
+        assertThat(timingWheel.advance(3 * TICK)).isEqualTo(1);
+        assertThat(fired).containsExactly("a");
+        assertThat(timingWheel.advance(5 * TICK - 1)).isZero();
+        assertThat(timingWheel.advance(5 * TICK)).isEqualTo(1);
+        assertThat(fired).containsExactly("a", "b");
+        assertThat(timingWheel.pendingTimeouts()).isZero();
+    }
+
+    /**
+     * 超过一圈的任务等剩余圈数减到 0 才执行
+     *
+     * @author shiloh
+     * @date 2026/10/18 21:22
+     */
+    @Test
+    public void testMultipleRounds() {
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+        final List<Long> fired = new ArrayList<>();
+        timingWheel.scheduleAt(() -> fired.add(3L), 3 * TICK);
+        timingWheel.scheduleAt(() -> fired.add(11L), 11 * TICK);
+        timingWheel.scheduleAt(() -> fired.add(19L), 19 * TICK);
+        for (long t = 0; t <= 20; t++) {
+            timingWheel.advance(t * TICK);
+            if (t == 10) {
+                assertThat(fired).containsExactly(3L);
+            }
+        }
+        assertThat(fired).containsExactly(3L, 11L, 19L);
+    }
+
+    /**
+     * 取消的任务不会执行，包括在同一个 tick 中被前面的任务取消
+     *
+     * @author shiloh
+     * @date 2026/10/18 21:23
+     */
+    @Test
+    public void testCancel() {
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+        final List<String> fired = new ArrayList<>();
+        final Timeout cancelled = timingWheel.scheduleAt(() -> fired.add("cancelled"), 2 * TICK);
+        assertThat(cancelled.cancel()).isTrue();
+        assertThat(cancelled.cancel()).isFalse();
+        assertThat(timingWheel.pendingTimeouts()).isZero();
+
+        final Timeout[] second = new Timeout[1];
+        timingWheel.scheduleAt(() -> {
+            fired.add("first");
+            second[0].cancel();
+        }, 3 * TICK);
+        second[0] = timingWheel.scheduleAt(() -> fired.add("second"), 3 * TICK);
+        assertThat(timingWheel.advance(3 * TICK)).isEqualTo(1);
+        assertThat(fired).containsExactly("first");
+        assertThat(second[0].isCancelled()).isTrue();
+        assertThat(timingWheel.pendingTimeouts()).isZero();
+    }
+
+    /**
+     * 同一个 tick 中的任务取消了本轮还没执行的任务，其后的任务照常执行，下一圈的任务也不受影响
+     *
+     * @author shiloh
+     * @date 2026/10/19 09:20
+     */
+    @Test
+    public void testCancelDuringExpiry() {
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+        final List<String> fired = new ArrayList<>();
+        final Timeout[] timeouts = new Timeout[4];
+        timeouts[0] = timingWheel.scheduleAt(() -> {
+            fired.add("first");
+            timeouts[1].cancel();
+        }, 3 * TICK);
+        timeouts[1] = timingWheel.scheduleAt(() -> fired.add("second"), 3 * TICK);
+        timeouts[2] = timingWheel.scheduleAt(() -> fired.add("third"), 3 * TICK);
+        // 同一槽位的下一圈，本轮会重新放回槽位
+        timeouts[3] = timingWheel.scheduleAt(() -> fired.add("nextRound"), 11 * TICK);
+
+        assertThat(timingWheel.advance(3 * TICK)).isEqualTo(2);
+        assertThat(fired).containsExactly("first", "third");
+        assertThat(timingWheel.pendingTimeouts()).isEqualTo(1);
+
+        // 取消后槽位链表仍然完整，下一圈的任务可以再取消再添加
+        assertThat(timeouts[3].cancel()).isTrue();
+        timingWheel.scheduleAt(() -> fired.add("last"), 11 * TICK);
+        assertThat(timingWheel.advance(11 * TICK)).isEqualTo(1);
+        assertThat(fired).containsExactly("first", "third", "last");
+        assertThat(timingWheel.pendingTimeouts()).isZero();
+    }
+
+    /**
+     * 到期任务中重新添加任务，下一圈同一槽位的任务不会在本轮执行
+     *
+     * @author shiloh
+     * @date 2026/10/18 21:24
+     */
+    @Test
+    public void testRescheduleFromTask() {
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+        final List<Long> fired = new ArrayList<>();
+        final Runnable[] task = new Runnable[1];
+        final long[] now = {0};
+        task[0] = () -> {
+            fired.add(now[0] / TICK);
+            if (fired.size() < 3) {
+                // 正好一圈之后，落在同一个槽位
+                timingWheel.scheduleAt(task[0], now[0] + 8 * TICK);
+            }
+        };
+        timingWheel.scheduleAt(task[0], TICK);
+        for (long t = 0; t <= 30; t++) {
+            now[0] = t * TICK;
+            timingWheel.advance(now[0]);
+        }
+        assertThat(fired).containsExactly(1L, 9L, 17L);
+    }
+
+    /**
+     * 下一个 tick 的等待时间，以及空闲后推进不会执行空槽位
+     *
+     * @author shiloh
+     * @date 2026/10/18 21:25
+     */
+    @Test
+    public void testMillisUntilNextTick() {
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+        assertThat(timingWheel.millisUntilNextTick(-TICK)).isEqualTo(10);
+        timingWheel.advance(TimeUnit.MILLISECONDS.toNanos(3));
+        assertThat(timingWheel.millisUntilNextTick(TimeUnit.MILLISECONDS.toNanos(3))).isEqualTo(7);
+        // 已经过了下一个 tick 也至少返回 1
+        assertThat(timingWheel.millisUntilNextTick(TimeUnit.SECONDS.toNanos(1))).isEqualTo(1);
+
+        timingWheel.advance(TimeUnit.HOURS.toNanos(1));
+        final List<String> fired = new ArrayList<>();
+        timingWheel.scheduleAt(() -> fired.add("late"), TimeUnit.HOURS.toNanos(1) + TICK);
+        timingWheel.advance(TimeUnit.HOURS.toNanos(1) + TICK);
+        assertThat(fired).containsExactly("late");
+    }
+}
@@ -1,6 +1,7 @@
 package org.shiloh.nio.test.transfer;
 
 import org.junit.Test;
+import org.shiloh.buffer.BufferPool;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -32,10 +33,14 @@ public class DataTransferTests {
                 final FileOutputStream fos = new FileOutputStream("D:\\dest.txt");
                 final FileChannel dest = fos.getChannel()
         ) {
-            // 创建 byte buffer，小文件一次性读取即可
-            final ByteBuffer byteBuffer = ByteBuffer.allocate((int) srcFile.length());
-            // 把输入流通道的数据读取到输出流通道中
-            src.transferTo(0, byteBuffer.limit(), dest);
+            // 直接使用通道的大小，不需要为了获取长度创建和文件一样大的缓冲区（超过 2GB 时也无法创建）
+            final long size = src.size();
+            // 把输入流通道的数据读取到输出流通道中，一次调用可能只传输一部分，需要循环
+            // 生产环境请使用 org.shiloh.file.FileCopier
+            long position = 0;
+            while (position < size) {
+                position += src.transferTo(position, size - position, dest);
+            }
             System.out.println("数据传输完毕。");
         } catch (IOException e) {
             e.printStackTrace();
@@ -57,10 +62,12 @@ public class DataTransferTests {
                 final FileOutputStream fos = new FileOutputStream("D:\\dest.txt");
                 final FileChannel dest = fos.getChannel()
         ) {
-            // 创建 byte buffer，小文件一次性读取即可
-            final ByteBuffer byteBuffer = ByteBuffer.allocate((int) srcFile.length());
-            // 把输入流通道的数据读取到输出流通道中
-            dest.transferFrom(src, 0, byteBuffer.limit());
+            final long size = src.size();
+            // 把输入流通道的数据读取到输出流通道中，一次调用可能只传输一部分，需要循环
+            long position = 0;
+            while (position < size) {
+                position += dest.transferFrom(src, position, size - position);
+            }
             System.out.println("数据传输完毕。");
         } catch (IOException e) {
             e.printStackTrace();
@@ -117,6 +124,9 @@ public class DataTransferTests {
      * 复制一个大小为 186MB 的文件：
      * 直接缓冲区耗时：199ms
      * 非直接缓冲区耗时：266ms
+     * <p>
+     * 以上是使用 {@link System#currentTimeMillis()} 单次计时的粗略结果，可重复的对比数据请运行 benchmarks 模块中的
+     * BufferCopyBenchmark（堆内/直接缓冲区、缓冲区大小）和 TransferBenchmark（transferTo/transferFrom/mmap）。
      *
      * @author shiloh
      * @date 2023/2/25 17:18
@@ -131,14 +141,18 @@ public class DataTransferTests {
                 final FileOutputStream fos = new FileOutputStream("D:\\dest.gz");
                 final FileChannel dest = fos.getChannel()
         ) {
-            // 创建直接缓冲区
-            final ByteBuffer byteBuffer = ByteBuffer.allocate(5 * 1024 * 1024);
-            while (src.read(byteBuffer) != -1) {
-                // 切换读写模式
-                byteBuffer.flip();
-                dest.write(byteBuffer);
-                // 清空缓冲区
-                byteBuffer.clear();
+            // 从缓冲池中获取直接缓冲区，用完归还，重复执行时不需要重新分配
+            final ByteBuffer byteBuffer = BufferPool.DEFAULT.acquire(5 * 1024 * 1024);
+            try {
+                while (src.read(byteBuffer) != -1) {
+                    // 切换读写模式
+                    byteBuffer.flip();
+                    dest.write(byteBuffer);
+                    // 清空缓冲区
+                    byteBuffer.clear();
+                }
+            } finally {
+                BufferPool.DEFAULT.release(byteBuffer);
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -0,0 +1,94 @@
+package org.shiloh.nio.test.transfer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.shiloh.file.CopyStrategy;
+import org.shiloh.file.FileCopier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link FileCopier} 单元测试
+ * <p>
+ * 使用很小的块大小和窗口大小，让每种策略都需要循环多次，覆盖部分传输和窗口滑动的逻辑。
+ *
+ * @author shiloh
+ * @date 2026/10/18 17:20
+ */
+public class FileCopierTests {
+    private Path src;
+    private Path dest;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        this.content = new byte[1024 * 1024 + 123];
+        new Random(17L).nextBytes(this.content);
+        this.src = Files.createTempFile("file-copier-src", ".bin");
+        this.dest = Files.createTempFile("file-copier-dest", ".bin");
+        Files.write(this.src, this.content);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.src);
+        Files.deleteIfExists(this.dest);
+    }
+
+    /**
+     * 每种策略复制的结果都和源文件一致
+     *
+     * @author shiloh
+     * @date 2026/10/18 17:21
+     */
+    @Test
+    public void testEveryStrategy() throws IOException {
+        final FileCopier fileCopier = new FileCopier(4096, 10_000, 65_536);
+        for (final CopyStrategy strategy : CopyStrategy.values()) {
+            // 先写入一些更长的旧数据，确认目标文件会被覆盖
+            Files.write(this.dest, new byte[this.content.length * 2]);
+            assertThat(fileCopier.copy(this.src, this.dest, strategy)).isEqualTo(this.content.length);
+            assertThat(Files.readAllBytes(this.dest)).as(strategy.name()).isEqualTo(this.content);
+        }
+    }
+
+    /**
+     * 自动选择策略
+     *
+     * @author shiloh
+     * @date 2026/10/18 17:22
+     */
+    @Test
+    public void testChoose() throws IOException {
+        final FileCopier fileCopier = new FileCopier();
+        // 临时目录在本地文件系统上：Linux 由内核直接复制，其他系统使用内存映射
+        final boolean linux = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("linux");
+        assertThat(fileCopier.choose(this.src, this.dest))
+                .isEqualTo(linux ? CopyStrategy.TRANSFER_TO : CopyStrategy.MAPPED);
+
+        Files.write(this.src, new byte[10]);
+        assertThat(fileCopier.choose(this.src, this.dest)).isEqualTo(CopyStrategy.BUFFERED_LOOP);
+    }
+
+    /**
+     * 空文件
+     *
+     * @author shiloh
+     * @date 2026/10/18 17:23
+     */
+    @Test
+    public void testEmptyFile() throws IOException {
+        Files.write(this.src, new byte[0]);
+        for (final CopyStrategy strategy : CopyStrategy.values()) {
+            assertThat(new FileCopier().copy(this.src, this.dest, strategy)).isZero();
+            assertThat(Files.size(this.dest)).isZero();
+        }
+    }
+}
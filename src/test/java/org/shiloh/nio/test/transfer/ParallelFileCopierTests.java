@@ -0,0 +1,63 @@
+package org.shiloh.nio.test.transfer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.shiloh.file.CopyStrategy;
+import org.shiloh.file.ParallelFileCopier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ParallelFileCopier} 单元测试
+ *
+ * @author shiloh
+ * @date 2026/10/18 17:55
+ */
+public class ParallelFileCopierTests {
+    private Path src;
+    private Path dest;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        // 不是块大小的整数倍，最后一个区间不满一个块
+        this.content = new byte[3 * 1024 * 1024 + 777];
+        new Random(29L).nextBytes(this.content);
+        this.src = Files.createTempFile("parallel-copier-src", ".bin");
+        this.dest = Files.createTempFile("parallel-copier-dest", ".bin");
+        Files.write(this.src, this.content);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.src);
+        Files.deleteIfExists(this.dest);
+    }
+
+    /**
+     * 每种区间复制方式的结果都和源文件一致
+     *
+     * @author shiloh
+     * @date 2026/10/18 17:56
+     */
+    @Test
+    public void testEveryRangeStrategy() throws IOException {
+        for (final CopyStrategy strategy : new CopyStrategy[]{
+                CopyStrategy.BUFFERED_LOOP, CopyStrategy.TRANSFER_TO, CopyStrategy.MAPPED
+        }) {
+            try (final ParallelFileCopier fileCopier = new ParallelFileCopier(4, 100_000, strategy)) {
+                // 块大小对齐到 4KB
+                assertThat(fileCopier.chunkSize()).isEqualTo(102_400);
+                Files.write(this.dest, new byte[this.content.length * 2]);
+                assertThat(fileCopier.copy(this.src, this.dest)).isEqualTo(this.content.length);
+                assertThat(Files.readAllBytes(this.dest)).as(strategy.name()).isEqualTo(this.content);
+            }
+        }
+    }
+}
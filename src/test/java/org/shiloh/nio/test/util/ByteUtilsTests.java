@@ -0,0 +1,139 @@
+package org.shiloh.nio.test.util;
+
+import org.junit.Test;
+import org.shiloh.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ByteUtils} 单元测试，与逐字节的实现对比结果
+ *
+ * @author shiloh
+ * @date 2026/10/18 15:30
+ */
+public class ByteUtilsTests {
+    private final Random random = new Random(20231018L);
+
+    /**
+     * 去掉数组中的 0，包括数组中间的 0
+     *
+     * @author shiloh
+     * @date 2026/10/18 15:31
+     */
+    @Test
+    public void testTrimByteData() {
+        assertThat(ByteUtils.trimByteData(new byte[]{'a', 0, 'b', 0, 0})).containsExactly('a', 'b');
+        assertThat(ByteUtils.trimByteData(new byte[1024])).isEmpty();
+        final byte[] noZero = {'n', 'i', 'o'};
+        assertThat(ByteUtils.trimByteData(noZero)).isSameAs(noZero);
+
+        for (int length = 0; length < 100; length++) {
+            final byte[] data = this.randomBytes(length);
+            assertThat(ByteUtils.trimByteData(data.clone())).isEqualTo(this.naiveTrim(data));
+        }
+    }
+
+    /**
+     * 原地压缩堆内和直接缓冲区
+     *
+     * @author shiloh
+     * @date 2026/10/18 15:32
+     */
+    @Test
+    public void testCompactZeros() {
+        for (int length = 0; length < 100; length++) {
+            final byte[] data = this.randomBytes(length);
+            final byte[] expected = this.naiveTrim(data);
+            for (final ByteBuffer buffer : this.buffersOf(data)) {
+                final int from = buffer.position();
+                assertThat(ByteUtils.compactZeros(buffer)).isEqualTo(expected.length);
+                final byte[] actual = new byte[buffer.remaining()];
+                buffer.get(from, actual);
+                assertThat(actual).isEqualTo(expected);
+            }
+        }
+    }
+
+    /**
+     * 查找字节和计算有效长度
+     *
+     * @author shiloh
+     * @date 2026/10/18 15:33
+     */
+    @Test
+    public void testIndexOfAndEffectiveLength() {
+        for (int length = 0; length < 200; length++) {
+            final byte[] data = this.randomBytes(length);
+            // 末尾补几个 0
+            final int trailingZeros = this.random.nextInt(20);
+            for (int i = Math.max(0, length - trailingZeros); i < length; i++) {
+                data[i] = 0;
+            }
+            final byte target = (byte) this.random.nextInt(4);
+            int expectedIndex = -1;
+            int expectedEnd = 0;
+            for (int i = 0; i < length; i++) {
+                if (expectedIndex < 0 && data[i] == target) {
+                    expectedIndex = i;
+                }
+                if (data[i] != 0) {
+                    expectedEnd = i + 1;
+                }
+            }
+            assertThat(ByteUtils.indexOf(data, 0, length, target)).isEqualTo(expectedIndex);
+            assertThat(ByteUtils.effectiveLength(data, 0, length)).isEqualTo(expectedEnd);
+            for (final ByteBuffer buffer : this.buffersOf(data)) {
+                final int from = buffer.position();
+                assertThat(ByteUtils.indexOf(buffer, target)).isEqualTo(expectedIndex < 0 ? -1 : from + expectedIndex);
+                assertThat(ByteUtils.effectiveLength(buffer)).isEqualTo(expectedEnd);
+            }
+        }
+    }
+
+    /**
+     * 同一份数据分别放在堆内缓冲区、带偏移的堆内切片、直接缓冲区中，position 都不为 0
+     */
+    private ByteBuffer[] buffersOf(byte[] data) {
+        final ByteBuffer heap = ByteBuffer.allocate(data.length + 3);
+        heap.position(3).mark();
+        heap.put(data).reset();
+
+        final ByteBuffer backing = ByteBuffer.allocate(data.length + 10);
+        final ByteBuffer slice = backing.position(5).slice();
+        slice.position(2).mark();
+        slice.put(data, 0, Math.min(data.length, slice.remaining())).reset();
+        slice.limit(2 + data.length);
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 7);
+        direct.position(7).mark();
+        direct.put(data).reset();
+        return new ByteBuffer[]{heap, slice, direct};
+    }
+
+    /**
+     * 随机数据，大约三分之一为 0
+     */
+    private byte[] randomBytes(int length) {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = this.random.nextInt(3) == 0 ? 0 : (byte) (this.random.nextInt(255) + 1);
+        }
+        return data;
+    }
+
+    private byte[] naiveTrim(byte[] data) {
+        int length = 0;
+        final byte[] result = new byte[data.length];
+        for (final byte b : data) {
+            if (b != 0) {
+                result[length++] = b;
+            }
+        }
+        final byte[] trimmed = new byte[length];
+        System.arraycopy(result, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
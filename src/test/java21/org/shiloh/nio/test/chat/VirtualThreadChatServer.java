@@ -0,0 +1,252 @@
+package org.shiloh.nio.test.chat;
+
+import org.shiloh.buffer.BufferPool;
+import org.shiloh.buffer.RefCountedBuffer;
+import org.shiloh.codec.FrameDecoder;
+import org.shiloh.codec.FrameEncoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.shiloh.nio.test.chat.GroupChatServer.HOST;
+import static org.shiloh.nio.test.chat.GroupChatServer.PORT;
+
+/**
+ * Nio 多人聊天室 - 虚拟线程版服务端（需要 JDK 21）
+ * <p>
+ * 与 {@link org.shiloh.nio.test.channel.SocketChannelTests} 一样使用阻塞模式的 {@link SocketChannel}，
+ * 但每个连接都有自己的虚拟线程和缓冲区，而不是一个线程依次服务所有连接。虚拟线程阻塞在 I/O 上时会让出载体线程，
+ * 所以可以像写同步代码一样处理每个连接，同时支撑几万个并发连接。
+ * <p>
+ * 每个连接使用两个虚拟线程：读线程解码消息并放入其他连接的发送队列，写线程从自己的发送队列中取出消息写出，
+ * 慢客户端只会阻塞它自己的写线程。消息帧与 {@link GroupChatServer} 相同，只编码一次，所有接收者共享。
+ * <p>
+ * 发送队列有长度上限（-Dchat.outboundQueueCapacity，默认 1024 条），队列满了说明客户端跟不上，直接断开连接，
+ * 不会无限占用内存。缓冲区来自一个不使用线程本地缓存的缓冲池：每个虚拟线程的本地缓存只会囤积直接内存，见 {@link BufferPool}。
+ * <p>
+ * 启动参数：第一个参数为监听端口，默认与 {@link GroupChatServer} 相同。
+ *
+ * @author shiloh
+ * @date 2026/10/18 18:20
+ */
+public class VirtualThreadChatServer {
+    /**
+     * 当前在线的连接
+     */
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 每个连接发送队列的最大消息数
+     */
+    private static final int OUTBOUND_QUEUE_CAPACITY = Integer.getInteger("chat.outboundQueueCapacity", 1024);
+
+    /**
+     * 缓冲池，所有缓冲区都经过共享池，不使用线程本地缓存
+     */
+    private final BufferPool bufferPool = new BufferPool(0, 64 * 1024 * 1024);
+
+    /**
+     * 监听端口
+     */
+    private final int port;
+
+    public VirtualThreadChatServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * 启动服务端，阻塞当前线程接收连接
+     *
+     * @throws IOException 绑定端口失败
+     * @author shiloh
+     * @date 2026/10/18 18:22
+     */
+    public void start() throws IOException {
+        try (final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+            serverSocketChannel.bind(new InetSocketAddress(HOST, this.port), 4096);
+            System.out.println("虚拟线程服务端已启动，端口：" + this.port);
+            while (true) {
+                // 阻塞等待客户端连接
+                final SocketChannel socketChannel = serverSocketChannel.accept();
+                final Connection connection = new Connection(socketChannel);
+                // 每个连接一个读线程、一个写线程，写线程在加入在线列表之前创建好，其他线程关闭连接时需要中断它
+                connection.writer = Thread.ofVirtual().name("chat-writer-", socketChannel.hashCode())
+                        .unstarted(connection::writeLoop);
+                this.connections.add(connection);
+                connection.writer.start();
+                Thread.ofVirtual().name("chat-reader-", socketChannel.hashCode()).start(connection::readLoop);
+            }
+        }
+    }
+
+    /**
+     * 转发消息到其他连接的发送队列
+     *
+     * @param sender 发送者
+     * @param msg    共享的消息帧
+     * @author shiloh
+     * @date 2026/10/18 18:24
+     */
+    private void broadcast(Connection sender, RefCountedBuffer msg) {
+        for (final Connection connection : this.connections) {
+            if (connection != sender && !connection.enqueue(msg)) {
+                // 发送队列已满，慢客户端直接断开，不拖慢其他连接
+                System.out.println("发送队列已满，断开连接：" + connection.channel);
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * 一个客户端连接
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+
+        /**
+         * 本连接独占的解码器和缓冲区
+         */
+        private final FrameDecoder frameDecoder = new FrameDecoder(FrameDecoder.DEFAULT_MAX_FRAME_LENGTH,
+                FrameDecoder.DEFAULT_BUFFER_SIZE, VirtualThreadChatServer.this.bufferPool);
+
+        /**
+         * 发送队列，有长度上限
+         */
+        private final BlockingQueue<RefCountedBuffer> outboundQueue = new ArrayBlockingQueue<>(OUTBOUND_QUEUE_CAPACITY);
+
+        /**
+         * 保护 closed 和入队：关闭后不再入队，写线程退出前在同一个锁内清空队列，不会有引用遗留在队列中。
+         * 使用 ReentrantLock 而不是 synchronized，JDK 21 中虚拟线程在 synchronized 中会占住载体线程
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private boolean closed;
+
+        /**
+         * 写线程
+         */
+        private Thread writer;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * 读线程：阻塞读取，解码出完整的帧后转发
+         */
+        private void readLoop() {
+            final BufferPool bufferPool = VirtualThreadChatServer.this.bufferPool;
+            try {
+                while (this.frameDecoder.readFrom(this.channel) != -1) {
+                    this.frameDecoder.decode(payload -> {
+                        final ByteBuffer frame = bufferPool.acquire(FrameEncoder.frameLength(payload.remaining()));
+                        FrameEncoder.encode(payload, frame);
+                        final RefCountedBuffer msg = RefCountedBuffer.wrap(frame.flip(), bufferPool::release);
+                        try {
+                            VirtualThreadChatServer.this.broadcast(this, msg);
+                        } finally {
+                            msg.release();
+                        }
+                    });
+                }
+            } catch (IOException ignored) {
+                // 连接异常断开
+            } finally {
+                this.close();
+                // 解码器只在读线程中使用，由读线程归还缓冲区
+                this.frameDecoder.release();
+            }
+        }
+
+        /**
+         * 放入发送队列，成功时持有一个引用
+         *
+         * @param msg 共享的消息帧
+         * @return 队列已满返回 false，连接已关闭时直接忽略，返回 true
+         */
+        private boolean enqueue(RefCountedBuffer msg) {
+            this.lock.lock();
+            try {
+                if (this.closed) {
+                    return true;
+                }
+                // 先增加引用再入队，写线程可能在入队后立即写完并释放
+                if (this.outboundQueue.offer(msg.retain())) {
+                    return true;
+                }
+                msg.release();
+                return false;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * 写线程：阻塞等待消息并写出，写完释放引用
+         */
+        private void writeLoop() {
+            try {
+                while (true) {
+                    final RefCountedBuffer msg = this.outboundQueue.take();
+                    try {
+                        final ByteBuffer view = msg.view();
+                        while (view.hasRemaining()) {
+                            this.channel.write(view);
+                        }
+                    } finally {
+                        msg.release();
+                    }
+                }
+            } catch (IOException | InterruptedException ignored) {
+                // 连接已关闭
+            } finally {
+                this.close();
+                // 在入队使用的锁内释放队列中剩余的消息，之后 closed 已经为 true，不会再有消息入队
+                this.lock.lock();
+                try {
+                    RefCountedBuffer msg;
+                    while ((msg = this.outboundQueue.poll()) != null) {
+                        msg.release();
+                    }
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * 关闭连接，可以在任意线程调用，中断阻塞在队列上的写线程
+         */
+        private void close() {
+            this.lock.lock();
+            try {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+            } finally {
+                this.lock.unlock();
+            }
+            VirtualThreadChatServer.this.connections.remove(this);
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            this.writer.interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT;
+        new VirtualThreadChatServer(port).start();
+    }
+}